@@ -13,9 +13,13 @@
  */
 package net.greghaines.jesque;
 
+import java.time.Duration;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
+import net.greghaines.jesque.utils.ResqueConstants;
 import net.greghaines.jesque.utils.VersionUtils;
 import redis.clients.jedis.ClientSetInfoConfig;
 import redis.clients.jedis.DefaultJedisClientConfig;
@@ -33,6 +37,14 @@ public final class Config {
   private final String masterName;
   private final Set<HostAndPort> sentinels;
   private final String namespace;
+  private final boolean clusterKeys;
+  private final Map<String, Integer> partitionedQueues;
+  private final Set<String> orderedQueues;
+  private final Map<String, Integer> tenantQueues;
+  private final Map<String, RateLimit> queueRateLimits;
+  private final Map<String, RateLimit> jobRateLimits;
+  private final Map<String, Integer> queueConcurrencyLimits;
+  private final Map<String, Integer> jobConcurrencyLimits;
   private final JedisClientConfig clientConfig;
 
   private Config(final Builder builder) {
@@ -40,6 +52,23 @@ public final class Config {
     this.masterName = builder.masterName;
     this.sentinels = builder.sentinels;
     this.namespace = builder.namespace;
+    this.clusterKeys = builder.clusterKeys;
+    this.partitionedQueues =
+        Collections.unmodifiableMap(new LinkedHashMap<String, Integer>(builder.partitionedQueues));
+    this.orderedQueues =
+        Collections.unmodifiableSet(new LinkedHashSet<String>(builder.orderedQueues));
+    this.tenantQueues =
+        Collections.unmodifiableMap(new LinkedHashMap<String, Integer>(builder.tenantQueues));
+    this.queueRateLimits =
+        Collections.unmodifiableMap(new LinkedHashMap<String, RateLimit>(builder.queueRateLimits));
+    this.jobRateLimits =
+        Collections.unmodifiableMap(new LinkedHashMap<String, RateLimit>(builder.jobRateLimits));
+    this.queueConcurrencyLimits =
+        Collections.unmodifiableMap(
+            new LinkedHashMap<String, Integer>(builder.queueConcurrencyLimits));
+    this.jobConcurrencyLimits =
+        Collections.unmodifiableMap(
+            new LinkedHashMap<String, Integer>(builder.jobConcurrencyLimits));
     this.clientConfig = builder.clientBuilder.build();
   }
 
@@ -71,6 +100,100 @@ public final class Config {
     return this.namespace;
   }
 
+  /**
+   * @return true if the keys of each queue carry a hash tag so that they can be spread over the
+   *     shards of a Redis Cluster
+   * @see Builder#withClusterKeys(boolean)
+   */
+  public boolean isClusterKeys() {
+    return this.clusterKeys;
+  }
+
+  /**
+   * @return the number of partitions of each partitioned queue, by queue name
+   * @see Builder#withQueuePartitions(String, int)
+   */
+  public Map<String, Integer> getPartitionedQueues() {
+    return this.partitionedQueues;
+  }
+
+  /**
+   * @param queue the name of a queue
+   * @return the number of partitions of the queue, which is 1 if the queue is not partitioned
+   * @see Builder#withQueuePartitions(String, int)
+   */
+  public int getPartitionCount(final String queue) {
+    final Integer partitions = this.partitionedQueues.get(queue);
+    return (partitions == null) ? 1 : partitions;
+  }
+
+  /**
+   * @return the names of the ordered queues
+   * @see Builder#withOrderedQueue(String, int)
+   */
+  public Set<String> getOrderedQueues() {
+    return this.orderedQueues;
+  }
+
+  /**
+   * @param queue the name of a queue, not one of its partitions
+   * @return true if jobs with the same ordering key in the queue run one at a time, in order
+   * @see Builder#withOrderedQueue(String, int)
+   */
+  public boolean isOrderedQueue(final String queue) {
+    return this.orderedQueues.contains(queue);
+  }
+
+  /**
+   * @return the number of jobs each tenant takes per turn in each tenant queue, by queue name
+   * @see Builder#withTenantQueue(String, int)
+   */
+  public Map<String, Integer> getTenantQueues() {
+    return this.tenantQueues;
+  }
+
+  /**
+   * @param queue the name of a queue
+   * @return true if the queue's jobs are kept per tenant and taken from the tenants in turn
+   * @see Builder#withTenantQueue(String, int)
+   */
+  public boolean isTenantQueue(final String queue) {
+    return this.tenantQueues.containsKey(queue);
+  }
+
+  /**
+   * @return the rate limit of each rate limited queue, by queue name
+   * @see Builder#withQueueRateLimit(String, long, Duration)
+   */
+  public Map<String, RateLimit> getQueueRateLimits() {
+    return this.queueRateLimits;
+  }
+
+  /**
+   * @return the rate limit of each rate limited job class, by job class name
+   * @see Builder#withJobRateLimit(String, long, Duration)
+   */
+  public Map<String, RateLimit> getJobRateLimits() {
+    return this.jobRateLimits;
+  }
+
+  /**
+   * @return the most jobs that may run at once from each concurrency limited queue, by queue name
+   * @see Builder#withQueueConcurrencyLimit(String, int)
+   */
+  public Map<String, Integer> getQueueConcurrencyLimits() {
+    return this.queueConcurrencyLimits;
+  }
+
+  /**
+   * @return the most jobs that may run at once of each concurrency limited job class, by job class
+   *     name
+   * @see Builder#withJobConcurrencyLimit(String, int)
+   */
+  public Map<String, Integer> getJobConcurrencyLimits() {
+    return this.jobConcurrencyLimits;
+  }
+
   /**
    * @return the Redis protocol URI this Config will connect to
    */
@@ -97,7 +220,23 @@ public final class Config {
   /** {@inheritDoc} */
   @Override
   public String toString() {
-    return "<" + getURI() + " namespace=" + this.namespace + ">";
+    return "<"
+        + getURI()
+        + " namespace="
+        + this.namespace
+        + (this.clusterKeys ? " clusterKeys" : "")
+        + (this.partitionedQueues.isEmpty() ? "" : " partitions=" + this.partitionedQueues)
+        + (this.orderedQueues.isEmpty() ? "" : " ordered=" + this.orderedQueues)
+        + (this.tenantQueues.isEmpty() ? "" : " tenants=" + this.tenantQueues)
+        + (this.queueRateLimits.isEmpty() ? "" : " queueRateLimits=" + this.queueRateLimits)
+        + (this.jobRateLimits.isEmpty() ? "" : " jobRateLimits=" + this.jobRateLimits)
+        + (this.queueConcurrencyLimits.isEmpty()
+            ? ""
+            : " queueConcurrencyLimits=" + this.queueConcurrencyLimits)
+        + (this.jobConcurrencyLimits.isEmpty()
+            ? ""
+            : " jobConcurrencyLimits=" + this.jobConcurrencyLimits)
+        + ">";
   }
 
   /**
@@ -135,6 +274,14 @@ public final class Config {
     private String masterName = null;
     private Set<HostAndPort> sentinels = null;
     private String namespace = DEFAULT_NAMESPACE;
+    private boolean clusterKeys = false;
+    private final Map<String, Integer> partitionedQueues = new LinkedHashMap<>();
+    private final Set<String> orderedQueues = new LinkedHashSet<>();
+    private final Map<String, Integer> tenantQueues = new LinkedHashMap<>();
+    private final Map<String, RateLimit> queueRateLimits = new LinkedHashMap<>();
+    private final Map<String, RateLimit> jobRateLimits = new LinkedHashMap<>();
+    private final Map<String, Integer> queueConcurrencyLimits = new LinkedHashMap<>();
+    private final Map<String, Integer> jobConcurrencyLimits = new LinkedHashMap<>();
     private final DefaultJedisClientConfig.Builder clientBuilder;
 
     /** No-arg constructor. */
@@ -154,6 +301,14 @@ public final class Config {
       }
       this.hostAndPort = startingPoint.getHostAndPort();
       this.namespace = startingPoint.getNamespace();
+      this.clusterKeys = startingPoint.isClusterKeys();
+      this.partitionedQueues.putAll(startingPoint.getPartitionedQueues());
+      this.orderedQueues.addAll(startingPoint.getOrderedQueues());
+      this.tenantQueues.putAll(startingPoint.getTenantQueues());
+      this.queueRateLimits.putAll(startingPoint.getQueueRateLimits());
+      this.jobRateLimits.putAll(startingPoint.getJobRateLimits());
+      this.queueConcurrencyLimits.putAll(startingPoint.getQueueConcurrencyLimits());
+      this.jobConcurrencyLimits.putAll(startingPoint.getJobConcurrencyLimits());
       this.clientBuilder =
           DefaultJedisClientConfig.builder().from(startingPoint.getJedisClientConfig());
       setClientSetInfoConfig();
@@ -224,6 +379,225 @@ public final class Config {
       return this;
     }
 
+    /**
+     * Configs created by this Builder will use the cluster key layout, in which the name of the
+     * queue in every key that belongs to a queue is wrapped in braces, e.g. <code>
+     * resque:queue:{foo}</code>. Redis Cluster hashes only the part in braces, so all the keys of a
+     * queue live in one slot and the scripts that touch them can run there, while different queues
+     * are spread over the shards. Keys that do not belong to a queue, such as the worker statuses
+     * and stats, are unchanged and updated by separate commands. The layout is not understood by
+     * Resque itself; existing keys can be moved to it with {@link
+     * net.greghaines.jesque.utils.ClusterKeyMigration}. (Disabled by default)
+     *
+     * @param clusterKeys whether to use the cluster key layout
+     * @return this Builder
+     */
+    public Builder withClusterKeys(final boolean clusterKeys) {
+      this.clusterKeys = clusterKeys;
+      return this;
+    }
+
+    /**
+     * Configs created by this Builder will split the given queue into partitions, separate lists
+     * named <code>queue#0</code> to <code>queue#N-1</code>, so that a busy queue is not a single
+     * hot key. Clients spread the jobs of the queue over its partitions, see {@link
+     * net.greghaines.jesque.client.PartitionStrategy}, workers polling the queue poll all of its
+     * partitions, each worker starting at a different one, and the queue info DAO reports the
+     * partitions as one queue. Jobs are only ordered within a partition. Clients, workers and DAOs
+     * must agree on the number of partitions; jobs left in a partition that is no longer declared
+     * are not polled.
+     *
+     * @param queue the name of the queue
+     * @param partitions the number of partitions; 1 stops partitioning the queue
+     * @return this Builder
+     * @throws IllegalArgumentException if the queue is null, empty, contains the partition
+     *     separator or is a tenant queue, or the number of partitions is less than one
+     */
+    public Builder withQueuePartitions(final String queue, final int partitions) {
+      if (queue == null || "".equals(queue) || queue.contains(ResqueConstants.PARTITION)) {
+        throw new IllegalArgumentException(
+            "queue must not be null, empty or a partition: " + queue);
+      }
+      if (partitions < 1) {
+        throw new IllegalArgumentException("partitions must be at least 1: " + partitions);
+      }
+      if (partitions > 1 && this.tenantQueues.containsKey(queue)) {
+        throw new IllegalArgumentException(queue + " is a tenant queue and cannot be partitioned");
+      }
+      if (partitions == 1) {
+        this.partitionedQueues.remove(queue);
+      } else {
+        this.partitionedQueues.put(queue, partitions);
+      }
+      return this;
+    }
+
+    /**
+     * Configs created by this Builder will make the given queue an ordered queue, split into lanes
+     * so that jobs with the same ordering key run one at a time and in the order they were added,
+     * while jobs with different keys run in parallel. Clients add each job to the lane its ordering
+     * key hashes to, see {@link net.greghaines.jesque.client.Client#enqueue(String, String, Job)},
+     * and a worker only takes a job from a lane by taking the lane's lease, which it gives back
+     * once the job succeeds or fails. The lanes are the queue's partitions, see {@link
+     * #withQueuePartitions(String, int)}, so at most that many jobs of the queue run at once and
+     * keys sharing a lane wait for each other. A lease left by a worker that died expires after the
+     * worker's lane lease time, which must be longer than the queue's longest job. Ordered queues
+     * cannot be stream queues, be polled with the RESET_TO_HIGHEST_PRIORITY strategy or be used by
+     * a {@link net.greghaines.jesque.worker.PipelinedWorkerImpl}.
+     *
+     * @param queue the name of the queue
+     * @param lanes the number of lanes; 1 runs the queue's jobs one at a time
+     * @return this Builder
+     * @throws IllegalArgumentException if the queue is null, empty, contains the partition
+     *     separator or is a tenant queue, or the number of lanes is less than one
+     */
+    public Builder withOrderedQueue(final String queue, final int lanes) {
+      if (this.tenantQueues.containsKey(queue)) {
+        throw new IllegalArgumentException(queue + " is a tenant queue and cannot be ordered");
+      }
+      withQueuePartitions(queue, lanes);
+      this.orderedQueues.add(queue);
+      return this;
+    }
+
+    /**
+     * Configs created by this Builder will make the given queue a tenant queue, whose jobs are kept
+     * in a list per tenant so that one tenant adding a great many jobs does not hold up the others.
+     * Clients add each job to its tenant's list, see {@link
+     * net.greghaines.jesque.client.Client#tenantEnqueue(String, String, Job)}, and workers take
+     * jobs from the tenants with jobs in turn, by deficit round robin: each tenant takes up to the
+     * quantum of jobs before the next tenant's turn. Jobs added without a tenant, and jobs handed
+     * back by workers, are kept in the queue's own list, which takes its turn as another tenant.
+     * The queue info DAO reports the number of jobs of each tenant. Tenant queues cannot be
+     * partitioned, ordered, stream queues or hold delayed jobs, and cannot be polled with the
+     * RESET_TO_HIGHEST_PRIORITY strategy.
+     *
+     * @param queue the name of the queue
+     * @param quantum the number of jobs each tenant takes per turn
+     * @return this Builder
+     * @throws IllegalArgumentException if the queue is null, empty, partitioned or ordered, or the
+     *     quantum is less than one
+     */
+    public Builder withTenantQueue(final String queue, final int quantum) {
+      if (queue == null || "".equals(queue)) {
+        throw new IllegalArgumentException("queue must not be null or empty: " + queue);
+      }
+      if (this.partitionedQueues.containsKey(queue) || this.orderedQueues.contains(queue)) {
+        throw new IllegalArgumentException(
+            queue + " is partitioned or ordered and cannot be a tenant queue");
+      }
+      if (quantum < 1) {
+        throw new IllegalArgumentException("quantum must be at least 1: " + quantum);
+      }
+      this.tenantQueues.put(queue, quantum);
+      return this;
+    }
+
+    /**
+     * Configs created by this Builder will limit how often workers start jobs from the given queue,
+     * across every worker, with a token bucket in Redis, see {@link RateLimit}. The pop script
+     * takes a permit along with each job, so a job that is not allowed yet stays at the head of the
+     * queue and the worker moves on to its other queues. The partitions of a partitioned queue
+     * share the queue's limit, except in the cluster key layout, where they cannot be limited. The
+     * queue info DAO reports the permits left and how long until the next. Limits are not enforced
+     * on stream, ordered or tenant queues, and cannot be used with the RESET_TO_HIGHEST_PRIORITY
+     * strategy.
+     *
+     * @param queue the name of the queue
+     * @param permits the number of jobs that may be started per period
+     * @param period the period
+     * @return this Builder
+     * @throws IllegalArgumentException if the queue is null or empty, the number of permits is less
+     *     than one or the period is null or shorter than a millisecond
+     */
+    public Builder withQueueRateLimit(
+        final String queue, final long permits, final Duration period) {
+      if (queue == null || "".equals(queue)) {
+        throw new IllegalArgumentException("queue must not be null or empty: " + queue);
+      }
+      this.queueRateLimits.put(queue, new RateLimit(permits, period));
+      return this;
+    }
+
+    /**
+     * Configs created by this Builder will limit how often workers start jobs of the given class,
+     * from any queue and across every worker, in the same way as {@link #withQueueRateLimit(String,
+     * long, Duration)}. A job whose class is not allowed yet holds up the jobs behind it in its
+     * queue. Job rate limits cannot be used with the cluster key layout, since their buckets are
+     * not in the slot of any queue.
+     *
+     * @param className the name of the job class, see {@link Job#getClassName()}
+     * @param permits the number of jobs that may be started per period
+     * @param period the period
+     * @return this Builder
+     * @throws IllegalArgumentException if the class name is null or empty, the number of permits is
+     *     less than one or the period is null or shorter than a millisecond
+     */
+    public Builder withJobRateLimit(
+        final String className, final long permits, final Duration period) {
+      if (className == null || "".equals(className)) {
+        throw new IllegalArgumentException("className must not be null or empty: " + className);
+      }
+      this.jobRateLimits.put(className, new RateLimit(permits, period));
+      return this;
+    }
+
+    /**
+     * Configs created by this Builder will limit how many jobs from the given queue may run at
+     * once, across every worker, with a counting semaphore in Redis. The pop script takes a permit
+     * along with each job, so a job that is not allowed yet stays at the head of the queue and the
+     * worker moves on to its other queues rather than waiting. The permit is given back when the
+     * job succeeds or fails, and a permit held by a worker that died is reclaimed once the worker's
+     * permit lease time has passed, see {@link
+     * net.greghaines.jesque.worker.AbstractWorker#setPermitLeaseTime(Duration)}. Jobs are never
+     * claimed in batches from a limited queue. The partitions of a partitioned queue share the
+     * queue's limit, except in the cluster key layout, where they cannot be limited. Limits are not
+     * enforced on stream, ordered or tenant queues, and cannot be used with the
+     * RESET_TO_HIGHEST_PRIORITY strategy or by a {@link
+     * net.greghaines.jesque.worker.PipelinedWorkerImpl}.
+     *
+     * @param queue the name of the queue
+     * @param permits the most jobs that may run at once
+     * @return this Builder
+     * @throws IllegalArgumentException if the queue is null or empty or the number of permits is
+     *     less than one
+     */
+    public Builder withQueueConcurrencyLimit(final String queue, final int permits) {
+      if (queue == null || "".equals(queue)) {
+        throw new IllegalArgumentException("queue must not be null or empty: " + queue);
+      }
+      if (permits < 1) {
+        throw new IllegalArgumentException("permits must be at least 1: " + permits);
+      }
+      this.queueConcurrencyLimits.put(queue, permits);
+      return this;
+    }
+
+    /**
+     * Configs created by this Builder will limit how many jobs of the given class may run at once,
+     * from any queue and across every worker, in the same way as {@link
+     * #withQueueConcurrencyLimit(String, int)}. A job whose class is not allowed yet holds up the
+     * jobs behind it in its queue. Job concurrency limits cannot be used with the cluster key
+     * layout, since their semaphores are not in the slot of any queue, or by a {@link
+     * net.greghaines.jesque.worker.PipelinedWorkerImpl}.
+     *
+     * @param className the name of the job class, see {@link Job#getClassName()}
+     * @param permits the most jobs that may run at once
+     * @return this Builder
+     * @throws IllegalArgumentException if the class name is null or empty or the number of permits
+     *     is less than one
+     */
+    public Builder withJobConcurrencyLimit(final String className, final int permits) {
+      if (className == null || "".equals(className)) {
+        throw new IllegalArgumentException("className must not be null or empty: " + className);
+      }
+      if (permits < 1) {
+        throw new IllegalArgumentException("permits must be at least 1: " + permits);
+      }
+      this.jobConcurrencyLimits.put(className, permits);
+      return this;
+    }
+
     /**
      * Configs created by this Builder will have the given Redis connection timeout.
      *
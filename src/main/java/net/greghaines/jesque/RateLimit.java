@@ -0,0 +1,120 @@
+/*
+ * Copyright 2026 Greg Haines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.greghaines.jesque;
+
+import java.io.Serializable;
+import java.time.Duration;
+
+/**
+ * A limit on how often jobs may be started, kept as a token bucket in Redis: the bucket holds up to
+ * the given number of permits and refills at that many permits per period, and starting a job takes
+ * a permit. Bursts of up to the number of permits are allowed after a quiet period.
+ *
+ * @see Config.Builder#withQueueRateLimit(String, long, Duration)
+ * @see Config.Builder#withJobRateLimit(String, long, Duration)
+ */
+public final class RateLimit implements Serializable {
+
+  private static final long serialVersionUID = -3981654380426612345L;
+
+  private final long permits;
+  private final Duration period;
+
+  /**
+   * Constructor.
+   *
+   * @param permits the number of jobs that may be started per period
+   * @param period the period
+   * @throws IllegalArgumentException if the number of permits is less than one or the period is
+   *     null or shorter than a millisecond
+   */
+  public RateLimit(final long permits, final Duration period) {
+    if (permits < 1) {
+      throw new IllegalArgumentException("permits must be at least 1: " + permits);
+    }
+    if (period == null || period.toMillis() < 1) {
+      throw new IllegalArgumentException("period must be at least 1ms: " + period);
+    }
+    this.permits = permits;
+    this.period = period;
+  }
+
+  /**
+   * @return the number of jobs that may be started per period, which is also the most the bucket
+   *     holds
+   */
+  public long getPermits() {
+    return this.permits;
+  }
+
+  /**
+   * @return the period
+   */
+  public Duration getPeriod() {
+    return this.period;
+  }
+
+  /**
+   * The permits in a bucket at the given time, given what it held when last counted.
+   *
+   * @param tokens the permits the bucket held when last counted, or null if it was full
+   * @param countedAt when the bucket was last counted, in milliseconds since the epoch
+   * @param now the time to count the bucket at, in milliseconds since the epoch
+   * @return the permits in the bucket, which may be fractional
+   */
+  public double tokensAt(final Double tokens, final long countedAt, final long now) {
+    if (tokens == null) {
+      return this.permits;
+    }
+    final double refilled =
+        tokens + ((double) Math.max(0L, now - countedAt) * this.permits / this.period.toMillis());
+    return Math.min(this.permits, refilled);
+  }
+
+  /**
+   * @param tokens the permits in a bucket
+   * @return how long until the bucket holds a whole permit, in milliseconds
+   */
+  public long waitMillis(final double tokens) {
+    if (tokens >= 1) {
+      return 0L;
+    }
+    return (long) Math.ceil((1 - tokens) * this.period.toMillis() / this.permits);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    return this.permits + "/" + this.period;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int hashCode() {
+    return 31 * Long.hashCode(this.permits) + this.period.hashCode();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof RateLimit)) {
+      return false;
+    }
+    final RateLimit other = (RateLimit) obj;
+    return this.permits == other.permits && this.period.equals(other.period);
+  }
+}
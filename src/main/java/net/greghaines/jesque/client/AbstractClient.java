@@ -13,22 +13,49 @@
  */
 package net.greghaines.jesque.client;
 
+import static net.greghaines.jesque.utils.ResqueConstants.BUCKETS;
+import static net.greghaines.jesque.utils.ResqueConstants.ENQUEUED_AT;
 import static net.greghaines.jesque.utils.ResqueConstants.QUEUE;
 import static net.greghaines.jesque.utils.ResqueConstants.QUEUES;
+import static net.greghaines.jesque.utils.ResqueConstants.READY_QUEUES;
+import static net.greghaines.jesque.utils.ResqueConstants.STREAM;
+import static net.greghaines.jesque.utils.ResqueConstants.STREAM_PAYLOAD;
+import static net.greghaines.jesque.utils.ResqueConstants.TENANT;
+import static net.greghaines.jesque.utils.ResqueConstants.TENANTS;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 import net.greghaines.jesque.Config;
 import net.greghaines.jesque.Job;
 import net.greghaines.jesque.json.ObjectMapperFactory;
+import net.greghaines.jesque.utils.ConcurrentHashSet;
+import net.greghaines.jesque.utils.ConcurrentSet;
 import net.greghaines.jesque.utils.JedisUtils;
 import net.greghaines.jesque.utils.JesqueUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import redis.clients.jedis.AbstractPipeline;
 import redis.clients.jedis.AbstractTransaction;
 import redis.clients.jedis.commands.JedisCommands;
+import redis.clients.jedis.params.XAddParams;
 
 /**
  * Common logic for Client implementations.
@@ -38,7 +65,70 @@ import redis.clients.jedis.commands.JedisCommands;
  */
 public abstract class AbstractClient implements Client {
 
+  private static final Logger LOG = LoggerFactory.getLogger(AbstractClient.class);
+
+  /** The width of the buckets far-future delayed jobs are kept in; must match jesque_buckets.lua */
+  protected static final long DELAYED_BUCKET_MILLIS = 3600000; // 1 hour
+  /** Adds a job to a tenant's list, and the tenant to the queue's rotation if it had no jobs */
+  protected static final String TENANT_ENQUEUE_LUA =
+      "if redis.call('RPUSH', KEYS[1], ARGV[1]) == 1 then "
+          + "redis.call('RPUSH', KEYS[2], ARGV[2]) "
+          + "end";
+  /**
+   * Removes a job from a delayed queue and from any of the queue's buckets at once, so that a
+   * bucket moved into the queue meanwhile cannot bring the job back; returns 0 if the queue is not
+   * a delayed queue
+   */
+  protected static final String REMOVE_DELAYED_LUA =
+      "local ok, queueType = next(redis.call('TYPE', KEYS[1])) "
+          + "if queueType ~= 'zset' and queueType ~= 'none' then return 0 end "
+          + "redis.call('ZREM', KEYS[1], ARGV[1]) "
+          + "for _, bucket in ipairs(redis.call('ZRANGE', KEYS[2], 0, -1)) do "
+          + "local bucketKey = KEYS[2] .. ':' .. bucket "
+          + "if redis.call('HDEL', bucketKey, ARGV[1]) > 0 "
+          + "and redis.call('EXISTS', bucketKey) == 0 then "
+          + "redis.call('ZREM', KEYS[2], bucket) "
+          + "end "
+          + "end "
+          + "return 1";
+  /** Takes a lock if it is free, or extends it if the holder already has it */
+  protected static final String LOCK_LUA =
+      "if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then return 1 end "
+          + "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+          + "return redis.call('PEXPIRE', KEYS[1], ARGV[2]) "
+          + "end "
+          + "return 0";
+  /** Extends a lock only if the holder still has it */
+  protected static final String EXTEND_LOCK_LUA =
+      "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+          + "return redis.call('PEXPIRE', KEYS[1], ARGV[2]) "
+          + "end "
+          + "return 0";
+  /** Deletes a lock only if the holder still has it, so that it never frees another's lock */
+  protected static final String RELEASE_LOCK_LUA =
+      "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+          + "return redis.call('DEL', KEYS[1]) "
+          + "end "
+          + "return 0";
+  protected static final long LOCK_RETRY_MIN_TIME = 10; // 10 ms
+  protected static final long LOCK_RETRY_MAX_TIME = 500; // 500 ms
+
   private final String namespace;
+  private final boolean clusterKeys;
+  private final Map<String, Integer> partitionedQueues;
+  private final Set<String> orderedQueues;
+  private final Map<String, Integer> tenantQueues;
+  private volatile PartitionStrategy partitionStrategy = new RoundRobinPartitionStrategy();
+  private volatile boolean enqueueTimeStamped = false;
+  private volatile Duration delayedBucketHorizon = null;
+  private final ConcurrentSet<String> streamQueues = new ConcurrentHashSet<>();
+  // Runs the watchdog and asynchronous lock attempts, created when first needed
+  private final AtomicReference<ScheduledExecutorService> lockSchedulerRef =
+      new AtomicReference<>(null);
+  // The watchdog's renewal of each watched lock, by lock name and holder
+  private final Map<List<String>, ScheduledFuture<?>> watchedLocks = new ConcurrentHashMap<>();
+  // The futures of the asynchronous lock attempts that are still trying, completed when locks end
+  private final ConcurrentSet<CompletableFuture<Boolean>> pendingLocks = new ConcurrentHashSet<>();
 
   /**
    * Constructor.
@@ -50,6 +140,10 @@ public abstract class AbstractClient implements Client {
       throw new IllegalArgumentException("config must not be null");
     }
     this.namespace = config.getNamespace();
+    this.clusterKeys = config.isClusterKeys();
+    this.partitionedQueues = config.getPartitionedQueues();
+    this.orderedQueues = config.getOrderedQueues();
+    this.tenantQueues = config.getTenantQueues();
   }
 
   /**
@@ -59,6 +153,111 @@ public abstract class AbstractClient implements Client {
     return this.namespace;
   }
 
+  /**
+   * @return true if the keys of each queue carry a hash tag for Redis Cluster
+   * @see Config#isClusterKeys()
+   */
+  protected boolean isClusterKeys() {
+    return this.clusterKeys;
+  }
+
+  /**
+   * @return the strategy deciding which partition of a partitioned queue a job is added to
+   */
+  public PartitionStrategy getPartitionStrategy() {
+    return this.partitionStrategy;
+  }
+
+  /**
+   * Set the strategy deciding which partition of a partitioned queue a job is added to, see {@link
+   * Config.Builder#withQueuePartitions(String, int)}. (Round robin by default)
+   *
+   * @param partitionStrategy the strategy
+   * @throws IllegalArgumentException if the strategy is null
+   */
+  public void setPartitionStrategy(final PartitionStrategy partitionStrategy) {
+    if (partitionStrategy == null) {
+      throw new IllegalArgumentException("partitionStrategy must not be null");
+    }
+    this.partitionStrategy = partitionStrategy;
+  }
+
+  /**
+   * @return true if jobs are stamped with the time they were enqueued
+   */
+  public boolean isEnqueueTimeStamped() {
+    return this.enqueueTimeStamped;
+  }
+
+  /**
+   * Enable/disable stamping jobs added to a queue with the time they were enqueued, in the <code>
+   * enqueued_at</code> field of their JSON. Workers using the EARLIEST_DEADLINE_FIRST strategy use
+   * the stamp to tell how long the job at the head of a queue has been waiting. Delayed and
+   * recurring jobs are never stamped since they are removed by their JSON. (Disabled by default)
+   *
+   * @param enqueueTimeStamped whether to stamp jobs with the time they were enqueued
+   */
+  public void setEnqueueTimeStamped(final boolean enqueueTimeStamped) {
+    this.enqueueTimeStamped = enqueueTimeStamped;
+  }
+
+  /**
+   * @return how far in the future a delayed job must be due to be kept in a bucket, or null if
+   *     delayed jobs are never kept in buckets
+   */
+  public Duration getDelayedBucketHorizon() {
+    return this.delayedBucketHorizon;
+  }
+
+  /**
+   * Keep delayed jobs that are due further in the future than the given horizon in hourly buckets
+   * instead of the delayed queue's sorted set. Each bucket is a hash of job JSON to due time which
+   * is moved into the sorted set an hour before its jobs start to come due, by the pop scripts or
+   * a {@link net.greghaines.jesque.worker.DelayedJobPromoter}. This keeps the sorted set, which is
+   * searched on every pop and listed by the queue info DAO, down to the jobs due soon. Removing a
+   * delayed job looks in its buckets too. (Disabled by default)
+   *
+   * @param delayedBucketHorizon the horizon; null disables buckets
+   * @throws IllegalArgumentException if the horizon is not positive
+   */
+  public void setDelayedBucketHorizon(final Duration delayedBucketHorizon) {
+    if (delayedBucketHorizon != null
+        && (delayedBucketHorizon.isZero() || delayedBucketHorizon.isNegative())) {
+      throw new IllegalArgumentException(
+          "delayedBucketHorizon must be positive: " + delayedBucketHorizon);
+    }
+    this.delayedBucketHorizon = delayedBucketHorizon;
+  }
+
+  /**
+   * @param queue the name of a queue, or of one of its partitions
+   * @return true if jobs added to the queue are added to a Redis stream
+   */
+  public boolean isStreamQueue(final String queue) {
+    return this.streamQueues.contains(queue)
+        || (!this.streamQueues.isEmpty()
+            && this.streamQueues.contains(
+                JesqueUtils.partitionedQueueName(queue, this.partitionedQueues)));
+  }
+
+  /**
+   * Add jobs for the given queue to a Redis stream, read by workers through a consumer group,
+   * rather than to a list. Workers must be told the queue is a stream queue too. Jobs cannot be
+   * added to the head of a stream queue. (Disabled by default)
+   *
+   * @param queue the name of the queue
+   * @param streamQueue whether the queue is a stream queue
+   * @throws IllegalArgumentException if the queue is null or empty
+   */
+  public void setStreamQueue(final String queue, final boolean streamQueue) {
+    validateQueue(queue);
+    if (streamQueue) {
+      this.streamQueues.add(queue);
+    } else {
+      this.streamQueues.remove(queue);
+    }
+  }
+
   /**
    * Builds a namespaced Redis key with the given arguments.
    *
@@ -74,7 +273,60 @@ public abstract class AbstractClient implements Client {
   public void enqueue(final String queue, final Job job) {
     validateArguments(queue, job);
     try {
-      doEnqueue(queue, ObjectMapperFactory.get().writeValueAsString(job));
+      final String msg = toQueuedJson(job, System.currentTimeMillis());
+      final String partition = choosePartition(queue, job, newPartitionLengths(queue));
+      if (isStreamQueue(queue)) {
+        doStreamEnqueue(partition, Collections.singletonList(msg));
+      } else {
+        doEnqueue(partition, msg);
+      }
+    } catch (RuntimeException re) {
+      throw re;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void enqueue(final String queue, final String orderingKey, final Job job) {
+    validateArguments(queue, job);
+    if ((orderingKey == null) || "".equals(orderingKey)) {
+      throw new IllegalArgumentException("orderingKey must not be null or empty: " + orderingKey);
+    }
+    if (!this.orderedQueues.contains(queue)) {
+      throw new IllegalArgumentException(queue + " is not an ordered queue");
+    }
+    if (isStreamQueue(queue)) {
+      throw new IllegalArgumentException(queue + " is a stream queue, which cannot be ordered");
+    }
+    final Integer lanes = this.partitionedQueues.get(queue);
+    try {
+      doEnqueue(
+          JesqueUtils.createLaneName(queue, orderingKey, (lanes == null) ? 1 : lanes),
+          toQueuedJson(job, System.currentTimeMillis()));
+    } catch (RuntimeException re) {
+      throw re;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void tenantEnqueue(final String queue, final String tenant, final Job job) {
+    validateArguments(queue, job);
+    if ((tenant == null) || "".equals(tenant)) {
+      throw new IllegalArgumentException("tenant must not be null or empty: " + tenant);
+    }
+    if (!this.tenantQueues.containsKey(queue)) {
+      throw new IllegalArgumentException(queue + " is not a tenant queue");
+    }
+    if (isStreamQueue(queue)) {
+      throw new IllegalArgumentException(queue + " is a stream queue, which has no tenants");
+    }
+    try {
+      doTenantEnqueue(queue, tenant, toQueuedJson(job, System.currentTimeMillis()));
     } catch (RuntimeException re) {
       throw re;
     } catch (Exception e) {
@@ -92,12 +344,26 @@ public abstract class AbstractClient implements Client {
     for (Job job : jobs) {
       validateJob(job);
     }
-    List<String> serializedJobs = new ArrayList<>(jobs.size());
+    // Jobs by the partition they are added to, which is the queue itself if it is not partitioned
+    final Map<String, List<String>> serializedJobs = new LinkedHashMap<>();
     try {
+      final long now = System.currentTimeMillis();
+      final long[] lengths = newPartitionLengths(queue);
       for (Job job : jobs) {
-        serializedJobs.add(ObjectMapperFactory.get().writeValueAsString(job));
+        serializedJobs
+            .computeIfAbsent(choosePartition(queue, job, lengths), p -> new ArrayList<>())
+            .add(toQueuedJson(job, now));
+      }
+      if (serializedJobs.isEmpty()) {
+        serializedJobs.put(queue, Collections.<String>emptyList());
+      }
+      for (final Map.Entry<String, List<String>> partition : serializedJobs.entrySet()) {
+        if (isStreamQueue(queue)) {
+          doStreamEnqueue(partition.getKey(), partition.getValue());
+        } else {
+          doBatchEnqueue(partition.getKey(), partition.getValue());
+        }
       }
-      doBatchEnqueue(queue, serializedJobs);
     } catch (RuntimeException re) {
       throw re;
     } catch (Exception e) {
@@ -109,8 +375,13 @@ public abstract class AbstractClient implements Client {
   @Override
   public void priorityEnqueue(final String queue, final Job job) {
     validateArguments(queue, job);
+    if (isStreamQueue(queue)) {
+      throw new IllegalArgumentException(queue + " is a stream queue, which is first in first out");
+    }
     try {
-      doPriorityEnqueue(queue, ObjectMapperFactory.get().writeValueAsString(job));
+      doPriorityEnqueue(
+          choosePartition(queue, job, newPartitionLengths(queue)),
+          toQueuedJson(job, System.currentTimeMillis()));
     } catch (RuntimeException re) {
       throw re;
     } catch (Exception e) {
@@ -122,17 +393,186 @@ public abstract class AbstractClient implements Client {
   @Override
   public boolean acquireLock(
       final String lockName, final String lockHolder, final Duration timeout) {
-    if ((lockName == null) || "".equals(lockName)) {
-      throw new IllegalArgumentException("lockName must not be null or empty: " + lockName);
+    checkLock(lockName, lockHolder);
+    checkLockTime("timeout", timeout);
+    try {
+      return doAcquireLock(lockName, lockHolder, timeout);
+    } catch (RuntimeException re) {
+      throw re;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
     }
-    if ((lockHolder == null) || "".equals(lockHolder)) {
-      throw new IllegalArgumentException("lockHolder must not be null or empty: " + lockHolder);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean tryLock(
+      final String lockName,
+      final String lockHolder,
+      final Duration leaseTime,
+      final Duration waitTime) {
+    checkLockWait(waitTime);
+    final long deadline = System.nanoTime() + waitTime.toNanos();
+    long retryTime = LOCK_RETRY_MIN_TIME;
+    while (!acquireLock(lockName, lockHolder, leaseTime)) {
+      final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+      if (remaining <= 0) {
+        return false;
+      }
+      try {
+        Thread.sleep(Math.min(remaining, jitter(retryTime)));
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+      retryTime = Math.min(retryTime * 2, LOCK_RETRY_MAX_TIME);
+    }
+    return true;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public CompletableFuture<Boolean> tryLockAsync(
+      final String lockName,
+      final String lockHolder,
+      final Duration leaseTime,
+      final Duration waitTime) {
+    checkLock(lockName, lockHolder);
+    checkLockTime("leaseTime", leaseTime);
+    checkLockWait(waitTime);
+    final CompletableFuture<Boolean> future = new CompletableFuture<>();
+    this.pendingLocks.add(future);
+    future.whenComplete((acquired, thrwbl) -> this.pendingLocks.remove(future));
+    attemptLock(
+        future,
+        lockName,
+        lockHolder,
+        leaseTime,
+        System.nanoTime() + waitTime.toNanos(),
+        LOCK_RETRY_MIN_TIME);
+    return future;
+  }
+
+  /**
+   * Try to take a lock on the lock thread, trying again after the retry time until the deadline
+   * passes or the future is cancelled. No thread waits between attempts.
+   */
+  private void attemptLock(
+      final CompletableFuture<Boolean> future,
+      final String lockName,
+      final String lockHolder,
+      final Duration leaseTime,
+      final long deadline,
+      final long retryTime) {
+    try {
+      getLockScheduler()
+          .execute(
+              () -> {
+                if (future.isDone()) {
+                  return;
+                }
+                try {
+                  if (doAcquireLock(
+                      getLockThreadJedis(), getNamespace(), lockName, lockHolder, leaseTime)) {
+                    future.complete(true);
+                    return;
+                  }
+                  final long remaining =
+                      TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                  if (remaining <= 0) {
+                    future.complete(false);
+                    return;
+                  }
+                  getLockScheduler()
+                      .schedule(
+                          () ->
+                              attemptLock(
+                                  future,
+                                  lockName,
+                                  lockHolder,
+                                  leaseTime,
+                                  deadline,
+                                  Math.min(retryTime * 2, LOCK_RETRY_MAX_TIME)),
+                          Math.min(remaining, jitter(retryTime)),
+                          TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException ree) {
+                  // The client ended while the attempt ran
+                  future.complete(false);
+                } catch (RuntimeException re) {
+                  future.completeExceptionally(re);
+                }
+              });
+    } catch (RejectedExecutionException ree) {
+      // The client has ended
+      future.complete(false);
     }
-    if (timeout.toSeconds() < 1) {
-      throw new IllegalArgumentException("timeout must be a at least one second: " + timeout);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean extendLock(
+      final String lockName, final String lockHolder, final Duration leaseTime) {
+    checkLock(lockName, lockHolder);
+    checkLockTime("leaseTime", leaseTime);
+    try {
+      return doExtendLock(lockName, lockHolder, leaseTime);
+    } catch (RuntimeException re) {
+      throw re;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
     }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean watchLock(
+      final String lockName, final String lockHolder, final Duration leaseTime) {
+    if (!extendLock(lockName, lockHolder, leaseTime)) {
+      return false;
+    }
+    final List<String> watchKey = Arrays.asList(lockName, lockHolder);
+    final long renewTime = Math.max(1L, leaseTime.toMillis() / 3);
+    final ScheduledFuture<?> renewal =
+        getLockScheduler()
+            .scheduleWithFixedDelay(
+                () -> renewLock(watchKey, leaseTime), renewTime, renewTime, TimeUnit.MILLISECONDS);
+    final ScheduledFuture<?> previous = this.watchedLocks.put(watchKey, renewal);
+    if (previous != null) {
+      previous.cancel(false);
+    }
+    return true;
+  }
+
+  /**
+   * Extend a watched lock, or stop watching it if it was lost. A failed extension is tried again at
+   * the next renewal, which is in time as long as the lease has not run out.
+   */
+  private void renewLock(final List<String> watchKey, final Duration leaseTime) {
     try {
-      return doAcquireLock(lockName, lockHolder, timeout);
+      if (!doExtendLock(
+          getLockThreadJedis(), getNamespace(), watchKey.get(0), watchKey.get(1), leaseTime)) {
+        LOG.warn("Lost lock=" + watchKey.get(0) + " held by " + watchKey.get(1));
+        final ScheduledFuture<?> renewal = this.watchedLocks.remove(watchKey);
+        if (renewal != null) {
+          renewal.cancel(false);
+        }
+      }
+    } catch (RuntimeException re) {
+      LOG.warn("Error extending lock=" + watchKey.get(0) + " held by " + watchKey.get(1), re);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean releaseLock(final String lockName, final String lockHolder) {
+    checkLock(lockName, lockHolder);
+    final ScheduledFuture<?> renewal =
+        this.watchedLocks.remove(Arrays.asList(lockName, lockHolder));
+    if (renewal != null) {
+      renewal.cancel(false);
+    }
+    try {
+      return doReleaseLock(lockName, lockHolder);
     } catch (RuntimeException re) {
       throw re;
     } catch (Exception e) {
@@ -140,6 +580,172 @@ public abstract class AbstractClient implements Client {
     }
   }
 
+  /**
+   * @return the single thread shared by the watchdog and the asynchronous lock attempts, created
+   *     when first needed
+   */
+  protected ScheduledExecutorService getLockScheduler() {
+    final ScheduledExecutorService scheduler = this.lockSchedulerRef.get();
+    if (scheduler != null) {
+      return scheduler;
+    }
+    final ScheduledExecutorService created =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              final Thread thread = new Thread(runnable, "Jesque lock watchdog");
+              thread.setDaemon(true);
+              return thread;
+            });
+    if (this.lockSchedulerRef.compareAndSet(null, created)) {
+      return created;
+    }
+    created.shutdownNow();
+    return this.lockSchedulerRef.get();
+  }
+
+  /**
+   * Stop watching locks and cancel the asynchronous lock attempts, completing the futures of those
+   * still trying with false. Implementations call this when they end; the locks are left to expire.
+   */
+  protected void endLocks() {
+    this.watchedLocks.clear();
+    final ScheduledExecutorService scheduler = this.lockSchedulerRef.get();
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+    for (final CompletableFuture<Boolean> future : this.pendingLocks) {
+      future.complete(false);
+    }
+  }
+
+  private static void checkLock(final String lockName, final String lockHolder) {
+    if ((lockName == null) || "".equals(lockName)) {
+      throw new IllegalArgumentException("lockName must not be null or empty: " + lockName);
+    }
+    if ((lockHolder == null) || "".equals(lockHolder)) {
+      throw new IllegalArgumentException("lockHolder must not be null or empty: " + lockHolder);
+    }
+  }
+
+  private static void checkLockTime(final String name, final Duration time) {
+    if (time == null || time.toMillis() < 1) {
+      throw new IllegalArgumentException(name + " must be at least 1ms: " + time);
+    }
+  }
+
+  private static void checkLockWait(final Duration waitTime) {
+    if (waitTime == null || waitTime.isNegative()) {
+      throw new IllegalArgumentException("waitTime must not be null or negative: " + waitTime);
+    }
+  }
+
+  /** Spread out the retries of clients contending for a lock */
+  private static long jitter(final long retryTime) {
+    return retryTime / 2 + ThreadLocalRandom.current().nextLong(retryTime / 2 + 1);
+  }
+
+  /**
+   * Choose the partition of a queue a job is added to.
+   *
+   * @param queue the queue the job is added to
+   * @param job the job
+   * @param lengths the lengths of the queue's partitions read so far, -1 for those not yet read;
+   *     updated with the lengths read and the job placed
+   * @return the name of the partition, or the queue if it is not partitioned
+   */
+  private String choosePartition(final String queue, final Job job, final long[] lengths) {
+    final boolean stream = isStreamQueue(queue);
+    return choosePartition(
+        this.partitionStrategy,
+        this.partitionedQueues,
+        queue,
+        job,
+        lengths,
+        partition -> doQueueLength(partition, stream));
+  }
+
+  /**
+   * Choose the partition of a queue a job is added to.
+   *
+   * @param partitionStrategy the strategy deciding the partition
+   * @param partitionedQueues the number of partitions of each partitioned queue, by queue name
+   * @param queue the queue the job is added to
+   * @param job the job
+   * @param lengths the lengths of the queue's partitions read so far, -1 for those not yet read;
+   *     updated with the lengths read and the job placed
+   * @param partitionLength reads the length of a partition, by name
+   * @return the name of the partition, or the queue if it is not partitioned
+   */
+  static String choosePartition(
+      final PartitionStrategy partitionStrategy,
+      final Map<String, Integer> partitionedQueues,
+      final String queue,
+      final Job job,
+      final long[] lengths,
+      final ToLongFunction<String> partitionLength) {
+    final Integer partitions = partitionedQueues.get(queue);
+    if (partitions == null) {
+      return queue;
+    }
+    final int partition =
+        partitionStrategy.choosePartition(
+            queue,
+            job,
+            partitions,
+            i -> {
+              if (lengths[i] < 0) {
+                lengths[i] = partitionLength.applyAsLong(JesqueUtils.createPartitionName(queue, i));
+              }
+              return lengths[i];
+            });
+    if (partition < 0 || partition >= partitions) {
+      throw new IllegalStateException(
+          "partition " + partition + " of " + queue + " is not in [0-" + (partitions - 1) + "]");
+    }
+    if (lengths[partition] >= 0) {
+      lengths[partition]++;
+    }
+    return JesqueUtils.createPartitionName(queue, partition);
+  }
+
+  /**
+   * @param queue the name of a queue
+   * @return the lengths of the queue's partitions, none of which have been read yet
+   */
+  private long[] newPartitionLengths(final String queue) {
+    return newPartitionLengths(this.partitionedQueues, queue);
+  }
+
+  /**
+   * @param partitionedQueues the number of partitions of each partitioned queue, by queue name
+   * @param queue the name of a queue
+   * @return the lengths of the queue's partitions, none of which have been read yet
+   */
+  static long[] newPartitionLengths(
+      final Map<String, Integer> partitionedQueues, final String queue) {
+    final Integer partitions = partitionedQueues.get(queue);
+    final long[] lengths = new long[(partitions == null) ? 0 : partitions];
+    Arrays.fill(lengths, -1L);
+    return lengths;
+  }
+
+  /**
+   * Serialize a job being added to a queue, stamping a copy of it with the enqueue time if enabled.
+   *
+   * @param job the job to serialize
+   * @param now the current time in milliseconds
+   * @return the serialized job
+   */
+  private String toQueuedJson(final Job job, final long now) {
+    if (!this.enqueueTimeStamped) {
+      return ObjectMapperFactory.get().writeValueAsString(job);
+    }
+    final Job stamped = new Job(job);
+    stamped.setUnknownFields(job.getUnknownFields());
+    stamped.setUnknownField(ENQUEUED_AT, now);
+    return ObjectMapperFactory.get().writeValueAsString(stamped);
+  }
+
   /**
    * Actually enqueue the serialized job.
    *
@@ -158,6 +764,32 @@ public abstract class AbstractClient implements Client {
    */
   protected abstract void doBatchEnqueue(String queue, List<String> msgs) throws Exception;
 
+  /**
+   * Actually add the serialized jobs to a stream queue.
+   *
+   * @param queue the queue to add the Jobs to
+   * @param msgs the serialized Jobs
+   * @throws Exception in case something goes wrong
+   */
+  protected abstract void doStreamEnqueue(String queue, List<String> msgs) throws Exception;
+
+  /**
+   * @param queue the name of a queue, or of one of its partitions
+   * @return the number of jobs waiting in the queue
+   */
+  long queueLength(final String queue) {
+    return doQueueLength(queue, isStreamQueue(queue));
+  }
+
+  /**
+   * Actually read the number of jobs waiting in a queue.
+   *
+   * @param queue the name of the queue
+   * @param stream whether the queue is a stream queue
+   * @return the number of jobs in the queue
+   */
+  protected abstract long doQueueLength(String queue, boolean stream);
+
   /**
    * Actually enqueue the serialized job with high priority.
    *
@@ -167,11 +799,22 @@ public abstract class AbstractClient implements Client {
    */
   protected abstract void doPriorityEnqueue(String queue, String msg) throws Exception;
 
+  /**
+   * Actually enqueue the serialized job in its tenant's list.
+   *
+   * @param queue the tenant queue to add the Job to
+   * @param tenant the tenant the Job belongs to
+   * @param msg the serialized Job
+   * @throws Exception in case something goes wrong
+   */
+  protected abstract void doTenantEnqueue(String queue, String tenant, String msg)
+      throws Exception;
+
   /**
    * Actually acquire the lock based upon the client acquisition model.
    *
    * @param lockName the name of the lock to acquire
-   * @param timeout how long until the lock will expire, truncated to seconds
+   * @param timeout how long until the lock will expire, truncated to milliseconds
    * @param lockHolder a unique string identifying the caller
    * @return true, if the lock was acquired, false otherwise
    * @throws Exception in case something goes wrong
@@ -180,7 +823,39 @@ public abstract class AbstractClient implements Client {
       final String lockName, final String lockHolder, final Duration timeout) throws Exception;
 
   /**
-   * Helper method that encapsulates the minimum logic for adding a job to a queue.
+   * Actually extend the lock based upon the client acquisition model.
+   *
+   * @param lockName the name of the lock to extend
+   * @param lockHolder a unique string identifying the caller
+   * @param leaseTime how long from now until the lock will expire
+   * @return true, if the caller still held the lock, false otherwise
+   * @throws Exception in case something goes wrong
+   */
+  protected abstract boolean doExtendLock(
+      final String lockName, final String lockHolder, final Duration leaseTime) throws Exception;
+
+  /**
+   * Actually release the lock based upon the client acquisition model.
+   *
+   * @param lockName the name of the lock to release
+   * @param lockHolder a unique string identifying the caller
+   * @return true, if the caller held the lock, false otherwise
+   * @throws Exception in case something goes wrong
+   */
+  protected abstract boolean doReleaseLock(final String lockName, final String lockHolder)
+      throws Exception;
+
+  /**
+   * The connection the lock thread uses for the watchdog and the asynchronous lock attempts. It
+   * must be safe to use from that thread alongside the client's other users.
+   *
+   * @return a connection to Redis
+   */
+  protected abstract JedisCommands getLockThreadJedis();
+
+  /**
+   * Helper method that encapsulates the minimum logic for adding a job to a queue in the default
+   * key layout.
    *
    * @param jedis the connection to Redis
    * @param namespace the Resque namespace
@@ -189,8 +864,93 @@ public abstract class AbstractClient implements Client {
    */
   public static void doEnqueue(
       final JedisCommands jedis, final String namespace, final String queue, final String jobJson) {
+    doEnqueue(jedis, namespace, false, queue, jobJson);
+  }
+
+  /**
+   * Helper method that encapsulates the minimum logic for adding a job to a queue. It sends three
+   * commands one after another; see {@link #doEnqueue(Supplier, String, boolean, String, String)}
+   * to send them in a single round trip.
+   *
+   * @param jedis the connection to Redis
+   * @param namespace the Resque namespace
+   * @param clusterKeys whether to use the cluster key layout
+   * @param queue the Resque queue name
+   * @param jobJson the job serialized as JSON
+   */
+  public static void doEnqueue(
+      final JedisCommands jedis,
+      final String namespace,
+      final boolean clusterKeys,
+      final String queue,
+      final String jobJson) {
     jedis.sadd(JesqueUtils.createKey(namespace, QUEUES), queue);
-    jedis.rpush(JesqueUtils.createKey(namespace, QUEUE, queue), jobJson);
+    jedis.rpush(JesqueUtils.createQueueKey(namespace, clusterKeys, QUEUE, queue), jobJson);
+    jedis.sadd(JesqueUtils.createKey(namespace, READY_QUEUES), queue);
+  }
+
+  /**
+   * Helper method that encapsulates the minimum logic for adding a job to a queue, in a single
+   * round trip. The queue's sets are not in the queue's slot in the cluster key layout, so the
+   * commands are pipelined rather than run as one script.
+   *
+   * @param makePipeline creates a pipeline on the connection to Redis
+   * @param namespace the Resque namespace
+   * @param clusterKeys whether to use the cluster key layout
+   * @param queue the Resque queue name
+   * @param jobJson the job serialized as JSON
+   */
+  public static void doEnqueue(
+      final Supplier<AbstractPipeline> makePipeline,
+      final String namespace,
+      final boolean clusterKeys,
+      final String queue,
+      final String jobJson) {
+    try (AbstractPipeline pipelined = makePipeline.get()) {
+      pipelined.sadd(JesqueUtils.createKey(namespace, QUEUES), queue);
+      pipelined.rpush(JesqueUtils.createQueueKey(namespace, clusterKeys, QUEUE, queue), jobJson);
+      pipelined.sadd(JesqueUtils.createKey(namespace, READY_QUEUES), queue);
+      pipelined.sync();
+    }
+  }
+
+  /**
+   * Helper method that encapsulates the minimum logic for reading the length of a queue.
+   *
+   * @param jedis the connection to Redis
+   * @param namespace the Resque namespace
+   * @param clusterKeys whether to use the cluster key layout
+   * @param queue the Resque queue name
+   * @param stream whether the queue is a stream queue
+   * @return the number of jobs in the queue
+   */
+  public static long doQueueLength(
+      final JedisCommands jedis,
+      final String namespace,
+      final boolean clusterKeys,
+      final String queue,
+      final boolean stream) {
+    return stream
+        ? jedis.xlen(JesqueUtils.createQueueKey(namespace, clusterKeys, STREAM, queue))
+        : jedis.llen(JesqueUtils.createQueueKey(namespace, clusterKeys, QUEUE, queue));
+  }
+
+  /**
+   * Helper method that encapsulates the minimum logic for adding jobs to a queue in the default key
+   * layout.
+   *
+   * @param jedis the connection to Redis
+   * @param namespace the Resque namespace
+   * @param queue the Resque queue name
+   * @param jobJsons a list of jobs serialized as JSON
+   */
+  public static void doBatchEnqueue(
+      final JedisCommands jedis,
+      final Supplier<AbstractPipeline> makePipeline,
+      final String namespace,
+      final String queue,
+      final List<String> jobJsons) {
+    doBatchEnqueue(jedis, makePipeline, namespace, false, queue, jobJsons);
   }
 
   /**
@@ -198,6 +958,7 @@ public abstract class AbstractClient implements Client {
    *
    * @param jedis the connection to Redis
    * @param namespace the Resque namespace
+   * @param clusterKeys whether to use the cluster key layout
    * @param queue the Resque queue name
    * @param jobJsons a list of jobs serialized as JSON
    */
@@ -205,18 +966,76 @@ public abstract class AbstractClient implements Client {
       final JedisCommands jedis,
       final Supplier<AbstractPipeline> makePipeline,
       final String namespace,
+      final boolean clusterKeys,
       final String queue,
       final List<String> jobJsons) {
     AbstractPipeline pipelined = makePipeline.get(); // jedis.pipelined();
     pipelined.sadd(JesqueUtils.createKey(namespace, QUEUES), queue);
     for (String jobJson : jobJsons) {
-      pipelined.rpush(JesqueUtils.createKey(namespace, QUEUE, queue), jobJson);
+      pipelined.rpush(JesqueUtils.createQueueKey(namespace, clusterKeys, QUEUE, queue), jobJson);
     }
+    pipelined.sadd(JesqueUtils.createKey(namespace, READY_QUEUES), queue);
     pipelined.sync();
   }
 
   /**
-   * Helper method that encapsulates the minimum logic for adding a high priority job to a queue.
+   * Helper method that encapsulates the minimum logic for adding jobs to a stream queue.
+   *
+   * @param makePipeline creates a pipeline on the connection to Redis
+   * @param namespace the Resque namespace
+   * @param clusterKeys whether to use the cluster key layout
+   * @param queue the Resque queue name
+   * @param jobJsons a list of jobs serialized as JSON
+   */
+  public static void doStreamEnqueue(
+      final Supplier<AbstractPipeline> makePipeline,
+      final String namespace,
+      final boolean clusterKeys,
+      final String queue,
+      final List<String> jobJsons) {
+    final AbstractPipeline pipelined = makePipeline.get();
+    pipelined.sadd(JesqueUtils.createKey(namespace, QUEUES), queue);
+    for (final String jobJson : jobJsons) {
+      pipelined.xadd(
+          JesqueUtils.createQueueKey(namespace, clusterKeys, STREAM, queue),
+          XAddParams.xAddParams(),
+          Collections.singletonMap(STREAM_PAYLOAD, jobJson));
+    }
+    pipelined.sadd(JesqueUtils.createKey(namespace, READY_QUEUES), queue);
+    pipelined.sync();
+  }
+
+  /**
+   * Helper method that encapsulates the minimum logic for adding a job to a tenant's list in a
+   * tenant queue. The tenant joins the queue's rotation in the same call if it had no jobs.
+   *
+   * @param jedis the connection to Redis
+   * @param namespace the Resque namespace
+   * @param clusterKeys whether to use the cluster key layout
+   * @param queue the Resque queue name
+   * @param tenant the tenant the job belongs to
+   * @param jobJson the job serialized as JSON
+   */
+  public static void doTenantEnqueue(
+      final JedisCommands jedis,
+      final String namespace,
+      final boolean clusterKeys,
+      final String queue,
+      final String tenant,
+      final String jobJson) {
+    jedis.sadd(JesqueUtils.createKey(namespace, QUEUES), queue);
+    jedis.eval(
+        TENANT_ENQUEUE_LUA,
+        Arrays.asList(
+            JesqueUtils.createQueueKey(namespace, clusterKeys, QUEUE, queue, TENANT, tenant),
+            JesqueUtils.createQueueKey(namespace, clusterKeys, QUEUE, queue, TENANTS)),
+        Arrays.asList(jobJson, tenant));
+    jedis.sadd(JesqueUtils.createKey(namespace, READY_QUEUES), queue);
+  }
+
+  /**
+   * Helper method that encapsulates the minimum logic for adding a high priority job to a queue in
+   * the default key layout.
    *
    * @param jedis the connection to Redis
    * @param namespace the Resque namespace
@@ -225,20 +1044,66 @@ public abstract class AbstractClient implements Client {
    */
   public static void doPriorityEnqueue(
       final JedisCommands jedis, final String namespace, final String queue, final String jobJson) {
+    doPriorityEnqueue(jedis, namespace, false, queue, jobJson);
+  }
+
+  /**
+   * Helper method that encapsulates the minimum logic for adding a high priority job to a queue. It
+   * sends three commands one after another; see {@link #doPriorityEnqueue(Supplier, String,
+   * boolean, String, String)} to send them in a single round trip.
+   *
+   * @param jedis the connection to Redis
+   * @param namespace the Resque namespace
+   * @param clusterKeys whether to use the cluster key layout
+   * @param queue the Resque queue name
+   * @param jobJson the job serialized as JSON
+   */
+  public static void doPriorityEnqueue(
+      final JedisCommands jedis,
+      final String namespace,
+      final boolean clusterKeys,
+      final String queue,
+      final String jobJson) {
     jedis.sadd(JesqueUtils.createKey(namespace, QUEUES), queue);
-    jedis.lpush(JesqueUtils.createKey(namespace, QUEUE, queue), jobJson);
+    jedis.lpush(JesqueUtils.createQueueKey(namespace, clusterKeys, QUEUE, queue), jobJson);
+    jedis.sadd(JesqueUtils.createKey(namespace, READY_QUEUES), queue);
+  }
+
+  /**
+   * Helper method that encapsulates the minimum logic for adding a high priority job to a queue, in
+   * a single round trip.
+   *
+   * @param makePipeline creates a pipeline on the connection to Redis
+   * @param namespace the Resque namespace
+   * @param clusterKeys whether to use the cluster key layout
+   * @param queue the Resque queue name
+   * @param jobJson the job serialized as JSON
+   */
+  public static void doPriorityEnqueue(
+      final Supplier<AbstractPipeline> makePipeline,
+      final String namespace,
+      final boolean clusterKeys,
+      final String queue,
+      final String jobJson) {
+    try (AbstractPipeline pipelined = makePipeline.get()) {
+      pipelined.sadd(JesqueUtils.createKey(namespace, QUEUES), queue);
+      pipelined.lpush(JesqueUtils.createQueueKey(namespace, clusterKeys, QUEUE, queue), jobJson);
+      pipelined.sadd(JesqueUtils.createKey(namespace, READY_QUEUES), queue);
+      pipelined.sync();
+    }
   }
 
   /**
-   * Helper method that encapsulates the logic to acquire a lock.
+   * Helper method that encapsulates the logic to acquire a lock, in a single round trip. The lock
+   * is taken with <code>SET NX PX</code> if it is free, or extended if the holder already has it.
    *
    * @param jedis the connection to Redis
    * @param namespace the Resque namespace
    * @param lockName all calls to this method will contend for a unique lock with the name of
    *     lockName
-   * @param timeout how long until the lock will expire
    * @param lockHolder a unique string used to tell if you are the current holder of a lock for both
    *     acquisition, and extension
+   * @param timeout how long until the lock will expire
    * @return Whether or not the lock was acquired.
    */
   public static boolean doAcquireLock(
@@ -247,72 +1112,87 @@ public abstract class AbstractClient implements Client {
       final String lockName,
       final String lockHolder,
       final Duration timeout) {
-    final String key = JesqueUtils.createKey(namespace, lockName);
-    final long timeoutSeconds = timeout.toSeconds();
-    // If lock already exists, extend it
-    String existingLockHolder = jedis.get(key);
-    if ((existingLockHolder != null) && existingLockHolder.equals(lockHolder)) {
-      if (jedis.expire(key, timeoutSeconds) == 1) {
-        existingLockHolder = jedis.get(key);
-        if ((existingLockHolder != null) && existingLockHolder.equals(lockHolder)) {
-          return true;
-        }
-      }
-    }
-    // Check to see if the key exists and is expired for cleanup purposes
-    if (jedis.exists(key) && (jedis.ttl(key) < 0)) {
-      // It is expired, but it may be in the process of being created, so
-      // sleep and check again
-      try {
-        Thread.sleep(2000);
-      } catch (InterruptedException ie) {
-      } // Ignore interruptions
-      if (jedis.ttl(key) < 0) {
-        existingLockHolder = jedis.get(key);
-        // If it is our lock mark the time to live
-        if ((existingLockHolder != null) && existingLockHolder.equals(lockHolder)) {
-          if (jedis.expire(key, timeoutSeconds) == 1) {
-            existingLockHolder = jedis.get(key);
-            if ((existingLockHolder != null) && existingLockHolder.equals(lockHolder)) {
-              return true;
-            }
-          }
-        } else { // The key is expired, whack it!
-          jedis.del(key);
-        }
-      } else { // Someone else locked it while we were sleeping
-        return false;
-      }
-    }
-    // Ignore the cleanup steps above, start with no assumptions test
-    // creating the key
-    if (jedis.setnx(key, lockHolder) == 1) {
-      // Created the lock, now set the expiration
-      if (jedis.expire(key, timeoutSeconds) == 1) { // Set the timeout
-        existingLockHolder = jedis.get(key);
-        if ((existingLockHolder != null) && existingLockHolder.equals(lockHolder)) {
-          return true;
-        }
-      } else { // Don't know why it failed, but for now just report failed
-        // acquisition
-        return false;
-      }
-    }
-    // Failed to create the lock
-    return false;
+    return evalLock(jedis, LOCK_LUA, namespace, lockName, lockHolder, timeout);
+  }
+
+  /**
+   * Helper method that encapsulates the logic to extend a lock, only if the holder still has it.
+   *
+   * @param jedis the connection to Redis
+   * @param namespace the Resque namespace
+   * @param lockName the name of the lock
+   * @param lockHolder the unique string the lock was acquired with
+   * @param leaseTime how long from now until the lock will expire
+   * @return Whether or not the lock was extended.
+   */
+  public static boolean doExtendLock(
+      final JedisCommands jedis,
+      final String namespace,
+      final String lockName,
+      final String lockHolder,
+      final Duration leaseTime) {
+    return evalLock(jedis, EXTEND_LOCK_LUA, namespace, lockName, lockHolder, leaseTime);
+  }
+
+  /**
+   * Helper method that encapsulates the logic to release a lock, only if the holder still has it.
+   *
+   * @param jedis the connection to Redis
+   * @param namespace the Resque namespace
+   * @param lockName the name of the lock
+   * @param lockHolder the unique string the lock was acquired with
+   * @return Whether or not the lock was released.
+   */
+  public static boolean doReleaseLock(
+      final JedisCommands jedis,
+      final String namespace,
+      final String lockName,
+      final String lockHolder) {
+    return Long.valueOf(1L)
+        .equals(
+            jedis.eval(
+                RELEASE_LOCK_LUA,
+                Collections.singletonList(JesqueUtils.createKey(namespace, lockName)),
+                Collections.singletonList(lockHolder)));
+  }
+
+  private static boolean evalLock(
+      final JedisCommands jedis,
+      final String script,
+      final String namespace,
+      final String lockName,
+      final String lockHolder,
+      final Duration leaseTime) {
+    return Long.valueOf(1L)
+        .equals(
+            jedis.eval(
+                script,
+                Collections.singletonList(JesqueUtils.createKey(namespace, lockName)),
+                Arrays.asList(lockHolder, Long.toString(leaseTime.toMillis()))));
+  }
+
+  public static void doDelayedEnqueue(
+      final JedisCommands jedis,
+      final String namespace,
+      final String queue,
+      final String jobJson,
+      final Instant future) {
+    doDelayedEnqueue(jedis, namespace, false, queue, jobJson, future);
   }
 
   public static void doDelayedEnqueue(
       final JedisCommands jedis,
       final String namespace,
+      final boolean clusterKeys,
       final String queue,
       final String jobJson,
       final Instant future) {
-    final String key = JesqueUtils.createKey(namespace, QUEUE, queue);
+    final String key = JesqueUtils.createQueueKey(namespace, clusterKeys, QUEUE, queue);
     // Add task only if this queue is either delayed or unused
     if (JedisUtils.canUseAsDelayedQueue(jedis, key)) {
       jedis.zadd(key, future.toEpochMilli(), jobJson);
       jedis.sadd(JesqueUtils.createKey(namespace, QUEUES), queue);
+      jedis.sadd(JesqueUtils.createKey(namespace, READY_QUEUES), queue);
     } else {
       throw new IllegalArgumentException(queue + " cannot be used as a delayed queue");
     }
@@ -321,12 +1201,70 @@ public abstract class AbstractClient implements Client {
   protected abstract void doDelayedEnqueue(String queue, String msg, Instant future)
       throws Exception;
 
+  /**
+   * Helper method that encapsulates the minimum logic for adding a job due far in the future to
+   * the hourly bucket of a delayed queue.
+   *
+   * @param jedis the connection to Redis
+   * @param namespace the Resque namespace
+   * @param clusterKeys whether to use the cluster key layout
+   * @param queue the Resque queue name
+   * @param jobJson the job serialized as JSON
+   * @param future when the job is due
+   */
+  public static void doBucketedDelayedEnqueue(
+      final JedisCommands jedis,
+      final String namespace,
+      final boolean clusterKeys,
+      final String queue,
+      final String jobJson,
+      final Instant future) {
+    final String key = JesqueUtils.createQueueKey(namespace, clusterKeys, QUEUE, queue);
+    // Add task only if this queue is either delayed or unused
+    if (JedisUtils.canUseAsDelayedQueue(jedis, key)) {
+      final long due = future.toEpochMilli();
+      final String bucket = Long.toString(due - Math.floorMod(due, DELAYED_BUCKET_MILLIS));
+      final String bucketsKey =
+          JesqueUtils.createQueueKey(namespace, clusterKeys, QUEUE, queue, BUCKETS);
+      jedis.hset(
+          JesqueUtils.createQueueKey(namespace, clusterKeys, QUEUE, queue, BUCKETS, bucket),
+          jobJson,
+          Long.toString(due));
+      jedis.zadd(bucketsKey, Long.parseLong(bucket), bucket);
+      jedis.sadd(JesqueUtils.createKey(namespace, QUEUES), queue);
+      jedis.sadd(JesqueUtils.createKey(namespace, READY_QUEUES), queue);
+    } else {
+      throw new IllegalArgumentException(queue + " cannot be used as a delayed queue");
+    }
+  }
+
+  /**
+   * Actually add the serialized job due far in the future to a bucket of the delayed queue. Clients
+   * that cannot do so add it to the delayed queue itself.
+   *
+   * @param queue the delayed queue to add the Job to
+   * @param msg the serialized Job
+   * @param future when the job is due
+   * @throws Exception in case something goes wrong
+   */
+  protected void doBucketedDelayedEnqueue(
+      final String queue, final String msg, final Instant future) throws Exception {
+    doDelayedEnqueue(queue, msg, future);
+  }
+
   /** {@inheritDoc} */
   @Override
   public void delayedEnqueue(final String queue, final Job job, final Instant future) {
     validateArguments(queue, job, future);
+    validateNotPartitioned(queue);
     try {
-      doDelayedEnqueue(queue, ObjectMapperFactory.get().writeValueAsString(job), future);
+      final String msg = ObjectMapperFactory.get().writeValueAsString(job);
+      final Duration horizon = this.delayedBucketHorizon;
+      if (horizon != null && future.isAfter(Instant.now().plus(horizon))) {
+        doBucketedDelayedEnqueue(queue, msg, future);
+      } else {
+        doDelayedEnqueue(queue, msg, future);
+      }
     } catch (RuntimeException re) {
       throw re;
     } catch (Exception e) {
@@ -336,11 +1274,27 @@ public abstract class AbstractClient implements Client {
 
   public static void doRemoveDelayedEnqueue(
       final JedisCommands jedis, final String namespace, final String queue, final String jobJson) {
-    final String key = JesqueUtils.createKey(namespace, QUEUE, queue);
+    doRemoveDelayedEnqueue(jedis, namespace, false, queue, jobJson);
+  }
+
+  public static void doRemoveDelayedEnqueue(
+      final JedisCommands jedis,
+      final String namespace,
+      final boolean clusterKeys,
+      final String queue,
+      final String jobJson) {
+    final String key = JesqueUtils.createQueueKey(namespace, clusterKeys, QUEUE, queue);
+    // The job may still be waiting in a bucket, which a pop or the promoter may move into the
+    // queue at any time, so both are searched in one script
+    final String bucketsKey =
+        JesqueUtils.createQueueKey(namespace, clusterKeys, QUEUE, queue, BUCKETS);
     // remove task only if this queue is either delayed or unused
-    if (JedisUtils.canUseAsDelayedQueue(jedis, key)) {
-      jedis.zrem(key, jobJson);
-    } else {
+    if (Long.valueOf(0L)
+        .equals(
+            jedis.eval(
+                REMOVE_DELAYED_LUA,
+                Arrays.asList(key, bucketsKey),
+                Collections.singletonList(jobJson)))) {
       throw new IllegalArgumentException(queue + " cannot be used as a delayed queue");
     }
   }
@@ -368,10 +1322,24 @@ public abstract class AbstractClient implements Client {
       final String jobJson,
       final Instant future,
       final Duration frequency) {
-    final String queueKey = JesqueUtils.createKey(namespace, QUEUE, queue);
+    doRecurringEnqueue(jedis, makeTransaction, namespace, false, queue, jobJson, future, frequency);
+  }
+
+  public static void doRecurringEnqueue(
+      final JedisCommands jedis,
+      final Supplier<AbstractTransaction> makeTransaction,
+      final String namespace,
+      final boolean clusterKeys,
+      final String queue,
+      final String jobJson,
+      final Instant future,
+      final Duration frequency) {
+    final String queueKey = JesqueUtils.createQueueKey(namespace, clusterKeys, QUEUE, queue);
     final String hashKey = JesqueUtils.createRecurringHashKey(queueKey);
 
     if (JedisUtils.canUseAsRecurringQueue(jedis, queueKey, hashKey)) {
+      // Outside the transaction, which the cluster key layout limits to the queue's slot
+      jedis.sadd(JesqueUtils.createKey(namespace, READY_QUEUES), queue);
       AbstractTransaction transaction = makeTransaction.get(); // jedis.multi();
       transaction.zadd(queueKey, future.toEpochMilli(), jobJson);
       transaction.hset(hashKey, jobJson, Long.toString(frequency.toMillis()));
@@ -390,6 +1358,7 @@ public abstract class AbstractClient implements Client {
   @Override
   public void recurringEnqueue(String queue, Job job, Instant future, Duration frequency) {
     validateArguments(queue, job, future, frequency);
+    validateNotPartitioned(queue);
     try {
       doRecurringEnqueue(
           queue, ObjectMapperFactory.get().writeValueAsString(job), future, frequency);
@@ -406,7 +1375,17 @@ public abstract class AbstractClient implements Client {
       final String namespace,
       final String queue,
       final String jobJson) {
-    final String queueKey = JesqueUtils.createKey(namespace, QUEUE, queue);
+    doRemoveRecurringEnqueue(jedis, makeTransaction, namespace, false, queue, jobJson);
+  }
+
+  public static void doRemoveRecurringEnqueue(
+      final JedisCommands jedis,
+      final Supplier<AbstractTransaction> makeTransaction,
+      final String namespace,
+      final boolean clusterKeys,
+      final String queue,
+      final String jobJson) {
+    final String queueKey = JesqueUtils.createQueueKey(namespace, clusterKeys, QUEUE, queue);
     final String hashKey = JesqueUtils.createRecurringHashKey(queueKey);
 
     if (JedisUtils.canUseAsRecurringQueue(jedis, queueKey, hashKey)) {
@@ -440,6 +1419,21 @@ public abstract class AbstractClient implements Client {
     validateJob(job);
   }
 
+  private void validateNotPartitioned(final String queue) {
+    if (this.partitionedQueues.containsKey(queue)) {
+      // A delayed queue is a sorted set that workers search as a whole
+      throw new IllegalArgumentException(queue + " is partitioned and cannot hold delayed jobs");
+    }
+    if (this.orderedQueues.contains(queue)) {
+      // Its lanes are only popped by taking their leases, which the delayed pop does not
+      throw new IllegalArgumentException(queue + " is ordered and cannot hold delayed jobs");
+    }
+    if (this.tenantQueues.containsKey(queue)) {
+      // Its own list is popped as one of its tenants, which a sorted set cannot be
+      throw new IllegalArgumentException(queue + " is a tenant queue and cannot hold delayed jobs");
+    }
+  }
+
   private static void validateJob(Job job) {
     if (job == null) {
       throw new IllegalArgumentException("job must not be null");
@@ -16,6 +16,7 @@ package net.greghaines.jesque.client;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import net.greghaines.jesque.Job;
 
 /**
@@ -35,6 +36,32 @@ public interface Client {
    */
   void enqueue(String queue, Job job);
 
+  /**
+   * Queues a job in a given ordered queue to be run after the jobs already queued with the same
+   * ordering key, and never at the same time as them. See {@link
+   * net.greghaines.jesque.Config.Builder#withOrderedQueue(String, int)}.
+   *
+   * @param queue the ordered queue to add the Job to
+   * @param orderingKey the key whose jobs run in order, e.g. an account ID
+   * @param job the job to be enqueued
+   * @throws IllegalArgumentException if the queue is null, empty or not an ordered queue, if the
+   *     ordering key is null or empty or if the job is null
+   */
+  void enqueue(String queue, String orderingKey, Job job);
+
+  /**
+   * Queues a job in a given tenant queue to be run in its tenant's turn, so that it does not wait
+   * behind the jobs of other tenants. See {@link
+   * net.greghaines.jesque.Config.Builder#withTenantQueue(String, int)}.
+   *
+   * @param queue the tenant queue to add the Job to
+   * @param tenant the tenant the job belongs to, e.g. a customer ID
+   * @param job the job to be enqueued
+   * @throws IllegalArgumentException if the queue is null, empty or not a tenant queue, if the
+   *     tenant is null or empty or if the job is null
+   */
+  void tenantEnqueue(String queue, String tenant, Job job);
+
   /**
    * Queues jobs in a given queue to be run. Consider splitting long lists of jobs into chunks of
    * 10,000 or so.
@@ -61,15 +88,89 @@ public interface Client {
   void end();
 
   /**
-   * Acquire a non-blocking distributed lock. Calling this method again renews the lock.
+   * Acquire a non-blocking distributed lock, in a single round trip. Calling this method again
+   * renews the lock.
    *
    * @param lockName the name of the lock to acquire
-   * @param timeout how long until the lock will expire, truncated to seconds
    * @param lockHolder a unique string identifying the caller
+   * @param timeout how long until the lock will expire, truncated to milliseconds
    * @return true, if the lock was acquired, false otherwise
+   * @throws IllegalArgumentException if the lock name or holder is null or empty or the timeout is
+   *     null or shorter than a millisecond
    */
   boolean acquireLock(String lockName, String lockHolder, Duration timeout);
 
+  /**
+   * Acquire a distributed lock, trying again with short, growing pauses until the wait time has
+   * passed. Calling this method again renews the lock.
+   *
+   * @param lockName the name of the lock to acquire
+   * @param lockHolder a unique string identifying the caller
+   * @param leaseTime how long until the lock will expire
+   * @param waitTime how long to keep trying, or zero to try once
+   * @return true, if the lock was acquired, false if it was not within the wait time or the thread
+   *     was interrupted
+   * @throws IllegalArgumentException if the lock name or holder is null or empty, the lease time is
+   *     null or shorter than a millisecond or the wait time is null or negative
+   */
+  boolean tryLock(String lockName, String lockHolder, Duration leaseTime, Duration waitTime);
+
+  /**
+   * Acquire a distributed lock in the same way as {@link #tryLock(String, String, Duration,
+   * Duration)}, without blocking the calling thread. The attempts run on the client's lock thread,
+   * which no attempt holds while it waits to try again; dependent stages that are not async also
+   * run on it, so they should be brief. Cancelling the future stops the attempts.
+   *
+   * @param lockName the name of the lock to acquire
+   * @param lockHolder a unique string identifying the caller
+   * @param leaseTime how long until the lock will expire
+   * @param waitTime how long to keep trying, or zero to try once
+   * @return a future completed with true if the lock was acquired, or false if it was not within
+   *     the wait time or the client ended first
+   * @throws IllegalArgumentException if the lock name or holder is null or empty, the lease time is
+   *     null or shorter than a millisecond or the wait time is null or negative
+   */
+  CompletableFuture<Boolean> tryLockAsync(
+      String lockName, String lockHolder, Duration leaseTime, Duration waitTime);
+
+  /**
+   * Extend a distributed lock, only if the caller still holds it.
+   *
+   * @param lockName the name of the lock to extend
+   * @param lockHolder the unique string the lock was acquired with
+   * @param leaseTime how long from now until the lock will expire
+   * @return true, if the lock was extended, false if the caller no longer holds it
+   * @throws IllegalArgumentException if the lock name or holder is null or empty or the lease time
+   *     is null or shorter than a millisecond
+   */
+  boolean extendLock(String lockName, String lockHolder, Duration leaseTime);
+
+  /**
+   * Keep a held distributed lock from expiring: the client's watchdog extends it by the lease time
+   * every third of the lease time until it is released with {@link #releaseLock(String, String)},
+   * it is lost or the client ends. The watchdog runs on a single thread shared by every lock the
+   * client watches. If the process dies, the lock expires within the lease time.
+   *
+   * @param lockName the name of the lock to watch
+   * @param lockHolder the unique string the lock was acquired with
+   * @param leaseTime how long from each renewal until the lock will expire
+   * @return true, if the caller holds the lock and it is now watched, false otherwise
+   * @throws IllegalArgumentException if the lock name or holder is null or empty or the lease time
+   *     is null or shorter than a millisecond
+   */
+  boolean watchLock(String lockName, String lockHolder, Duration leaseTime);
+
+  /**
+   * Release a distributed lock, only if the caller still holds it, so that a caller whose lock
+   * expired never releases the lock of the next holder. The watchdog stops watching the lock.
+   *
+   * @param lockName the name of the lock to release
+   * @param lockHolder the unique string the lock was acquired with
+   * @return true, if the lock was released, false if the caller no longer held it
+   * @throws IllegalArgumentException if the lock name or holder is null or empty
+   */
+  boolean releaseLock(String lockName, String lockHolder);
+
   /**
    * Queues a job in a given queue to be run in the future.
    *
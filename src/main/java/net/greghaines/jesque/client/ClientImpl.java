@@ -13,6 +13,9 @@
  */
 package net.greghaines.jesque.client;
 
+import static net.greghaines.jesque.utils.ResqueConstants.CHANNEL;
+import static net.greghaines.jesque.utils.ResqueConstants.DELAYED;
+
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
@@ -22,6 +25,7 @@ import java.util.concurrent.TimeUnit;
 import net.greghaines.jesque.Config;
 import net.greghaines.jesque.utils.JedisUtils;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.commands.JedisCommands;
 
 /**
  * Basic implementation of the Client interface.
@@ -37,6 +41,9 @@ public class ClientImpl extends AbstractClient {
   private final Jedis jedis;
   private final boolean checkConnectionBeforeUse;
   private final ScheduledExecutorService keepAliveService;
+  // The lock thread's own connection, since this client's connection is not shared between
+  // threads; created when first needed
+  private volatile Jedis lockJedis = null;
 
   /**
    * Create a new ClientImpl, which creates it's own connection to Redis using values from the
@@ -97,21 +104,49 @@ public class ClientImpl extends AbstractClient {
   @Override
   protected void doEnqueue(final String queue, final String jobJson) {
     ensureJedisConnection();
-    doEnqueue(this.jedis, getNamespace(), queue, jobJson);
+    doEnqueue(() -> this.jedis.pipelined(), getNamespace(), isClusterKeys(), queue, jobJson);
   }
 
   /** {@inheritDoc} */
   @Override
   protected void doBatchEnqueue(final String queue, final List<String> jobsJson) {
     ensureJedisConnection();
-    doBatchEnqueue(this.jedis, () -> this.jedis.pipelined(), getNamespace(), queue, jobsJson);
+    doBatchEnqueue(
+        this.jedis,
+        () -> this.jedis.pipelined(),
+        getNamespace(),
+        isClusterKeys(),
+        queue,
+        jobsJson);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected void doStreamEnqueue(final String queue, final List<String> jobsJson) {
+    ensureJedisConnection();
+    doStreamEnqueue(() -> this.jedis.pipelined(), getNamespace(), isClusterKeys(), queue, jobsJson);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected long doQueueLength(final String queue, final boolean stream) {
+    ensureJedisConnection();
+    return doQueueLength(this.jedis, getNamespace(), isClusterKeys(), queue, stream);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected void doTenantEnqueue(final String queue, final String tenant, final String jobJson) {
+    ensureJedisConnection();
+    doTenantEnqueue(this.jedis, getNamespace(), isClusterKeys(), queue, tenant, jobJson);
   }
 
   /** {@inheritDoc} */
   @Override
   protected void doPriorityEnqueue(final String queue, final String jobJson) {
     ensureJedisConnection();
-    doPriorityEnqueue(this.jedis, getNamespace(), queue, jobJson);
+    doPriorityEnqueue(
+        () -> this.jedis.pipelined(), getNamespace(), isClusterKeys(), queue, jobJson);
   }
 
   /** {@inheritDoc} */
@@ -122,6 +157,36 @@ public class ClientImpl extends AbstractClient {
     return doAcquireLock(this.jedis, getNamespace(), lockName, lockHolder, timeout);
   }
 
+  /** {@inheritDoc} */
+  @Override
+  protected boolean doExtendLock(
+      final String lockName, final String lockHolder, final Duration leaseTime) throws Exception {
+    ensureJedisConnection();
+    return doExtendLock(this.jedis, getNamespace(), lockName, lockHolder, leaseTime);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected boolean doReleaseLock(final String lockName, final String lockHolder)
+      throws Exception {
+    ensureJedisConnection();
+    return doReleaseLock(this.jedis, getNamespace(), lockName, lockHolder);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected JedisCommands getLockThreadJedis() {
+    Jedis lockConnection = this.lockJedis;
+    if (lockConnection == null) {
+      lockConnection = new Jedis(this.config.getHostAndPort(), this.config.getJedisClientConfig());
+      authenticateAndSelectDB(lockConnection);
+      this.lockJedis = lockConnection;
+    } else if (!JedisUtils.ensureJedisConnection(lockConnection)) {
+      authenticateAndSelectDB(lockConnection);
+    }
+    return lockConnection;
+  }
+
   /** {@inheritDoc} */
   @Override
   public void end() {
@@ -129,6 +194,10 @@ public class ClientImpl extends AbstractClient {
     if (this.keepAliveService != null) {
       this.keepAliveService.shutdownNow();
     }
+    endLocks();
+    if (this.lockJedis != null) {
+      this.lockJedis.close();
+    }
     this.jedis.close();
   }
 
@@ -137,14 +206,24 @@ public class ClientImpl extends AbstractClient {
   protected void doDelayedEnqueue(final String queue, final String msg, final Instant future)
       throws Exception {
     ensureJedisConnection();
-    doDelayedEnqueue(this.jedis, getNamespace(), queue, msg, future);
+    doDelayedEnqueue(this.jedis, getNamespace(), isClusterKeys(), queue, msg, future);
+    this.jedis.publish(key(CHANNEL, DELAYED), queue);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected void doBucketedDelayedEnqueue(
+      final String queue, final String msg, final Instant future) throws Exception {
+    ensureJedisConnection();
+    doBucketedDelayedEnqueue(this.jedis, getNamespace(), isClusterKeys(), queue, msg, future);
+    this.jedis.publish(key(CHANNEL, DELAYED), queue);
   }
 
   /** {@inheritDoc} */
   @Override
   protected void doRemoveDelayedEnqueue(final String queue, final String msg) throws Exception {
     ensureJedisConnection();
-    doRemoveDelayedEnqueue(this.jedis, getNamespace(), queue, msg);
+    doRemoveDelayedEnqueue(this.jedis, getNamespace(), isClusterKeys(), queue, msg);
   }
 
   /** {@inheritDoc} */
@@ -154,21 +233,34 @@ public class ClientImpl extends AbstractClient {
       throws Exception {
     ensureJedisConnection();
     doRecurringEnqueue(
-        this.jedis, this.jedis::multi, getNamespace(), queue, msg, future, frequency);
+        this.jedis,
+        this.jedis::multi,
+        getNamespace(),
+        isClusterKeys(),
+        queue,
+        msg,
+        future,
+        frequency);
+    this.jedis.publish(key(CHANNEL, DELAYED), queue);
   }
 
   /** {@inheritDoc} */
   @Override
   protected void doRemoveRecurringEnqueue(final String queue, final String msg) throws Exception {
     ensureJedisConnection();
-    doRemoveRecurringEnqueue(this.jedis, this.jedis::multi, getNamespace(), queue, msg);
+    doRemoveRecurringEnqueue(
+        this.jedis, this.jedis::multi, getNamespace(), isClusterKeys(), queue, msg);
   }
 
   private void authenticateAndSelectDB() {
+    authenticateAndSelectDB(this.jedis);
+  }
+
+  private void authenticateAndSelectDB(final Jedis connection) {
     if (this.config.getJedisClientConfig().getPassword() != null) {
-      this.jedis.auth(this.config.getJedisClientConfig().getPassword());
+      connection.auth(this.config.getJedisClientConfig().getPassword());
     }
-    this.jedis.select(this.config.getJedisClientConfig().getDatabase());
+    connection.select(this.config.getJedisClientConfig().getDatabase());
   }
 
   private void ensureJedisConnection() {
@@ -13,11 +13,15 @@
  */
 package net.greghaines.jesque.client;
 
+import static net.greghaines.jesque.utils.ResqueConstants.CHANNEL;
+import static net.greghaines.jesque.utils.ResqueConstants.DELAYED;
+
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import net.greghaines.jesque.Config;
 import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.commands.JedisCommands;
 
 /**
  * A Client implementation that gets its connection to Redis from a connection pool.
@@ -45,18 +49,43 @@ public class ClientPoolImpl extends AbstractClient {
   /** {@inheritDoc} */
   @Override
   protected void doEnqueue(final String queue, final String jobJson) throws Exception {
-    doEnqueue(this.jedisPool, getNamespace(), queue, jobJson);
+    doEnqueue(this.jedisPool::pipelined, getNamespace(), isClusterKeys(), queue, jobJson);
   }
 
   @Override
   protected void doBatchEnqueue(final String queue, final List<String> jobsJson) throws Exception {
-    doBatchEnqueue(this.jedisPool, this.jedisPool::pipelined, getNamespace(), queue, jobsJson);
+    doBatchEnqueue(
+        this.jedisPool,
+        this.jedisPool::pipelined,
+        getNamespace(),
+        isClusterKeys(),
+        queue,
+        jobsJson);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected void doStreamEnqueue(final String queue, final List<String> jobsJson) throws Exception {
+    doStreamEnqueue(this.jedisPool::pipelined, getNamespace(), isClusterKeys(), queue, jobsJson);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected long doQueueLength(final String queue, final boolean stream) {
+    return doQueueLength(this.jedisPool, getNamespace(), isClusterKeys(), queue, stream);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected void doTenantEnqueue(final String queue, final String tenant, final String jobJson)
+      throws Exception {
+    doTenantEnqueue(this.jedisPool, getNamespace(), isClusterKeys(), queue, tenant, jobJson);
   }
 
   /** {@inheritDoc} */
   @Override
   protected void doPriorityEnqueue(final String queue, final String jobJson) throws Exception {
-    doPriorityEnqueue(this.jedisPool, getNamespace(), queue, jobJson);
+    doPriorityEnqueue(this.jedisPool::pipelined, getNamespace(), isClusterKeys(), queue, jobJson);
   }
 
   /** {@inheritDoc} */
@@ -68,21 +97,50 @@ public class ClientPoolImpl extends AbstractClient {
 
   /** {@inheritDoc} */
   @Override
+  protected boolean doExtendLock(
+      final String lockName, final String lockHolder, final Duration leaseTime) throws Exception {
+    return doExtendLock(this.jedisPool, getNamespace(), lockName, lockHolder, leaseTime);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected boolean doReleaseLock(final String lockName, final String lockHolder)
+      throws Exception {
+    return doReleaseLock(this.jedisPool, getNamespace(), lockName, lockHolder);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected JedisCommands getLockThreadJedis() {
+    return this.jedisPool;
+  }
+
+  /** Stops the lock watchdog; the pool is left open for its owner to close. */
+  @Override
   public void end() {
-    // Do nothing
+    endLocks();
   }
 
   /** {@inheritDoc} */
   @Override
   protected void doDelayedEnqueue(final String queue, final String msg, final Instant future)
       throws Exception {
-    doDelayedEnqueue(this.jedisPool, getNamespace(), queue, msg, future);
+    doDelayedEnqueue(this.jedisPool, getNamespace(), isClusterKeys(), queue, msg, future);
+    this.jedisPool.publish(key(CHANNEL, DELAYED), queue);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected void doBucketedDelayedEnqueue(
+      final String queue, final String msg, final Instant future) throws Exception {
+    doBucketedDelayedEnqueue(this.jedisPool, getNamespace(), isClusterKeys(), queue, msg, future);
+    this.jedisPool.publish(key(CHANNEL, DELAYED), queue);
   }
 
   /** {@inheritDoc} */
   @Override
   protected void doRemoveDelayedEnqueue(final String queue, final String msg) throws Exception {
-    doRemoveDelayedEnqueue(this.jedisPool, getNamespace(), queue, msg);
+    doRemoveDelayedEnqueue(this.jedisPool, getNamespace(), isClusterKeys(), queue, msg);
   }
 
   @Override
@@ -90,11 +148,20 @@ public class ClientPoolImpl extends AbstractClient {
       final String queue, final String msg, final Instant future, final Duration frequency)
       throws Exception {
     doRecurringEnqueue(
-        this.jedisPool, this.jedisPool::multi, getNamespace(), queue, msg, future, frequency);
+        this.jedisPool,
+        this.jedisPool::multi,
+        getNamespace(),
+        isClusterKeys(),
+        queue,
+        msg,
+        future,
+        frequency);
+    this.jedisPool.publish(key(CHANNEL, DELAYED), queue);
   }
 
   @Override
   protected void doRemoveRecurringEnqueue(final String queue, final String msg) throws Exception {
-    doRemoveRecurringEnqueue(this.jedisPool, this.jedisPool::multi, getNamespace(), queue, msg);
+    doRemoveRecurringEnqueue(
+        this.jedisPool, this.jedisPool::multi, getNamespace(), isClusterKeys(), queue, msg);
   }
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2026 Greg Haines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.greghaines.jesque.client;
+
+import java.util.function.Function;
+import java.util.function.IntToLongFunction;
+import net.greghaines.jesque.Job;
+
+/**
+ * KeyedPartitionStrategy adds every job with the same key to the same partition, so that jobs
+ * sharing a key are popped in the order they were added. The partition is derived from the hash of
+ * the key, which is the same in every JVM.
+ */
+public class KeyedPartitionStrategy implements PartitionStrategy {
+
+  private final Function<? super Job, String> keyFunction;
+
+  /**
+   * Constructor.
+   *
+   * @param keyFunction gets the key of a job, e.g. <code>job -&gt; (String) job.getVars().get(
+   *     "account")</code>
+   * @throws IllegalArgumentException if keyFunction is null
+   */
+  public KeyedPartitionStrategy(final Function<? super Job, String> keyFunction) {
+    if (keyFunction == null) {
+      throw new IllegalArgumentException("keyFunction must not be null");
+    }
+    this.keyFunction = keyFunction;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws IllegalArgumentException if the job has no key
+   */
+  @Override
+  public int choosePartition(
+      final String queue, final Job job, final int partitions, final IntToLongFunction lengths) {
+    final String key = this.keyFunction.apply(job);
+    if (key == null) {
+      throw new IllegalArgumentException("job has no partition key: " + job);
+    }
+    return Math.floorMod(key.hashCode(), partitions);
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2026 Greg Haines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.greghaines.jesque.client;
+
+import java.util.function.IntToLongFunction;
+import net.greghaines.jesque.Job;
+
+/**
+ * PartitionStrategy decides which partition of a partitioned queue a client adds a job to, see
+ * {@link net.greghaines.jesque.Config.Builder#withQueuePartitions(String, int)}. Implementations
+ * must be thread-safe since a client may be shared by several threads.
+ */
+public interface PartitionStrategy {
+
+  /**
+   * Choose the partition of a queue to add a job to.
+   *
+   * @param queue the name of the partitioned queue
+   * @param job the job being added
+   * @param partitions the number of partitions of the queue, at least 2
+   * @param lengths the number of jobs in a partition, by index; read from Redis when first asked
+   *     for and counting the jobs already placed by the same call
+   * @return the index of the partition, from 0 to <code>partitions - 1</code>
+   */
+  int choosePartition(String queue, Job job, int partitions, IntToLongFunction lengths);
+}
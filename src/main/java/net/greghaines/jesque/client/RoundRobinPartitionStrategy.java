@@ -0,0 +1,38 @@
+/*
+ * Copyright 2026 Greg Haines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.greghaines.jesque.client;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntToLongFunction;
+import net.greghaines.jesque.Job;
+
+/**
+ * RoundRobinPartitionStrategy adds the jobs of each queue to its partitions in turn. It never reads
+ * the lengths of the partitions, so it costs no extra round trips, and spreads the jobs of a single
+ * client evenly.
+ */
+public class RoundRobinPartitionStrategy implements PartitionStrategy {
+
+  private final Map<String, AtomicInteger> counters = new ConcurrentHashMap<>();
+
+  /** {@inheritDoc} */
+  @Override
+  public int choosePartition(
+      final String queue, final Job job, final int partitions, final IntToLongFunction lengths) {
+    final AtomicInteger counter = this.counters.computeIfAbsent(queue, q -> new AtomicInteger());
+    return Math.floorMod(counter.getAndIncrement(), partitions);
+  }
+}
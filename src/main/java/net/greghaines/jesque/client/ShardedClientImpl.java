@@ -0,0 +1,283 @@
+/*
+ * Copyright 2026 Greg Haines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.greghaines.jesque.client;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import net.greghaines.jesque.Config;
+import net.greghaines.jesque.Job;
+import net.greghaines.jesque.utils.JesqueUtils;
+import net.greghaines.jesque.utils.ShardMap;
+
+/**
+ * A Client that spreads queues over several Redis servers without Redis Cluster. Each call goes to
+ * the Client of the shard that owns the queue, so a queue lives entirely on one server and
+ * throughput grows with the number of shards. The partitions of a partitioned queue, and the lanes
+ * of an ordered queue, are placed by their own names, so they spread over the shards; the client
+ * chooses the partition of a job before the shard. Locks are placed on shards by their name in the
+ * same way. Workers must use the same placement, see {@link
+ * net.greghaines.jesque.worker.ShardedWorker}.
+ */
+public class ShardedClientImpl implements Client {
+
+  private final Map<String, Integer> partitionedQueues;
+  private final ShardMap<? extends Client> clients;
+  private volatile PartitionStrategy partitionStrategy = new RoundRobinPartitionStrategy();
+
+  /**
+   * Create a ShardedClientImpl for queues that are not partitioned.
+   *
+   * @param clients the Client of each shard, e.g. <code>
+   *     shards.map(jedis -&gt; new ClientPoolImpl(config, jedis))</code>
+   * @throws IllegalArgumentException if clients is null
+   */
+  public ShardedClientImpl(final ShardMap<? extends Client> clients) {
+    this(Config.getDefaultConfig(), clients);
+  }
+
+  /**
+   * Create a ShardedClientImpl.
+   *
+   * @param config the config of the shards' Clients, whose partitioned queues are spread over the
+   *     shards
+   * @param clients the Client of each shard, e.g. <code>
+   *     shards.map(jedis -&gt; new ClientPoolImpl(config, jedis))</code>
+   * @throws IllegalArgumentException if config or clients is null
+   */
+  public ShardedClientImpl(final Config config, final ShardMap<? extends Client> clients) {
+    if (config == null) {
+      throw new IllegalArgumentException("config must not be null");
+    }
+    if (clients == null) {
+      throw new IllegalArgumentException("clients must not be null");
+    }
+    this.partitionedQueues = config.getPartitionedQueues();
+    this.clients = clients;
+  }
+
+  /**
+   * @return the Client of each shard
+   */
+  public ShardMap<? extends Client> getClients() {
+    return this.clients;
+  }
+
+  /**
+   * @return the strategy deciding which partition of a partitioned queue a job is added to
+   */
+  public PartitionStrategy getPartitionStrategy() {
+    return this.partitionStrategy;
+  }
+
+  /**
+   * Set the strategy deciding which partition of a partitioned queue a job is added to. The lengths
+   * it asks for are read from the shard of each partition, from Clients that extend {@link
+   * AbstractClient}. (Round robin by default)
+   *
+   * @param partitionStrategy the strategy
+   * @throws IllegalArgumentException if partitionStrategy is null
+   */
+  public void setPartitionStrategy(final PartitionStrategy partitionStrategy) {
+    if (partitionStrategy == null) {
+      throw new IllegalArgumentException("partitionStrategy must not be null");
+    }
+    this.partitionStrategy = partitionStrategy;
+  }
+
+  /** Adds the job to a partition of a partitioned queue, on the shard that owns the partition. */
+  @Override
+  public void enqueue(final String queue, final Job job) {
+    final String partition = choosePartition(queue, job, newPartitionLengths(queue));
+    this.clients.get(partition).enqueue(partition, job);
+  }
+
+  /** Adds the job to its lane, on the shard that owns the lane. */
+  @Override
+  public void enqueue(final String queue, final String orderingKey, final Job job) {
+    final Integer lanes = this.partitionedQueues.get(queue);
+    final String lane =
+        (lanes == null || orderingKey == null || "".equals(orderingKey))
+            ? queue
+            : JesqueUtils.createLaneName(queue, orderingKey, lanes);
+    this.clients.get(lane).enqueue(queue, orderingKey, job);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void tenantEnqueue(final String queue, final String tenant, final Job job) {
+    this.clients.get(queue).tenantEnqueue(queue, tenant, job);
+  }
+
+  /**
+   * Adds the jobs to the partitions of a partitioned queue, each partition's jobs in one batch on
+   * the shard that owns it.
+   */
+  @Override
+  public void batchEnqueue(final String queue, final List<Job> jobs) {
+    if (jobs == null
+        || !this.partitionedQueues.containsKey(queue)
+        || jobs.stream().anyMatch(Objects::isNull)) {
+      this.clients.get(queue).batchEnqueue(queue, jobs);
+      return;
+    }
+    final Map<String, List<Job>> partitionJobs = new LinkedHashMap<>();
+    final long[] lengths = newPartitionLengths(queue);
+    for (final Job job : jobs) {
+      partitionJobs
+          .computeIfAbsent(choosePartition(queue, job, lengths), p -> new ArrayList<>())
+          .add(job);
+    }
+    if (partitionJobs.isEmpty()) {
+      partitionJobs.put(queue, Collections.<Job>emptyList());
+    }
+    for (final Map.Entry<String, List<Job>> partition : partitionJobs.entrySet()) {
+      this.clients.get(partition.getKey()).batchEnqueue(partition.getKey(), partition.getValue());
+    }
+  }
+
+  /** Adds the job to a partition of a partitioned queue, on the shard that owns the partition. */
+  @Override
+  public void priorityEnqueue(final String queue, final Job job) {
+    final String partition = choosePartition(queue, job, newPartitionLengths(queue));
+    this.clients.get(partition).priorityEnqueue(partition, job);
+  }
+
+  /**
+   * Choose the partition of a queue a job is added to, as {@link AbstractClient} does but reading
+   * the length of each partition from its own shard.
+   *
+   * @param queue the queue the job is added to
+   * @param job the job
+   * @param lengths the lengths of the queue's partitions read so far
+   * @return the name of the partition, or the queue if it is not partitioned or the arguments are
+   *     invalid, for the shard's Client to reject
+   */
+  private String choosePartition(final String queue, final Job job, final long[] lengths) {
+    if (queue == null || "".equals(queue) || job == null) {
+      return queue;
+    }
+    return AbstractClient.choosePartition(
+        this.partitionStrategy,
+        this.partitionedQueues,
+        queue,
+        job,
+        lengths,
+        partition ->
+            (this.clients.get(partition) instanceof AbstractClient client)
+                ? client.queueLength(partition)
+                : 0L);
+  }
+
+  private long[] newPartitionLengths(final String queue) {
+    return AbstractClient.newPartitionLengths(this.partitionedQueues, queue);
+  }
+
+  /** Ends the Client of every shard. */
+  @Override
+  public void end() {
+    for (final Client client : this.clients.getShards().values()) {
+      client.end();
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean acquireLock(
+      final String lockName, final String lockHolder, final Duration timeout) {
+    return lockClient(lockName).acquireLock(lockName, lockHolder, timeout);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean tryLock(
+      final String lockName,
+      final String lockHolder,
+      final Duration leaseTime,
+      final Duration waitTime) {
+    return lockClient(lockName).tryLock(lockName, lockHolder, leaseTime, waitTime);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public CompletableFuture<Boolean> tryLockAsync(
+      final String lockName,
+      final String lockHolder,
+      final Duration leaseTime,
+      final Duration waitTime) {
+    return lockClient(lockName).tryLockAsync(lockName, lockHolder, leaseTime, waitTime);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean extendLock(
+      final String lockName, final String lockHolder, final Duration leaseTime) {
+    return lockClient(lockName).extendLock(lockName, lockHolder, leaseTime);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean watchLock(
+      final String lockName, final String lockHolder, final Duration leaseTime) {
+    return lockClient(lockName).watchLock(lockName, lockHolder, leaseTime);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean releaseLock(final String lockName, final String lockHolder) {
+    return lockClient(lockName).releaseLock(lockName, lockHolder);
+  }
+
+  /**
+   * @param lockName the name of a lock
+   * @return the client of the shard that owns the lock
+   */
+  private Client lockClient(final String lockName) {
+    if (lockName == null || "".equals(lockName)) {
+      throw new IllegalArgumentException("lockName must not be null or empty: " + lockName);
+    }
+    return this.clients.get(lockName);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void delayedEnqueue(final String queue, final Job job, final Instant future) {
+    this.clients.get(queue).delayedEnqueue(queue, job, future);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void removeDelayedEnqueue(final String queue, final Job job) {
+    this.clients.get(queue).removeDelayedEnqueue(queue, job);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void recurringEnqueue(
+      final String queue, final Job job, final Instant future, final Duration frequency) {
+    this.clients.get(queue).recurringEnqueue(queue, job, future, frequency);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void removeRecurringEnqueue(final String queue, final Job job) {
+    this.clients.get(queue).removeRecurringEnqueue(queue, job);
+  }
+}
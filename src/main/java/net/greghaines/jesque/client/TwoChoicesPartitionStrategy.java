@@ -0,0 +1,37 @@
+/*
+ * Copyright 2026 Greg Haines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.greghaines.jesque.client;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntToLongFunction;
+import net.greghaines.jesque.Job;
+
+/**
+ * TwoChoicesPartitionStrategy adds each job to the shorter of two partitions picked at random,
+ * which keeps the partitions far more even than either choice alone when workers drain them at
+ * different rates. Each job costs up to two extra reads of a partition's length; a batch reads
+ * each partition at most once.
+ */
+public class TwoChoicesPartitionStrategy implements PartitionStrategy {
+
+  /** {@inheritDoc} */
+  @Override
+  public int choosePartition(
+      final String queue, final Job job, final int partitions, final IntToLongFunction lengths) {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    final int first = random.nextInt(partitions);
+    final int second = (first + 1 + random.nextInt(partitions - 1)) % partitions;
+    return (lengths.applyAsLong(second) < lengths.applyAsLong(first)) ? second : first;
+  }
+}
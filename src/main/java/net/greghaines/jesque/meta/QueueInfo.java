@@ -15,6 +15,7 @@ package net.greghaines.jesque.meta;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import net.greghaines.jesque.Job;
 
@@ -32,6 +33,9 @@ public class QueueInfo implements Comparable<QueueInfo>, Serializable {
   private List<Job> jobs;
   private Boolean delayed;
   private Long pending; // only set if this queue is delayed
+  private Map<String, Long> tenantSizes; // only set if this queue is a tenant queue
+  private Double rateLimitTokens; // only set if this queue is rate limited
+  private Long rateLimitWaitMillis; // only set if this queue is rate limited
 
   /**
    * @return the name of the queue
@@ -103,6 +107,54 @@ public class QueueInfo implements Comparable<QueueInfo>, Serializable {
     this.pending = pending;
   }
 
+  /**
+   * @return the number of jobs of each tenant with jobs in the queue, by tenant, if the queue is a
+   *     tenant queue
+   * @see net.greghaines.jesque.Config.Builder#withTenantQueue(String, int)
+   */
+  public Map<String, Long> getTenantSizes() {
+    return this.tenantSizes;
+  }
+
+  /**
+   * @param tenantSizes the number of jobs of each tenant with jobs in the queue, by tenant
+   */
+  public void setTenantSizes(final Map<String, Long> tenantSizes) {
+    this.tenantSizes = tenantSizes;
+  }
+
+  /**
+   * @return the permits left in the queue's rate limit, which may be fractional, if the queue is
+   *     rate limited
+   * @see net.greghaines.jesque.Config.Builder#withQueueRateLimit(String, long,
+   *     java.time.Duration)
+   */
+  public Double getRateLimitTokens() {
+    return this.rateLimitTokens;
+  }
+
+  /**
+   * @param rateLimitTokens the permits left in the queue's rate limit
+   */
+  public void setRateLimitTokens(final Double rateLimitTokens) {
+    this.rateLimitTokens = rateLimitTokens;
+  }
+
+  /**
+   * @return how long until the queue's rate limit allows another job, in milliseconds, if the queue
+   *     is rate limited
+   */
+  public Long getRateLimitWaitMillis() {
+    return this.rateLimitWaitMillis;
+  }
+
+  /**
+   * @param rateLimitWaitMillis how long until the queue's rate limit allows another job
+   */
+  public void setRateLimitWaitMillis(final Long rateLimitWaitMillis) {
+    this.rateLimitWaitMillis = rateLimitWaitMillis;
+  }
+
   /** {@inheritDoc} */
   @Override
   public String toString() {
@@ -119,6 +171,12 @@ public class QueueInfo implements Comparable<QueueInfo>, Serializable {
     result = prime * result + ((this.size == null) ? 0 : this.size.hashCode());
     result = prime * result + ((this.delayed == null) ? 0 : this.delayed.hashCode());
     result = prime * result + ((this.pending == null) ? 0 : this.pending.hashCode());
+    result = prime * result + ((this.tenantSizes == null) ? 0 : this.tenantSizes.hashCode());
+    result =
+        prime * result + ((this.rateLimitTokens == null) ? 0 : this.rateLimitTokens.hashCode());
+    result =
+        prime * result
+            + ((this.rateLimitWaitMillis == null) ? 0 : this.rateLimitWaitMillis.hashCode());
     return result;
   }
 
@@ -135,7 +193,10 @@ public class QueueInfo implements Comparable<QueueInfo>, Serializable {
               && Objects.equals(this.name, other.name)
               && Objects.equals(this.size, other.size)
               && Objects.equals(this.delayed, other.delayed)
-              && Objects.equals(this.pending, other.pending));
+              && Objects.equals(this.pending, other.pending)
+              && Objects.equals(this.tenantSizes, other.tenantSizes)
+              && Objects.equals(this.rateLimitTokens, other.rateLimitTokens)
+              && Objects.equals(this.rateLimitWaitMillis, other.rateLimitWaitMillis));
     }
     return equal;
   }
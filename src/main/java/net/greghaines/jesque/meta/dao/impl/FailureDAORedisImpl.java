@@ -16,6 +16,7 @@ package net.greghaines.jesque.meta.dao.impl;
 import static net.greghaines.jesque.utils.ResqueConstants.FAILED;
 import static net.greghaines.jesque.utils.ResqueConstants.QUEUE;
 import static net.greghaines.jesque.utils.ResqueConstants.QUEUES;
+import static net.greghaines.jesque.utils.ResqueConstants.READY_QUEUES;
 import static net.greghaines.jesque.utils.ResqueConstants.STAT;
 
 import java.io.IOException;
@@ -141,7 +142,8 @@ public class FailureDAORedisImpl implements FailureDAO {
     }
     final String msg = ObjectMapperFactory.get().writeValueAsString(job);
     jedis.sadd(key(QUEUES), queue);
-    jedis.rpush(key(QUEUE, queue), msg);
+    jedis.rpush(queueKey(queue), msg);
+    jedis.sadd(key(READY_QUEUES), queue);
   }
 
   /**
@@ -153,4 +155,15 @@ public class FailureDAORedisImpl implements FailureDAO {
   private String key(final String... parts) {
     return JesqueUtils.createKey(this.config.getNamespace(), parts);
   }
+
+  /**
+   * Builds the key of a queue in the configured key layout.
+   *
+   * @param queue the name of the queue
+   * @return an assembled String key
+   */
+  private String queueKey(final String queue) {
+    return JesqueUtils.createQueueKey(
+        this.config.getNamespace(), this.config.isClusterKeys(), QUEUE, queue);
+  }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2026 Greg Haines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.greghaines.jesque.meta.dao.impl;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import net.greghaines.jesque.JobFailure;
+import net.greghaines.jesque.meta.dao.FailureDAO;
+import net.greghaines.jesque.utils.ShardMap;
+
+/**
+ * Accesses failures recorded on several Redis servers, see {@link
+ * net.greghaines.jesque.client.ShardedClientImpl}. The fail queues of the shards are presented as
+ * one list, in the order the shards were given, and a failure is re-queued on the shard that
+ * recorded it, which is the shard that owned its queue.
+ */
+public class FailureDAOShardedImpl implements FailureDAO {
+
+  private final ShardMap<? extends FailureDAO> daos;
+
+  /**
+   * Constructor.
+   *
+   * @param daos the FailureDAO of each shard
+   */
+  public FailureDAOShardedImpl(final ShardMap<? extends FailureDAO> daos) {
+    if (daos == null) {
+      throw new IllegalArgumentException("daos must not be null");
+    }
+    this.daos = daos;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public long getCount() {
+    long count = 0L;
+    for (final FailureDAO dao : this.daos.getShards().values()) {
+      count += dao.getCount();
+    }
+    return count;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public long getFailQueueJobCount() {
+    long count = 0L;
+    for (final FailureDAO dao : this.daos.getShards().values()) {
+      count += dao.getFailQueueJobCount();
+    }
+    return count;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<JobFailure> getFailures(final long offset, final long count) {
+    final List<JobFailure> failures = new ArrayList<>();
+    long skip = offset;
+    long remaining = count;
+    for (final FailureDAO dao : this.daos.getShards().values()) {
+      if (remaining <= 0) {
+        break;
+      }
+      final long shardCount = dao.getFailQueueJobCount();
+      if (skip >= shardCount) {
+        skip -= shardCount;
+        continue;
+      }
+      final long taken = Math.min(remaining, shardCount - skip);
+      failures.addAll(dao.getFailures(skip, taken));
+      remaining -= taken;
+      skip = 0;
+    }
+    return failures;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void clear() {
+    for (final FailureDAO dao : this.daos.getShards().values()) {
+      dao.clear();
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Date requeue(final long index) {
+    long localIndex = index;
+    for (final FailureDAO dao : this.daos.getShards().values()) {
+      final long shardCount = dao.getFailQueueJobCount();
+      if (localIndex < shardCount) {
+        return dao.requeue(localIndex);
+      }
+      localIndex -= shardCount;
+    }
+    return null;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void remove(final long index) {
+    long localIndex = index;
+    for (final FailureDAO dao : this.daos.getShards().values()) {
+      final long shardCount = dao.getFailQueueJobCount();
+      if (localIndex < shardCount) {
+        dao.remove(localIndex);
+        return;
+      }
+      localIndex -= shardCount;
+    }
+  }
+}
@@ -16,13 +16,23 @@ package net.greghaines.jesque.meta.dao.impl;
 import static net.greghaines.jesque.utils.ResqueConstants.PROCESSED;
 import static net.greghaines.jesque.utils.ResqueConstants.QUEUE;
 import static net.greghaines.jesque.utils.ResqueConstants.QUEUES;
+import static net.greghaines.jesque.utils.ResqueConstants.RATE;
+import static net.greghaines.jesque.utils.ResqueConstants.READY_QUEUES;
+import static net.greghaines.jesque.utils.ResqueConstants.DEFICITS;
 import static net.greghaines.jesque.utils.ResqueConstants.STAT;
+import static net.greghaines.jesque.utils.ResqueConstants.TENANT;
+import static net.greghaines.jesque.utils.ResqueConstants.TENANTS;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import net.greghaines.jesque.Config;
 import net.greghaines.jesque.Job;
+import net.greghaines.jesque.RateLimit;
 import net.greghaines.jesque.json.ObjectMapperFactory;
 import net.greghaines.jesque.meta.QueueInfo;
 import net.greghaines.jesque.meta.dao.QueueInfoDAO;
@@ -62,9 +72,13 @@ public class QueueInfoDAORedisImpl implements QueueInfoDAO {
   /** {@inheritDoc} */
   @Override
   public List<String> getQueueNames() {
-    final List<String> queueNames = new ArrayList<String>(this.jedisPool.smembers(key(QUEUES)));
-    Collections.sort(queueNames);
-    return queueNames;
+    // The partitions of a partitioned queue are reported as the queue
+    final Set<String> queueNames = new TreeSet<>();
+    for (final String queueName : this.jedisPool.smembers(key(QUEUES))) {
+      queueNames.add(
+          JesqueUtils.partitionedQueueName(queueName, this.config.getPartitionedQueues()));
+    }
+    return new ArrayList<String>(queueNames);
   }
 
   /** {@inheritDoc} */
@@ -98,6 +112,10 @@ public class QueueInfoDAORedisImpl implements QueueInfoDAO {
       if (queueInfo.isDelayed()) {
         queueInfo.setPending(pending(this.jedisPool, queueName));
       }
+      if (this.config.isTenantQueue(queueName)) {
+        queueInfo.setTenantSizes(tenantSizes(this.jedisPool, queueName));
+      }
+      setRateLimit(this.jedisPool, queueInfo);
       queueInfos.add(queueInfo);
     }
     Collections.sort(queueInfos);
@@ -115,6 +133,10 @@ public class QueueInfoDAORedisImpl implements QueueInfoDAO {
       if (queueInfo.isDelayed()) {
         queueInfo.setPending(pending(this.jedisPool, name));
       }
+      if (this.config.isTenantQueue(name)) {
+        queueInfo.setTenantSizes(tenantSizes(this.jedisPool, name));
+      }
+      setRateLimit(this.jedisPool, queueInfo);
       queueInfo.setJobs(getJobs(this.jedisPool, name, jobOffset, jobCount));
       return queueInfo;
     } catch (RuntimeException re) {
@@ -125,15 +147,36 @@ public class QueueInfoDAORedisImpl implements QueueInfoDAO {
   }
 
   private boolean delayed(final UnifiedJedis jedis, final String queueName) {
-    final String key = key(QUEUE, queueName);
-    return JedisUtils.isDelayedQueue(jedis, key);
+    for (final String partition : partitions(queueName)) {
+      if (JedisUtils.isDelayedQueue(jedis, queueKey(partition))) {
+        return true;
+      }
+    }
+    return false;
   }
 
   /** {@inheritDoc} */
   @Override
   public void removeQueue(final String name) {
-    this.jedisPool.srem(key(QUEUES), name);
-    this.jedisPool.del(key(QUEUE, name));
+    for (final String partition : partitions(name)) {
+      this.jedisPool.srem(key(QUEUES), partition);
+      this.jedisPool.srem(key(READY_QUEUES), partition);
+      this.jedisPool.del(queueKey(partition));
+    }
+    if (this.config.isTenantQueue(name)) {
+      for (final String tenant : this.jedisPool.lrange(queueKey(name, TENANTS), 0, -1)) {
+        this.jedisPool.del(queueKey(name, TENANT, tenant));
+      }
+      this.jedisPool.del(queueKey(name, TENANTS), queueKey(name, DEFICITS));
+    }
+  }
+
+  /**
+   * @param queueName the name of a queue
+   * @return the names of the queue's partitions, or just the queue if it is not partitioned
+   */
+  private List<String> partitions(final String queueName) {
+    return JesqueUtils.createPartitionNames(queueName, this.config.getPartitionCount(queueName));
   }
 
   /**
@@ -146,6 +189,36 @@ public class QueueInfoDAORedisImpl implements QueueInfoDAO {
     return JesqueUtils.createKey(this.config.getNamespace(), parts);
   }
 
+  /**
+   * Builds the key of a queue, or of something kept for a queue, in the configured key layout.
+   *
+   * @param queue the name of the queue
+   * @param parts the key parts to append after the queue
+   * @return an assembled String key
+   */
+  private String queueKey(final String queue, final String... parts) {
+    return JesqueUtils.createQueueKey(
+        this.config.getNamespace(), this.config.isClusterKeys(), QUEUE, queue, parts);
+  }
+
+  /**
+   * The number of jobs of each tenant with jobs in a tenant queue. Jobs added without a tenant or
+   * handed back by workers are not counted, as they are in the queue's own list.
+   *
+   * @param jedis the connection to Redis
+   * @param queueName the name of the tenant queue
+   * @return the number of jobs of each tenant, by tenant
+   */
+  private Map<String, Long> tenantSizes(final UnifiedJedis jedis, final String queueName) {
+    final Map<String, Long> tenantSizes = new TreeMap<>();
+    for (final String tenant : jedis.lrange(queueKey(queueName, TENANTS), 0, -1)) {
+      if (!tenant.isEmpty()) {
+        tenantSizes.put(tenant, jedis.llen(queueKey(queueName, TENANT, tenant)));
+      }
+    }
+    return tenantSizes;
+  }
+
   /**
    * Size of a queue.
    *
@@ -154,23 +227,60 @@ public class QueueInfoDAORedisImpl implements QueueInfoDAO {
    * @return
    */
   private long size(final UnifiedJedis jedis, final String queueName) {
-    final String key = key(QUEUE, queueName);
-    final long size;
-    if (JedisUtils.isDelayedQueue(jedis, key)) { // If delayed queue, use ZCARD
-      size = jedis.zcard(key);
-    } else { // Else, use LLEN
-      size = jedis.llen(key);
+    long size = 0L;
+    for (final String partition : partitions(queueName)) {
+      size += keySize(jedis, queueKey(partition));
+    }
+    if (this.config.isTenantQueue(queueName)) {
+      for (final long tenantSize : tenantSizes(jedis, queueName).values()) {
+        size += tenantSize;
+      }
     }
     return size;
   }
 
+  /**
+   * Reports the permits left in a queue's rate limit and how long until the next, if the queue is
+   * rate limited. The bucket is counted by this machine's clock, while workers count it by the
+   * Redis server's, so the figures are approximate.
+   *
+   * @param jedis the connection to Redis
+   * @param queueInfo the information about the queue
+   */
+  private void setRateLimit(final UnifiedJedis jedis, final QueueInfo queueInfo) {
+    final RateLimit rateLimit = this.config.getQueueRateLimits().get(queueInfo.getName());
+    if (rateLimit != null) {
+      final List<String> bucket = jedis.hmget(queueKey(queueInfo.getName(), RATE), "tokens", "ts");
+      final double tokens =
+          (bucket.get(0) == null || bucket.get(1) == null)
+              ? rateLimit.getPermits()
+              : rateLimit.tokensAt(
+                  Double.valueOf(bucket.get(0)),
+                  Long.parseLong(bucket.get(1)),
+                  System.currentTimeMillis());
+      queueInfo.setRateLimitTokens(tokens);
+      queueInfo.setRateLimitWaitMillis(rateLimit.waitMillis(tokens));
+    }
+  }
+
+  private static long keySize(final UnifiedJedis jedis, final String key) {
+    if (JedisUtils.isDelayedQueue(jedis, key)) { // If delayed queue, use ZCARD
+      return jedis.zcard(key);
+    }
+    return jedis.llen(key); // Else, use LLEN
+  }
+
   private long pending(final UnifiedJedis jedis, final String queueName) {
-    final String key = key(QUEUE, queueName);
-    return jedis.zcount(key, 0, System.currentTimeMillis());
+    long pending = 0L;
+    for (final String partition : partitions(queueName)) {
+      pending += jedis.zcount(queueKey(partition), 0, System.currentTimeMillis());
+    }
+    return pending;
   }
 
   /**
-   * Get list of Jobs from a queue.
+   * Get list of Jobs from a queue, reading the partitions of a partitioned queue, or the lists of a
+   * tenant queue's tenants in the order of their turns, one after another.
    *
    * @param jedis
    * @param queueName
@@ -181,7 +291,40 @@ public class QueueInfoDAORedisImpl implements QueueInfoDAO {
   private List<Job> getJobs(
       final UnifiedJedis jedis, final String queueName, final long jobOffset, final long jobCount)
       throws Exception {
-    final String key = key(QUEUE, queueName);
+    final List<String> keys = new ArrayList<>();
+    for (final String partition : partitions(queueName)) {
+      keys.add(queueKey(partition));
+    }
+    if (this.config.isTenantQueue(queueName)) {
+      for (final String tenant : jedis.lrange(queueKey(queueName, TENANTS), 0, -1)) {
+        if (!tenant.isEmpty()) {
+          keys.add(queueKey(queueName, TENANT, tenant));
+        }
+      }
+    }
+    if (keys.size() == 1) {
+      return getKeyJobs(jedis, keys.get(0), jobOffset, jobCount);
+    }
+    final List<Job> jobs = new ArrayList<>();
+    long skip = jobOffset;
+    for (final String key : keys) {
+      if (jobs.size() >= jobCount) {
+        break;
+      }
+      final long keySize = keySize(jedis, key);
+      if (skip >= keySize) {
+        skip -= keySize;
+        continue;
+      }
+      jobs.addAll(getKeyJobs(jedis, key, skip, jobCount - jobs.size()));
+      skip = 0;
+    }
+    return jobs;
+  }
+
+  private List<Job> getKeyJobs(
+      final UnifiedJedis jedis, final String key, final long jobOffset, final long jobCount)
+      throws Exception {
     final List<Job> jobs = new ArrayList<>();
     if (JedisUtils.isDelayedQueue(jedis, key)) { // If delayed queue, use ZRANGEWITHSCORES
       final List<Tuple> elements = jedis.zrangeWithScores(key, jobOffset, jobOffset + jobCount - 1);
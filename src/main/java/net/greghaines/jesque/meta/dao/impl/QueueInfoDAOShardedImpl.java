@@ -0,0 +1,184 @@
+/*
+ * Copyright 2026 Greg Haines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.greghaines.jesque.meta.dao.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import net.greghaines.jesque.Config;
+import net.greghaines.jesque.Job;
+import net.greghaines.jesque.meta.QueueInfo;
+import net.greghaines.jesque.meta.dao.QueueInfoDAO;
+import net.greghaines.jesque.utils.JesqueUtils;
+import net.greghaines.jesque.utils.ShardMap;
+
+/**
+ * QueueInfoDAOShardedImpl gets queue information from queues spread over several Redis servers,
+ * see {@link net.greghaines.jesque.client.ShardedClientImpl}. Totals and lists are merged from
+ * every shard; a single queue is read from the shard that owns it. A partitioned queue, whose
+ * partitions are spread over the shards, is reported as one queue merged from the shards that own
+ * its partitions.
+ */
+public class QueueInfoDAOShardedImpl implements QueueInfoDAO {
+
+  private final Config config;
+  private final ShardMap<? extends QueueInfoDAO> daos;
+
+  /**
+   * Constructor for queues that are not partitioned.
+   *
+   * @param daos the QueueInfoDAO of each shard
+   */
+  public QueueInfoDAOShardedImpl(final ShardMap<? extends QueueInfoDAO> daos) {
+    this(Config.getDefaultConfig(), daos);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param config the config of the shards' DAOs, whose partitioned queues are spread over the
+   *     shards
+   * @param daos the QueueInfoDAO of each shard
+   */
+  public QueueInfoDAOShardedImpl(final Config config, final ShardMap<? extends QueueInfoDAO> daos) {
+    if (config == null) {
+      throw new IllegalArgumentException("config must not be null");
+    }
+    if (daos == null) {
+      throw new IllegalArgumentException("daos must not be null");
+    }
+    this.config = config;
+    this.daos = daos;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<String> getQueueNames() {
+    final TreeSet<String> queueNames = new TreeSet<>();
+    for (final QueueInfoDAO dao : this.daos.getShards().values()) {
+      queueNames.addAll(dao.getQueueNames());
+    }
+    return new ArrayList<>(queueNames);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public long getPendingCount() {
+    long pendingCount = 0L;
+    for (final QueueInfoDAO dao : this.daos.getShards().values()) {
+      pendingCount += dao.getPendingCount();
+    }
+    return pendingCount;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public long getProcessedCount() {
+    long processedCount = 0L;
+    for (final QueueInfoDAO dao : this.daos.getShards().values()) {
+      processedCount += dao.getProcessedCount();
+    }
+    return processedCount;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<QueueInfo> getQueueInfos() {
+    // A queue found on several shards, e.g. one whose partitions are spread over them, is merged
+    final Map<String, QueueInfo> queueInfos = new TreeMap<>();
+    for (final QueueInfoDAO dao : this.daos.getShards().values()) {
+      for (final QueueInfo queueInfo : dao.getQueueInfos()) {
+        queueInfos.merge(queueInfo.getName(), queueInfo, QueueInfoDAOShardedImpl::merge);
+      }
+    }
+    final List<QueueInfo> merged = new ArrayList<>(queueInfos.values());
+    Collections.sort(merged);
+    return merged;
+  }
+
+  /**
+   * Reads a partitioned queue from every shard that owns one of its partitions, listing the jobs of
+   * one shard after another.
+   */
+  @Override
+  public QueueInfo getQueueInfo(final String name, final long jobOffset, final long jobCount) {
+    final int partitions = (name == null) ? 1 : this.config.getPartitionCount(name);
+    if (partitions < 2) {
+      return this.daos.get(name).getQueueInfo(name, jobOffset, jobCount);
+    }
+    final Set<String> shardNames = new LinkedHashSet<>();
+    for (final String partition : JesqueUtils.createPartitionNames(name, partitions)) {
+      shardNames.add(this.daos.getShardName(partition));
+    }
+    QueueInfo merged = null;
+    final List<Job> jobs = new ArrayList<>();
+    long skip = jobOffset;
+    for (final String shardName : shardNames) {
+      // At least one job is asked for, since a count of zero may read the whole queue
+      final long count = Math.max(1L, jobCount - jobs.size());
+      final QueueInfo queueInfo =
+          this.daos.getShards().get(shardName).getQueueInfo(name, skip, count);
+      final long size = (queueInfo.getSize() == null) ? 0L : queueInfo.getSize();
+      if (skip < size) {
+        if (queueInfo.getJobs() != null) {
+          jobs.addAll(queueInfo.getJobs());
+        }
+        skip = 0;
+      } else {
+        skip -= size;
+      }
+      merged = (merged == null) ? queueInfo : merge(merged, queueInfo);
+    }
+    merged.setJobs(jobs.subList(0, (int) Math.min(jobs.size(), Math.max(0L, jobCount))));
+    return merged;
+  }
+
+  /**
+   * Merge what two shards report about the same queue.
+   *
+   * @param first the queue as reported by one shard
+   * @param second the queue as reported by another shard
+   * @return the first, with the second's sizes added to it
+   */
+  private static QueueInfo merge(final QueueInfo first, final QueueInfo second) {
+    first.setSize(sum(first.getSize(), second.getSize()));
+    first.setDelayed(
+        Boolean.TRUE.equals(first.isDelayed()) || Boolean.TRUE.equals(second.isDelayed()));
+    if (first.getPending() != null || second.getPending() != null) {
+      first.setPending(sum(first.getPending(), second.getPending()));
+    }
+    if (first.getRateLimitTokens() == null) {
+      first.setRateLimitTokens(second.getRateLimitTokens());
+      first.setRateLimitWaitMillis(second.getRateLimitWaitMillis());
+    }
+    return first;
+  }
+
+  private static long sum(final Long first, final Long second) {
+    return ((first == null) ? 0L : first) + ((second == null) ? 0L : second);
+  }
+
+  /** Deletes the queue from every shard, including any left behind after it moved. */
+  @Override
+  public void removeQueue(final String name) {
+    for (final QueueInfoDAO dao : this.daos.getShards().values()) {
+      dao.removeQueue(name);
+    }
+  }
+}
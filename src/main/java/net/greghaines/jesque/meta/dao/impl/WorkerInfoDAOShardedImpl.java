@@ -0,0 +1,138 @@
+/*
+ * Copyright 2026 Greg Haines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.greghaines.jesque.meta.dao.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import net.greghaines.jesque.meta.WorkerInfo;
+import net.greghaines.jesque.meta.dao.WorkerInfoDAO;
+import net.greghaines.jesque.utils.ShardMap;
+
+/**
+ * WorkerInfoDAOShardedImpl gets information about the workers registered on several Redis
+ * servers, see {@link net.greghaines.jesque.worker.ShardedWorker}, which registers one worker on
+ * each shard.
+ */
+public class WorkerInfoDAOShardedImpl implements WorkerInfoDAO {
+
+  private final ShardMap<? extends WorkerInfoDAO> daos;
+
+  /**
+   * Constructor.
+   *
+   * @param daos the WorkerInfoDAO of each shard
+   */
+  public WorkerInfoDAOShardedImpl(final ShardMap<? extends WorkerInfoDAO> daos) {
+    if (daos == null) {
+      throw new IllegalArgumentException("daos must not be null");
+    }
+    this.daos = daos;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public long getWorkerCount() {
+    long count = 0L;
+    for (final WorkerInfoDAO dao : this.daos.getShards().values()) {
+      count += dao.getWorkerCount();
+    }
+    return count;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public long getActiveWorkerCount() {
+    long count = 0L;
+    for (final WorkerInfoDAO dao : this.daos.getShards().values()) {
+      count += dao.getActiveWorkerCount();
+    }
+    return count;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public long getPausedWorkerCount() {
+    long count = 0L;
+    for (final WorkerInfoDAO dao : this.daos.getShards().values()) {
+      count += dao.getPausedWorkerCount();
+    }
+    return count;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<WorkerInfo> getActiveWorkers() {
+    final List<WorkerInfo> workerInfos = new ArrayList<>();
+    for (final WorkerInfoDAO dao : this.daos.getShards().values()) {
+      workerInfos.addAll(dao.getActiveWorkers());
+    }
+    Collections.sort(workerInfos);
+    return workerInfos;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<WorkerInfo> getPausedWorkers() {
+    final List<WorkerInfo> workerInfos = new ArrayList<>();
+    for (final WorkerInfoDAO dao : this.daos.getShards().values()) {
+      workerInfos.addAll(dao.getPausedWorkers());
+    }
+    Collections.sort(workerInfos);
+    return workerInfos;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<WorkerInfo> getAllWorkers() {
+    final List<WorkerInfo> workerInfos = new ArrayList<>();
+    for (final WorkerInfoDAO dao : this.daos.getShards().values()) {
+      workerInfos.addAll(dao.getAllWorkers());
+    }
+    Collections.sort(workerInfos);
+    return workerInfos;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public WorkerInfo getWorker(final String workerName) {
+    for (final WorkerInfoDAO dao : this.daos.getShards().values()) {
+      final WorkerInfo workerInfo = dao.getWorker(workerName);
+      if (workerInfo != null) {
+        return workerInfo;
+      }
+    }
+    return null;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Map<String, List<WorkerInfo>> getWorkerHostMap() {
+    final Map<String, List<WorkerInfo>> hostMap = new TreeMap<String, List<WorkerInfo>>();
+    for (final WorkerInfo workerInfo : getAllWorkers()) {
+      hostMap.computeIfAbsent(workerInfo.getHost(), host -> new ArrayList<>()).add(workerInfo);
+    }
+    return hostMap;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void removeWorker(final String workerName) {
+    for (final WorkerInfoDAO dao : this.daos.getShards().values()) {
+      dao.removeWorker(workerName);
+    }
+  }
+}
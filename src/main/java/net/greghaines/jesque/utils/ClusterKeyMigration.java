@@ -0,0 +1,138 @@
+/*
+ * Copyright 2026 Greg Haines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.greghaines.jesque.utils;
+
+import static net.greghaines.jesque.utils.ResqueConstants.BUCKETS;
+import static net.greghaines.jesque.utils.ResqueConstants.COLON;
+import static net.greghaines.jesque.utils.ResqueConstants.INFLIGHT;
+import static net.greghaines.jesque.utils.ResqueConstants.QUEUE;
+import static net.greghaines.jesque.utils.ResqueConstants.QUEUES;
+import static net.greghaines.jesque.utils.ResqueConstants.STREAM;
+
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
+
+/**
+ * Moves the keys of a namespace from the default key layout to the cluster key layout, see {@link
+ * net.greghaines.jesque.Config.Builder#withClusterKeys(boolean)}.<br>
+ * To move a namespace onto Redis Cluster: stop every client and worker, run {@link
+ * #migrate(UnifiedJedis, String)} against the single Redis that holds the namespace, move the
+ * data into the cluster (e.g. by loading a copy of its RDB file or with <code>MIGRATE</code>) and
+ * start the clients and workers again with cluster keys enabled. Keys are renamed in place, so the
+ * migration must run before the data is spread over shards; running it again only moves keys that
+ * are still in the default layout.
+ *
+ * @author Greg Haines
+ */
+public final class ClusterKeyMigration {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ClusterKeyMigration.class);
+  private static final int SCAN_COUNT = 1000;
+
+  /**
+   * Rename the keys of every queue in the namespace, and of the in-flight lists of every worker,
+   * to the cluster key layout. Keys whose new name is already taken are left alone and logged.
+   *
+   * @param jedis a connection to the Redis that holds the namespace
+   * @param namespace the namespace
+   * @return the number of keys renamed
+   */
+  public static long migrate(final UnifiedJedis jedis, final String namespace) {
+    final Set<String> queues = jedis.smembers(JesqueUtils.createKey(namespace, QUEUES));
+    long renamed = 0;
+    for (final String queue : queues) {
+      for (final String type : new String[] {QUEUE, STREAM}) {
+        final String from = JesqueUtils.createQueueKey(namespace, false, type, queue);
+        final String to = JesqueUtils.createQueueKey(namespace, true, type, queue);
+        renamed += rename(jedis, from, to);
+      }
+      renamed +=
+          rename(
+              jedis,
+              JesqueUtils.createRecurringHashKey(
+                  JesqueUtils.createQueueKey(namespace, false, QUEUE, queue)),
+              JesqueUtils.createRecurringHashKey(
+                  JesqueUtils.createQueueKey(namespace, true, QUEUE, queue)));
+      final String bucketsKey = JesqueUtils.createQueueKey(namespace, false, QUEUE, queue, BUCKETS);
+      for (final String bucket : jedis.zrange(bucketsKey, 0, -1)) {
+        renamed +=
+            rename(
+                jedis,
+                JesqueUtils.createQueueKey(namespace, false, QUEUE, queue, BUCKETS, bucket),
+                JesqueUtils.createQueueKey(namespace, true, QUEUE, queue, BUCKETS, bucket));
+      }
+      renamed +=
+          rename(
+              jedis,
+              bucketsKey,
+              JesqueUtils.createQueueKey(namespace, true, QUEUE, queue, BUCKETS));
+    }
+    renamed += migrateInFlight(jedis, namespace, queues);
+    return renamed;
+  }
+
+  /**
+   * Rename the in-flight lists of every worker, including workers that died without cleaning up.
+   * The queue of a list is the longest known queue its key ends with.
+   */
+  private static long migrateInFlight(
+      final UnifiedJedis jedis, final String namespace, final Set<String> queues) {
+    final String prefix = JesqueUtils.createKey(namespace, INFLIGHT) + COLON;
+    final ScanParams params = new ScanParams().match(prefix + "*").count(SCAN_COUNT);
+    long renamed = 0;
+    String cursor = ScanParams.SCAN_POINTER_START;
+    do {
+      final ScanResult<String> result = jedis.scan(cursor, params);
+      for (final String key : result.getResult()) {
+        String queue = null;
+        for (final String candidate : queues) {
+          if (key.endsWith(COLON + candidate)
+              && key.length() > prefix.length() + candidate.length() + 1
+              && (queue == null || candidate.length() > queue.length())) {
+            queue = candidate;
+          }
+        }
+        if (queue == null) {
+          LOG.warn("Leaving in-flight list of an unknown queue alone: " + key);
+          continue;
+        }
+        final String worker =
+            key.substring(prefix.length(), key.length() - queue.length() - COLON.length());
+        renamed +=
+            rename(jedis, key, JesqueUtils.createInFlightKey(namespace, true, worker, queue));
+      }
+      cursor = result.getCursor();
+    } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+    return renamed;
+  }
+
+  private static long rename(final UnifiedJedis jedis, final String from, final String to) {
+    if (from.equals(to) || !jedis.exists(from)) {
+      return 0;
+    }
+    if (jedis.renamenx(from, to) == 0) {
+      LOG.warn("Not renaming " + from + " since " + to + " already exists");
+      return 0;
+    }
+    return 1;
+  }
+
+  private ClusterKeyMigration() {
+    // Utility class
+  }
+}
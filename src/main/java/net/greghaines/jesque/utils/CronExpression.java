@@ -0,0 +1,211 @@
+/*
+ * Copyright 2026 Greg Haines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.greghaines.jesque.utils;
+
+import java.io.Serializable;
+import java.time.DayOfWeek;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A schedule in the five field format of cron: minute, hour, day of month, month and day of week.
+ * Each field is <code>*</code>, a number, a range (<code>1-5</code>) or a comma separated list of
+ * them, any of which may be followed by a step (<code>*&#47;15</code>). Months and days of the week
+ * may also be given by their first three letters and Sunday is either 0 or 7. As in cron, a day
+ * matches if either the day of month or the day of week matches when both are restricted. The
+ * macros <code>@yearly</code>, <code>@monthly</code>, <code>@weekly</code>, <code>@daily</code>
+ * and <code>@hourly</code> are also understood.
+ */
+public final class CronExpression implements Serializable {
+
+  private static final long serialVersionUID = 4712032946553406563L;
+  private static final List<String> MONTHS =
+      Arrays.asList("JAN FEB MAR APR MAY JUN JUL AUG SEP OCT NOV DEC".split(" "));
+  private static final List<String> DAYS =
+      Arrays.asList("SUN MON TUE WED THU FRI SAT".split(" "));
+  // Every schedule repeats within 28 years, so a search that goes further never ends
+  private static final int MAX_SEARCH_YEARS = 28;
+
+  private final String expression;
+  private final BitSet minutes;
+  private final BitSet hours;
+  private final BitSet daysOfMonth;
+  private final BitSet months;
+  private final BitSet daysOfWeek;
+  private final boolean daysOfMonthRestricted;
+  private final boolean daysOfWeekRestricted;
+
+  /**
+   * Parses a cron expression.
+   *
+   * @param expression the expression
+   * @throws IllegalArgumentException if the expression is null or malformed
+   */
+  public CronExpression(final String expression) {
+    if (expression == null) {
+      throw new IllegalArgumentException("expression must not be null");
+    }
+    this.expression = expression.trim();
+    final String[] fields = expand(this.expression).split("\\s+");
+    if (fields.length != 5) {
+      throw new IllegalArgumentException("expression must have five fields: " + expression);
+    }
+    this.minutes = parseField(fields[0], 0, 59, null);
+    this.hours = parseField(fields[1], 0, 23, null);
+    this.daysOfMonth = parseField(fields[2], 1, 31, null);
+    this.months = parseField(fields[3], 1, 12, MONTHS);
+    this.daysOfWeek = parseField(fields[4], 0, 7, DAYS);
+    if (this.daysOfWeek.get(7)) {
+      this.daysOfWeek.set(0);
+    }
+    this.daysOfMonthRestricted = !fields[2].startsWith("*");
+    this.daysOfWeekRestricted = !fields[4].startsWith("*");
+  }
+
+  /**
+   * Find the first time after the given one that matches this expression, in the time zone of the
+   * given time.
+   *
+   * @param after the time to search from
+   * @return the first matching time strictly after the given one, or null if no time ever matches
+   */
+  public ZonedDateTime next(final ZonedDateTime after) {
+    ZonedDateTime time = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+    final int lastYear = time.getYear() + MAX_SEARCH_YEARS;
+    while (time.getYear() <= lastYear) {
+      if (!this.months.get(time.getMonthValue())) {
+        time = time.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+      } else if (!dayMatches(time)) {
+        time = time.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+      } else if (!this.hours.get(time.getHour())) {
+        time = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+      } else if (!this.minutes.get(time.getMinute())) {
+        time = time.plusMinutes(1);
+      } else {
+        return time;
+      }
+    }
+    return null;
+  }
+
+  private boolean dayMatches(final ZonedDateTime time) {
+    final boolean domMatches = this.daysOfMonth.get(time.getDayOfMonth());
+    final boolean dowMatches = this.daysOfWeek.get(sundayZero(time.getDayOfWeek()));
+    if (this.daysOfMonthRestricted && this.daysOfWeekRestricted) {
+      return domMatches || dowMatches;
+    }
+    return domMatches && dowMatches;
+  }
+
+  private static int sundayZero(final DayOfWeek dayOfWeek) {
+    return dayOfWeek.getValue() % 7;
+  }
+
+  private static String expand(final String expression) {
+    return switch (expression.toLowerCase(Locale.ROOT)) {
+      case "@yearly", "@annually" -> "0 0 1 1 *";
+      case "@monthly" -> "0 0 1 * *";
+      case "@weekly" -> "0 0 * * 0";
+      case "@daily", "@midnight" -> "0 0 * * *";
+      case "@hourly" -> "0 * * * *";
+      default -> expression;
+    };
+  }
+
+  private static BitSet parseField(
+      final String field, final int min, final int max, final List<String> names) {
+    final BitSet bits = new BitSet(max + 1);
+    for (final String part : field.split(",", -1)) {
+      final String[] rangeAndStep = part.split("/", -1);
+      if (rangeAndStep.length > 2) {
+        throw new IllegalArgumentException("Invalid cron field: " + field);
+      }
+      final String range = rangeAndStep[0];
+      int start;
+      int end;
+      if ("*".equals(range)) {
+        start = min;
+        end = max;
+      } else {
+        final int dash = range.indexOf('-');
+        start = parseValue(dash < 0 ? range : range.substring(0, dash), min, max, names, field);
+        end = (dash < 0) ? start : parseValue(range.substring(dash + 1), min, max, names, field);
+        if (end < start) {
+          throw new IllegalArgumentException("Invalid cron range: " + field);
+        }
+      }
+      int step = 1;
+      if (rangeAndStep.length == 2) {
+        step = parseValue(rangeAndStep[1], 1, max, null, field);
+        if (range.indexOf('-') < 0 && !"*".equals(range)) {
+          // "5/15" means every 15 starting at 5
+          end = max;
+        }
+      }
+      for (int i = start; i <= end; i += step) {
+        bits.set(i);
+      }
+    }
+    return bits;
+  }
+
+  private static int parseValue(
+      final String value,
+      final int min,
+      final int max,
+      final List<String> names,
+      final String field) {
+    if (names != null) {
+      final int index = names.indexOf(value.toUpperCase(Locale.ROOT));
+      if (index >= 0) {
+        return index + ((min == 1) ? 1 : 0);
+      }
+    }
+    final int parsed;
+    try {
+      parsed = Integer.parseInt(value);
+    } catch (NumberFormatException nfe) {
+      throw new IllegalArgumentException("Invalid cron field: " + field, nfe);
+    }
+    if (parsed < min || parsed > max) {
+      throw new IllegalArgumentException(
+          "Cron value out of range [" + min + "-" + max + "]: " + field);
+    }
+    return parsed;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    return this.expression;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int hashCode() {
+    return this.expression.hashCode();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean equals(final Object obj) {
+    return this == obj
+        || (obj instanceof CronExpression
+            && this.expression.equals(((CronExpression) obj).expression));
+  }
+}
@@ -15,10 +15,14 @@ package net.greghaines.jesque.utils;
 
 import static net.greghaines.jesque.utils.ResqueConstants.COLON;
 import static net.greghaines.jesque.utils.ResqueConstants.FREQUENCY;
+import static net.greghaines.jesque.utils.ResqueConstants.INFLIGHT;
+import static net.greghaines.jesque.utils.ResqueConstants.PARTITION;
 
 import java.lang.reflect.InvocationTargetException;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
@@ -103,6 +107,153 @@ public final class JesqueUtils {
     return join(COLON, list);
   }
 
+  /**
+   * Builds the key of a queue, or of something kept for a queue such as its buckets, in the given
+   * key layout. In the cluster layout the name of the queue is a hash tag, see {@link
+   * #hashTag(String)}.
+   *
+   * @param namespace the namespace to use
+   * @param clusterKeys whether to use the cluster key layout
+   * @param type the kind of key, e.g. {@link ResqueConstants#QUEUE}
+   * @param queue the name of the queue
+   * @param parts the key parts to append after the queue
+   * @return an assembled String key
+   */
+  public static String createQueueKey(
+      final String namespace,
+      final boolean clusterKeys,
+      final String type,
+      final String queue,
+      final String... parts) {
+    final List<String> list = new LinkedList<String>();
+    list.add(type);
+    list.add(clusterKeys ? hashTag(queue) : queue);
+    list.addAll(Arrays.asList(parts));
+    return createKey(namespace, list);
+  }
+
+  /**
+   * Builds the key of a worker's in-flight list for a queue in the given key layout. The cluster
+   * layout puts the queue first so that its hash tag is not preceded by any braces in the name of
+   * the worker, which lists the worker's queues.
+   *
+   * @param namespace the namespace to use
+   * @param clusterKeys whether to use the cluster key layout
+   * @param worker the name of the worker
+   * @param queue the name of the queue
+   * @return an assembled String key
+   */
+  public static String createInFlightKey(
+      final String namespace, final boolean clusterKeys, final String worker, final String queue) {
+    return clusterKeys
+        ? createKey(namespace, INFLIGHT, hashTag(queue), worker)
+        : createKey(namespace, INFLIGHT, worker, queue);
+  }
+
+  /**
+   * The name of a queue as it appears in the keys of the cluster key layout: wrapped in braces so
+   * that Redis Cluster hashes every key of the queue to the same slot. A name that already
+   * contains a hash tag is used as it is, so related queues such as <code>{orders}</code> and
+   * <code>{orders}:delayed</code> can be kept in one slot; such a name shares its keys with the
+   * name inside its braces.
+   *
+   * @param queue the name of the queue
+   * @return the hash tagged name of the queue
+   */
+  public static String hashTag(final String queue) {
+    return hashSlotTag(queue).equals(queue) ? "{" + queue + "}" : queue;
+  }
+
+  /**
+   * The part of a key that Redis Cluster hashes to find its slot: the text between the first
+   * <code>{</code> and the following <code>}</code> if it is not empty, otherwise the whole key.
+   * Keys with equal tags are in the same slot.
+   *
+   * @param key the key
+   * @return the part of the key that is hashed
+   */
+  public static String hashSlotTag(final String key) {
+    final int open = key.indexOf('{');
+    if (open >= 0) {
+      final int close = key.indexOf('}', open + 1);
+      if (close > open + 1) {
+        return key.substring(open + 1, close);
+      }
+    }
+    return key;
+  }
+
+  /**
+   * Builds the name of a partition of a partitioned queue.
+   *
+   * @param queue the name of the partitioned queue
+   * @param partition the index of the partition
+   * @return the name of the partition
+   */
+  public static String createPartitionName(final String queue, final int partition) {
+    return queue + PARTITION + partition;
+  }
+
+  /**
+   * Builds the names of the partitions of a queue.
+   *
+   * @param queue the name of the queue
+   * @param partitions the number of partitions of the queue
+   * @return the names of the partitions in order, or just the queue if it has a single partition
+   */
+  public static List<String> createPartitionNames(final String queue, final int partitions) {
+    if (partitions < 2) {
+      return Collections.singletonList(queue);
+    }
+    final List<String> names = new ArrayList<>(partitions);
+    for (int i = 0; i < partitions; i++) {
+      names.add(createPartitionName(queue, i));
+    }
+    return names;
+  }
+
+  /**
+   * Builds the name of the lane of an ordered queue that the jobs with the given ordering key are
+   * added to. String hash codes are specified by the JDK, so every client picks the same lane.
+   *
+   * @param queue the name of the ordered queue
+   * @param orderingKey the ordering key of a job
+   * @param lanes the number of lanes of the queue
+   * @return the name of the lane, or the queue if it has a single lane
+   */
+  public static String createLaneName(
+      final String queue, final String orderingKey, final int lanes) {
+    if (lanes < 2) {
+      return queue;
+    }
+    return createPartitionName(queue, Math.floorMod(orderingKey.hashCode(), lanes));
+  }
+
+  /**
+   * Finds the queue a partition belongs to.
+   *
+   * @param queue the name of a queue, which may be a partition
+   * @param partitionedQueues the number of partitions of each partitioned queue, by queue name
+   * @return the name of the partitioned queue if the queue is one of its partitions, otherwise the
+   *     queue
+   */
+  public static String partitionedQueueName(
+      final String queue, final Map<String, Integer> partitionedQueues) {
+    final int separator = queue.lastIndexOf(PARTITION);
+    if (separator > 0) {
+      final Integer partitions = partitionedQueues.get(queue.substring(0, separator));
+      if (partitions != null) {
+        final String index = queue.substring(separator + PARTITION.length());
+        for (int i = 0; i < partitions; i++) {
+          if (index.equals(Integer.toString(i))) {
+            return queue.substring(0, separator);
+          }
+        }
+      }
+    }
+    return queue;
+  }
+
   /**
    * Creates a Resque backtrace from a Throwable's stack trace. Includes causes.
    *
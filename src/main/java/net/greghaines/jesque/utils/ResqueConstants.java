@@ -45,6 +45,8 @@ public interface ResqueConstants {
   String PROCESSED = "processed";
   String QUEUE = "queue";
   String QUEUES = "queues";
+  /** The set of queues that may have jobs in them, kept up to date by the clients and workers */
+  String READY_QUEUES = "ready_queues";
   String STARTED = "started";
   String STAT = "stat";
   String WORKER = "worker";
@@ -52,7 +54,37 @@ public interface ResqueConstants {
   String CHANNEL = "channel";
   String INFLIGHT = "inflight";
   String FREQUENCY = "frequency";
+  String BUCKETS = "buckets";
+  /** The prefix of the keys of stream queues, which are Redis streams rather than lists */
+  String STREAM = "stream";
+  /** The consumer group workers read stream queues through */
+  String STREAM_GROUP = "workers";
+  /** The field of a stream queue's entries holding the job's JSON */
+  String STREAM_PAYLOAD = "payload";
+  /** The field of a job's JSON holding the ID of the stream entry it was read from */
+  String STREAM_ID = "stream_id";
+  /** The field of a job's JSON holding when it was enqueued, in milliseconds since the epoch */
+  String ENQUEUED_AT = "enqueued_at";
 
+  /** Separates the name of a partitioned queue from the index of one of its partitions */
+  String PARTITION = "#";
+  /** The key part of the lease on a lane of an ordered queue, held by the worker running its job */
+  String LEASE = "lease";
+  /** The key part of a tenant's list in a tenant queue */
+  String TENANT = "tenant";
+  /** The key part of the rotation of tenants with jobs in a tenant queue */
+  String TENANTS = "tenants";
+  /** The key part of the hash of jobs each tenant of a tenant queue may still take in its turn */
+  String DEFICITS = "deficits";
+  /** The key part of a rate limit's token bucket */
+  String RATE = "rate";
+  /** The key part of a concurrency limit's semaphore, the workers holding its permits */
+  String SEMAPHORE = "semaphore";
+
+  /** Channel that wakes the delayed job promoter when a delayed job is added */
+  String DELAYED = "delayed";
+  /** The hash of recurring job schedules, also the channel that announces changes to them */
+  String SCHEDULES = "schedules";
   /** Default channel for admin jobs */
   String ADMIN_CHANNEL = "admin";
 }
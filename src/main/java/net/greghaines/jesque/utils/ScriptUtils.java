@@ -22,9 +22,13 @@ import java.nio.charset.StandardCharsets;
 /** ScriptUtils contains utility methods for executing Lua scripts in Redis. */
 public final class ScriptUtils {
 
+  /** Lines starting with this directive are replaced by the contents of the named script. */
+  public static final String INCLUDE_DIRECTIVE = "--#include ";
+
   /**
    * Read a script into a single-line string suitable for use in a Redis <code>EVAL</code>
-   * statement.
+   * statement. Lines of the form <code>--#include /path/to/other.lua</code> are replaced by the
+   * contents of the named script resource, which allows scripts to share helper functions.
    *
    * @param resourceName the name of the script resource to read
    * @return the string form of the script
@@ -42,6 +46,9 @@ public final class ScriptUtils {
         String line;
         while ((line = reader.readLine()) != null) {
           line = line.trim();
+          if (line.startsWith(INCLUDE_DIRECTIVE)) {
+            line = readScript(line.substring(INCLUDE_DIRECTIVE.length()).trim());
+          }
           if (line.length() > 0) {
             buf.append(prefix).append(line.trim());
             prefix = "\n";
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2026 Greg Haines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.greghaines.jesque.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * ShardMap assigns queues to one of several named shards, each typically a separate Redis. Queues
+ * are placed by consistent hashing of their name, so adding or removing a shard only moves the
+ * queues that hash to it; an override table pins chosen queues to a shard regardless of their
+ * hash. As in Redis Cluster, only the first <code>{...}</code> hash tag of a name is hashed when
+ * it has one, so <code>{orders}</code> and <code>{orders}:delayed</code> are always on the same
+ * shard. Overrides are looked up by hash tag too, so pinning <code>{orders}</code> pins every queue
+ * tagged <code>{orders}</code>.<br>
+ * A ShardMap is immutable. Use {@link #map(Function)} to derive the clients, workers or DAOs of
+ * each shard from its connection while keeping the same placement of queues.
+ *
+ * @param <T> the type of the shards
+ */
+public final class ShardMap<T> {
+
+  /** The number of points each shard has on the hash ring */
+  public static final int POINTS_PER_SHARD = 160;
+
+  private final Map<String, T> shards;
+  private final Map<String, String> overrides;
+  // The overrides by the hash tag of their queue
+  private final Map<String, String> tagOverrides;
+  private final TreeMap<Long, String> ring;
+
+  /**
+   * Creates a ShardMap without overrides.
+   *
+   * @param shards the shards by name, whose names decide the placement of queues
+   * @throws IllegalArgumentException if shards is null or empty or has a null name or shard
+   */
+  public ShardMap(final Map<String, ? extends T> shards) {
+    this(shards, Collections.<String, String>emptyMap());
+  }
+
+  /**
+   * Creates a ShardMap.
+   *
+   * @param shards the shards by name, whose names decide the placement of queues
+   * @param overrides the names of shards that queues are pinned to, by queue name; an override
+   *     applies to every queue with the same hash tag
+   * @throws IllegalArgumentException if shards is null or empty or has a null name or shard, or an
+   *     override names a shard that does not exist, or two overrides with the same hash tag name
+   *     different shards
+   */
+  public ShardMap(final Map<String, ? extends T> shards, final Map<String, String> overrides) {
+    if (shards == null || shards.isEmpty()) {
+      throw new IllegalArgumentException("shards must not be null or empty: " + shards);
+    }
+    if (overrides == null) {
+      throw new IllegalArgumentException("overrides must not be null");
+    }
+    final Map<String, T> shardsCopy = new LinkedHashMap<>(shards.size());
+    for (final Map.Entry<String, ? extends T> shard : shards.entrySet()) {
+      if (shard.getKey() == null || shard.getValue() == null) {
+        throw new IllegalArgumentException("shards must not have a null name or shard: " + shards);
+      }
+      shardsCopy.put(shard.getKey(), shard.getValue());
+    }
+    final Map<String, String> tagOverrides = new LinkedHashMap<>(overrides.size());
+    for (final Map.Entry<String, String> override : overrides.entrySet()) {
+      if (!shardsCopy.containsKey(override.getValue())) {
+        throw new IllegalArgumentException("override names an unknown shard: " + override);
+      }
+      final String tag = JesqueUtils.hashSlotTag(override.getKey());
+      final String previous = tagOverrides.put(tag, override.getValue());
+      if (previous != null && !previous.equals(override.getValue())) {
+        throw new IllegalArgumentException(
+            "overrides pin the hash tag " + tag + " to different shards: " + overrides);
+      }
+    }
+    this.shards = Collections.unmodifiableMap(shardsCopy);
+    this.overrides = Collections.unmodifiableMap(new LinkedHashMap<>(overrides));
+    this.tagOverrides = tagOverrides;
+    this.ring = new TreeMap<>();
+    for (final String name : this.shards.keySet()) {
+      for (int i = 0; i < POINTS_PER_SHARD; i++) {
+        this.ring.put(hash(name + "-" + i), name);
+      }
+    }
+  }
+
+  private ShardMap(
+      final Map<String, T> shards,
+      final Map<String, String> overrides,
+      final Map<String, String> tagOverrides,
+      final TreeMap<Long, String> ring) {
+    this.shards = shards;
+    this.overrides = overrides;
+    this.tagOverrides = tagOverrides;
+    this.ring = ring;
+  }
+
+  /**
+   * @param queue the name of a queue
+   * @return the name of the shard that owns the queue
+   * @throws IllegalArgumentException if the queue is null or empty
+   */
+  public String getShardName(final String queue) {
+    if (queue == null || "".equals(queue)) {
+      throw new IllegalArgumentException("queue must not be null or empty: " + queue);
+    }
+    final String tag = JesqueUtils.hashSlotTag(queue);
+    final String override = this.tagOverrides.get(tag);
+    if (override != null) {
+      return override;
+    }
+    final Map.Entry<Long, String> point = this.ring.ceilingEntry(hash(tag));
+    return (point == null) ? this.ring.firstEntry().getValue() : point.getValue();
+  }
+
+  /**
+   * @param queue the name of a queue
+   * @return the shard that owns the queue
+   * @throws IllegalArgumentException if the queue is null or empty
+   */
+  public T get(final String queue) {
+    return this.shards.get(getShardName(queue));
+  }
+
+  /**
+   * @return the shards by name, in the order they were given
+   */
+  public Map<String, T> getShards() {
+    return this.shards;
+  }
+
+  /**
+   * @return the names of the shards that queues are pinned to, by queue name
+   */
+  public Map<String, String> getOverrides() {
+    return this.overrides;
+  }
+
+  /**
+   * Split queues by the shard that owns them.
+   *
+   * @param queues the names of queues
+   * @return the queues owned by each shard, in their given order, by shard name; every shard is
+   *     present even if it owns none of the queues
+   */
+  public Map<String, List<String>> partition(final Collection<String> queues) {
+    final Map<String, List<String>> partitions = new LinkedHashMap<>(this.shards.size());
+    for (final String name : this.shards.keySet()) {
+      partitions.put(name, new ArrayList<String>());
+    }
+    for (final String queue : queues) {
+      partitions.get(getShardName(queue)).add(queue);
+    }
+    return partitions;
+  }
+
+  /**
+   * Derive a ShardMap that places queues exactly as this one does.
+   *
+   * @param mapper creates the shard of the new ShardMap from the shard of this one
+   * @param <R> the type of the new shards
+   * @return the new ShardMap
+   * @throws IllegalArgumentException if the mapper returns null
+   */
+  public <R> ShardMap<R> map(final Function<? super T, ? extends R> mapper) {
+    final Map<String, R> mapped = new LinkedHashMap<>(this.shards.size());
+    for (final Map.Entry<String, T> shard : this.shards.entrySet()) {
+      final R value = mapper.apply(shard.getValue());
+      if (value == null) {
+        throw new IllegalArgumentException("mapper returned null for shard: " + shard.getKey());
+      }
+      mapped.put(shard.getKey(), value);
+    }
+    return new ShardMap<>(
+        Collections.unmodifiableMap(mapped), this.overrides, this.tagOverrides, this.ring);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    return "ShardMap" + this.shards.keySet() + " overrides=" + this.overrides;
+  }
+
+  /**
+   * @param str the string to hash
+   * @return the first eight bytes of the MD5 digest of the string, which spreads similar names
+   *     evenly over the ring
+   */
+  static long hash(final String str) {
+    final byte[] digest;
+    try {
+      digest = MessageDigest.getInstance("MD5").digest(str.getBytes(StandardCharsets.UTF_8));
+    } catch (NoSuchAlgorithmException nsae) {
+      throw new IllegalStateException("MD5 is a required algorithm", nsae);
+    }
+    long hash = 0;
+    for (int i = 0; i < Long.BYTES; i++) {
+      hash = (hash << 8) | (digest[i] & 0xFF);
+    }
+    return hash;
+  }
+}
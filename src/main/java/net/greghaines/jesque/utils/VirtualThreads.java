@@ -0,0 +1,109 @@
+/*
+ * Copyright 2026 Greg Haines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.greghaines.jesque.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads (Java 21+) while still compiling for and running on Java 17. The
+ * virtual thread API is looked up reflectively; on older runtimes {@link #isAvailable()} returns
+ * false and the factory methods throw {@link UnsupportedOperationException}.
+ */
+public final class VirtualThreads {
+
+  private static final Method OF_VIRTUAL = findMethod(Thread.class, "ofVirtual");
+  // Looked up on the public Thread.Builder interface as the implementation classes are not public
+  private static final Class<?> BUILDER = findClass("java.lang.Thread$Builder");
+  private static final Method BUILDER_NAME = findMethod(BUILDER, "name", String.class, long.class);
+  private static final Method BUILDER_FACTORY = findMethod(BUILDER, "factory");
+  private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR =
+      findMethod(Executors.class, "newVirtualThreadPerTaskExecutor");
+
+  /**
+   * @return true if the running JVM supports virtual threads
+   */
+  public static boolean isAvailable() {
+    return OF_VIRTUAL != null
+        && BUILDER_NAME != null
+        && BUILDER_FACTORY != null
+        && NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+  }
+
+  /**
+   * Create a factory for virtual threads named <code>namePrefix</code> followed by a counter
+   * starting at zero.
+   *
+   * @param namePrefix the prefix for the names of the created threads
+   * @return a factory for virtual threads
+   * @throws UnsupportedOperationException if the running JVM does not support virtual threads
+   */
+  public static ThreadFactory newThreadFactory(final String namePrefix) {
+    checkAvailable();
+    try {
+      final Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), namePrefix, 0L);
+      return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+    } catch (ReflectiveOperationException roe) {
+      throw new UnsupportedOperationException("Unable to create a virtual thread factory", roe);
+    }
+  }
+
+  /**
+   * Create an executor that runs each task on a new virtual thread.
+   *
+   * @return an executor that starts a virtual thread per task
+   * @throws UnsupportedOperationException if the running JVM does not support virtual threads
+   */
+  public static ExecutorService newThreadPerTaskExecutor() {
+    checkAvailable();
+    try {
+      return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+    } catch (ReflectiveOperationException roe) {
+      throw new UnsupportedOperationException("Unable to create a virtual thread executor", roe);
+    }
+  }
+
+  private static void checkAvailable() {
+    if (!isAvailable()) {
+      throw new UnsupportedOperationException(
+          "Virtual threads require Java 21+, running on " + System.getProperty("java.version"));
+    }
+  }
+
+  private static Class<?> findClass(final String name) {
+    try {
+      return Class.forName(name);
+    } catch (ClassNotFoundException cnfe) {
+      return null;
+    }
+  }
+
+  private static Method findMethod(
+      final Class<?> type, final String name, final Class<?>... paramTypes) {
+    if (type == null) {
+      return null;
+    }
+    try {
+      return type.getMethod(name, paramTypes);
+    } catch (NoSuchMethodException nsme) {
+      return null;
+    }
+  }
+
+  private VirtualThreads() {
+    // Utility class
+  }
+}
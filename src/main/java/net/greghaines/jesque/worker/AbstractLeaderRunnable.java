@@ -0,0 +1,361 @@
+/*
+ * Copyright 2026 Greg Haines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.greghaines.jesque.worker;
+
+import static net.greghaines.jesque.worker.JobExecutor.State.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import net.greghaines.jesque.Config;
+import net.greghaines.jesque.utils.JesqueUtils;
+import net.greghaines.jesque.utils.ScriptUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+
+/**
+ * AbstractLeaderRunnable is the common implementation of background tasks that only one process
+ * in a namespace should perform at a time. Any number of instances may run; they elect a leader
+ * through a lock in Redis that the leader renews every half lease, and only the leader does the
+ * work, the others standing by to take over if it stops renewing.<br>
+ * Subclasses do their work in {@link #lead()} and may name a channel whose messages wake the
+ * leader early.
+ */
+public abstract class AbstractLeaderRunnable implements Runnable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AbstractLeaderRunnable.class);
+  protected static final String LEADER_LUA = "/workerScripts/jesque_leader.lua";
+  protected static final long RECONNECT_SLEEP_TIME = 5000; // 5 sec
+  /** The default time a leader holds leadership for without renewing it */
+  public static final Duration DEFAULT_LEASE = Duration.ofSeconds(10);
+
+  protected final UnifiedJedis jedisPool;
+  protected final String namespace;
+  protected final boolean clusterKeys;
+  protected final String name;
+  protected final Duration lease;
+  protected final AtomicReference<JobExecutor.State> state = new AtomicReference<>(NEW);
+  protected final AtomicReference<Thread> threadRef = new AtomicReference<>(null);
+  protected final AtomicReference<String> leaderScriptHash = new AtomicReference<>(null);
+  protected final ReentrantLock wakeLock = new ReentrantLock();
+  protected final Condition wakeUp = this.wakeLock.newCondition();
+  protected boolean wakeRequested = false; // Guarded by wakeLock
+  protected final JedisPubSub wakeUpListener =
+      new JedisPubSub() {
+        @Override
+        public void onMessage(final String channel, final String message) {
+          if (shouldWake(message)) {
+            wake();
+          }
+        }
+      };
+
+  /**
+   * Creates a new AbstractLeaderRunnable.
+   *
+   * @param config used to get the namespace
+   * @param jedisPool the Redis connection pool
+   * @param lease how long leadership lasts without being renewed; the leader renews it every half
+   *     lease, and a standby takes over within a lease of the leader stopping
+   * @param namePrefix the prefix of the name this instance holds the leader lock under
+   * @throws IllegalArgumentException if config or jedisPool is null or the lease is shorter than a
+   *     millisecond
+   */
+  protected AbstractLeaderRunnable(
+      final Config config,
+      final UnifiedJedis jedisPool,
+      final Duration lease,
+      final String namePrefix) {
+    if (config == null) {
+      throw new IllegalArgumentException("config must not be null");
+    }
+    if (jedisPool == null) {
+      throw new IllegalArgumentException("jedisPool must not be null");
+    }
+    if (lease == null || lease.toMillis() < 1) {
+      throw new IllegalArgumentException("lease must be at least 1ms: " + lease);
+    }
+    this.namespace = config.getNamespace();
+    this.clusterKeys = config.isClusterKeys();
+    this.jedisPool = jedisPool;
+    this.lease = lease;
+    this.name = namePrefix + "-" + UUID.randomUUID();
+  }
+
+  /**
+   * @return the name this instance holds the leader lock under
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /** Run until {@link #end(boolean)} is called. */
+  @Override
+  public void run() {
+    if (this.state.compareAndSet(NEW, RUNNING)) {
+      this.threadRef.set(Thread.currentThread());
+      final String channel = wakeUpChannel();
+      if (channel != null) {
+        final Thread listener = new Thread(() -> listen(channel), this.name + "-wakeup");
+        listener.setDaemon(true);
+        listener.start();
+      }
+      try {
+        loadRedisScripts();
+        while (RUNNING.equals(this.state.get())) {
+          try {
+            await(isLeader() ? lead() : halfLease());
+          } catch (InterruptedException ie) {
+            break;
+          } catch (Exception e) {
+            LOG.error(this.name + " failed as leader, retrying in " + RECONNECT_SLEEP_TIME, e);
+            try {
+              await(RECONNECT_SLEEP_TIME);
+            } catch (InterruptedException ie) {
+              break;
+            }
+          }
+        }
+      } catch (Exception e) {
+        LOG.error("Uncaught exception in " + this.name, e);
+      } finally {
+        this.state.set(SHUTDOWN);
+        if (this.wakeUpListener.isSubscribed()) {
+          this.wakeUpListener.unsubscribe();
+        }
+        try {
+          resign();
+        } catch (Exception e) {
+          LOG.warn("Failed to give up leadership", e);
+        }
+        this.threadRef.set(null);
+      }
+    } else if (RUNNING.equals(this.state.get())) {
+      throw new IllegalStateException("This " + getClass().getSimpleName() + " is already running");
+    } else {
+      throw new IllegalStateException("This " + getClass().getSimpleName() + " is shutdown");
+    }
+  }
+
+  /**
+   * Stop running.
+   *
+   * @param now if true, interrupt the running thread
+   */
+  public void end(final boolean now) {
+    this.state.set(SHUTDOWN);
+    if (this.wakeUpListener.isSubscribed()) {
+      this.wakeUpListener.unsubscribe();
+    }
+    wake();
+    if (now) {
+      final Thread thread = this.threadRef.get();
+      if (thread != null) {
+        thread.interrupt();
+      }
+    }
+  }
+
+  /**
+   * @return true if this instance has been stopped
+   */
+  public boolean isShutdown() {
+    return SHUTDOWN.equals(this.state.get());
+  }
+
+  /**
+   * Wait for the running thread to stop.
+   *
+   * @param millis the most time to wait, in milliseconds
+   * @throws InterruptedException if the waiting thread is interrupted
+   */
+  public void join(final long millis) throws InterruptedException {
+    final Thread thread = this.threadRef.get();
+    if (thread != null && thread.isAlive()) {
+      thread.join(millis);
+    }
+  }
+
+  /**
+   * Do the work of the leader.
+   *
+   * @return how long to wait, in milliseconds, before leading again; no longer than
+   *     {@link #halfLease()} so that the lease is renewed in time
+   */
+  protected abstract long lead();
+
+  /**
+   * @return the key of the leader lock
+   */
+  protected abstract String leaderKey();
+
+  /**
+   * @return the channel whose messages may wake the leader early, or null to never wake early
+   */
+  protected String wakeUpChannel() {
+    return null;
+  }
+
+  /**
+   * @param message a message published on the {@link #wakeUpChannel()}
+   * @return true if the message should wake the leader
+   */
+  protected boolean shouldWake(final String message) {
+    return true;
+  }
+
+  /**
+   * @return true if this instance holds, or has just taken, the leader lock
+   */
+  protected boolean isLeader() {
+    return ((Long) evalScript(this.leaderScriptHash, leaderKeys(), leaderArgs(""))) == 1L;
+  }
+
+  /** Give up the leader lock if this instance holds it. */
+  protected void resign() {
+    if (this.leaderScriptHash.get() != null) {
+      evalScript(this.leaderScriptHash, leaderKeys(), leaderArgs("release"));
+    }
+  }
+
+  private List<String> leaderKeys() {
+    return Collections.singletonList(leaderKey());
+  }
+
+  private List<String> leaderArgs(final String mode) {
+    return Arrays.asList(this.name, Long.toString(this.lease.toMillis()), mode);
+  }
+
+  /**
+   * @return half the lease, in milliseconds
+   */
+  protected long halfLease() {
+    return Math.max(1, this.lease.toMillis() / 2);
+  }
+
+  /**
+   * Wait until the given time has passed or this instance is woken up.
+   *
+   * @param millis the most time to wait, in milliseconds
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  protected void await(final long millis) throws InterruptedException {
+    this.wakeLock.lock();
+    try {
+      if (!this.wakeRequested && millis > 0) {
+        this.wakeUp.await(millis, TimeUnit.MILLISECONDS);
+      }
+      this.wakeRequested = false;
+    } finally {
+      this.wakeLock.unlock();
+    }
+  }
+
+  /** Wake this instance up to lead now. */
+  protected void wake() {
+    this.wakeLock.lock();
+    try {
+      this.wakeRequested = true;
+      this.wakeUp.signalAll();
+    } finally {
+      this.wakeLock.unlock();
+    }
+  }
+
+  /**
+   * Listen for wake up messages until this instance stops.
+   *
+   * @param channel the channel to listen on
+   */
+  protected void listen(final String channel) {
+    while (RUNNING.equals(this.state.get())) {
+      try {
+        this.jedisPool.subscribe(this.wakeUpListener, channel);
+      } catch (Exception e) {
+        if (RUNNING.equals(this.state.get())) {
+          LOG.warn("Lost channel " + channel + ", resubscribing in " + RECONNECT_SLEEP_TIME, e);
+          try {
+            Thread.sleep(RECONNECT_SLEEP_TIME);
+          } catch (InterruptedException ie) {
+            return;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Load the scripts this instance uses. Subclasses that use more scripts load them too.
+   *
+   * @throws IOException if a script cannot be read
+   */
+  protected void loadRedisScripts() throws IOException {
+    this.leaderScriptHash.set(this.jedisPool.scriptLoad(ScriptUtils.readScript(LEADER_LUA)));
+  }
+
+  /**
+   * Evaluate a previously loaded script, reloading the scripts if Redis no longer has them.
+   *
+   * @param scriptHash the SHA1 of the loaded script
+   * @param keys the keys the script accesses
+   * @param args the arguments to the script
+   * @return the result of the script
+   */
+  protected Object evalScript(
+      final AtomicReference<String> scriptHash, final List<String> keys, final List<String> args) {
+    try {
+      return this.jedisPool.evalsha(scriptHash.get(), keys, args);
+    } catch (JedisNoScriptException jnse) {
+      try {
+        loadRedisScripts();
+      } catch (IOException ioe) {
+        throw new RuntimeException("Failed to reload Lua scripts", ioe);
+      }
+      return this.jedisPool.evalsha(scriptHash.get(), keys, args);
+    }
+  }
+
+  /**
+   * Builds a namespaced Redis key with the given arguments.
+   *
+   * @param parts the key parts to be joined
+   * @return an assembled String key
+   */
+  protected String key(final String... parts) {
+    return JesqueUtils.createKey(this.namespace, parts);
+  }
+
+  /**
+   * Builds the key of a queue, or of something kept for a queue, in the configured key layout.
+   *
+   * @param type the kind of key, e.g. {@link net.greghaines.jesque.utils.ResqueConstants#QUEUE}
+   * @param queue the name of the queue
+   * @param parts the key parts to append after the queue
+   * @return an assembled String key
+   * @see Config#isClusterKeys()
+   */
+  protected String queueKey(final String type, final String queue, final String... parts) {
+    return JesqueUtils.createQueueKey(this.namespace, this.clusterKeys, type, queue, parts);
+  }
+}
@@ -18,32 +18,70 @@ import static net.greghaines.jesque.worker.JobExecutor.State.*;
 import static net.greghaines.jesque.worker.WorkerEvent.*;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.management.ManagementFactory;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import net.greghaines.jesque.Config;
 import net.greghaines.jesque.Job;
 import net.greghaines.jesque.JobFailure;
+import net.greghaines.jesque.RateLimit;
 import net.greghaines.jesque.WorkerStatus;
 import net.greghaines.jesque.json.ObjectMapperFactory;
+import net.greghaines.jesque.utils.ConcurrentHashSet;
+import net.greghaines.jesque.utils.ConcurrentSet;
 import net.greghaines.jesque.utils.JesqueUtils;
 import net.greghaines.jesque.utils.VersionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.AbstractTransaction;
+import redis.clients.jedis.StreamEntryID;
+import redis.clients.jedis.args.ListDirection;
 import redis.clients.jedis.commands.JedisCommands;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
 import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+import redis.clients.jedis.params.XAutoClaimParams;
+import redis.clients.jedis.params.XClaimParams;
+import redis.clients.jedis.params.XReadGroupParams;
+import redis.clients.jedis.resps.StreamEntry;
+import redis.clients.jedis.util.KeyValue;
+import tools.jackson.core.JacksonException;
 import tools.jackson.core.exc.StreamReadException;
 import tools.jackson.databind.DatabindException;
 
@@ -54,10 +92,31 @@ public abstract class AbstractWorker implements Worker {
   protected static final AtomicLong WORKER_COUNTER = new AtomicLong(0);
   protected static final long EMPTY_QUEUE_SLEEP_TIME = 500; // 500 ms
   protected static final long RECONNECT_SLEEP_TIME = 5000; // 5 sec
+  protected static final long READY_QUEUES_REFRESH_TIME = 1000; // 1 sec
   protected static final String LPOPLPUSH_LUA = "/workerScripts/jesque_lpoplpush.lua";
   protected static final String POP_LUA = "/workerScripts/jesque_pop.lua";
   protected static final String POP_FROM_MULTIPLE_PRIO_QUEUES =
-      "/workerScripts/fromMultiplePriorityQueues.lua";
+      "/workerScripts/jesque_priority_pop.lua";
+  protected static final String PEEK_LUA = "/workerScripts/jesque_peek.lua";
+  protected static final String ACK_LUA = "/workerScripts/jesque_ack.lua";
+  protected static final String NACK_LUA = "/workerScripts/jesque_nack.lua";
+  protected static final String STREAM_ACK_LUA = "/workerScripts/jesque_stream_ack.lua";
+  protected static final String STREAM_NACK_LUA = "/workerScripts/jesque_stream_nack.lua";
+  protected static final String LANE_POP_LUA = "/workerScripts/jesque_lane_pop.lua";
+  protected static final String RELEASE_LUA = "/workerScripts/jesque_release.lua";
+  protected static final String EXTEND_LUA = "/workerScripts/jesque_extend.lua";
+  protected static final String TENANT_POP_LUA = "/workerScripts/jesque_tenant_pop.lua";
+  protected static final String RELEASE_PERMITS_LUA = "/workerScripts/jesque_release_permits.lua";
+  protected static final String RENEW_PERMITS_LUA = "/workerScripts/jesque_renew_permits.lua";
+  protected static final long STREAM_CLAIM_CHECK_TIME = 1000; // 1 sec
+  // The pop script's rate limit arguments, which come before any of its concurrency limit ones
+  protected static final int RATE_LIMIT_ARG_COUNT = 5;
+  /** The default time a stream queue's job may go unacknowledged before another worker takes it */
+  public static final Duration DEFAULT_STREAM_CLAIM_IDLE_TIME = Duration.ofMinutes(5);
+  /** The default time a worker holds the lease on an ordered queue's lane if it never gives it */
+  public static final Duration DEFAULT_LANE_LEASE_TIME = Duration.ofMinutes(5);
+  /** The default time a worker holds a concurrency limit's permit if it never gives it back */
+  public static final Duration DEFAULT_PERMIT_LEASE_TIME = Duration.ofMinutes(5);
 
   // Set the thread name to the message for debugging
   protected static volatile boolean threadNameChangingEnabled = false;
@@ -80,19 +139,87 @@ public abstract class AbstractWorker implements Worker {
   protected final AtomicReference<JobExecutor.State> state =
       new AtomicReference<>(JobExecutor.State.NEW);
   protected final AtomicBoolean paused = new AtomicBoolean(false);
+  // A lock rather than a monitor so that a paused virtual thread does not pin its carrier
+  protected final ReentrantLock pauseLock = new ReentrantLock();
+  protected final Condition unpaused = this.pauseLock.newCondition();
   protected final AtomicBoolean processingJob = new AtomicBoolean(false);
   protected final AtomicReference<String> popScriptHash = new AtomicReference<>(null);
   protected final AtomicReference<String> lpoplpushScriptHash = new AtomicReference<>(null);
   protected final AtomicReference<String> multiPriorityQueuesScriptHash =
       new AtomicReference<>(null);
+  // The queues polled by RESET_TO_HIGHEST_PRIORITY, rebuilt only when the queues change
+  protected final AtomicReference<PriorityQueueSnapshot> priorityQueueSnapshot =
+      new AtomicReference<>(null);
+  protected final Map<String, Integer> queueWeights = new ConcurrentHashMap<>();
+  // The running weight of each queue for WEIGHTED_ROUND_ROBIN; only touched by the polling thread
+  protected final Map<String, Long> currentQueueWeights = new HashMap<>();
+  // Only touched by the polling thread
+  protected final AdaptiveQueueOrder adaptiveQueueOrder = new AdaptiveQueueOrder();
+  // The queues polled without finding a job since the last hit or backoff; only touched by the
+  // polling thread
+  protected final Set<String> missedQueues = new HashSet<>();
+  protected final Map<String, Duration> queueLatencyTargets = new ConcurrentHashMap<>();
+  protected final AtomicReference<String> peekScriptHash = new AtomicReference<>(null);
+  protected final AtomicReference<String> ackScriptHash = new AtomicReference<>(null);
+  protected final AtomicReference<String> nackScriptHash = new AtomicReference<>(null);
+  protected final AtomicReference<String> streamAckScriptHash = new AtomicReference<>(null);
+  protected final AtomicReference<String> streamNackScriptHash = new AtomicReference<>(null);
+  protected final AtomicReference<String> lanePopScriptHash = new AtomicReference<>(null);
+  protected final AtomicReference<String> releaseScriptHash = new AtomicReference<>(null);
+  protected final AtomicReference<String> extendScriptHash = new AtomicReference<>(null);
+  // Renews the lease on the lane and the permits of the job being processed, created when first
+  // needed
+  protected final AtomicReference<ScheduledExecutorService> leaseSchedulerRef =
+      new AtomicReference<>(null);
+  // The renewal of the lease on the lane of the job being processed, if it came from a lane
+  protected final AtomicReference<ScheduledFuture<?>> laneLeaseRenewalRef =
+      new AtomicReference<>(null);
+  protected final AtomicReference<String> tenantPopScriptHash = new AtomicReference<>(null);
+  protected final AtomicReference<Duration> laneLeaseTimeRef =
+      new AtomicReference<>(DEFAULT_LANE_LEASE_TIME);
+  protected final AtomicReference<String> releasePermitsScriptHash = new AtomicReference<>(null);
+  protected final AtomicReference<String> renewPermitsScriptHash = new AtomicReference<>(null);
+  // The renewal of the permits taken with the job being processed, if it came from a limited queue
+  protected final AtomicReference<ScheduledFuture<?>> permitRenewalRef =
+      new AtomicReference<>(null);
+  protected final AtomicReference<Duration> permitLeaseTimeRef =
+      new AtomicReference<>(DEFAULT_PERMIT_LEASE_TIME);
+  protected final ConcurrentSet<String> streamQueues = new ConcurrentHashSet<>();
+  protected final AtomicReference<Duration> streamClaimIdleTimeRef =
+      new AtomicReference<>(DEFAULT_STREAM_CLAIM_IDLE_TIME);
+  // When each stream queue was last checked for abandoned jobs, present once its consumer group is
+  // known to exist; only touched by the polling thread
+  protected final Map<String, Long> streamClaimChecks = new HashMap<>();
   protected final long workerId = WORKER_COUNTER.getAndIncrement();
   protected final String threadNameBase =
       "Worker-" + this.workerId + " Jesque-" + VersionUtils.getVersion() + ": ";
   protected final AtomicReference<Thread> threadRef = new AtomicReference<>(null);
   protected final AtomicReference<ExceptionHandler> exceptionHandlerRef;
   protected final AtomicReference<FailQueueStrategy> failQueueStrategyRef;
+  protected final AtomicReference<Duration> blockingPopTimeoutRef = new AtomicReference<>(null);
+  protected final AtomicLong blockingClientId = new AtomicLong(-1);
+  protected final AtomicBoolean blockingPopAcrossQueues = new AtomicBoolean(false);
+  protected final AtomicInteger batchSize = new AtomicInteger(1);
+  protected final AtomicBoolean readyQueuesOnly = new AtomicBoolean(false);
+  protected volatile boolean allQueues = false;
+  // Only touched by the polling thread
+  protected long lastReadyQueuesRefresh = 0;
+  protected final AtomicReference<BackoffStrategy> backoffStrategyRef =
+      new AtomicReference<>(new FixedBackoffStrategy(EMPTY_QUEUE_SLEEP_TIME));
+  protected final AtomicLong currentBackoff = new AtomicLong(0);
+  // Jobs claimed by a batch pop that are waiting to be processed; only touched by the worker thread
+  protected final Deque<KeyValue<String, String>> claimedJobs = new ArrayDeque<>();
+  // Whether the ack or nack script of the job being processed completed; only touched by the
+  // processing thread
+  protected boolean outcomeRecorded = false;
   protected final JobFactory jobFactory;
   protected final NextQueueStrategy nextQueueStrategy;
+  // The permits and period in milliseconds of each rate limited job class, as the pop script takes
+  // them, or an empty string if no job class is limited
+  protected final String jobRateLimitsJson;
+  // The permits of each concurrency limited job class, as the pop script takes them, or an empty
+  // string if no job class is limited
+  protected final String jobConcurrencyLimitsJson;
 
   protected String name;
 
@@ -111,6 +238,25 @@ public abstract class AbstractWorker implements Worker {
     if (nextQueueStrategy == null) {
       throw new IllegalArgumentException("nextQueueStrategy must not be null");
     }
+    if (config.isClusterKeys()
+        && NextQueueStrategy.RESET_TO_HIGHEST_PRIORITY.equals(nextQueueStrategy)) {
+      // Its script pops from every queue in one call, but the queues may be on different shards
+      throw new IllegalArgumentException(
+          "RESET_TO_HIGHEST_PRIORITY cannot be used with cluster keys");
+    }
+    if ((!config.getOrderedQueues().isEmpty() || !config.getTenantQueues().isEmpty())
+        && NextQueueStrategy.RESET_TO_HIGHEST_PRIORITY.equals(nextQueueStrategy)) {
+      // Its script pops neither by taking the leases on the lanes of ordered queues nor by tenant
+      throw new IllegalArgumentException(
+          "RESET_TO_HIGHEST_PRIORITY cannot be used with ordered or tenant queues");
+    }
+    if (!config.getTenantQueues().isEmpty()
+        && NextQueueStrategy.EARLIEST_DEADLINE_FIRST.equals(nextQueueStrategy)) {
+      // Its peek script only sees the jobs of a tenant queue that were added without a tenant
+      throw new IllegalArgumentException(
+          "EARLIEST_DEADLINE_FIRST cannot be used with tenant queues");
+    }
+    checkLimits(config, nextQueueStrategy);
     checkQueues(queues);
     this.nextQueueStrategy = nextQueueStrategy;
     this.config = config;
@@ -118,10 +264,60 @@ public abstract class AbstractWorker implements Worker {
     this.failQueueStrategyRef =
         new AtomicReference<>(new DefaultFailQueueStrategy(config.getNamespace()));
     this.exceptionHandlerRef = new AtomicReference<>(defaultExceptionHandler);
+    this.jobRateLimitsJson = jobRateLimitsJson(config.getJobRateLimits());
+    this.jobConcurrencyLimitsJson =
+        config.getJobConcurrencyLimits().isEmpty()
+            ? ""
+            : ObjectMapperFactory.get().writeValueAsString(config.getJobConcurrencyLimits());
     // Subclasses must call setQueues(...) and set `name` after initializing the client
     // JEP 513 can fix this constructor chain issue in the future
   }
 
+  private static void checkLimits(final Config config, final NextQueueStrategy nextQueueStrategy) {
+    if (config.getQueueRateLimits().isEmpty()
+        && config.getJobRateLimits().isEmpty()
+        && config.getQueueConcurrencyLimits().isEmpty()
+        && config.getJobConcurrencyLimits().isEmpty()) {
+      return;
+    }
+    if (NextQueueStrategy.RESET_TO_HIGHEST_PRIORITY.equals(nextQueueStrategy)) {
+      // Its script pops without taking permits
+      throw new IllegalArgumentException(
+          "RESET_TO_HIGHEST_PRIORITY cannot be used with rate or concurrency limits");
+    }
+    if (config.isClusterKeys()) {
+      // The pop script can only reach buckets and semaphores in the slot of the queue
+      if (!config.getJobRateLimits().isEmpty()) {
+        throw new IllegalArgumentException("Job rate limits cannot be used with cluster keys");
+      }
+      if (!config.getJobConcurrencyLimits().isEmpty()) {
+        throw new IllegalArgumentException(
+            "Job concurrency limits cannot be used with cluster keys");
+      }
+      final Set<String> limitedQueues = new LinkedHashSet<>(config.getQueueRateLimits().keySet());
+      limitedQueues.addAll(config.getQueueConcurrencyLimits().keySet());
+      for (final String queue : limitedQueues) {
+        if (config.getPartitionCount(queue) > 1) {
+          throw new IllegalArgumentException(
+              queue + " is partitioned and cannot be limited with cluster keys");
+        }
+      }
+    }
+  }
+
+  private static String jobRateLimitsJson(final Map<String, RateLimit> jobRateLimits) {
+    if (jobRateLimits.isEmpty()) {
+      return "";
+    }
+    final Map<String, long[]> limits = new LinkedHashMap<>();
+    for (final Map.Entry<String, RateLimit> limit : jobRateLimits.entrySet()) {
+      limits.put(
+          limit.getKey(),
+          new long[] {limit.getValue().getPermits(), limit.getValue().getPeriod().toMillis()});
+    }
+    return ObjectMapperFactory.get().writeValueAsString(limits);
+  }
+
   /**
    * @return this worker's identifier
    */
@@ -164,6 +360,7 @@ public abstract class AbstractWorker implements Worker {
         this.listenerDelegate.fireEvent(WORKER_ERROR, this, null, null, null, null, ex);
       } finally {
         renameThread("STOPPING");
+        endLeases();
         this.listenerDelegate.fireEvent(WORKER_STOP, this, null, null, null, null, null);
         try {
           unregisterWorker();
@@ -197,6 +394,34 @@ public abstract class AbstractWorker implements Worker {
       this.state.set(SHUTDOWN);
     }
     togglePause(false); // Release any threads waiting in checkPaused()
+    interruptBlockingPop();
+  }
+
+  /**
+   * Release the worker thread if it is currently waiting in a blocking pop.
+   *
+   * @see #setBlockingPopTimeout(Duration)
+   */
+  protected void interruptBlockingPop() {
+    final long clientId = this.blockingClientId.get();
+    if (clientId >= 0) {
+      try {
+        unblockClient(clientId);
+      } catch (Exception e) {
+        LOG.warn("Error interrupting blocking pop for clientId=" + clientId, e);
+      }
+    }
+  }
+
+  /**
+   * Unblock the Redis client with the given ID as if its blocking command had timed out. This is
+   * called from the thread that ends the worker, so implementations must not use the connection
+   * that the worker thread is blocked on.
+   *
+   * @param clientId the ID of the blocked Redis client
+   */
+  protected void unblockClient(final long clientId) {
+    // Do nothing by default; the blocking pop will return when its timeout expires
   }
 
   protected void registerWorker() throws Exception {
@@ -219,58 +444,919 @@ public abstract class AbstractWorker implements Worker {
     this.popScriptHash.set(loadRedisScript(POP_LUA));
     this.lpoplpushScriptHash.set(loadRedisScript(LPOPLPUSH_LUA));
     this.multiPriorityQueuesScriptHash.set(loadRedisScript(POP_FROM_MULTIPLE_PRIO_QUEUES));
+    this.peekScriptHash.set(loadRedisScript(PEEK_LUA));
+    this.ackScriptHash.set(loadRedisScript(ACK_LUA));
+    this.nackScriptHash.set(loadRedisScript(NACK_LUA));
+    this.streamAckScriptHash.set(loadRedisScript(STREAM_ACK_LUA));
+    this.streamNackScriptHash.set(loadRedisScript(STREAM_NACK_LUA));
+    this.lanePopScriptHash.set(loadRedisScript(LANE_POP_LUA));
+    this.releaseScriptHash.set(loadRedisScript(RELEASE_LUA));
+    this.extendScriptHash.set(loadRedisScript(EXTEND_LUA));
+    this.tenantPopScriptHash.set(loadRedisScript(TENANT_POP_LUA));
+    this.releasePermitsScriptHash.set(loadRedisScript(RELEASE_PERMITS_LUA));
+    this.renewPermitsScriptHash.set(loadRedisScript(RENEW_PERMITS_LUA));
   }
 
   protected abstract String loadRedisScript(String scriptName) throws IOException;
 
   /**
-   * Remove a job from the given queue.
+   * Evaluate a previously loaded script. If Redis no longer has the script, the worker reloads its
+   * scripts and tries once more. If the connection was lost (e.g. it idled out while a long job
+   * ran), the worker reconnects so that its next call succeeds but rethrows the error rather than
+   * running the script again, since the script may already have run before the reply was lost and
+   * the pop, ack and nack scripts must not run twice.
+   *
+   * @param scriptHash the SHA1 of the loaded script
+   * @param keys the keys the script accesses
+   * @param args the arguments to the script
+   * @return the result of the script
+   * @throws JedisConnectionException if the connection was lost
+   */
+  protected Object evalScript(
+      final AtomicReference<String> scriptHash, final List<String> keys, final List<String> args) {
+    try {
+      return getJedis().evalsha(scriptHash.get(), keys, args);
+    } catch (JedisConnectionException jce) {
+      LOG.info("Reconnecting to Redis after connection error", jce);
+      reconnect();
+      throw jce;
+    } catch (JedisNoScriptException jnse) {
+      LOG.info("Reloading Redis scripts after NOSCRIPT error", jnse);
+      try {
+        loadRedisScripts();
+      } catch (IOException ioe) {
+        throw new JedisException("Failed to reload Lua scripts", ioe);
+      }
+    }
+    return getJedis().evalsha(scriptHash.get(), keys, args);
+  }
+
+  /**
+   * Evaluate a previously loaded script that is safe to run twice, e.g. one that only reads or
+   * that gives back a lease, trying once more after reconnecting if the connection was lost.
    *
-   * @param curQueue the queue to remove a job from
+   * @param scriptHash the SHA1 of the loaded script
+   * @param keys the keys the script accesses
+   * @param args the arguments to the script
+   * @return the result of the script
+   * @see #evalScript(AtomicReference, List, List)
+   */
+  protected Object evalIdempotentScript(
+      final AtomicReference<String> scriptHash, final List<String> keys, final List<String> args) {
+    try {
+      return evalScript(scriptHash, keys, args);
+    } catch (JedisConnectionException jce) {
+      return evalScript(scriptHash, keys, args);
+    }
+  }
+
+  /**
+   * Re-establish the connection to Redis after a connection error. Pooled implementations need not
+   * do anything since a broken connection is not returned to the pool.
+   */
+  protected void reconnect() {
+    // Do nothing by default
+  }
+
+  /**
+   * Remove a job from the given queue. The pop script also records the worker's status for the
+   * claimed job, so {@link #process(Job, String)} does not need to. If the batch size is greater
+   * than one and the queue is a list, up to that many jobs are claimed at once; the first is
+   * returned and the rest are held in {@link #claimedJobs} to be processed next.
+   *
+   * @param curQueue the queue to remove a job from, or null if there is none
    * @return a JSON string of a job or null if there was nothing to de-queue
    */
   protected String pop(final String curQueue) {
-    final String key = key(QUEUE, curQueue);
+    if (curQueue == null) {
+      // The worker has no queues to take a job from
+      return null;
+    }
+    final String key = queueKey(QUEUE, curQueue);
     final String now = Long.toString(System.currentTimeMillis());
-    final String inflightKey = key(INFLIGHT, this.name, curQueue);
+    final String inflightKey = inFlightKey(curQueue);
+    final int count =
+        switch (this.nextQueueStrategy) {
+          case DRAIN_WHILE_MESSAGES_EXISTS, ADAPTIVE_HIT_RATE -> this.batchSize.get();
+          default -> 1;
+        };
+    if (isStreamQueue(curQueue)) {
+      return popStream(curQueue, count);
+    }
+    if (isOrderedLane(curQueue)) {
+      return popLane(curQueue);
+    }
+    if (this.config.isTenantQueue(curQueue)) {
+      return popTenant(curQueue);
+    }
     return switch (this.nextQueueStrategy) {
-      case DRAIN_WHILE_MESSAGES_EXISTS ->
-          (String)
-              getJedis()
-                  .evalsha(
-                      this.popScriptHash.get(),
-                      3,
-                      key,
-                      inflightKey,
-                      JesqueUtils.createRecurringHashKey(key),
-                      now);
-      case RESET_TO_HIGHEST_PRIORITY ->
-          (String)
-              getJedis()
-                  .evalsha(
-                      this.multiPriorityQueuesScriptHash.get(),
-                      3,
-                      curQueue,
-                      inflightKey,
-                      config.getNamespace(),
-                      now);
+      case DRAIN_WHILE_MESSAGES_EXISTS,
+          WEIGHTED_ROUND_ROBIN,
+          EARLIEST_DEADLINE_FIRST,
+          ADAPTIVE_HIT_RATE -> {
+        // The cluster key layout leaves out the keys outside the queue's slot
+        final List<String> params =
+            new ArrayList<>(
+                Arrays.asList(
+                    key,
+                    inflightKey,
+                    JesqueUtils.createRecurringHashKey(key),
+                    queueKey(QUEUE, curQueue, BUCKETS)));
+        if (!this.config.isClusterKeys()) {
+          params.add(key(WORKER, this.name));
+          params.add(key(READY_QUEUES));
+        }
+        final int keyCount = params.size();
+        params.add(now);
+        params.add(curQueue);
+        final List<String> limitArgs = limitArgs(curQueue);
+        if (count <= 1 && limitArgs == null) {
+          final String payload =
+              (String)
+                  getJedis()
+                      .evalsha(
+                          this.popScriptHash.get(), keyCount, params.toArray(new String[0]));
+          if (payload != null && this.config.isClusterKeys()) {
+            markWorking(curQueue, payload);
+          }
+          yield payload;
+        }
+        if (limitArgs != null && limitArgs.size() > RATE_LIMIT_ARG_COUNT) {
+          // A worker holds one permit of a semaphore, so it takes one job at a time
+          params.add("1");
+        } else {
+          params.add(Integer.toString(count));
+        }
+        if (limitArgs != null) {
+          params.addAll(limitArgs);
+        }
+        @SuppressWarnings("unchecked")
+        final List<String> payloads =
+            (List<String>)
+                getJedis()
+                    .evalsha(this.popScriptHash.get(), keyCount, params.toArray(new String[0]));
+        if (payloads == null || payloads.isEmpty()) {
+          yield null;
+        }
+        if (limitArgs != null && limitArgs.size() > RATE_LIMIT_ARG_COUNT) {
+          watchPermits(curQueue);
+        }
+        for (final String payload : payloads.subList(1, payloads.size())) {
+          this.claimedJobs.add(KeyValue.of(curQueue, payload));
+        }
+        if (this.config.isClusterKeys()) {
+          markWorking(curQueue, payloads.get(0));
+        }
+        yield payloads.get(0);
+      }
+      case RESET_TO_HIGHEST_PRIORITY -> {
+        final PriorityQueueSnapshot snapshot = getPriorityQueueSnapshot();
+        final List<String> keys = new ArrayList<>(snapshot.queueKeys.size() + 3);
+        keys.add(inflightKey);
+        keys.add(key(WORKER, this.name));
+        keys.add(key(READY_QUEUES));
+        keys.addAll(snapshot.queueKeys);
+        final List<String> args = new ArrayList<>(snapshot.queues.size() * 2 + 1);
+        args.add(now);
+        args.addAll(snapshot.queues);
+        args.addAll(Arrays.asList(snapshot.queueTypes));
+        @SuppressWarnings("unchecked")
+        final List<String> result =
+            (List<String>)
+                getJedis().evalsha(this.multiPriorityQueuesScriptHash.get(), keys, args);
+        if (result == null || result.isEmpty()) {
+          yield null;
+        }
+        // The script reports the type of any queue whose cached type turned out to be wrong
+        for (int i = 1; i < result.size(); i++) {
+          final String queueType = result.get(i);
+          if (queueType != null && !queueType.isEmpty()) {
+            snapshot.queueTypes[i - 1] = queueType;
+          }
+        }
+        yield result.get(0);
+      }
       default -> throw new RuntimeException("Unimplemented 'nextQueueStrategy'");
     };
   }
 
+  /**
+   * The arguments with which the pop script takes permits from the token buckets of the rate limits
+   * and the semaphores of the concurrency limits that apply to a queue's jobs, see {@link
+   * Config.Builder#withQueueRateLimit(String, long, Duration)}, {@link
+   * Config.Builder#withJobRateLimit(String, long, Duration)}, {@link
+   * Config.Builder#withQueueConcurrencyLimit(String, int)} and {@link
+   * Config.Builder#withJobConcurrencyLimit(String, int)}. The arguments of the concurrency limits
+   * follow those of the rate limits and are left out if none applies.
+   *
+   * @param curQueue the queue, or one of its partitions
+   * @return the arguments, or null if no limit applies to the queue's jobs
+   */
+  protected List<String> limitArgs(final String curQueue) {
+    final String queue =
+        JesqueUtils.partitionedQueueName(curQueue, this.config.getPartitionedQueues());
+    final RateLimit queueLimit = this.config.getQueueRateLimits().get(queue);
+    final Integer queuePermits = this.config.getQueueConcurrencyLimits().get(queue);
+    final boolean concurrencyLimited =
+        queuePermits != null || !this.jobConcurrencyLimitsJson.isEmpty();
+    if (queueLimit == null && this.jobRateLimitsJson.isEmpty() && !concurrencyLimited) {
+      return null;
+    }
+    final List<String> args =
+        new ArrayList<>(
+            Arrays.asList(
+                (queueLimit == null) ? "" : queueKey(QUEUE, queue, RATE),
+                (queueLimit == null) ? "" : Long.toString(queueLimit.getPermits()),
+                (queueLimit == null) ? "" : Long.toString(queueLimit.getPeriod().toMillis()),
+                key(RATE) + COLON,
+                this.jobRateLimitsJson));
+    if (concurrencyLimited) {
+      args.add((queuePermits == null) ? "" : queueKey(QUEUE, queue, SEMAPHORE));
+      args.add((queuePermits == null) ? "" : Integer.toString(queuePermits));
+      args.add(key(SEMAPHORE) + COLON);
+      args.add(this.jobConcurrencyLimitsJson);
+      args.add(this.name);
+      args.add(Long.toString(this.permitLeaseTimeRef.get().toMillis()));
+    }
+    return args;
+  }
+
+  /**
+   * Give back the permits of the concurrency limits taken along with a job by {@link
+   * #pop(String)}, so that another job may run. Since a worker takes one job at a time from a
+   * limited queue, it gives back its permit of every semaphore that may apply to the job. Does
+   * nothing if no concurrency limit applies to the queue's jobs.
+   *
+   * @param curQueue the queue the job came from
+   */
+  protected void releasePermits(final String curQueue) {
+    stopWatchingPermits();
+    final List<String> keys = permitKeys(curQueue);
+    if (!keys.isEmpty()) {
+      evalIdempotentScript(
+          this.releasePermitsScriptHash, keys, Collections.singletonList(this.name));
+    }
+  }
+
+  /**
+   * @param curQueue the queue, or one of its partitions
+   * @return the semaphores of every concurrency limit that may apply to the queue's jobs
+   */
+  protected List<String> permitKeys(final String curQueue) {
+    final String queue =
+        JesqueUtils.partitionedQueueName(curQueue, this.config.getPartitionedQueues());
+    final List<String> keys = new ArrayList<>();
+    if (this.config.getQueueConcurrencyLimits().containsKey(queue)) {
+      keys.add(queueKey(QUEUE, queue, SEMAPHORE));
+    }
+    for (final String className : this.config.getJobConcurrencyLimits().keySet()) {
+      keys.add(key(SEMAPHORE, className));
+    }
+    return keys;
+  }
+
+  /**
+   * Renew the permits taken along with a job every third of the permit lease time until they are
+   * given back by {@link #releasePermits(String)}, so that a job that runs for longer than the
+   * lease keeps its permits. Like {@link #watchLane(String)}, the renewal runs on the lease thread.
+   *
+   * @param curQueue the queue the job came from
+   */
+  protected void watchPermits(final String curQueue) {
+    final List<String> keys = permitKeys(curQueue);
+    final Duration leaseTime = this.permitLeaseTimeRef.get();
+    final long renewTime = Math.max(1L, leaseTime.toMillis() / 3);
+    final ScheduledFuture<?> renewal =
+        getLeaseScheduler()
+            .scheduleWithFixedDelay(
+                () -> renewPermits(keys, leaseTime), renewTime, renewTime, TimeUnit.MILLISECONDS);
+    final ScheduledFuture<?> previous = this.permitRenewalRef.getAndSet(renewal);
+    if (previous != null) {
+      previous.cancel(false);
+    }
+  }
+
+  /**
+   * Extend the permits this worker still holds, or stop renewing them if every one expired.
+   *
+   * @param keys the semaphores the permits may have been taken from
+   * @param leaseTime the permit lease time
+   */
+  protected void renewPermits(final List<String> keys, final Duration leaseTime) {
+    try {
+      final Object renewed =
+          getLeaseThreadJedis()
+              .evalsha(
+                  this.renewPermitsScriptHash.get(),
+                  keys,
+                  Arrays.asList(this.name, Long.toString(leaseTime.toMillis())));
+      if (Long.valueOf(0L).equals(renewed)) {
+        LOG.warn("Lost permits=" + keys + " held by " + this.name);
+        stopWatchingPermits();
+      }
+    } catch (RuntimeException re) {
+      LOG.warn("Error extending permits=" + keys + " held by " + this.name, re);
+    }
+  }
+
+  /** Stop renewing the permits of the job being processed, if it came from a limited queue. */
+  protected void stopWatchingPermits() {
+    final ScheduledFuture<?> renewal = this.permitRenewalRef.getAndSet(null);
+    if (renewal != null) {
+      renewal.cancel(false);
+    }
+  }
+
+  /**
+   * Take a job from a lane of an ordered queue, only if no other worker holds the lane's lease. The
+   * lease is taken with the job, renewed by {@link #watchLane(String)} while the job runs and given
+   * back by {@link #releaseLane(String)} once the job is done with, so the jobs of a lane run one
+   * at a time and in order however long they take. Jobs are never claimed in batches from a lane,
+   * since the next job must wait for the current one.
+   *
+   * @param curQueue the lane to take a job from
+   * @return a JSON string of a job or null if the lane is empty or leased to another worker
+   */
+  protected String popLane(final String curQueue) {
+    final List<String> keys =
+        scriptKeys(
+            Arrays.asList(
+                queueKey(QUEUE, curQueue), inFlightKey(curQueue), queueKey(QUEUE, curQueue, LEASE)),
+            key(WORKER, this.name),
+            key(READY_QUEUES));
+    final String payload =
+        (String)
+            evalScript(
+                this.lanePopScriptHash,
+                keys,
+                Arrays.asList(
+                    curQueue,
+                    this.name,
+                    Long.toString(this.laneLeaseTimeRef.get().toMillis())));
+    if (payload != null) {
+      watchLane(curQueue);
+      if (this.config.isClusterKeys()) {
+        markWorking(curQueue, payload);
+      }
+    }
+    return payload;
+  }
+
+  /**
+   * Renew the lease on a lane of an ordered queue every third of the lane lease time until it is
+   * given back, so that a job that runs for longer than the lease keeps the lane's next job
+   * waiting. The renewal runs on its own thread and connection since the worker's thread is busy
+   * with the job. A failed renewal is tried again at the next one, which is in time as long as the
+   * lease has not run out.
+   *
+   * @param curQueue the lane whose lease this worker just took
+   */
+  protected void watchLane(final String curQueue) {
+    final String leaseKey = queueKey(QUEUE, curQueue, LEASE);
+    final Duration leaseTime = this.laneLeaseTimeRef.get();
+    final long renewTime = Math.max(1L, leaseTime.toMillis() / 3);
+    final ScheduledFuture<?> renewal =
+        getLeaseScheduler()
+            .scheduleWithFixedDelay(
+                () -> renewLane(leaseKey, leaseTime), renewTime, renewTime, TimeUnit.MILLISECONDS);
+    final ScheduledFuture<?> previous = this.laneLeaseRenewalRef.getAndSet(renewal);
+    if (previous != null) {
+      previous.cancel(false);
+    }
+  }
+
+  /**
+   * Extend the lease on a lane, or stop renewing it if another worker took it after it expired.
+   *
+   * @param leaseKey the key of the lane's lease
+   * @param leaseTime the lane lease time
+   */
+  protected void renewLane(final String leaseKey, final Duration leaseTime) {
+    try {
+      final Object extended =
+          getLeaseThreadJedis()
+              .evalsha(
+                  this.extendScriptHash.get(),
+                  Collections.singletonList(leaseKey),
+                  Arrays.asList(this.name, Long.toString(leaseTime.toMillis())));
+      if (!Long.valueOf(1L).equals(extended)) {
+        LOG.warn("Lost lease=" + leaseKey + " held by " + this.name);
+        stopWatchingLane();
+      }
+    } catch (RuntimeException re) {
+      LOG.warn("Error extending lease=" + leaseKey + " held by " + this.name, re);
+    }
+  }
+
+  /** Stop renewing the lease on the lane of the job being processed, if it came from a lane. */
+  protected void stopWatchingLane() {
+    final ScheduledFuture<?> renewal = this.laneLeaseRenewalRef.getAndSet(null);
+    if (renewal != null) {
+      renewal.cancel(false);
+    }
+  }
+
+  /**
+   * @return the single thread that renews the lease on the lane and the permits of the job being
+   *     processed, created when first needed
+   */
+  protected ScheduledExecutorService getLeaseScheduler() {
+    final ScheduledExecutorService scheduler = this.leaseSchedulerRef.get();
+    if (scheduler != null) {
+      return scheduler;
+    }
+    final ScheduledExecutorService created =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              final Thread thread = new Thread(runnable, this.threadNameBase + "lease watchdog");
+              thread.setDaemon(true);
+              return thread;
+            });
+    if (this.leaseSchedulerRef.compareAndSet(null, created)) {
+      return created;
+    }
+    created.shutdownNow();
+    return this.leaseSchedulerRef.get();
+  }
+
+  /**
+   * Stop renewing lane leases and permits when the worker stops. A lease or permit still held is
+   * left to expire, since its job could not be acknowledged.
+   */
+  protected void endLeases() {
+    stopWatchingLane();
+    stopWatchingPermits();
+    final ScheduledExecutorService scheduler = this.leaseSchedulerRef.get();
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+
+  /**
+   * Take the next job from a tenant queue, from the tenant whose turn it is. Jobs are never claimed
+   * in batches from a tenant queue, so that the tenants' turns hold across workers.
+   *
+   * @param curQueue the tenant queue to take a job from
+   * @return a JSON string of a job or null if the queue is empty
+   * @see Config.Builder#withTenantQueue(String, int)
+   */
+  protected String popTenant(final String curQueue) {
+    final List<String> keys =
+        scriptKeys(
+            Arrays.asList(
+                queueKey(QUEUE, curQueue),
+                queueKey(QUEUE, curQueue, TENANTS),
+                queueKey(QUEUE, curQueue, DEFICITS),
+                inFlightKey(curQueue)),
+            key(WORKER, this.name),
+            key(READY_QUEUES));
+    final String payload =
+        (String)
+            evalScript(
+                this.tenantPopScriptHash,
+                keys,
+                Arrays.asList(
+                    curQueue,
+                    Integer.toString(this.config.getTenantQueues().get(curQueue)),
+                    queueKey(QUEUE, curQueue, TENANT) + COLON));
+    if (payload != null && this.config.isClusterKeys()) {
+      markWorking(curQueue, payload);
+    }
+    return payload;
+  }
+
+  /**
+   * Give back the lease on a lane of an ordered queue taken by {@link #popLane(String)}, so that
+   * the lane's next job can run. The lease is left alone if it expired and was taken by another
+   * worker. Does nothing for other queues.
+   *
+   * @param curQueue the queue the job came from
+   */
+  protected void releaseLane(final String curQueue) {
+    if (isOrderedLane(curQueue)) {
+      stopWatchingLane();
+      evalIdempotentScript(
+          this.releaseScriptHash,
+          Collections.singletonList(queueKey(QUEUE, curQueue, LEASE)),
+          Collections.singletonList(this.name));
+    }
+  }
+
+  /**
+   * @param queueName the name of a queue or one of its partitions
+   * @return true if the queue is a lane of an ordered queue, whose jobs are only taken along with
+   *     its lease
+   * @see Config.Builder#withOrderedQueue(String, int)
+   */
+  protected boolean isOrderedLane(final String queueName) {
+    final Set<String> orderedQueues = this.config.getOrderedQueues();
+    return !orderedQueues.isEmpty()
+        && orderedQueues.contains(
+            JesqueUtils.partitionedQueueName(queueName, this.config.getPartitionedQueues()));
+  }
+
+  /**
+   * Read jobs from a stream queue through the workers' consumer group. Jobs that another worker
+   * claimed but has not acknowledged for the claim idle time are taken over first; otherwise new
+   * jobs are read. Each job's JSON is stamped with the ID of its entry so that it can be
+   * acknowledged once processed. The worker's status is recorded for the first job and any others
+   * are held in {@link #claimedJobs} to be processed next.
+   *
+   * @param curQueue the stream queue to read from
+   * @param count the most jobs to read
+   * @return a JSON string of a job or null if there was nothing to read
+   */
+  protected String popStream(final String curQueue, final int count) {
+    final String key = queueKey(STREAM, curQueue);
+    List<StreamEntry> entries = claimAbandoned(curQueue, key, count);
+    if (entries.isEmpty()) {
+      final List<Map.Entry<String, List<StreamEntry>>> read =
+          getJedis()
+              .xreadGroup(
+                  STREAM_GROUP,
+                  this.name,
+                  XReadGroupParams.xReadGroupParams().count(count),
+                  Collections.singletonMap(key, StreamEntryID.XREADGROUP_UNDELIVERED_ENTRY));
+      if (read != null && !read.isEmpty()) {
+        entries = read.get(0).getValue();
+      }
+    }
+    final List<Job> jobs = toStreamJobs(key, entries);
+    if (jobs.isEmpty()) {
+      return null;
+    }
+    try {
+      getJedis().set(key(WORKER, this.name), statusMsg(curQueue, jobs.get(0)));
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+    for (final Job job : jobs.subList(1, jobs.size())) {
+      this.claimedJobs.add(
+          KeyValue.of(curQueue, ObjectMapperFactory.get().writeValueAsString(job)));
+    }
+    return ObjectMapperFactory.get().writeValueAsString(jobs.get(0));
+  }
+
+  /**
+   * Take over the jobs of a stream queue that have gone unacknowledged for the claim idle time,
+   * checking at most once a second. The queue's consumer group is created the first time the queue
+   * is checked.
+   *
+   * @param curQueue the stream queue
+   * @param key the key of the stream
+   * @param count the most jobs to take over
+   * @return the entries taken over
+   */
+  protected List<StreamEntry> claimAbandoned(
+      final String curQueue, final String key, final int count) {
+    final long now = System.currentTimeMillis();
+    final Long lastCheck = this.streamClaimChecks.get(curQueue);
+    if (lastCheck == null) {
+      createStreamGroup(key);
+    } else if (now - lastCheck < STREAM_CLAIM_CHECK_TIME) {
+      return Collections.emptyList();
+    }
+    this.streamClaimChecks.put(curQueue, now);
+    final Map.Entry<StreamEntryID, List<StreamEntry>> claimed =
+        getJedis()
+            .xautoclaim(
+                key,
+                STREAM_GROUP,
+                this.name,
+                this.streamClaimIdleTimeRef.get().toMillis(),
+                new StreamEntryID(0, 0),
+                XAutoClaimParams.xAutoClaimParams().count(count));
+    return (claimed == null || claimed.getValue() == null)
+        ? Collections.emptyList()
+        : claimed.getValue();
+  }
+
+  /**
+   * Create the workers' consumer group on a stream queue, and the stream if it does not exist yet,
+   * so that jobs added before any worker started are read too.
+   *
+   * @param key the key of the stream
+   */
+  protected void createStreamGroup(final String key) {
+    try {
+      getJedis().xgroupCreate(key, STREAM_GROUP, new StreamEntryID(0, 0), true);
+    } catch (JedisDataException jde) {
+      if (jde.getMessage() == null || !jde.getMessage().startsWith("BUSYGROUP")) {
+        throw jde;
+      }
+    }
+  }
+
+  /**
+   * Turn the entries read from a stream queue into jobs stamped with the IDs of their entries.
+   * Entries that were deleted while pending or do not hold a valid job are acknowledged and
+   * dropped, since they would otherwise be redelivered forever.
+   *
+   * @param key the key of the stream
+   * @param entries the entries read
+   * @return the jobs
+   */
+  protected List<Job> toStreamJobs(final String key, final List<StreamEntry> entries) {
+    final List<Job> jobs = new ArrayList<>(entries.size());
+    for (final StreamEntry entry : entries) {
+      final String json =
+          (entry.getFields() == null) ? null : entry.getFields().get(STREAM_PAYLOAD);
+      Job job = null;
+      if (json != null) {
+        try {
+          job = ObjectMapperFactory.get().readValue(json, Job.class);
+        } catch (JacksonException je) {
+          LOG.error("Dropping invalid job from stream=" + key + " id=" + entry.getID(), je);
+        }
+      }
+      if (job == null) {
+        getJedis().xack(key, STREAM_GROUP, entry.getID());
+        getJedis().xdel(key, entry.getID());
+      } else {
+        job.setUnknownField(STREAM_ID, entry.getID().toString());
+        jobs.add(job);
+      }
+    }
+    return jobs;
+  }
+
+  /**
+   * Wait for a job to arrive on any of the given stream queues.
+   *
+   * @param queues the distinct stream queues to wait on
+   * @param timeout how long to wait
+   * @return the queue the job came from and the JSON string of the job, or null on timeout
+   */
+  protected KeyValue<String, String> blockingStreamPop(
+      final List<String> queues, final Duration timeout) {
+    if (!JobExecutor.State.RUNNING.equals(this.state.get())) {
+      return null;
+    }
+    final Map<String, StreamEntryID> streams = new LinkedHashMap<>();
+    final Map<String, String> queuesByKey = new HashMap<>();
+    for (final String queue : queues) {
+      final String key = queueKey(STREAM, queue);
+      if (!this.streamClaimChecks.containsKey(queue)) {
+        createStreamGroup(key);
+      }
+      streams.put(key, StreamEntryID.XREADGROUP_UNDELIVERED_ENTRY);
+      queuesByKey.put(key, queue);
+    }
+    final List<Map.Entry<String, List<StreamEntry>>> read =
+        getJedis()
+            .xreadGroup(
+                STREAM_GROUP,
+                this.name,
+                XReadGroupParams.xReadGroupParams().count(1).block((int) timeout.toMillis()),
+                streams);
+    if (read == null) {
+      return null;
+    }
+    for (final Map.Entry<String, List<StreamEntry>> stream : read) {
+      final List<Job> jobs = toStreamJobs(stream.getKey(), stream.getValue());
+      if (!jobs.isEmpty()) {
+        return KeyValue.of(
+            queuesByKey.get(stream.getKey()),
+            ObjectMapperFactory.get().writeValueAsString(jobs.get(0)));
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Hand a job read from a stream queue back without acknowledging it. Its entry is marked as idle
+   * for the claim idle time so that the next worker to check the queue takes it over at once.
+   *
+   * @param curQueue the stream queue
+   * @param payload the JSON string of the job
+   */
+  protected void handBackStreamJob(final String curQueue, final String payload) {
+    final Object id =
+        ObjectMapperFactory.get().readValue(payload, Job.class).getUnknownField(STREAM_ID);
+    if (id != null) {
+      getJedis()
+          .xclaim(
+              queueKey(STREAM, curQueue),
+              STREAM_GROUP,
+              this.name,
+              0,
+              XClaimParams.xClaimParams().idle(this.streamClaimIdleTimeRef.get().toMillis()),
+              new StreamEntryID(id.toString()));
+    }
+  }
+
+  /**
+   * Wait for a job to arrive on any of the polled queues, moving it into the in-flight list.
+   *
+   * @param curQueue the queue (or queues, for RESET_TO_HIGHEST_PRIORITY) that was last polled
+   * @return the queue the job should be processed as coming from and the JSON string of the job, or
+   *     null if the wait timed out, was interrupted or a queue cannot be waited on
+   * @throws InterruptedException if the thread was interrupted while falling back to sleeping
+   */
+  protected KeyValue<String, String> blockingPop(final String curQueue)
+      throws InterruptedException {
+    final List<String> queues = new ArrayList<>(new LinkedHashSet<>(this.queueNames));
+    final Duration timeout = this.blockingPopTimeoutRef.get();
+    if (queues.isEmpty() || timeout == null || (queues.size() > 1 && this.config.isClusterKeys())) {
+      // Queues that may be on different shards cannot be waited on together; poll them instead
+      backoff();
+      return null;
+    }
+    for (final String queue : queues) {
+      if (isOrderedLane(queue)
+          || this.config.isTenantQueue(queue)
+          || limitArgs(queue) != null) {
+        // Waiting on a lane would take its job without its lease, or on a limited queue without a
+        // permit, and a tenant queue's jobs are not in its own list; poll the queues instead
+        backoff();
+        return null;
+      }
+    }
+    if (!this.streamQueues.isEmpty()) {
+      final List<String> streams = new ArrayList<>(queues);
+      streams.retainAll(this.streamQueues);
+      if (streams.size() == queues.size()) {
+        return blockingStreamPop(streams, timeout);
+      }
+      if (!streams.isEmpty()) {
+        // Lists and streams cannot be waited on together; poll them instead
+        backoff();
+        return null;
+      }
+    }
+    if (queues.size() > 1 && !this.blockingPopAcrossQueues.get()) {
+      // BLMPOP cannot move the job into the in-flight list, so a job would be lost if the worker
+      // died in between; poll the queues instead unless that window is accepted
+      backoff();
+      return null;
+    }
+    try {
+      return blockingPop(queues, curQueue, timeout.toMillis() / 1000.0);
+    } catch (JedisDataException jde) {
+      // Delayed queues are sorted sets which cannot be waited on; poll them instead
+      LOG.debug("Unable to block on queues=" + queues + ", sleeping instead", jde);
+      backoff();
+      return null;
+    }
+  }
+
+  /**
+   * Wait for a job to arrive on any of the given queues. Subclasses may override this to run the
+   * wait on a connection whose client ID is published in {@link #blockingClientId} so that {@link
+   * #end(boolean)} can interrupt it.
+   *
+   * @param queues the distinct queues to wait on
+   * @param curQueue the queue (or queues, for RESET_TO_HIGHEST_PRIORITY) that was last polled
+   * @param timeoutSecs how long to wait, in seconds
+   * @return the queue the job should be processed as coming from and the JSON string of the job, or
+   *     null on timeout
+   */
+  protected KeyValue<String, String> blockingPop(
+      final List<String> queues, final String curQueue, final double timeoutSecs) {
+    return blockingPop(getJedis(), queues, curQueue, timeoutSecs);
+  }
+
+  /**
+   * Wait for a job to arrive on any of the given queues using the given connection. A single queue
+   * is waited on with <code>BLMOVE</code>, which atomically moves the job into the in-flight list.
+   * Several queues are waited on with <code>BLMPOP</code> (Redis 7.0+), after which the job is
+   * pushed onto the in-flight list by a separate command, so it is lost if the worker dies in
+   * between; see {@link #setBlockingPopAcrossQueues(boolean)}.
+   *
+   * @param jedis the connection to block on
+   * @param queues the distinct queues to wait on
+   * @param curQueue the queue (or queues, for RESET_TO_HIGHEST_PRIORITY) that was last polled
+   * @param timeoutSecs how long to wait, in seconds
+   * @return the queue the job should be processed as coming from and the JSON string of the job, or
+   *     null on timeout
+   */
+  protected KeyValue<String, String> blockingPop(
+      final JedisCommands jedis,
+      final List<String> queues,
+      final String curQueue,
+      final double timeoutSecs) {
+    if (!JobExecutor.State.RUNNING.equals(this.state.get())) {
+      return null;
+    }
+    final boolean resetToHighest =
+        NextQueueStrategy.RESET_TO_HIGHEST_PRIORITY.equals(this.nextQueueStrategy);
+    if (queues.size() == 1) {
+      final String procQueue = resetToHighest ? curQueue : queues.get(0);
+      final String payload =
+          jedis.blmove(
+              queueKey(QUEUE, queues.get(0)),
+              inFlightKey(procQueue),
+              ListDirection.LEFT,
+              ListDirection.LEFT,
+              timeoutSecs);
+      return (payload == null) ? null : KeyValue.of(procQueue, payload);
+    }
+    final List<String> keys = new ArrayList<>(queues.size());
+    for (final String queue : queues) {
+      keys.add(queueKey(QUEUE, queue));
+    }
+    final KeyValue<String, List<String>> popped =
+        jedis.blmpop(timeoutSecs, ListDirection.LEFT, keys.toArray(new String[keys.size()]));
+    if (popped == null || popped.getValue() == null || popped.getValue().isEmpty()) {
+      return null;
+    }
+    final String procQueue = resetToHighest ? curQueue : queues.get(keys.indexOf(popped.getKey()));
+    final String payload = popped.getValue().get(0);
+    jedis.lpush(inFlightKey(procQueue), payload);
+    return KeyValue.of(procQueue, payload);
+  }
+
   protected void removeInFlight(final String curQueue, boolean skipRequeue) {
+    if (isStreamQueue(curQueue)) {
+      // Unacknowledged stream jobs stay pending until they are taken over
+      return;
+    }
     if (SHUTDOWN_IMMEDIATE.equals(this.state.get()) && !skipRequeue) {
+      requeueInFlight(curQueue);
+    } else {
+      getJedis().rpop(inFlightKey(curQueue));
+    }
+    releaseLane(curQueue);
+    releasePermits(curQueue);
+  }
+
+  /**
+   * Move the oldest job in this worker's in-flight list for a queue, which is the one being
+   * processed, back onto the head of the queue.
+   *
+   * @param queue the queue
+   */
+  protected void requeueInFlight(final String queue) {
+    requeueInFlight(queue, "");
+  }
+
+  /**
+   * Move the given job from this worker's in-flight list for a queue back onto the head of the
+   * queue. Nothing is moved if the job is no longer in flight.
+   *
+   * @param queue the queue
+   * @param payload the JSON string of the job, or an empty string for the oldest in-flight job
+   */
+  protected void requeueInFlight(final String queue, final String payload) {
+    if (this.config.isClusterKeys()) {
+      // The ready queues set is outside the queue's slot; mark the queue before the job is back
+      getJedis().sadd(key(READY_QUEUES), queue);
       getJedis()
           .evalsha(
               this.lpoplpushScriptHash.get(),
               2,
-              key(INFLIGHT, this.name, curQueue),
-              key(QUEUE, curQueue));
+              inFlightKey(queue),
+              queueKey(QUEUE, queue),
+              queue,
+              payload);
     } else {
-      getJedis().lpop(key(INFLIGHT, this.name, curQueue));
+      getJedis()
+          .evalsha(
+              this.lpoplpushScriptHash.get(),
+              3,
+              inFlightKey(queue),
+              queueKey(QUEUE, queue),
+              key(READY_QUEUES),
+              queue,
+              payload);
+    }
+  }
+
+  /**
+   * Push any jobs claimed by a batch pop that were not processed back onto the head of their
+   * queues, preserving their order. Jobs from stream queues are handed back to be taken over.
+   */
+  protected void requeueClaimed() {
+    while (!this.claimedJobs.isEmpty()) {
+      final KeyValue<String, String> claimed = this.claimedJobs.pollLast();
+      try {
+        if (isStreamQueue(claimed.getKey())) {
+          handBackStreamJob(claimed.getKey(), claimed.getValue());
+        } else {
+          requeueInFlight(claimed.getKey(), claimed.getValue());
+        }
+      } catch (Exception e) {
+        LOG.error("Failed to requeue claimed job=" + claimed.getValue(), e);
+      }
     }
   }
 
+  /**
+   * The payload of the next claimed job to be processed from the given queue, so that the worker's
+   * status can be moved straight onto it when the current job is acknowledged.
+   *
+   * @param curQueue the queue the current job came from
+   * @return the JSON string of the next claimed job, or an empty string if there is none
+   */
+  protected String nextClaimedPayload(final String curQueue) {
+    final KeyValue<String, String> next = this.claimedJobs.peekFirst();
+    return (next != null
+            && next.getKey().equals(curQueue)
+            && JobExecutor.State.RUNNING.equals(this.state.get()))
+        ? next.getValue()
+        : "";
+  }
+
   /**
    * Handle an exception that was thrown from inside {@link #poll()}.
    *
@@ -298,8 +1384,11 @@ public abstract class AbstractWorker implements Worker {
   @Override
   public void togglePause(final boolean paused) {
     this.paused.set(paused);
-    synchronized (this.paused) {
-      this.paused.notifyAll();
+    this.pauseLock.lock();
+    try {
+      this.unpaused.signalAll();
+    } finally {
+      this.pauseLock.unlock();
     }
   }
 
@@ -308,82 +1397,378 @@ public abstract class AbstractWorker implements Worker {
     return this.name;
   }
 
-  @Override
-  public WorkerEventEmitter getWorkerEventEmitter() {
-    return this.listenerDelegate;
+  @Override
+  public WorkerEventEmitter getWorkerEventEmitter() {
+    return this.listenerDelegate;
+  }
+
+  @Override
+  public Collection<String> getQueues() {
+    return Collections.unmodifiableCollection(this.queueNames);
+  }
+
+  @Override
+  public void addQueue(final String queueName) {
+    if (queueName == null || "".equals(queueName)) {
+      throw new IllegalArgumentException("queueName must not be null or empty: " + queueName);
+    }
+    this.queueNames.addAll(partitionsOf(queueName));
+    this.priorityQueueSnapshot.set(null);
+  }
+
+  @Override
+  public void removeQueue(final String queueName, final boolean all) {
+    if (queueName == null || "".equals(queueName)) {
+      throw new IllegalArgumentException("queueName must not be null or empty: " + queueName);
+    }
+    for (final String partition : partitionsOf(queueName)) {
+      if (all) { // Remove all instances
+        boolean tryAgain = true;
+        while (tryAgain) {
+          tryAgain = this.queueNames.remove(partition);
+        }
+      } else { // Only remove one instance
+        this.queueNames.remove(partition);
+      }
+    }
+    this.priorityQueueSnapshot.set(null);
+  }
+
+  @Override
+  public void removeAllQueues() {
+    this.queueNames.clear();
+    this.priorityQueueSnapshot.set(null);
+  }
+
+  @Override
+  public void setQueues(final Collection<String> queues) {
+    checkQueues(queues);
+    this.queueNames.clear();
+    this.allQueues = (queues == ALL_QUEUES);
+    if (queues == ALL_QUEUES) { // Using object equality on purpose
+      this.queueNames.addAll(getJedis().smembers(key(QUEUES)));
+    } else {
+      for (final String queue : queues) {
+        this.queueNames.addAll(partitionsOf(queue));
+      }
+    }
+    this.priorityQueueSnapshot.set(null);
+  }
+
+  /**
+   * Expand a queue into the partitions it is split into, see {@link
+   * Config.Builder#withQueuePartitions(String, int)}. Each worker starts at a different partition,
+   * so that workers draining the queue spread over its partitions rather than contending on the
+   * first one.
+   *
+   * @param queueName the name of a queue
+   * @return the names of the queue's partitions starting at this worker's, or just the queue if it
+   *     is not partitioned
+   */
+  protected List<String> partitionsOf(final String queueName) {
+    final int partitions = this.config.getPartitionCount(queueName);
+    if (partitions < 2) {
+      return Collections.singletonList(queueName);
+    }
+    final int start = (int) Math.floorMod(this.workerId, (long) partitions);
+    final List<String> names = new ArrayList<>(partitions);
+    for (int i = 0; i < partitions; i++) {
+      names.add(JesqueUtils.createPartitionName(queueName, (start + i) % partitions));
+    }
+    return names;
+  }
+
+  @Override
+  public JobFactory getJobFactory() {
+    return this.jobFactory;
+  }
+
+  @Override
+  public ExceptionHandler getExceptionHandler() {
+    return this.exceptionHandlerRef.get();
+  }
+
+  @Override
+  public void setExceptionHandler(final ExceptionHandler exceptionHandler) {
+    if (exceptionHandler == null) {
+      throw new IllegalArgumentException("exceptionHandler must not be null");
+    }
+    this.exceptionHandlerRef.set(exceptionHandler);
+  }
+
+  public FailQueueStrategy getFailQueueStrategy() {
+    return this.failQueueStrategyRef.get();
+  }
+
+  public void setFailQueueStrategy(final FailQueueStrategy failQueueStrategy) {
+    if (failQueueStrategy == null) {
+      throw new IllegalArgumentException("failQueueStrategy must not be null");
+    }
+    this.failQueueStrategyRef.set(failQueueStrategy);
+  }
+
+  /**
+   * @return how long an idle worker blocks waiting for a job, or null if blocking pops are disabled
+   */
+  public Duration getBlockingPopTimeout() {
+    return this.blockingPopTimeoutRef.get();
+  }
+
+  /**
+   * Enable/disable blocking pops. When enabled, a worker that finds all of its queues empty waits
+   * on them with <code>BLMOVE</code>/<code>BLMPOP</code> for up to the given timeout instead of
+   * sleeping for a fixed interval, so jobs are picked up as soon as they are enqueued. Queues that
+   * cannot be waited on (e.g. delayed queues) fall back to the fixed sleep. (Disabled by default)
+   *
+   * @param blockingPopTimeout how long to wait for a job; null or zero disables blocking pops
+   * @throws IllegalArgumentException if the timeout is negative
+   */
+  public void setBlockingPopTimeout(final Duration blockingPopTimeout) {
+    if (blockingPopTimeout != null && blockingPopTimeout.isNegative()) {
+      throw new IllegalArgumentException(
+          "blockingPopTimeout must not be negative: " + blockingPopTimeout);
+    }
+    this.blockingPopTimeoutRef.set(
+        (blockingPopTimeout == null || blockingPopTimeout.isZero()) ? null : blockingPopTimeout);
+  }
+
+  /**
+   * @return true if a worker with several queues blocks on all of them at once
+   */
+  public boolean isBlockingPopAcrossQueues() {
+    return this.blockingPopAcrossQueues.get();
+  }
+
+  /**
+   * Enable/disable blocking pops across several queues. A single queue is waited on with <code>
+   * BLMOVE</code>, which moves the job straight into the in-flight list, but several queues can
+   * only be waited on with <code>BLMPOP</code>, after which the job is recorded in flight by a
+   * second command. A job is lost if the worker dies between the two, so a worker with several
+   * queues polls them instead unless this is enabled. (Disabled by default)
+   *
+   * @param blockingPopAcrossQueues true to accept the window and block on several queues at once
+   */
+  public void setBlockingPopAcrossQueues(final boolean blockingPopAcrossQueues) {
+    this.blockingPopAcrossQueues.set(blockingPopAcrossQueues);
+  }
+
+  /**
+   * @return the strategy deciding how long to wait between polls of empty queues
+   */
+  public BackoffStrategy getBackoffStrategy() {
+    return this.backoffStrategyRef.get();
+  }
+
+  /**
+   * Set the strategy deciding how long to wait between polls of empty queues. (Defaults to a fixed
+   * 500ms; see {@link DecorrelatedJitterBackoffStrategy} to back off exponentially instead)
+   *
+   * @param backoffStrategy the backoff strategy
+   * @throws IllegalArgumentException if the strategy is null
+   */
+  public void setBackoffStrategy(final BackoffStrategy backoffStrategy) {
+    if (backoffStrategy == null) {
+      throw new IllegalArgumentException("backoffStrategy must not be null");
+    }
+    this.backoffStrategyRef.set(backoffStrategy);
+  }
+
+  /**
+   * @return how long, in milliseconds, this worker last waited after finding its queues empty, or 0
+   *     if its last poll found a job
+   */
+  public long getCurrentBackoff() {
+    return this.currentBackoff.get();
+  }
+
+  /**
+   * @return the maximum number of jobs claimed from a queue by a single pop
+   */
+  public int getBatchSize() {
+    return this.batchSize.get();
+  }
+
+  /**
+   * Set the maximum number of jobs claimed from a queue by a single pop. Claimed jobs are moved to
+   * the worker's in-flight list in one round-trip and processed in order; any that are still
+   * unprocessed when the worker stops are pushed back onto the head of their queue. Batches are
+   * only claimed with the DRAIN_WHILE_MESSAGES_EXISTS and ADAPTIVE_HIT_RATE strategies and from
+   * non-delayed queues, since the other strategies must pick the queue again before every job.
+   * (Default is 1)
+   *
+   * @param batchSize the maximum number of jobs to claim at once
+   * @throws IllegalArgumentException if the batch size is less than one
+   */
+  public void setBatchSize(final int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be at least 1: " + batchSize);
+    }
+    this.batchSize.set(batchSize);
+  }
+
+  /**
+   * @return true if a worker listening to all queues only polls the queues that have jobs
+   */
+  public boolean isReadyQueuesOnly() {
+    return this.readyQueuesOnly.get();
+  }
+
+  /**
+   * Enable/disable polling only the queues that have jobs. When enabled, a worker created with
+   * {@link Worker#ALL_QUEUES} polls the queues in the ready queues set, which clients add a queue
+   * to when they enqueue a job and pop scripts remove it from when they empty it. The set is
+   * re-read every second, or before every poll while the worker is idle, so new queues are picked
+   * up without restarting the worker. Jobs enqueued by clients that do not maintain the set (e.g.
+   * Resque) are not seen until a Jesque client adds to the same queue. Workers with an explicit
+   * list of queues are not affected. In the cluster key layout the pop scripts cannot reach the
+   * set, so queues stay in it once added. (Disabled by default)
+   *
+   * @param readyQueuesOnly whether to poll only the queues that have jobs
+   */
+  public void setReadyQueuesOnly(final boolean readyQueuesOnly) {
+    this.readyQueuesOnly.set(readyQueuesOnly);
   }
 
-  @Override
-  public Collection<String> getQueues() {
-    return Collections.unmodifiableCollection(this.queueNames);
+  /**
+   * @param queueName the name of a queue
+   * @return true if the queue is read from a Redis stream
+   */
+  public boolean isStreamQueue(final String queueName) {
+    return queueName != null && this.streamQueues.contains(queueName);
   }
 
-  @Override
-  public void addQueue(final String queueName) {
+  /**
+   * Read jobs for the given queue from a Redis stream through a consumer group shared by all
+   * workers, rather than popping them from a list. Clients must be told the queue is a stream
+   * queue too. Jobs are acknowledged once processed and those left unacknowledged for the claim
+   * idle time, e.g. by a worker that died, are taken over by another worker, so no in-flight list
+   * is kept. A blocking pop waits on stream queues only if every polled queue is one. (Disabled by
+   * default)
+   *
+   * @param queueName the name of the queue
+   * @param streamQueue whether the queue is a stream queue
+   * @throws IllegalArgumentException if the queue is null or empty
+   * @throws IllegalStateException if the worker's strategy looks inside the queues it polls, i.e.
+   *     RESET_TO_HIGHEST_PRIORITY or EARLIEST_DEADLINE_FIRST, since it cannot see into streams
+   */
+  public void setStreamQueue(final String queueName, final boolean streamQueue) {
     if (queueName == null || "".equals(queueName)) {
       throw new IllegalArgumentException("queueName must not be null or empty: " + queueName);
     }
-    this.queueNames.add(queueName);
-  }
-
-  @Override
-  public void removeQueue(final String queueName, final boolean all) {
-    if (queueName == null || "".equals(queueName)) {
-      throw new IllegalArgumentException("queueName must not be null or empty: " + queueName);
+    if (streamQueue && this.config.isOrderedQueue(queueName)) {
+      throw new IllegalStateException(queueName + " is an ordered queue, which cannot be a stream");
     }
-    if (all) { // Remove all instances
-      boolean tryAgain = true;
-      while (tryAgain) {
-        tryAgain = this.queueNames.remove(queueName);
-      }
-    } else { // Only remove one instance
-      this.queueNames.remove(queueName);
+    if (streamQueue && this.config.isTenantQueue(queueName)) {
+      throw new IllegalStateException(queueName + " is a tenant queue, which cannot be a stream");
+    }
+    if (streamQueue
+        && (NextQueueStrategy.RESET_TO_HIGHEST_PRIORITY.equals(this.nextQueueStrategy)
+            || NextQueueStrategy.EARLIEST_DEADLINE_FIRST.equals(this.nextQueueStrategy))) {
+      throw new IllegalStateException(
+          "Stream queues cannot be polled with the " + this.nextQueueStrategy + " strategy");
+    }
+    if (streamQueue) {
+      this.streamQueues.add(queueName);
+      this.streamQueues.addAll(partitionsOf(queueName));
+    } else {
+      this.streamQueues.remove(queueName);
+      this.streamQueues.removeAll(partitionsOf(queueName));
     }
   }
 
-  @Override
-  public void removeAllQueues() {
-    this.queueNames.clear();
+  /**
+   * @return how long a stream queue's job may go unacknowledged before another worker takes it
+   */
+  public Duration getStreamClaimIdleTime() {
+    return this.streamClaimIdleTimeRef.get();
   }
 
-  @Override
-  public void setQueues(final Collection<String> queues) {
-    checkQueues(queues);
-    this.queueNames.clear();
-    if (queues == ALL_QUEUES) { // Using object equality on purpose
-      this.queueNames.addAll(getJedis().smembers(key(QUEUES)));
-    } else {
-      this.queueNames.addAll(queues);
+  /**
+   * Set how long a stream queue's job may go unacknowledged before another worker takes it over.
+   * It must be longer than any job takes to run, or slow jobs will be run twice. (Default is 5
+   * minutes)
+   *
+   * @param streamClaimIdleTime the claim idle time
+   * @throws IllegalArgumentException if the claim idle time is null or shorter than a millisecond
+   */
+  public void setStreamClaimIdleTime(final Duration streamClaimIdleTime) {
+    if (streamClaimIdleTime == null || streamClaimIdleTime.toMillis() < 1) {
+      throw new IllegalArgumentException(
+          "streamClaimIdleTime must be at least 1ms: " + streamClaimIdleTime);
     }
+    this.streamClaimIdleTimeRef.set(streamClaimIdleTime);
   }
 
-  @Override
-  public JobFactory getJobFactory() {
-    return this.jobFactory;
+  /**
+   * @return how long this worker holds the lease on a lane of an ordered queue if it never gives
+   *     it back
+   */
+  public Duration getLaneLeaseTime() {
+    return this.laneLeaseTimeRef.get();
   }
 
-  @Override
-  public ExceptionHandler getExceptionHandler() {
-    return this.exceptionHandlerRef.get();
+  /**
+   * Set how long this worker holds the lease on a lane of an ordered queue if it dies before giving
+   * it back, after which another worker runs the lane's next job. While a job runs, the worker
+   * renews the lease every third of this time, so jobs may run for longer than it. The job of a
+   * worker that died is not run again when its lease expires: it stays in that worker's in-flight
+   * list and the lane moves on to its next job. (Default is 5 minutes)
+   *
+   * @param laneLeaseTime the lane lease time
+   * @throws IllegalArgumentException if the lease time is null or shorter than a millisecond
+   */
+  public void setLaneLeaseTime(final Duration laneLeaseTime) {
+    if (laneLeaseTime == null || laneLeaseTime.toMillis() < 1) {
+      throw new IllegalArgumentException("laneLeaseTime must be at least 1ms: " + laneLeaseTime);
+    }
+    this.laneLeaseTimeRef.set(laneLeaseTime);
   }
 
-  @Override
-  public void setExceptionHandler(final ExceptionHandler exceptionHandler) {
-    if (exceptionHandler == null) {
-      throw new IllegalArgumentException("exceptionHandler must not be null");
-    }
-    this.exceptionHandlerRef.set(exceptionHandler);
+  /**
+   * @return how long this worker holds a permit of a concurrency limit if it never gives it back
+   */
+  public Duration getPermitLeaseTime() {
+    return this.permitLeaseTimeRef.get();
   }
 
-  public FailQueueStrategy getFailQueueStrategy() {
-    return this.failQueueStrategyRef.get();
+  /**
+   * Set how long this worker holds a permit of a concurrency limit if it dies before giving it
+   * back, after which the permit is free for another worker's job. The permits are renewed every
+   * third of this time while their job runs, so it only needs to outlast a pause in renewing them,
+   * e.g. a lost connection. (Default is 5 minutes)
+   *
+   * @param permitLeaseTime the permit lease time
+   * @throws IllegalArgumentException if the lease time is null or shorter than a millisecond
+   */
+  public void setPermitLeaseTime(final Duration permitLeaseTime) {
+    if (permitLeaseTime == null || permitLeaseTime.toMillis() < 1) {
+      throw new IllegalArgumentException(
+          "permitLeaseTime must be at least 1ms: " + permitLeaseTime);
+    }
+    this.permitLeaseTimeRef.set(permitLeaseTime);
   }
 
-  public void setFailQueueStrategy(final FailQueueStrategy failQueueStrategy) {
-    if (failQueueStrategy == null) {
-      throw new IllegalArgumentException("failQueueStrategy must not be null");
+  /**
+   * Replace the polled queues with the ready queues set if this worker listens to all queues and
+   * only polls the ready ones.
+   */
+  protected void refreshReadyQueues() {
+    if (!this.allQueues || !this.readyQueuesOnly.get()) {
+      return;
+    }
+    final long now = System.currentTimeMillis();
+    if (this.currentBackoff.get() == 0
+        && now - this.lastReadyQueuesRefresh < READY_QUEUES_REFRESH_TIME) {
+      return;
+    }
+    this.lastReadyQueuesRefresh = now;
+    final Set<String> readyQueues = getJedis().smembers(key(READY_QUEUES));
+    // Leave the queues alone if they have not changed so that strategies keep their place
+    if (!readyQueues.equals(new HashSet<>(this.queueNames))) {
+      this.queueNames.clear();
+      this.queueNames.addAll(readyQueues);
+      this.priorityQueueSnapshot.set(null);
     }
-    this.failQueueStrategyRef.set(failQueueStrategy);
   }
 
   @Override
@@ -394,9 +1779,125 @@ public abstract class AbstractWorker implements Worker {
     }
   }
 
+  /**
+   * @param queueName the queue, or one of its partitions
+   * @return the share of dequeue attempts the queue gets with WEIGHTED_ROUND_ROBIN; a partition
+   *     gets its own weight if one was set, otherwise the weight of its queue divided by the number
+   *     of partitions, but at least 1
+   */
+  public int getQueueWeight(final String queueName) {
+    final Integer weight = this.queueWeights.get(queueName);
+    if (weight != null) {
+      return weight;
+    }
+    final String queue =
+        JesqueUtils.partitionedQueueName(queueName, this.config.getPartitionedQueues());
+    final Integer queueWeight = queue.equals(queueName) ? null : this.queueWeights.get(queue);
+    if (queueWeight == null) {
+      return 1;
+    }
+    return Math.max(1, queueWeight / this.config.getPartitionCount(queue));
+  }
+
+  /**
+   * Set the share of dequeue attempts a queue gets with WEIGHTED_ROUND_ROBIN. For example, weights
+   * of 7, 2 and 1 poll the three queues in a 70/20/10 split. An attempt that finds its queue empty
+   * moves on to the next queue, so a busy queue only gets more than its share while the others are
+   * idle. The weight of a partitioned queue is split evenly between its partitions. (Default is 1)
+   *
+   * @param queueName the queue
+   * @param weight the weight of the queue
+   * @throws IllegalArgumentException if the queue is null or empty or the weight is less than one
+   */
+  public void setQueueWeight(final String queueName, final int weight) {
+    if (queueName == null || "".equals(queueName)) {
+      throw new IllegalArgumentException("queueName must not be null or empty: " + queueName);
+    }
+    if (weight < 1) {
+      throw new IllegalArgumentException("weight must be at least 1: " + weight);
+    }
+    this.queueWeights.put(queueName, weight);
+  }
+
+  /**
+   * @param queueName the queue, or one of its partitions
+   * @return how soon after being enqueued the queue's jobs should be picked up with
+   *     EARLIEST_DEADLINE_FIRST, or null if the queue has no target; a partition has its own target
+   *     if one was set, otherwise that of its queue
+   */
+  public Duration getQueueLatencyTarget(final String queueName) {
+    final Duration target = this.queueLatencyTargets.get(queueName);
+    if (target != null) {
+      return target;
+    }
+    return this.queueLatencyTargets.get(
+        JesqueUtils.partitionedQueueName(queueName, this.config.getPartitionedQueues()));
+  }
+
+  /**
+   * Set how soon after being enqueued a queue's jobs should be picked up. With
+   * EARLIEST_DEADLINE_FIRST, the worker polls the queue whose next job is closest to (or furthest
+   * past) its target. (No target by default)
+   *
+   * @param queueName the queue
+   * @param latencyTarget the latency target of the queue; null removes the target
+   * @throws IllegalArgumentException if the queue is null or empty or the target is negative
+   */
+  public void setQueueLatencyTarget(final String queueName, final Duration latencyTarget) {
+    if (queueName == null || "".equals(queueName)) {
+      throw new IllegalArgumentException("queueName must not be null or empty: " + queueName);
+    }
+    if (latencyTarget == null) {
+      this.queueLatencyTargets.remove(queueName);
+    } else if (latencyTarget.isNegative()) {
+      throw new IllegalArgumentException("latencyTarget must not be negative: " + latencyTarget);
+    } else {
+      this.queueLatencyTargets.put(queueName, latencyTarget);
+    }
+  }
+
   protected boolean shouldSleep(final int missCount) {
-    return (NextQueueStrategy.RESET_TO_HIGHEST_PRIORITY.equals(this.nextQueueStrategy)
-        || (missCount >= this.queueNames.size()));
+    return switch (this.nextQueueStrategy) {
+      // Every queue was looked at before picking the one that missed
+      case RESET_TO_HIGHEST_PRIORITY -> true;
+      // A queue may have a job that could not be taken, e.g. for want of a permit, so the others
+      // are tried before giving up
+      case EARLIEST_DEADLINE_FIRST -> this.missedQueues.containsAll(this.queueNames);
+      // Every queue has been tried once each distinct queue has missed, however heavy
+      case WEIGHTED_ROUND_ROBIN -> this.missedQueues.containsAll(this.queueNames);
+      // A round that found a job anywhere is followed straight away by the next
+      case ADAPTIVE_HIT_RATE -> this.adaptiveQueueOrder.isRoundMissed();
+      default -> missCount >= this.queueNames.size();
+    };
+  }
+
+  /**
+   * Pick the next queue with smooth weighted round-robin: every queue's running weight grows by its
+   * weight, the queue with the largest running weight is chosen and its running weight is reduced
+   * by the total. This interleaves the queues instead of polling each in a burst.
+   *
+   * @return the next queue to poll, or null if there are no queues
+   */
+  protected String nextWeightedQueue() {
+    final Collection<String> queues = new LinkedHashSet<>(this.queueNames);
+    this.currentQueueWeights.keySet().retainAll(queues);
+    String nextQueue = null;
+    long best = Long.MIN_VALUE;
+    long total = 0;
+    for (final String queue : queues) {
+      final int weight = getQueueWeight(queue);
+      final long current = this.currentQueueWeights.getOrDefault(queue, 0L) + weight;
+      this.currentQueueWeights.put(queue, current);
+      total += weight;
+      if (current > best) {
+        best = current;
+        nextQueue = queue;
+      }
+    }
+    if (nextQueue != null) {
+      this.currentQueueWeights.put(nextQueue, best - total);
+    }
+    return nextQueue;
   }
 
   protected String getNextQueue() throws InterruptedException {
@@ -409,96 +1910,351 @@ public abstract class AbstractWorker implements Worker {
         }
         yield nextPollQueue;
       }
-      case RESET_TO_HIGHEST_PRIORITY -> JesqueUtils.join(",", this.queueNames);
+      case RESET_TO_HIGHEST_PRIORITY -> getPriorityQueueSnapshot().joinedQueues;
+      case WEIGHTED_ROUND_ROBIN, EARLIEST_DEADLINE_FIRST, ADAPTIVE_HIT_RATE -> {
+        final String nextQueue =
+            switch (this.nextQueueStrategy) {
+              case WEIGHTED_ROUND_ROBIN -> nextWeightedQueue();
+              case EARLIEST_DEADLINE_FIRST -> nextDeadlineQueue();
+              default -> this.adaptiveQueueOrder.next(this.queueNames);
+            };
+        if (nextQueue == null) {
+          // Wait for a queue to be added like DRAIN_WHILE_MESSAGES_EXISTS does
+          Thread.sleep(EMPTY_QUEUE_SLEEP_TIME);
+        }
+        yield nextQueue;
+      }
       default -> throw new RuntimeException("Unimplemented 'nextQueueStrategy'");
     };
   }
 
+  /**
+   * Peek at the head of every queue, in one round-trip unless the cluster key layout is used, and
+   * pick the queue whose next job has the earliest deadline, i.e. the time it was enqueued (or
+   * became due, for delayed queues) plus the queue's latency target. Ties go to the queue listed
+   * first. Queues that missed since the last hit are passed over, so that a queue whose head job
+   * cannot be taken, e.g. for want of a token or permit or because its lane is leased, does not
+   * hide the others; queues found to have no job ready count as missed too.
+   *
+   * @return the queue to poll next, the first queue not yet missed if none has a job ready, or null
+   *     if there are no queues
+   */
+  protected String nextDeadlineQueue() {
+    final List<String> queues = new ArrayList<>(new LinkedHashSet<>(this.queueNames));
+    if (queues.isEmpty()) {
+      return null;
+    }
+    if (!this.missedQueues.containsAll(queues)) {
+      queues.removeAll(this.missedQueues);
+    }
+    final List<String> keys = new ArrayList<>(queues.size());
+    for (final String queue : queues) {
+      keys.add(queueKey(QUEUE, queue));
+    }
+    final List<String> args = Collections.singletonList(Long.toString(System.currentTimeMillis()));
+    final List<Long> enqueuedAts;
+    if (this.config.isClusterKeys()) {
+      // The queues may be on different shards, so peek at each one separately
+      enqueuedAts = new ArrayList<>(keys.size());
+      for (final String key : keys) {
+        @SuppressWarnings("unchecked")
+        final List<Long> enqueuedAt =
+            (List<Long>)
+                evalIdempotentScript(this.peekScriptHash, Collections.singletonList(key), args);
+        enqueuedAts.add((enqueuedAt == null || enqueuedAt.isEmpty()) ? -1L : enqueuedAt.get(0));
+      }
+    } else {
+      @SuppressWarnings("unchecked")
+      final List<Long> peeked =
+          (List<Long>) evalIdempotentScript(this.peekScriptHash, keys, args);
+      enqueuedAts = peeked;
+    }
+    String nextQueue = queues.get(0);
+    long earliestDeadline = Long.MAX_VALUE;
+    boolean found = false;
+    for (int i = 0; enqueuedAts != null && i < enqueuedAts.size() && i < queues.size(); i++) {
+      final long enqueuedAt = enqueuedAts.get(i);
+      if (enqueuedAt < 0) {
+        this.missedQueues.add(queues.get(i));
+        continue;
+      }
+      final Duration target = getQueueLatencyTarget(queues.get(i));
+      final long deadline = (target == null) ? Long.MAX_VALUE : enqueuedAt + target.toMillis();
+      if (!found || deadline < earliestDeadline) {
+        found = true;
+        earliestDeadline = deadline;
+        nextQueue = queues.get(i);
+      }
+    }
+    return nextQueue;
+  }
+
+  /**
+   * @return the snapshot of the queues polled in priority order, building it if the queues have
+   *     changed since it was last used
+   */
+  protected PriorityQueueSnapshot getPriorityQueueSnapshot() {
+    PriorityQueueSnapshot snapshot = this.priorityQueueSnapshot.get();
+    if (snapshot == null) {
+      final List<String> queues = new ArrayList<>(new LinkedHashSet<>(this.queueNames));
+      final List<String> queueKeys = new ArrayList<>(queues.size() * 2);
+      for (final String queue : queues) {
+        queueKeys.add(queueKey(QUEUE, queue));
+      }
+      // The script promotes delayed jobs from each queue's buckets, so their keys are declared too
+      for (final String queue : queues) {
+        queueKeys.add(queueKey(QUEUE, queue, BUCKETS));
+      }
+      snapshot =
+          new PriorityQueueSnapshot(queues, queueKeys, JesqueUtils.join(",", this.queueNames));
+      this.priorityQueueSnapshot.compareAndSet(null, snapshot);
+    }
+    return snapshot;
+  }
+
+  /**
+   * The distinct queues polled by RESET_TO_HIGHEST_PRIORITY in priority order, their keys and the
+   * last known Redis type of each, so that the priority pop script needs neither to parse the queue
+   * names nor to look up the type of every queue on each poll.
+   */
+  protected static final class PriorityQueueSnapshot {
+
+    protected final List<String> queues;
+    // The key of each queue, then the key of each queue's buckets
+    protected final List<String> queueKeys;
+    protected final String joinedQueues;
+    // Only updated by the polling thread; "" means the type is not known yet
+    protected final String[] queueTypes;
+
+    protected PriorityQueueSnapshot(
+        final List<String> queues, final List<String> queueKeys, final String joinedQueues) {
+      this.queues = Collections.unmodifiableList(queues);
+      this.queueKeys = Collections.unmodifiableList(queueKeys);
+      this.joinedQueues = joinedQueues;
+      this.queueTypes = new String[queues.size()];
+      Arrays.fill(this.queueTypes, "");
+    }
+  }
+
+  /**
+   * Record whether polling a queue found a job, for strategies that learn from it.
+   *
+   * @param curQueue the queue that was polled
+   * @param hit whether a job was found
+   */
+  protected void recordPoll(final String curQueue, final boolean hit) {
+    if (NextQueueStrategy.ADAPTIVE_HIT_RATE.equals(this.nextQueueStrategy)) {
+      this.adaptiveQueueOrder.record(curQueue, hit);
+    }
+  }
+
   protected void poll() {
     int missCount = 0;
     String curQueue = null;
-    while (JobExecutor.State.RUNNING.equals(this.state.get())) {
-      try {
-        if (threadNameChangingEnabled) {
-          renameThread("Waiting for " + JesqueUtils.join(",", this.queueNames));
-        }
-        curQueue = getNextQueue();
-        if (curQueue != null) {
-          checkPaused();
-          if (JobExecutor.State.RUNNING.equals(this.state.get())) {
-            this.listenerDelegate.fireEvent(WORKER_POLL, this, curQueue, null, null, null, null);
-            final String payload = pop(curQueue);
-            if (payload != null) {
-              process(ObjectMapperFactory.get().readValue(payload, Job.class), curQueue);
-              missCount = 0;
-            } else {
-              missCount++;
-              if (shouldSleep(missCount) && JobExecutor.State.RUNNING.equals(this.state.get())) {
+    try {
+      while (JobExecutor.State.RUNNING.equals(this.state.get())) {
+        try {
+          final KeyValue<String, String> claimed = this.claimedJobs.peekFirst();
+          if (claimed != null) {
+            curQueue = claimed.getKey();
+            checkPaused();
+            if (JobExecutor.State.RUNNING.equals(this.state.get())) {
+              this.claimedJobs.pollFirst();
+              dispatch(curQueue, claimed.getValue());
+            }
+            continue;
+          }
+          if (threadNameChangingEnabled) {
+            renameThread("Waiting for " + JesqueUtils.join(",", this.queueNames));
+          }
+          refreshReadyQueues();
+          curQueue = getNextQueue();
+          if (curQueue != null) {
+            checkPaused();
+            if (JobExecutor.State.RUNNING.equals(this.state.get())) {
+              this.listenerDelegate.fireEvent(WORKER_POLL, this, curQueue, null, null, null, null);
+              final String payload = pop(curQueue);
+              recordPoll(curQueue, payload != null);
+              if (payload != null) {
+                this.currentBackoff.set(0);
+                dispatch(curQueue, payload);
                 missCount = 0;
-                Thread.sleep(EMPTY_QUEUE_SLEEP_TIME);
+                this.missedQueues.clear();
+              } else {
+                missCount++;
+                this.missedQueues.add(curQueue);
+                if (shouldSleep(missCount) && JobExecutor.State.RUNNING.equals(this.state.get())) {
+                  missCount = 0;
+                  this.missedQueues.clear();
+                  if (this.blockingPopTimeoutRef.get() == null) {
+                    backoff();
+                  } else {
+                    final KeyValue<String, String> popped = blockingPop(curQueue);
+                    if (popped != null) {
+                      this.currentBackoff.set(0);
+                      curQueue = popped.getKey();
+                      // Blocking pops cannot record the status server-side
+                      markWorking(curQueue, popped.getValue());
+                      dispatch(curQueue, popped.getValue());
+                    }
+                  }
+                }
               }
             }
           }
+        } catch (InterruptedException ie) {
+          if (!isShutdown()) {
+            recoverFromException(curQueue, ie);
+          }
+        } catch (StreamReadException | DatabindException e) {
+          removeInFlight(curQueue, true);
+          getJedis().del(key(WORKER, this.name));
+          recoverFromException(curQueue, e);
+        } catch (Exception e) {
+          recoverFromException(curQueue, e);
         }
-      } catch (InterruptedException ie) {
-        if (!isShutdown()) {
-          recoverFromException(curQueue, ie);
-        }
-      } catch (StreamReadException | DatabindException e) {
-        removeInFlight(curQueue, true);
-        recoverFromException(curQueue, e);
-      } catch (Exception e) {
-        recoverFromException(curQueue, e);
       }
+    } finally {
+      // Jobs claimed but not started go back even if the loop ends abnormally
+      requeueClaimed();
     }
   }
 
+  /**
+   * Wait before polling again after finding the queues empty, for as long as the backoff strategy
+   * decides given the previous wait.
+   *
+   * @throws InterruptedException if the thread was interrupted while waiting
+   */
+  protected void backoff() throws InterruptedException {
+    final long delay = this.backoffStrategyRef.get().nextDelay(this.currentBackoff.get());
+    this.currentBackoff.set(delay);
+    Thread.sleep(delay);
+  }
+
   private void checkPaused() throws IOException {
     if (this.paused.get()) {
-      synchronized (this.paused) {
+      this.pauseLock.lock();
+      try {
         if (this.paused.get()) {
           getJedis().set(key(WORKER, name), pauseMsg());
         }
         while (this.paused.get()) {
           try {
-            this.paused.wait();
+            this.unpaused.await();
           } catch (InterruptedException ie) {
             LOG.warn("Worker interrupted", ie);
           }
         }
         getJedis().del(key(WORKER, name));
+      } finally {
+        this.pauseLock.unlock();
       }
     }
   }
 
   /**
-   * Materializes and executes the given job.
+   * Hand off a claimed job for processing. By default the job is processed on the polling thread;
+   * subclasses may override this to process it elsewhere.
+   *
+   * @param curQueue the queue the payload came from
+   * @param payload the JSON string of the claimed job, which is in the in-flight list
+   * @throws InterruptedException if the thread was interrupted while handing off the job
+   */
+  protected void dispatch(final String curQueue, final String payload) throws InterruptedException {
+    process(ObjectMapperFactory.get().readValue(payload, Job.class), curQueue);
+  }
+
+  /**
+   * Materializes and executes the given job. The worker's status is expected to have been recorded
+   * when the job was claimed. If the job returns a {@link CompletionStage}, this thread waits for
+   * it to complete; {@link PipelinedWorkerImpl} releases the thread instead.
    *
    * @param job the Job to process
    * @param curQueue the queue the payload came from
    */
   protected void process(final Job job, final String curQueue) {
     boolean success = false;
+    this.outcomeRecorded = false;
     try {
       this.processingJob.set(true);
       if (threadNameChangingEnabled) {
         renameThread("Processing " + curQueue + " since " + System.currentTimeMillis());
       }
       this.listenerDelegate.fireEvent(JOB_PROCESS, this, curQueue, job, null, null, null);
-      getJedis().set(key(WORKER, name), statusMsg(curQueue, job));
       final Object instance = this.jobFactory.materializeJob(job);
-      final Object result = execute(job, curQueue, instance);
+      final Object result = awaitCompletion(execute(job, curQueue, instance));
       success(job, instance, result, curQueue);
       success = true;
     } catch (Throwable thrwbl) {
       failure(thrwbl, job, curQueue);
     } finally {
-      removeInFlight(curQueue, success);
-      getJedis().del(key(WORKER, name));
+      if (!this.outcomeRecorded) {
+        cleanUpUnrecorded(curQueue, success);
+      }
       this.processingJob.set(false);
     }
   }
 
+  /**
+   * Remove the job from the in-flight list and clear the worker's status when the ack or nack
+   * script did not complete, e.g. because of a Redis error, so that neither is left behind.
+   *
+   * @param curQueue the queue the job came from
+   * @param success whether the job succeeded, in which case it is never requeued
+   */
+  protected void cleanUpUnrecorded(final String curQueue, final boolean success) {
+    try {
+      removeInFlight(curQueue, success);
+      getJedis().del(key(WORKER, this.name));
+    } catch (JedisException je) {
+      LOG.warn("Error cleaning up after job from queue=" + curQueue, je);
+    }
+  }
+
+  /**
+   * Wait for the result of a job that returned a {@link CompletionStage}, so that it is recorded as
+   * a success or failure according to the stage's outcome. Other results are returned as-is.
+   *
+   * @param result the value returned by the job
+   * @return the value the stage completed with, or the given result if it is not a stage
+   * @throws Exception if the stage completed exceptionally, or the wait was interrupted
+   */
+  protected static Object awaitCompletion(final Object result) throws Exception {
+    if (!(result instanceof CompletionStage)) {
+      return result;
+    }
+    final CompletableFuture<?> stage = ((CompletionStage<?>) result).toCompletableFuture();
+    try {
+      return stage.get();
+    } catch (InterruptedException ie) {
+      stage.cancel(true);
+      throw ie;
+    } catch (ExecutionException ee) {
+      final Throwable cause = unwrapCompletionException(ee);
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw ee;
+    }
+  }
+
+  /**
+   * @param thrwbl the exception a stage completed with
+   * @return the exception thrown by the job itself, without the wrappers added by the stage
+   */
+  protected static Throwable unwrapCompletionException(final Throwable thrwbl) {
+    Throwable cause = thrwbl;
+    while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+        && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    return cause;
+  }
+
   /**
    * Executes the given job.
    *
@@ -531,7 +2287,8 @@ public abstract class AbstractWorker implements Worker {
   }
 
   /**
-   * Update the status in Redis on success.
+   * Update the status in Redis on success. Removes the job from the in-flight list, updates the
+   * processed stats and clears the worker's status in a single call.
    *
    * @param job the Job that succeeded
    * @param runner the materialized Job
@@ -541,52 +2298,185 @@ public abstract class AbstractWorker implements Worker {
   protected void success(
       final Job job, final Object runner, final Object result, final String curQueue) {
     try {
-      getJedis().incr(key(STAT, PROCESSED));
-      getJedis().incr(key(STAT, PROCESSED, name));
+      final String nextPayload = nextClaimedPayload(curQueue);
+      if (isStreamQueue(curQueue)) {
+        evalScript(
+            this.streamAckScriptHash,
+            scriptKeys(
+                Collections.singletonList(queueKey(STREAM, curQueue)),
+                key(WORKER, this.name),
+                key(STAT, PROCESSED),
+                key(STAT, PROCESSED, this.name)),
+            Arrays.asList(
+                STREAM_GROUP,
+                String.valueOf(job.getUnknownField(STREAM_ID)),
+                curQueue,
+                nextPayload));
+      } else {
+        evalScript(
+            this.ackScriptHash,
+            scriptKeys(
+                Collections.singletonList(inFlightKey(curQueue)),
+                key(WORKER, this.name),
+                key(STAT, PROCESSED),
+                key(STAT, PROCESSED, this.name)),
+            Arrays.asList(curQueue, nextPayload));
+      }
+      this.outcomeRecorded = true;
+      if (this.config.isClusterKeys()) {
+        recordOutcome(PROCESSED, curQueue, null, "", 0, nextPayload);
+      }
+      releaseLane(curQueue);
+      releasePermits(curQueue);
     } catch (JedisException je) {
       LOG.warn("Error updating success stats for job=" + job, je);
-    } catch (Exception e) {
-      throw new RuntimeException(e);
     }
     this.listenerDelegate.fireEvent(JOB_SUCCESS, this, curQueue, job, runner, result, null);
   }
 
   /**
-   * Update the status in Redis on failure.
+   * Update the status in Redis on failure. Removes the job from the in-flight list (or requeues it
+   * if the worker is shutting down immediately), updates the failed stats, records the failure and
+   * clears the worker's status in a single call.
    *
    * @param thrwbl the Throwable that occurred
    * @param job the Job that failed
    * @param curQueue the queue the Job came from
    */
   protected void failure(final Throwable thrwbl, final Job job, final String curQueue) {
+    final FailQueueStrategy strategy = this.failQueueStrategyRef.get();
+    final String failQueueKey = strategy.getFailQueueKey(thrwbl, job, curQueue);
+    String failMsg = "";
+    int failQueueMaxItems = 0;
+    if (failQueueKey != null) {
+      try {
+        failMsg = failMsg(thrwbl, curQueue, job);
+        failQueueMaxItems = strategy.getFailQueueMaxItems(curQueue);
+      } catch (IOException ioe) {
+        LOG.warn("Error serializing failure payload for throwable=" + thrwbl + " job=" + job, ioe);
+      }
+    }
+    final boolean requeue = SHUTDOWN_IMMEDIATE.equals(this.state.get());
     try {
-      getJedis().incr(key(STAT, FAILED));
-      getJedis().incr(key(STAT, FAILED, this.name));
-      final FailQueueStrategy strategy = this.failQueueStrategyRef.get();
-      final String failQueueKey = strategy.getFailQueueKey(thrwbl, job, curQueue);
-      if (failQueueKey != null) {
-        final int failQueueMaxItems = strategy.getFailQueueMaxItems(curQueue);
-        if (failQueueMaxItems > 0) {
-          AbstractTransaction tx = createTransaction();
-          tx.rpush(failQueueKey, failMsg(thrwbl, curQueue, job));
-          tx.ltrim(failQueueKey, -failQueueMaxItems, -1);
-          tx.exec();
-        } else {
-          getJedis().rpush(failQueueKey, failMsg(thrwbl, curQueue, job));
+      final String nextPayload = nextClaimedPayload(curQueue);
+      if (isStreamQueue(curQueue)) {
+        evalScript(
+            this.streamNackScriptHash,
+            scriptKeys(
+                Collections.singletonList(queueKey(STREAM, curQueue)),
+                key(WORKER, this.name),
+                key(STAT, FAILED),
+                key(STAT, FAILED, this.name),
+                (failQueueKey == null) ? "" : failQueueKey),
+            Arrays.asList(
+                STREAM_GROUP,
+                String.valueOf(job.getUnknownField(STREAM_ID)),
+                Boolean.toString(requeue),
+                failMsg,
+                Integer.toString(failQueueMaxItems),
+                curQueue,
+                nextPayload,
+                this.name,
+                Long.toString(this.streamClaimIdleTimeRef.get().toMillis())));
+      } else {
+        if (requeue && this.config.isClusterKeys()) {
+          // Mark the queue ready before the job is back on it, since the script cannot
+          getJedis().sadd(key(READY_QUEUES), curQueue);
         }
+        evalScript(
+            this.nackScriptHash,
+            scriptKeys(
+                Arrays.asList(inFlightKey(curQueue), queueKey(QUEUE, curQueue)),
+                key(WORKER, this.name),
+                key(STAT, FAILED),
+                key(STAT, FAILED, this.name),
+                (failQueueKey == null) ? "" : failQueueKey,
+                key(READY_QUEUES)),
+            Arrays.asList(
+                Boolean.toString(requeue),
+                failMsg,
+                Integer.toString(failQueueMaxItems),
+                curQueue,
+                nextPayload));
       }
+      this.outcomeRecorded = true;
+      if (this.config.isClusterKeys()) {
+        recordOutcome(FAILED, curQueue, failQueueKey, failMsg, failQueueMaxItems, nextPayload);
+      }
+      releaseLane(curQueue);
+      releasePermits(curQueue);
     } catch (JedisException je) {
       LOG.warn("Error updating failure stats for throwable=" + thrwbl + " job=" + job, je);
-    } catch (IOException ioe) {
-      LOG.warn("Error serializing failure payload for throwable=" + thrwbl + " job=" + job, ioe);
     }
     this.listenerDelegate.fireEvent(JOB_FAILURE, this, curQueue, job, null, null, thrwbl);
   }
 
+  /**
+   * The keys to pass to a script: those in the slot of the job's queue, followed by those outside
+   * it unless the cluster key layout is used, in which case the script leaves them alone and the
+   * worker updates them with {@link #recordOutcome}.
+   *
+   * @param slotKeys the keys in the slot of the queue
+   * @param outsideKeys the keys outside it
+   * @return the keys to pass
+   */
+  protected List<String> scriptKeys(final List<String> slotKeys, final String... outsideKeys) {
+    if (this.config.isClusterKeys()) {
+      return slotKeys;
+    }
+    final List<String> keys = new ArrayList<>(slotKeys.size() + outsideKeys.length);
+    keys.addAll(slotKeys);
+    keys.addAll(Arrays.asList(outsideKeys));
+    return keys;
+  }
+
+  /**
+   * Do the bookkeeping that the ack and nack scripts leave out in the cluster key layout, since its
+   * keys are outside the slot of the job's queue: count the job, record its failure and move the
+   * worker's status onto the next claimed job. Unlike the scripts, these are separate commands.
+   *
+   * @param stat the stat to count the job in, processed or failed
+   * @param curQueue the queue the job came from
+   * @param failQueueKey the fail queue to record the failure in, or null
+   * @param failMsg the failure to record, or an empty string
+   * @param failQueueMaxItems the most failures to keep in the fail queue, or zero for no limit
+   * @param nextPayload the JSON string of the next claimed job, or an empty string
+   */
+  protected void recordOutcome(
+      final String stat,
+      final String curQueue,
+      final String failQueueKey,
+      final String failMsg,
+      final int failQueueMaxItems,
+      final String nextPayload) {
+    final JedisCommands jedis = getJedis();
+    jedis.incr(key(STAT, stat));
+    jedis.incr(key(STAT, stat, this.name));
+    if (failQueueKey != null && !failMsg.isEmpty()) {
+      jedis.rpush(failQueueKey, failMsg);
+      if (failQueueMaxItems > 0) {
+        jedis.ltrim(failQueueKey, -failQueueMaxItems, -1);
+      }
+    }
+    if (nextPayload.isEmpty()) {
+      jedis.del(key(WORKER, this.name));
+    } else {
+      markWorking(curQueue, nextPayload);
+    }
+  }
+
   protected abstract AbstractTransaction createTransaction();
 
   protected abstract JedisCommands getJedis();
 
+  /**
+   * The connection the lease watchdog uses to renew lane leases. It must be safe to use from that
+   * thread while the worker's thread runs a job.
+   *
+   * @return a connection to Redis
+   */
+  protected abstract JedisCommands getLeaseThreadJedis();
+
   /**
    * Create and serialize a JobFailure.
    *
@@ -607,6 +2497,24 @@ public abstract class AbstractWorker implements Worker {
     return ObjectMapperFactory.get().writeValueAsString(failure);
   }
 
+  /**
+   * Record that this worker is processing the given job, for pops that cannot record it in the
+   * same call.
+   *
+   * @param curQueue the queue the job came from
+   * @param payload the JSON string of the job
+   */
+  protected void markWorking(final String curQueue, final String payload) {
+    try {
+      getJedis()
+          .set(
+              key(WORKER, this.name),
+              statusMsg(curQueue, ObjectMapperFactory.get().readValue(payload, Job.class)));
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+  }
+
   /**
    * Create and serialize a WorkerStatus.
    *
@@ -670,6 +2578,31 @@ public abstract class AbstractWorker implements Worker {
     return JesqueUtils.createKey(config.getNamespace(), parts);
   }
 
+  /**
+   * Builds the key of a queue, or of something kept for a queue, in the configured key layout.
+   *
+   * @param type the kind of key, e.g. {@link net.greghaines.jesque.utils.ResqueConstants#QUEUE}
+   * @param queue the name of the queue
+   * @param parts the key parts to append after the queue
+   * @return an assembled String key
+   * @see Config#isClusterKeys()
+   */
+  protected String queueKey(final String type, final String queue, final String... parts) {
+    return JesqueUtils.createQueueKey(
+        config.getNamespace(), config.isClusterKeys(), type, queue, parts);
+  }
+
+  /**
+   * Builds the key of this worker's in-flight list for a queue in the configured key layout.
+   *
+   * @param queue the name of the queue
+   * @return an assembled String key
+   */
+  protected String inFlightKey(final String queue) {
+    return JesqueUtils.createInFlightKey(
+        config.getNamespace(), config.isClusterKeys(), this.name, queue);
+  }
+
   /**
    * Rename the current thread with the given message.
    *
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2026 Greg Haines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.greghaines.jesque.worker;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+
+/**
+ * AdaptiveQueueOrder decides the order a worker using ADAPTIVE_HIT_RATE polls its queues in. It
+ * keeps an exponentially decayed hit rate per queue and polls the queues in rounds, hottest first.
+ * Cold queues are left out of a round except for an occasional exploratory poll, so that a worker
+ * with many mostly-empty queues spends few pops on misses but still finds work on a cold queue.
+ * Not thread-safe; it is only used by the polling thread.
+ */
+class AdaptiveQueueOrder {
+
+  /** How much weight the latest poll of a queue has in its hit rate. */
+  static final double DECAY = 0.2;
+  /** Queues with a hit rate below this are only polled when explored. */
+  static final double COLD_HIT_RATE = 0.05;
+  /** The chance that a cold queue is polled in a given round. */
+  static final double EXPLORATION_RATE = 0.1;
+
+  private final Map<String, Double> hitRates = new HashMap<>();
+  private final Deque<String> round = new ArrayDeque<>();
+  // Whether any poll of the current round found a job
+  private boolean roundHit = false;
+  private final DoubleSupplier random;
+
+  AdaptiveQueueOrder() {
+    this(() -> ThreadLocalRandom.current().nextDouble());
+  }
+
+  AdaptiveQueueOrder(final DoubleSupplier random) {
+    this.random = random;
+  }
+
+  /**
+   * @param queues the worker's queues in their configured order
+   * @return the next queue to poll, or null if there are no queues
+   */
+  String next(final Collection<String> queues) {
+    if (this.round.isEmpty()) {
+      startRound(queues);
+    }
+    return this.round.pollFirst();
+  }
+
+  /**
+   * Record the result of polling a queue. The current round carries on either way, so that a queue
+   * that always has jobs cannot keep the other busy queues of the round from being polled; the
+   * next round is ordered by the updated hit rates.
+   *
+   * @param queue the queue that was polled
+   * @param hit whether the poll found a job
+   */
+  void record(final String queue, final boolean hit) {
+    final double hitRate = getHitRate(queue);
+    this.hitRates.put(queue, hitRate + DECAY * ((hit ? 1.0 : 0.0) - hitRate));
+    this.roundHit |= hit;
+  }
+
+  /**
+   * @return true if every queue in the current round has been polled
+   */
+  boolean isRoundOver() {
+    return this.round.isEmpty();
+  }
+
+  /**
+   * @return true if every queue in the current round has been polled and none had a job, so the
+   *     worker should back off before the next round
+   */
+  boolean isRoundMissed() {
+    return this.round.isEmpty() && !this.roundHit;
+  }
+
+  /**
+   * @param queue the queue
+   * @return the decayed hit rate of the queue; queues that have not been polled yet start at 1
+   */
+  double getHitRate(final String queue) {
+    return this.hitRates.getOrDefault(queue, 1.0);
+  }
+
+  private void startRound(final Collection<String> queues) {
+    this.roundHit = false;
+    final List<String> ordered = new ArrayList<>(new LinkedHashSet<>(queues));
+    this.hitRates.keySet().retainAll(ordered);
+    // A stable sort keeps the configured order between queues that are equally hot
+    ordered.sort(Comparator.comparingDouble(this::getHitRate).reversed());
+    for (final String queue : ordered) {
+      if (getHitRate(queue) >= COLD_HIT_RATE || this.random.getAsDouble() < EXPLORATION_RATE) {
+        this.round.add(queue);
+      }
+    }
+    if (this.round.isEmpty() && !ordered.isEmpty()) {
+      this.round.add(ordered.get(0));
+    }
+  }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2026 Greg Haines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.greghaines.jesque.worker;
+
+/**
+ * BackoffStrategy decides how long a worker waits before polling again after finding its queues
+ * empty. Implementations should be stateless so that they may be shared by several workers; the
+ * worker remembers the previous delay and resets it whenever it finds a job.
+ */
+public interface BackoffStrategy {
+
+  /**
+   * Determine how long to wait before polling again.
+   *
+   * @param previousDelay the previous delay in milliseconds, or 0 if the last poll found a job
+   * @return the delay in milliseconds
+   */
+  long nextDelay(long previousDelay);
+}
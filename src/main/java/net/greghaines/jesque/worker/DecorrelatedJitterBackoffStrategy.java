@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026 Greg Haines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.greghaines.jesque.worker;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * DecorrelatedJitterBackoffStrategy backs off exponentially with "decorrelated jitter": each delay
+ * is picked at random between the floor and three times the previous delay, capped at the ceiling.
+ * Idle workers therefore poll less and less often, and workers that went idle together drift apart
+ * instead of all polling Redis at the same moment when work arrives.
+ */
+public class DecorrelatedJitterBackoffStrategy implements BackoffStrategy {
+
+  private final long floor;
+  private final long ceiling;
+
+  /**
+   * Constructor.
+   *
+   * @param floor the minimum delay in milliseconds
+   * @param ceiling the maximum delay in milliseconds
+   * @throws IllegalArgumentException if the floor is negative or greater than the ceiling
+   */
+  public DecorrelatedJitterBackoffStrategy(final long floor, final long ceiling) {
+    if (floor < 0) {
+      throw new IllegalArgumentException("floor must not be negative: " + floor);
+    }
+    if (ceiling < floor) {
+      throw new IllegalArgumentException(
+          "ceiling must not be less than floor: floor=" + floor + " ceiling=" + ceiling);
+    }
+    this.floor = floor;
+    this.ceiling = ceiling;
+  }
+
+  /**
+   * @return the minimum delay in milliseconds
+   */
+  public long getFloor() {
+    return this.floor;
+  }
+
+  /**
+   * @return the maximum delay in milliseconds
+   */
+  public long getCeiling() {
+    return this.ceiling;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public long nextDelay(final long previousDelay) {
+    final long prev = Math.max(previousDelay, Math.max(this.floor, 1));
+    final long upper = (prev > this.ceiling / 3) ? this.ceiling : Math.max(prev * 3, this.floor);
+    if (upper <= this.floor) {
+      return this.floor;
+    }
+    return ThreadLocalRandom.current().nextLong(this.floor, upper + 1);
+  }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2026 Greg Haines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.greghaines.jesque.worker;
+
+import static net.greghaines.jesque.utils.ResqueConstants.*;
+import static net.greghaines.jesque.worker.JobExecutor.State.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import net.greghaines.jesque.Config;
+import net.greghaines.jesque.utils.JesqueUtils;
+import net.greghaines.jesque.utils.ScriptUtils;
+import redis.clients.jedis.UnifiedJedis;
+
+/**
+ * DelayedJobPromoter moves jobs from delayed queues to ordinary queues as they become due, so that
+ * workers poll lists instead of searching sorted sets on every pop. Any number of promoters may run
+ * against the same namespace; they elect a leader through a lock in Redis and only the leader
+ * promotes jobs, the others standing by to take over if it stops renewing its lease.<br>
+ * The leader sleeps until the earliest job in its delayed queues is due. Clients publish to the
+ * {@link net.greghaines.jesque.utils.ResqueConstants#DELAYED} channel when they add a delayed job,
+ * which wakes the leader early in case the new job is due sooner.
+ */
+public class DelayedJobPromoter extends AbstractLeaderRunnable {
+
+  protected static final String PROMOTE_LUA = "/workerScripts/jesque_promote.lua";
+  protected static final String LEADER = "promoter";
+  /** The default number of jobs moved per script call */
+  public static final int DEFAULT_BATCH_SIZE = 100;
+
+  // Delayed queue -> the queue its due jobs are moved to
+  protected final Map<String, String> queues = new ConcurrentHashMap<>();
+  protected final int batchSize;
+  protected final AtomicReference<String> promoteScriptHash = new AtomicReference<>(null);
+
+  /**
+   * Creates a new DelayedJobPromoter with the default lease and batch size.
+   *
+   * @param config used to get the namespace
+   * @param jedisPool the Redis connection pool
+   */
+  public DelayedJobPromoter(final Config config, final UnifiedJedis jedisPool) {
+    this(config, jedisPool, DEFAULT_LEASE, DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * Creates a new DelayedJobPromoter.
+   *
+   * @param config used to get the namespace
+   * @param jedisPool the Redis connection pool
+   * @param lease how long leadership lasts without being renewed; the leader renews it every half
+   *     lease, and a standby takes over within a lease of the leader stopping
+   * @param batchSize the most jobs moved per script call
+   * @throws IllegalArgumentException if config or jedisPool is null, the lease is shorter than a
+   *     millisecond or the batch size is less than one
+   */
+  public DelayedJobPromoter(
+      final Config config,
+      final UnifiedJedis jedisPool,
+      final Duration lease,
+      final int batchSize) {
+    super(config, jedisPool, lease, LEADER);
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be at least 1: " + batchSize);
+    }
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Move the due jobs of a delayed queue to another queue. Workers then poll the target queue
+   * instead of the delayed one. In the cluster key layout both queues must be in the same slot,
+   * which names that start with the same hash tag, such as <code>{orders}</code> and <code>
+   * {orders}:delayed</code>, ensure.
+   *
+   * @param delayedQueue the delayed queue
+   * @param targetQueue the queue due jobs are moved to
+   * @throws IllegalArgumentException if either queue is null or empty, they are the same queue or
+   *     they are in different slots of the cluster key layout
+   */
+  public void addQueue(final String delayedQueue, final String targetQueue) {
+    if (delayedQueue == null || "".equals(delayedQueue)) {
+      throw new IllegalArgumentException("delayedQueue must not be null or empty: " + delayedQueue);
+    }
+    if (targetQueue == null || "".equals(targetQueue)) {
+      throw new IllegalArgumentException("targetQueue must not be null or empty: " + targetQueue);
+    }
+    if (delayedQueue.equals(targetQueue)) {
+      throw new IllegalArgumentException(
+          "targetQueue must differ from delayedQueue: " + targetQueue);
+    }
+    if (this.clusterKeys
+        && !JesqueUtils.hashSlotTag(queueKey(QUEUE, delayedQueue))
+            .equals(JesqueUtils.hashSlotTag(queueKey(QUEUE, targetQueue)))) {
+      throw new IllegalArgumentException(
+          "targetQueue must have the same hash tag as delayedQueue: " + targetQueue);
+    }
+    this.queues.put(delayedQueue, targetQueue);
+    wake();
+  }
+
+  /**
+   * Stop promoting the jobs of a delayed queue.
+   *
+   * @param delayedQueue the delayed queue
+   */
+  public void removeQueue(final String delayedQueue) {
+    this.queues.remove(delayedQueue);
+  }
+
+  /**
+   * @return the delayed queues mapped to the queues their due jobs are moved to
+   */
+  public Map<String, String> getQueues() {
+    return Collections.unmodifiableMap(this.queues);
+  }
+
+  /**
+   * Move every due job of every delayed queue.
+   *
+   * @return how long to wait, in milliseconds, before promoting again
+   */
+  protected long promoteDue() {
+    final long now = System.currentTimeMillis();
+    long nextDue = Long.MAX_VALUE;
+    for (final Map.Entry<String, String> entry : this.queues.entrySet()) {
+      final String delayedKey = queueKey(QUEUE, entry.getKey());
+      final List<String> keys =
+          new ArrayList<>(
+              Arrays.asList(
+                  delayedKey,
+                  queueKey(QUEUE, entry.getValue()),
+                  JesqueUtils.createRecurringHashKey(delayedKey),
+                  queueKey(QUEUE, entry.getKey(), BUCKETS)));
+      if (this.clusterKeys) {
+        // The sets of queues are outside the queues' slot; mark the target before jobs reach it
+        this.jedisPool.sadd(key(QUEUES), entry.getValue());
+        this.jedisPool.sadd(key(READY_QUEUES), entry.getValue());
+      } else {
+        keys.add(key(QUEUES));
+        keys.add(key(READY_QUEUES));
+      }
+      final List<String> args =
+          Arrays.asList(Long.toString(now), Integer.toString(this.batchSize), entry.getValue());
+      List<Long> result;
+      do {
+        @SuppressWarnings("unchecked")
+        final List<Long> promoted = (List<Long>) evalScript(this.promoteScriptHash, keys, args);
+        result = promoted;
+      } while (result.get(0) >= this.batchSize && RUNNING.equals(this.state.get()));
+      if (result.get(1) >= 0) {
+        nextDue = Math.min(nextDue, result.get(1));
+      }
+    }
+    // Wake up in time to renew the lease even if nothing is due before then
+    return Math.max(0, Math.min(nextDue - System.currentTimeMillis(), halfLease()));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected long lead() {
+    return promoteDue();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected String leaderKey() {
+    return key(DELAYED, LEADER);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected String wakeUpChannel() {
+    return key(CHANNEL, DELAYED);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected boolean shouldWake(final String message) {
+    return this.queues.containsKey(message);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected void loadRedisScripts() throws IOException {
+    super.loadRedisScripts();
+    this.promoteScriptHash.set(this.jedisPool.scriptLoad(ScriptUtils.readScript(PROMOTE_LUA)));
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2026 Greg Haines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.greghaines.jesque.worker;
+
+/** FixedBackoffStrategy always waits the same amount of time between empty polls. */
+public class FixedBackoffStrategy implements BackoffStrategy {
+
+  private final long delay;
+
+  /**
+   * Constructor.
+   *
+   * @param delay the delay in milliseconds
+   * @throws IllegalArgumentException if the delay is negative
+   */
+  public FixedBackoffStrategy(final long delay) {
+    if (delay < 0) {
+      throw new IllegalArgumentException("delay must not be negative: " + delay);
+    }
+    this.delay = delay;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public long nextDelay(final long previousDelay) {
+    return this.delay;
+  }
+}
@@ -10,5 +10,28 @@ public enum NextQueueStrategy {
   DRAIN_WHILE_MESSAGES_EXISTS,
 
   /** Resets to check the first queue, then second queue, etc. after each message is processed. */
-  RESET_TO_HIGHEST_PRIORITY
+  RESET_TO_HIGHEST_PRIORITY,
+
+  /**
+   * Polls each queue in proportion to its weight (see {@link
+   * AbstractWorker#setQueueWeight(String, int)}), interleaving them with smooth weighted
+   * round-robin so that no queue is starved and each gets its share of dequeue attempts.
+   */
+  WEIGHTED_ROUND_ROBIN,
+
+  /**
+   * Polls the queue whose next job is closest to missing its latency target (see {@link
+   * AbstractWorker#setQueueLatencyTarget(String, java.time.Duration)}). Queues without a target are
+   * only polled when no queue with a target has a job ready. A queue whose job could not be taken,
+   * e.g. because of a limit, is passed over until a job is found elsewhere. Jobs need to be
+   * enqueued by a client that stamps them with their enqueue time. Cannot be used with tenant
+   * queues.
+   */
+  EARLIEST_DEADLINE_FIRST,
+
+  /**
+   * Drains messages like DRAIN_WHILE_MESSAGES_EXISTS, but polls the queues that most often had
+   * messages first and only occasionally polls queues that are usually empty.
+   */
+  ADAPTIVE_HIT_RATE
 }
@@ -0,0 +1,554 @@
+/*
+ * Copyright 2026 Greg Haines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.greghaines.jesque.worker;
+
+import static net.greghaines.jesque.utils.ResqueConstants.*;
+import static net.greghaines.jesque.worker.JobExecutor.State.*;
+import static net.greghaines.jesque.worker.WorkerEvent.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import net.greghaines.jesque.Config;
+import net.greghaines.jesque.Job;
+import net.greghaines.jesque.json.ObjectMapperFactory;
+import net.greghaines.jesque.utils.ConcurrentHashSet;
+import net.greghaines.jesque.utils.ConcurrentSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.AbstractPipeline;
+import redis.clients.jedis.UnifiedJedis;
+import tools.jackson.core.JacksonException;
+
+/**
+ * PipelinedWorkerImpl is a pooled worker that separates claiming jobs from running them. The
+ * worker's thread only claims jobs and hands them to an executor, so fetching overlaps with
+ * execution and many jobs can run at once on a handful of Redis connections. At most <code>
+ * capacity</code> jobs are claimed but unfinished at any time; once that many are outstanding the
+ * worker stops claiming until one completes. Completed jobs are acknowledged in batches, each batch
+ * in a single pipelined round-trip.<br>
+ * Since several jobs run at once, the worker's status in Redis shows the most recently claimed job
+ * and <code>JOB_SUCCESS</code>/<code>JOB_FAILURE</code> events may fire before the job's
+ * acknowledgement has reached Redis.<br>
+ * Ordered queues and concurrency limits are not supported since a lane's lease and a semaphore's
+ * permit are held by the worker for one job at a time.
+ */
+public class PipelinedWorkerImpl extends WorkerPoolImpl {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PipelinedWorkerImpl.class);
+  protected static final String REQUEUE_LUA = "/workerScripts/jesque_requeue.lua";
+
+  protected final AtomicReference<String> requeueScriptHash = new AtomicReference<>(null);
+  protected final ExecutorService executor;
+  protected final boolean ownsExecutor;
+  protected final int capacity;
+  protected final Semaphore permits;
+  protected final ConcurrentSet<Claim> outstanding = new ConcurrentHashSet<>();
+  protected final BlockingQueue<Ack> acks = new LinkedBlockingQueue<>();
+  protected final ReentrantLock flushLock = new ReentrantLock();
+
+  /**
+   * Creates a new PipelinedWorkerImpl that runs jobs on its own fixed-size thread pool. Up to twice
+   * as many jobs as there are threads may be claimed at once so that the threads are never left
+   * waiting on Redis.
+   *
+   * @param config used to create a connection to Redis and the package prefix for incoming jobs
+   * @param queues the list of queues to poll
+   * @param jobFactory the job factory that materializes the jobs
+   * @param jedisPool the Redis connection pool
+   * @param numExecutors the number of threads to run jobs on
+   * @throws IllegalArgumentException if either config, queues, jobFactory or jedisPool is null,
+   *     numExecutors is less than one or the config has ordered queues or concurrency limits
+   */
+  public PipelinedWorkerImpl(
+      final Config config,
+      final Collection<String> queues,
+      final JobFactory jobFactory,
+      final UnifiedJedis jedisPool,
+      final int numExecutors) {
+    this(config, queues, jobFactory, jedisPool, newExecutor(numExecutors), true, numExecutors * 2);
+  }
+
+  /**
+   * Creates a new PipelinedWorkerImpl that runs jobs on the given executor. The executor may be
+   * shared by several workers and is not shut down when this worker ends.
+   *
+   * @param config used to create a connection to Redis and the package prefix for incoming jobs
+   * @param queues the list of queues to poll
+   * @param jobFactory the job factory that materializes the jobs
+   * @param jedisPool the Redis connection pool
+   * @param executor the executor to run jobs on
+   * @param capacity the maximum number of jobs that may be claimed but unfinished at once
+   * @throws IllegalArgumentException if either config, queues, jobFactory, jedisPool or executor is
+   *     null, capacity is less than one or the config has ordered queues or concurrency limits
+   */
+  public PipelinedWorkerImpl(
+      final Config config,
+      final Collection<String> queues,
+      final JobFactory jobFactory,
+      final UnifiedJedis jedisPool,
+      final ExecutorService executor,
+      final int capacity) {
+    this(config, queues, jobFactory, jedisPool, executor, false, capacity);
+  }
+
+  private PipelinedWorkerImpl(
+      final Config config,
+      final Collection<String> queues,
+      final JobFactory jobFactory,
+      final UnifiedJedis jedisPool,
+      final ExecutorService executor,
+      final boolean ownsExecutor,
+      final int capacity) {
+    super(config, queues, jobFactory, jedisPool);
+    if (!config.getOrderedQueues().isEmpty()) {
+      // A lane's lease is only released by the worker that ran its job, one job at a time
+      throw new IllegalArgumentException(
+          "PipelinedWorkerImpl does not support ordered queues: " + config.getOrderedQueues());
+    }
+    if (!config.getQueueConcurrencyLimits().isEmpty()
+        || !config.getJobConcurrencyLimits().isEmpty()) {
+      // A worker holds one permit of a semaphore, however many of its jobs run at once
+      throw new IllegalArgumentException("PipelinedWorkerImpl does not support concurrency limits");
+    }
+    if (executor == null) {
+      throw new IllegalArgumentException("executor must not be null");
+    }
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+    }
+    this.executor = executor;
+    this.ownsExecutor = ownsExecutor;
+    this.capacity = capacity;
+    this.permits = new Semaphore(capacity);
+  }
+
+  private static ExecutorService newExecutor(final int numExecutors) {
+    if (numExecutors < 1) {
+      throw new IllegalArgumentException("numExecutors must be at least 1: " + numExecutors);
+    }
+    return Executors.newFixedThreadPool(numExecutors);
+  }
+
+  /**
+   * @return the maximum number of jobs that may be claimed but unfinished at once
+   */
+  public int getCapacity() {
+    return this.capacity;
+  }
+
+  /**
+   * @return the number of jobs that have been claimed but are not yet finished
+   */
+  public int getOutstandingCount() {
+    return this.outstanding.size();
+  }
+
+  @Override
+  public boolean isProcessingJob() {
+    return !this.outstanding.isEmpty();
+  }
+
+  /**
+   * Stream queues are not supported since acknowledgements are batched by in-flight payload.
+   *
+   * @throws IllegalArgumentException if asked to make a queue a stream queue
+   */
+  @Override
+  public void setStreamQueue(final String queueName, final boolean streamQueue) {
+    if (streamQueue) {
+      throw new IllegalArgumentException(
+          "PipelinedWorkerImpl does not support stream queues: " + queueName);
+    }
+    super.setStreamQueue(queueName, false);
+  }
+
+  /**
+   * Shutdown this Worker. If <code>now</code> is true, jobs that have not started yet are pushed
+   * back onto their queues, running jobs are interrupted and pending asynchronous jobs are
+   * cancelled.<br>
+   * <b>The worker cannot be started again; create a new worker in this case.</b>
+   *
+   * @param now if true, an effort will be made to stop any job in progress
+   */
+  @Override
+  public void end(final boolean now) {
+    super.end(now);
+    if (now) {
+      for (final Claim claim : this.outstanding) {
+        if (claim.started.compareAndSet(false, true)) {
+          this.acks.add(Ack.requeue(claim.queue, claim.payload));
+          complete(claim);
+        } else {
+          if (claim.future != null) {
+            claim.future.cancel(true);
+          }
+          if (claim.stage != null) {
+            claim.stage.cancel(true);
+          }
+        }
+      }
+    }
+    if (this.ownsExecutor) {
+      if (now) {
+        // Every claim was requeued or cancelled above, so only the completions of the cancelled
+        // asynchronous jobs are left to run
+        for (final Runnable task : this.executor.shutdownNow()) {
+          task.run();
+        }
+      } else {
+        this.executor.shutdown();
+      }
+    }
+  }
+
+  /**
+   * Polls for jobs until the worker ends, then waits for the outstanding jobs to finish so that
+   * they are acknowledged before the worker unregisters.
+   */
+  @Override
+  protected void poll() {
+    try {
+      super.poll();
+    } finally {
+      this.permits.acquireUninterruptibly(this.capacity);
+      this.permits.release(this.capacity);
+      flush();
+    }
+  }
+
+  /**
+   * Hands the claimed job to the executor, first waiting until fewer than <code>capacity</code>
+   * jobs are outstanding.
+   */
+  @Override
+  protected void dispatch(final String curQueue, final String payload) throws InterruptedException {
+    try {
+      this.permits.acquire();
+    } catch (InterruptedException ie) {
+      this.acks.add(Ack.requeue(curQueue, payload));
+      flush();
+      throw ie;
+    }
+    final Claim claim = new Claim(curQueue, payload);
+    this.outstanding.add(claim);
+    try {
+      claim.future = this.executor.submit(claim);
+    } catch (RejectedExecutionException ree) {
+      if (claim.started.compareAndSet(false, true)) {
+        this.acks.add(Ack.requeue(curQueue, payload));
+        complete(claim);
+      }
+      throw ree;
+    }
+  }
+
+  /**
+   * Materializes and executes a claimed job on an executor thread and queues its acknowledgement.
+   * If the job returns a {@link CompletionStage}, the executor thread is released straight away and
+   * the job is acknowledged on the executor when the stage completes; until then it still counts
+   * towards the worker's capacity.
+   *
+   * @param claim the claimed job
+   * @return true if the job is still running asynchronously and will complete the claim itself
+   */
+  protected boolean process(final Claim claim) {
+    final Job job;
+    try {
+      job = ObjectMapperFactory.get().readValue(claim.payload, Job.class);
+    } catch (JacksonException je) {
+      LOG.warn("Discarding job that could not be parsed from queue=" + claim.queue, je);
+      this.acks.add(Ack.discard(claim.queue, claim.payload));
+      this.listenerDelegate.fireEvent(WORKER_ERROR, this, claim.queue, null, null, null, je);
+      return false;
+    }
+    try {
+      this.listenerDelegate.fireEvent(JOB_PROCESS, this, claim.queue, job, null, null, null);
+      final Object instance = this.jobFactory.materializeJob(job);
+      final Object result = execute(job, claim.queue, instance);
+      if (result instanceof CompletionStage) {
+        final CompletableFuture<?> stage = ((CompletionStage<?>) result).toCompletableFuture();
+        claim.stage = stage;
+        // Acknowledging blocks on Redis, so keep it off the thread that completes the stage, which
+        // may be an I/O event loop
+        stage.whenCompleteAsync(
+            (value, thrwbl) -> {
+              try {
+                if (thrwbl == null) {
+                  succeeded(claim, job, instance, value);
+                } else {
+                  failed(claim, job, unwrapCompletionException(thrwbl));
+                }
+              } finally {
+                complete(claim);
+              }
+            },
+            this::executeCompletion);
+        return true;
+      }
+      succeeded(claim, job, instance, result);
+    } catch (Throwable thrwbl) {
+      failed(claim, job, thrwbl);
+    }
+    return false;
+  }
+
+  /**
+   * Run the completion of an asynchronous job on the executor, or on the calling thread if the
+   * executor no longer takes tasks, so that the job is always acknowledged.
+   *
+   * @param completion the completion to run
+   */
+  protected void executeCompletion(final Runnable completion) {
+    try {
+      this.executor.execute(completion);
+    } catch (RejectedExecutionException ree) {
+      completion.run();
+    }
+  }
+
+  private void succeeded(
+      final Claim claim, final Job job, final Object instance, final Object result) {
+    this.acks.add(Ack.success(claim.queue, claim.payload));
+    this.listenerDelegate.fireEvent(JOB_SUCCESS, this, claim.queue, job, instance, result, null);
+  }
+
+  private void failed(final Claim claim, final Job job, final Throwable thrwbl) {
+    this.acks.add(failureAck(thrwbl, job, claim));
+    this.listenerDelegate.fireEvent(JOB_FAILURE, this, claim.queue, job, null, null, thrwbl);
+  }
+
+  private Ack failureAck(final Throwable thrwbl, final Job job, final Claim claim) {
+    final FailQueueStrategy strategy = this.failQueueStrategyRef.get();
+    final String failQueueKey = strategy.getFailQueueKey(thrwbl, job, claim.queue);
+    String failMsg = null;
+    int failQueueMaxItems = 0;
+    if (failQueueKey != null) {
+      try {
+        failMsg = failMsg(thrwbl, claim.queue, job);
+        failQueueMaxItems = strategy.getFailQueueMaxItems(claim.queue);
+      } catch (IOException ioe) {
+        LOG.warn("Error serializing failure payload for throwable=" + thrwbl + " job=" + job, ioe);
+      }
+    }
+    return new Ack(
+        claim.queue,
+        claim.payload,
+        FAILED,
+        SHUTDOWN_IMMEDIATE.equals(this.state.get()),
+        (failMsg == null) ? null : failQueueKey,
+        failMsg,
+        failQueueMaxItems);
+  }
+
+  private void complete(final Claim claim) {
+    this.outstanding.remove(claim);
+    this.permits.release();
+    flush();
+  }
+
+  /**
+   * Send all queued acknowledgements to Redis. Only one thread flushes at a time; acknowledgements
+   * queued by other threads meanwhile are sent by that thread in its next batch. A batch that
+   * cannot be sent, even after reconnecting, is queued again and sent by the next flush.
+   */
+  protected void flush() {
+    while (!this.acks.isEmpty() && this.flushLock.tryLock()) {
+      try {
+        final List<Ack> batch = new ArrayList<>();
+        this.acks.drainTo(batch);
+        if (!batch.isEmpty() && !flushOrRetry(batch)) {
+          this.acks.addAll(batch);
+          break;
+        }
+      } finally {
+        this.flushLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Send the given acknowledgements, trying once more after reconnecting if they fail.
+   *
+   * @param batch the acknowledgements to send
+   * @return true if they were sent
+   */
+  protected boolean flushOrRetry(final List<Ack> batch) {
+    try {
+      flush(batch);
+      return true;
+    } catch (Exception e) {
+      LOG.warn("Error acknowledging " + batch.size() + " jobs, reconnecting to retry", e);
+    }
+    reconnect();
+    try {
+      flush(batch);
+      return true;
+    } catch (Exception e) {
+      LOG.warn("Error acknowledging " + batch.size() + " jobs, they will be retried", e);
+      return false;
+    }
+  }
+
+  /**
+   * Remove the given jobs from the in-flight list, requeueing them if required, and update the
+   * stats, failure queues and worker status in a single pipelined round-trip.
+   *
+   * @param batch the acknowledgements to send
+   * @throws RuntimeException if the acknowledgements could not be sent
+   */
+  protected void flush(final List<Ack> batch) {
+    long processed = 0;
+    long failed = 0;
+    try (final AbstractPipeline pipeline = this.jedisPool.pipelined()) {
+      for (final Ack ack : batch) {
+        final String inflightKey = inFlightKey(ack.queue);
+        if (ack.requeue) {
+          if (this.config.isClusterKeys()) {
+            // The ready queues set is outside the queue's slot; mark the queue before the job
+            pipeline.sadd(key(READY_QUEUES), ack.queue);
+          }
+          pipeline.evalsha(
+              this.requeueScriptHash.get(),
+              scriptKeys(Arrays.asList(inflightKey, queueKey(QUEUE, ack.queue)), key(READY_QUEUES)),
+              Arrays.asList(ack.payload, ack.queue));
+        } else {
+          pipeline.lrem(inflightKey, -1, ack.payload);
+        }
+        if (PROCESSED.equals(ack.stat)) {
+          processed++;
+        } else if (FAILED.equals(ack.stat)) {
+          failed++;
+          if (ack.failQueueKey != null) {
+            pipeline.rpush(ack.failQueueKey, ack.failMsg);
+            if (ack.failQueueMaxItems > 0) {
+              pipeline.ltrim(ack.failQueueKey, -ack.failQueueMaxItems, -1);
+            }
+          }
+        }
+      }
+      if (processed > 0) {
+        pipeline.incrBy(key(STAT, PROCESSED), processed);
+        pipeline.incrBy(key(STAT, PROCESSED, this.name), processed);
+      }
+      if (failed > 0) {
+        pipeline.incrBy(key(STAT, FAILED), failed);
+        pipeline.incrBy(key(STAT, FAILED, this.name), failed);
+      }
+      if (this.outstanding.isEmpty()) {
+        pipeline.del(key(WORKER, this.name));
+      }
+      pipeline.sync();
+    }
+  }
+
+  @Override
+  protected void loadRedisScripts() {
+    super.loadRedisScripts();
+    try {
+      this.requeueScriptHash.set(loadRedisScript(REQUEUE_LUA));
+    } catch (IOException ioe) {
+      throw new RuntimeException(ioe);
+    }
+  }
+
+  /** A job that has been claimed from a queue and handed to the executor. */
+  protected final class Claim implements Runnable {
+
+    protected final String queue;
+    protected final String payload;
+    protected final AtomicBoolean started = new AtomicBoolean(false);
+    protected volatile Future<?> future;
+    protected volatile CompletableFuture<?> stage;
+
+    protected Claim(final String queue, final String payload) {
+      this.queue = queue;
+      this.payload = payload;
+    }
+
+    @Override
+    public void run() {
+      if (!this.started.compareAndSet(false, true)) {
+        return; // Already requeued by end(true)
+      }
+      boolean async = false;
+      try {
+        if (SHUTDOWN_IMMEDIATE.equals(state.get())) {
+          acks.add(Ack.requeue(this.queue, this.payload));
+        } else {
+          async = process(this);
+        }
+      } finally {
+        if (!async) {
+          complete(this);
+        }
+      }
+    }
+  }
+
+  /** The outcome of a claimed job, waiting to be sent to Redis. */
+  protected static final class Ack {
+
+    protected final String queue;
+    protected final String payload;
+    protected final String stat;
+    protected final boolean requeue;
+    protected final String failQueueKey;
+    protected final String failMsg;
+    protected final int failQueueMaxItems;
+
+    protected Ack(
+        final String queue,
+        final String payload,
+        final String stat,
+        final boolean requeue,
+        final String failQueueKey,
+        final String failMsg,
+        final int failQueueMaxItems) {
+      this.queue = queue;
+      this.payload = payload;
+      this.stat = stat;
+      this.requeue = requeue;
+      this.failQueueKey = failQueueKey;
+      this.failMsg = failMsg;
+      this.failQueueMaxItems = failQueueMaxItems;
+    }
+
+    protected static Ack success(final String queue, final String payload) {
+      return new Ack(queue, payload, PROCESSED, false, null, null, 0);
+    }
+
+    protected static Ack requeue(final String queue, final String payload) {
+      return new Ack(queue, payload, null, true, null, null, 0);
+    }
+
+    protected static Ack discard(final String queue, final String payload) {
+      return new Ack(queue, payload, null, false, null, null, 0);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026 Greg Haines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.greghaines.jesque.worker;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import net.greghaines.jesque.Config;
+import redis.clients.jedis.UnifiedJedis;
+
+/**
+ * PipelinedWorkerImplFactory is a factory for <code>PipelinedWorkerImpl</code>s. Designed to be
+ * used with <code>WorkerPool</code> to run a few fetching threads that all hand jobs to one shared
+ * executor.
+ */
+public class PipelinedWorkerImplFactory implements Callable<PipelinedWorkerImpl> {
+
+  private final Config config;
+  private final Collection<String> queues;
+  private final JobFactory jobFactory;
+  private final UnifiedJedis jedisPool;
+  private final ExecutorService executor;
+  private final int capacity;
+
+  /**
+   * Create a new factory. Returned <code>PipelinedWorkerImpl</code>s will use the provided
+   * arguments.
+   *
+   * @param config used to create a connection to Redis and the package prefix for incoming jobs
+   * @param queues the list of queues to poll
+   * @param jobFactory the job factory that materializes the jobs
+   * @param jedisPool the Redis connection pool
+   * @param executor the executor shared by all returned workers to run jobs on
+   * @param capacity the maximum number of jobs each worker may have claimed but unfinished at once
+   */
+  public PipelinedWorkerImplFactory(
+      final Config config,
+      final Collection<String> queues,
+      final JobFactory jobFactory,
+      final UnifiedJedis jedisPool,
+      final ExecutorService executor,
+      final int capacity) {
+    this.config = config;
+    this.queues = queues;
+    this.jobFactory = jobFactory;
+    this.jedisPool = jedisPool;
+    this.executor = executor;
+    this.capacity = capacity;
+  }
+
+  /**
+   * Create a new <code>PipelinedWorkerImpl</code> using the arguments provided to this factory's
+   * constructor.
+   *
+   * @return a new <code>PipelinedWorkerImpl</code>
+   */
+  public PipelinedWorkerImpl call() {
+    return new PipelinedWorkerImpl(
+        this.config, this.queues, this.jobFactory, this.jedisPool, this.executor, this.capacity);
+  }
+}
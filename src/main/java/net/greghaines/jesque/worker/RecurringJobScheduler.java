@@ -0,0 +1,284 @@
+/*
+ * Copyright 2026 Greg Haines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.greghaines.jesque.worker;
+
+import static net.greghaines.jesque.utils.ResqueConstants.*;
+import static net.greghaines.jesque.worker.JobExecutor.State.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import net.greghaines.jesque.Config;
+import net.greghaines.jesque.Job;
+import net.greghaines.jesque.json.ObjectMapperFactory;
+import net.greghaines.jesque.utils.CronExpression;
+import net.greghaines.jesque.utils.ScriptUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.resps.Tuple;
+
+/**
+ * RecurringJobScheduler pushes a job onto a queue each time its cron schedule fires. Schedules are
+ * kept in Redis, so they may be added from any process and survive restarts; any number of
+ * schedulers may run against the same namespace, electing a leader through a lock in Redis so that
+ * each fire pushes exactly one job.<br>
+ * The leader sleeps until the next schedule is due. Adding or changing a schedule publishes to the
+ * {@link net.greghaines.jesque.utils.ResqueConstants#SCHEDULES} channel, which wakes the leader
+ * early in case the schedule fires sooner. Fires missed while no leader was running are not caught
+ * up: the job is pushed once and the schedule resumes from the current time.
+ */
+public class RecurringJobScheduler extends AbstractLeaderRunnable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RecurringJobScheduler.class);
+  protected static final String FIRE_LUA = "/workerScripts/jesque_fire.lua";
+  protected static final String LEADER = "scheduler";
+  protected static final String NEXT = "next";
+  /** The time zone schedules are evaluated in unless another is given */
+  public static final ZoneId DEFAULT_ZONE = ZoneOffset.UTC;
+  /** The most schedules fired per read of the due schedules */
+  protected static final int FIRE_BATCH_SIZE = 100;
+
+  private static final String CRON = "cron";
+  private static final String ZONE = "zone";
+  private static final String QUEUE_NAME = "queue";
+  private static final String JOB = "job";
+
+  protected final AtomicReference<String> fireScriptHash = new AtomicReference<>(null);
+
+  /**
+   * Creates a new RecurringJobScheduler with the default lease.
+   *
+   * @param config used to get the namespace
+   * @param jedisPool the Redis connection pool
+   */
+  public RecurringJobScheduler(final Config config, final UnifiedJedis jedisPool) {
+    this(config, jedisPool, DEFAULT_LEASE);
+  }
+
+  /**
+   * Creates a new RecurringJobScheduler.
+   *
+   * @param config used to get the namespace
+   * @param jedisPool the Redis connection pool
+   * @param lease how long leadership lasts without being renewed; the leader renews it every half
+   *     lease, and a standby takes over within a lease of the leader stopping
+   * @throws IllegalArgumentException if config or jedisPool is null or the lease is shorter than a
+   *     millisecond
+   */
+  public RecurringJobScheduler(
+      final Config config, final UnifiedJedis jedisPool, final Duration lease) {
+    super(config, jedisPool, lease, LEADER);
+  }
+
+  /**
+   * Push a job onto a queue each time a cron schedule fires, evaluating the schedule in UTC.
+   *
+   * @param name the name of the schedule, unique within the namespace
+   * @param cron the schedule, see {@link CronExpression}
+   * @param queue the queue to push the job onto
+   * @param job the job to push
+   * @throws IllegalArgumentException if any argument is null or invalid
+   * @throws IllegalStateException if the job is not valid
+   */
+  public void schedule(final String name, final String cron, final String queue, final Job job) {
+    schedule(name, cron, DEFAULT_ZONE, queue, job);
+  }
+
+  /**
+   * Push a job onto a queue each time a cron schedule fires. Scheduling again under the same name
+   * replaces the schedule; the next fire time is kept if nothing changed, so every process may
+   * declare its schedules when it starts.
+   *
+   * @param name the name of the schedule, unique within the namespace
+   * @param cron the schedule, see {@link CronExpression}
+   * @param zone the time zone to evaluate the schedule in
+   * @param queue the queue to push the job onto
+   * @param job the job to push
+   * @throws IllegalArgumentException if any argument is null or invalid, or the schedule never
+   *     fires
+   * @throws IllegalStateException if the job is not valid
+   */
+  public void schedule(
+      final String name, final String cron, final ZoneId zone, final String queue, final Job job) {
+    if (name == null || "".equals(name)) {
+      throw new IllegalArgumentException("name must not be null or empty: " + name);
+    }
+    if (zone == null) {
+      throw new IllegalArgumentException("zone must not be null");
+    }
+    if (queue == null || "".equals(queue)) {
+      throw new IllegalArgumentException("queue must not be null or empty: " + queue);
+    }
+    if (job == null) {
+      throw new IllegalArgumentException("job must not be null");
+    }
+    if (!job.isValid()) {
+      throw new IllegalStateException("job is not valid: " + job);
+    }
+    final CronExpression expression = new CronExpression(cron);
+    final ZonedDateTime next = expression.next(ZonedDateTime.now(zone));
+    if (next == null) {
+      throw new IllegalArgumentException("cron never fires: " + cron);
+    }
+    final Map<String, String> definition = new LinkedHashMap<>();
+    definition.put(CRON, expression.toString());
+    definition.put(ZONE, zone.getId());
+    definition.put(QUEUE_NAME, queue);
+    definition.put(JOB, ObjectMapperFactory.get().writeValueAsString(job));
+    final String json = ObjectMapperFactory.get().writeValueAsString(definition);
+    final String old = this.jedisPool.hget(key(SCHEDULES), name);
+    this.jedisPool.hset(key(SCHEDULES), name, json);
+    if (!json.equals(old) || this.jedisPool.zscore(key(SCHEDULES, NEXT), name) == null) {
+      this.jedisPool.zadd(key(SCHEDULES, NEXT), next.toInstant().toEpochMilli(), name);
+      this.jedisPool.publish(key(CHANNEL, SCHEDULES), name);
+    }
+  }
+
+  /**
+   * Stop pushing the job of a schedule.
+   *
+   * @param name the name of the schedule
+   */
+  public void unschedule(final String name) {
+    this.jedisPool.zrem(key(SCHEDULES, NEXT), name);
+    this.jedisPool.hdel(key(SCHEDULES), name);
+  }
+
+  /**
+   * @param name the name of a schedule
+   * @return when the schedule next fires, or null if there is no such schedule
+   */
+  public Instant getNextFireTime(final String name) {
+    final Double score = this.jedisPool.zscore(key(SCHEDULES, NEXT), name);
+    return (score == null) ? null : Instant.ofEpochMilli(score.longValue());
+  }
+
+  /**
+   * Push the job of every due schedule. A schedule that fails to fire is parked: its definition is
+   * kept, but it does not fire again until it is scheduled again.
+   *
+   * @return how long to wait, in milliseconds, before firing again
+   */
+  protected long fireDue() {
+    List<Tuple> due;
+    do {
+      final long now = System.currentTimeMillis();
+      due =
+          this.jedisPool.zrangeByScoreWithScores(
+              key(SCHEDULES, NEXT), Double.NEGATIVE_INFINITY, now, 0, FIRE_BATCH_SIZE);
+      for (final Tuple schedule : due) {
+        try {
+          fire(schedule.getElement(), (long) schedule.getScore(), now);
+        } catch (JedisConnectionException jce) {
+          throw jce;
+        } catch (RuntimeException re) {
+          // Left due, a bad definition would be read first on every pass and block the rest
+          LOG.error("Parking the schedule " + schedule.getElement() + " that failed to fire", re);
+          this.jedisPool.zrem(key(SCHEDULES, NEXT), schedule.getElement());
+        }
+      }
+    } while (due.size() >= FIRE_BATCH_SIZE && RUNNING.equals(this.state.get()));
+    final List<Tuple> head = this.jedisPool.zrangeWithScores(key(SCHEDULES, NEXT), 0, 0);
+    final long nextFire = head.isEmpty() ? Long.MAX_VALUE : (long) head.get(0).getScore();
+    // Wake up in time to renew the lease even if nothing fires before then
+    return Math.max(0, Math.min(nextFire - System.currentTimeMillis(), halfLease()));
+  }
+
+  /**
+   * Push the job of a due schedule and set when it next fires.
+   *
+   * @param name the name of the schedule
+   * @param fireTime when the schedule was due to fire, as read from Redis
+   * @param now the current time
+   */
+  protected void fire(final String name, final long fireTime, final long now) {
+    final String json = this.jedisPool.hget(key(SCHEDULES), name);
+    if (json == null) {
+      // Unscheduled between reading the due schedules and now
+      this.jedisPool.zrem(key(SCHEDULES, NEXT), name);
+      return;
+    }
+    final Map<?, ?> definition = ObjectMapperFactory.get().readValue(json, Map.class);
+    final String queue = (String) definition.get(QUEUE_NAME);
+    String nextFireTime = "";
+    try {
+      final ZonedDateTime next =
+          new CronExpression((String) definition.get(CRON))
+              .next(Instant.ofEpochMilli(now).atZone(ZoneId.of((String) definition.get(ZONE))));
+      if (next != null) {
+        nextFireTime = Long.toString(next.toInstant().toEpochMilli());
+      }
+    } catch (RuntimeException re) {
+      LOG.error("Firing the invalid schedule " + name + " for the last time: " + json, re);
+    }
+    final String job = (String) definition.get(JOB);
+    final List<String> args =
+        Arrays.asList(name, Long.toString(fireTime), nextFireTime, queue, job);
+    if (this.clusterKeys) {
+      // The queue may be on another shard, so push the job once the schedule has moved on; a
+      // failure in between misses this fire rather than repeating it
+      final Long moved =
+          (Long)
+              evalScript(
+                  this.fireScriptHash, Collections.singletonList(key(SCHEDULES, NEXT)), args);
+      if (moved == 1L) {
+        this.jedisPool.sadd(key(QUEUES), queue);
+        this.jedisPool.rpush(queueKey(QUEUE, queue), job);
+        this.jedisPool.sadd(key(READY_QUEUES), queue);
+      }
+    } else {
+      evalScript(
+          this.fireScriptHash,
+          Arrays.asList(
+              key(SCHEDULES, NEXT), queueKey(QUEUE, queue), key(QUEUES), key(READY_QUEUES)),
+          args);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected long lead() {
+    return fireDue();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected String leaderKey() {
+    return key(SCHEDULES, LEADER);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected String wakeUpChannel() {
+    return key(CHANNEL, SCHEDULES);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected void loadRedisScripts() throws IOException {
+    super.loadRedisScripts();
+    this.fireScriptHash.set(this.jedisPool.scriptLoad(ScriptUtils.readScript(FIRE_LUA)));
+  }
+}
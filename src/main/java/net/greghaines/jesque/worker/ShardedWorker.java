@@ -0,0 +1,174 @@
+/*
+ * Copyright 2026 Greg Haines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.greghaines.jesque.worker;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import net.greghaines.jesque.Config;
+import net.greghaines.jesque.utils.JesqueUtils;
+import net.greghaines.jesque.utils.ShardMap;
+
+/**
+ * ShardedWorker polls queues that are spread over several Redis servers, see {@link
+ * net.greghaines.jesque.client.ShardedClientImpl}. It runs one Worker per shard, each on its own
+ * Thread, and gives each Worker the queues its shard owns, so every queue is polled on the server
+ * that holds it. A partitioned queue is split into its partitions first, and each partition is
+ * polled on the shard that owns it, as {@link net.greghaines.jesque.client.ShardedClientImpl}
+ * places them. The order of queues is kept within a shard, but shards are polled independently,
+ * so the priority of queues only holds among queues on the same shard.<br>
+ * {@link Worker#ALL_QUEUES} makes every shard's Worker poll all of the queues on its shard.
+ */
+public class ShardedWorker extends WorkerPool {
+
+  private final Config config;
+  private final ShardMap<? extends Worker> workers;
+
+  /**
+   * Create a ShardedWorker for queues that are not partitioned, with the default <code>
+   * ThreadFactory</code>.
+   *
+   * @param workers the Worker of each shard, e.g. <code>
+   *     shards.map(jedis -&gt; new WorkerPoolImpl(config, List.of(), jobFactory, jedis))</code>
+   * @param queues the queues to poll
+   * @throws IllegalArgumentException if workers is null or the queues are invalid
+   */
+  public ShardedWorker(final ShardMap<? extends Worker> workers, final Collection<String> queues) {
+    this(Config.getDefaultConfig(), workers, queues);
+  }
+
+  /**
+   * Create a ShardedWorker with the default <code>ThreadFactory</code>.
+   *
+   * @param config the config of the shards' Workers, whose partitioned queues are spread over the
+   *     shards
+   * @param workers the Worker of each shard, e.g. <code>
+   *     shards.map(jedis -&gt; new WorkerPoolImpl(config, List.of(), jobFactory, jedis))</code>
+   * @param queues the queues to poll
+   * @throws IllegalArgumentException if config or workers is null or the queues are invalid
+   */
+  public ShardedWorker(
+      final Config config,
+      final ShardMap<? extends Worker> workers,
+      final Collection<String> queues) {
+    this(config, workers, queues, Executors.defaultThreadFactory());
+  }
+
+  /**
+   * Create a ShardedWorker.
+   *
+   * @param config the config of the shards' Workers, whose partitioned queues are spread over the
+   *     shards
+   * @param workers the Worker of each shard
+   * @param queues the queues to poll
+   * @param threadFactory the factory to create pre-configured Threads
+   * @throws IllegalArgumentException if config or workers is null or the queues are invalid
+   */
+  public ShardedWorker(
+      final Config config,
+      final ShardMap<? extends Worker> workers,
+      final Collection<String> queues,
+      final ThreadFactory threadFactory) {
+    super(workerList(workers), threadFactory);
+    if (config == null) {
+      throw new IllegalArgumentException("config must not be null");
+    }
+    this.config = config;
+    this.workers = workers;
+    assignQueues(queues);
+  }
+
+  private static List<Worker> workerList(final ShardMap<? extends Worker> workers) {
+    if (workers == null) {
+      throw new IllegalArgumentException("workers must not be null");
+    }
+    return new ArrayList<Worker>(workers.getShards().values());
+  }
+
+  /**
+   * @return the Worker of each shard
+   */
+  public ShardMap<? extends Worker> getShardWorkers() {
+    return this.workers;
+  }
+
+  /**
+   * @return the queues polled on every shard
+   */
+  @Override
+  public Collection<String> getQueues() {
+    final Set<String> queues = new LinkedHashSet<>();
+    for (final Worker worker : getWorkers()) {
+      queues.addAll(worker.getQueues());
+    }
+    return new ArrayList<>(queues);
+  }
+
+  /** Poll the queue, or each of its partitions, on the shard that owns it. */
+  @Override
+  public void addQueue(final String queueName) {
+    for (final String partition : partitionsOf(queueName)) {
+      this.workers.get(partition).addQueue(partition);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void removeQueue(final String queueName, final boolean all) {
+    for (final String partition : partitionsOf(queueName)) {
+      this.workers.get(partition).removeQueue(partition, all);
+    }
+  }
+
+  /** Poll each queue on the shard that owns it, replacing the queues polled on every shard. */
+  @Override
+  public void setQueues(final Collection<String> queues) {
+    assignQueues(queues);
+  }
+
+  private void assignQueues(final Collection<String> queues) {
+    AbstractWorker.checkQueues(queues);
+    if (queues == ALL_QUEUES) { // Using object equality on purpose
+      for (final Worker worker : getWorkers()) {
+        worker.setQueues(ALL_QUEUES);
+      }
+      return;
+    }
+    final List<String> partitions = new ArrayList<>(queues.size());
+    for (final String queue : queues) {
+      partitions.addAll(partitionsOf(queue));
+    }
+    for (final Map.Entry<String, List<String>> shardQueues :
+        this.workers.partition(partitions).entrySet()) {
+      this.workers.getShards().get(shardQueues.getKey()).setQueues(shardQueues.getValue());
+    }
+  }
+
+  /**
+   * @param queueName the name of a queue
+   * @return the names of the queue's partitions, or just the queue if it is not partitioned
+   */
+  private List<String> partitionsOf(final String queueName) {
+    if (queueName == null || "".equals(queueName)) {
+      return Collections.singletonList(queueName);
+    }
+    return JesqueUtils.createPartitionNames(queueName, this.config.getPartitionCount(queueName));
+  }
+}
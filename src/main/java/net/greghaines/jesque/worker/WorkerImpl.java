@@ -17,14 +17,15 @@ import static net.greghaines.jesque.worker.WorkerEvent.*;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.List;
 import net.greghaines.jesque.Config;
-import net.greghaines.jesque.Job;
 import net.greghaines.jesque.utils.JedisUtils;
 import net.greghaines.jesque.utils.ScriptUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.AbstractTransaction;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.util.KeyValue;
 
 /**
  * WorkerImpl is an implementation of the Worker interface. Obeys the contract of a Resque worker in
@@ -52,6 +53,11 @@ public class WorkerImpl extends AbstractWorker {
   }
 
   protected final Jedis jedis;
+  // The client ID of this worker's connection, looked up on its first blocking pop and forgotten
+  // when the connection is re-established
+  private volatile long connectionClientId = -1;
+  // The lease watchdog's own connection, created when first needed
+  private volatile Jedis leaseJedis = null;
 
   /**
    * Creates a new WorkerImpl, which creates it's own connection to Redis using values from the
@@ -124,6 +130,9 @@ public class WorkerImpl extends AbstractWorker {
   @Override
   protected void unregisterWorker() throws Exception {
     super.unregisterWorker();
+    if (this.leaseJedis != null) {
+      this.leaseJedis.close();
+    }
     this.jedis.close();
   }
 
@@ -180,27 +189,53 @@ public class WorkerImpl extends AbstractWorker {
   }
 
   private void authenticateAndSelectDB() {
+    this.connectionClientId = -1;
+    authenticateAndSelectDB(this.jedis);
+  }
+
+  private void authenticateAndSelectDB(final Jedis connection) {
     if (this.config.getJedisClientConfig().getPassword() != null) {
-      this.jedis.auth(this.config.getJedisClientConfig().getPassword());
+      connection.auth(this.config.getJedisClientConfig().getPassword());
     }
-    this.jedis.select(this.config.getJedisClientConfig().getDatabase());
+    connection.select(this.config.getJedisClientConfig().getDatabase());
   }
 
   @Override
-  protected void success(
-      final Job job, final Object runner, final Object result, final String curQueue) {
-    // The job may have taken a long time;
-    // make an effort to ensure the connection is OK
-    JedisUtils.ensureJedisConnection(this.jedis);
-    super.success(job, runner, result, curQueue);
+  protected void reconnect() {
+    this.connectionClientId = -1;
+    if (!JedisUtils.ensureJedisConnection(this.jedis)) {
+      authenticateAndSelectDB();
+    }
+  }
+
+  /**
+   * Waits on this worker's own connection, publishing its client ID so that {@link #end(boolean)}
+   * can interrupt the wait.
+   */
+  @Override
+  protected KeyValue<String, String> blockingPop(
+      final List<String> queues, final String curQueue, final double timeoutSecs) {
+    if (this.connectionClientId < 0) {
+      this.connectionClientId = this.jedis.clientId();
+    }
+    this.blockingClientId.set(this.connectionClientId);
+    try {
+      return blockingPop(this.jedis, queues, curQueue, timeoutSecs);
+    } finally {
+      this.blockingClientId.set(-1);
+    }
   }
 
+  /**
+   * Unblocks the given client using a short-lived connection, since this worker's own connection is
+   * the one that is blocked.
+   */
   @Override
-  protected void failure(final Throwable thrwbl, final Job job, final String curQueue) {
-    // The job may have taken a long time;
-    // make an effort to ensure the connection is OK
-    JedisUtils.ensureJedisConnection(this.jedis);
-    super.failure(thrwbl, job, curQueue);
+  protected void unblockClient(final long clientId) {
+    try (final Jedis unblocker =
+        new Jedis(this.config.getHostAndPort(), this.config.getJedisClientConfig())) {
+      unblocker.clientUnblock(clientId);
+    }
   }
 
   @Override
@@ -213,6 +248,19 @@ public class WorkerImpl extends AbstractWorker {
     return this.jedis;
   }
 
+  @Override
+  protected Jedis getLeaseThreadJedis() {
+    Jedis leaseConnection = this.leaseJedis;
+    if (leaseConnection == null) {
+      leaseConnection = new Jedis(this.config.getHostAndPort(), this.config.getJedisClientConfig());
+      authenticateAndSelectDB(leaseConnection);
+      this.leaseJedis = leaseConnection;
+    } else if (!JedisUtils.ensureJedisConnection(leaseConnection)) {
+      authenticateAndSelectDB(leaseConnection);
+    }
+    return leaseConnection;
+  }
+
   @Override
   protected String loadRedisScript(final String scriptName) throws IOException {
     return this.jedis.scriptLoad(ScriptUtils.readScript(scriptName));
@@ -19,6 +19,7 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
+import net.greghaines.jesque.utils.VirtualThreads;
 
 /**
  * WorkerPool creates a fixed number of identical <code>Workers</code>, each on a separate <code>
@@ -68,6 +69,47 @@ public class WorkerPool implements Worker {
     }
   }
 
+  /**
+   * Create a WorkerPool of the given Workers, each on a separate Thread.
+   *
+   * @param workers the Workers to run
+   * @param threadFactory the factory to create pre-configured Threads
+   */
+  protected WorkerPool(final List<? extends Worker> workers, final ThreadFactory threadFactory) {
+    this.workers = new ArrayList<>(workers);
+    this.threads = new ArrayList<>(workers.size());
+    this.eventEmitter = new WorkerPoolEventEmitter(this.workers);
+    for (final Worker worker : this.workers) {
+      this.threads.add(threadFactory.newThread(worker));
+    }
+  }
+
+  /**
+   * Create a WorkerPool whose Workers each run on their own virtual thread (Java 21+). A virtual
+   * thread blocked on I/O does not occupy an OS thread, so thousands of Workers running I/O-bound
+   * jobs can share a JVM. Use Workers that share a connection pool, such as those created by {@link
+   * WorkerPoolImplFactory}, so that the number of Redis connections is bounded by the pool rather
+   * than the number of Workers; leave blocking pops disabled, since a Worker waiting in a blocking
+   * pop holds a pooled connection for the whole wait.
+   *
+   * @param workerFactory a Callable that returns an implementation of Worker
+   * @param numWorkers the number of Workers to create
+   * @return a new WorkerPool
+   * @throws UnsupportedOperationException if the running JVM does not support virtual threads
+   */
+  public static WorkerPool withVirtualThreads(
+      final Callable<? extends Worker> workerFactory, final int numWorkers) {
+    return new WorkerPool(
+        workerFactory, numWorkers, VirtualThreads.newThreadFactory("Jesque-Worker-"));
+  }
+
+  /**
+   * @return the Workers of this pool
+   */
+  protected List<Worker> getWorkers() {
+    return this.workers;
+  }
+
   /**
    * Shutdown this pool and wait millis time per thread or until all threads are finished if millis
    * is 0.
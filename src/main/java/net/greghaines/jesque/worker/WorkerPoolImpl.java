@@ -17,13 +17,21 @@ import static net.greghaines.jesque.worker.WorkerEvent.*;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import net.greghaines.jesque.Config;
 import net.greghaines.jesque.utils.ScriptUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.AbstractTransaction;
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.RedisClient;
 import redis.clients.jedis.UnifiedJedis;
 import redis.clients.jedis.exceptions.JedisNoScriptException;
+import redis.clients.jedis.util.KeyValue;
 
 /**
  * WorkerPoolImpl is an implementation of the Worker interface that uses a connection pool. Obeys
@@ -50,6 +58,9 @@ public class WorkerPoolImpl extends AbstractWorker {
   }
 
   protected final UnifiedJedis jedisPool;
+  // The client ID of each pooled connection this worker has blocked on, so that it is looked up
+  // once per connection; only touched by the polling thread
+  private final Map<Connection, Long> connectionClientIds = new WeakHashMap<>();
 
   /**
    * Creates a new WorkerImpl, with the given connection to Redis.<br>
@@ -108,6 +119,7 @@ public class WorkerPoolImpl extends AbstractWorker {
           loadRedisScripts();
         } else {
           LOG.info("Waiting " + RECONNECT_SLEEP_TIME + "ms for pool to reconnect to redis", ex);
+          reconnect();
           try {
             Thread.sleep(RECONNECT_SLEEP_TIME);
           } catch (InterruptedException e) {
@@ -131,11 +143,50 @@ public class WorkerPoolImpl extends AbstractWorker {
     }
   }
 
+  /**
+   * Waits on a connection borrowed from the pool for the duration of the wait. When the pool is a
+   * {@link RedisClient}, the connection's client ID is published so that {@link #end(boolean)} can
+   * interrupt the wait; otherwise the wait ends when its timeout expires.
+   */
+  @Override
+  protected KeyValue<String, String> blockingPop(
+      final List<String> queues, final String curQueue, final double timeoutSecs) {
+    if (!(this.jedisPool instanceof RedisClient)) {
+      return super.blockingPop(queues, curQueue, timeoutSecs);
+    }
+    final Connection connection = ((RedisClient) this.jedisPool).getPool().getResource();
+    try (final Jedis jedis = new Jedis(connection)) {
+      this.blockingClientId.set(
+          this.connectionClientIds.computeIfAbsent(connection, c -> jedis.clientId()));
+      try {
+        return blockingPop(jedis, queues, curQueue, timeoutSecs);
+      } finally {
+        this.blockingClientId.set(-1);
+      }
+    }
+  }
+
+  /** Forgets the client IDs of the pooled connections, which the pool may have replaced. */
+  @Override
+  protected void reconnect() {
+    this.connectionClientIds.clear();
+  }
+
+  @Override
+  protected void unblockClient(final long clientId) {
+    this.jedisPool.sendCommand(Protocol.Command.CLIENT, "UNBLOCK", Long.toString(clientId));
+  }
+
   @Override
   protected AbstractTransaction createTransaction() {
     return this.jedisPool.multi();
   }
 
+  @Override
+  protected UnifiedJedis getLeaseThreadJedis() {
+    return this.jedisPool;
+  }
+
   @Override
   protected UnifiedJedis getJedis() {
     return this.jedisPool;
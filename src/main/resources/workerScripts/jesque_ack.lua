@@ -0,0 +1,21 @@
+--#include /workerScripts/jesque_status.lua
+-- KEYS: the in-flight list, then the worker's status and the processed stats, which are left out in
+-- the cluster key layout since they are not in the queue's slot
+local inFlightKey = KEYS[1]
+local workerKey = KEYS[2]
+local processedKey = KEYS[3]
+local workerProcessedKey = KEYS[4]
+local queue = ARGV[1]
+local nextPayload = ARGV[2]
+
+redis.call('RPOP', inFlightKey)
+if workerKey then
+    redis.call('INCR', processedKey)
+    redis.call('INCR', workerProcessedKey)
+    if nextPayload ~= '' then
+        markWorking(workerKey, queue, nextPayload)
+    else
+        redis.call('DEL', workerKey)
+    end
+end
+return nil
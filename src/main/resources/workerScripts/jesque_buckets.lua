@@ -0,0 +1,17 @@
+-- Delayed jobs due far in the future are kept in hourly buckets, hashes of job JSON to due time,
+-- listed in a sorted set by the start of their hour. A bucket is moved into its delayed queue an
+-- hour before its jobs start to come due.
+local BUCKET_LOOKAHEAD = 3600000
+
+local promoteBuckets = function(queueKey, bucketsKey, now)
+	local buckets = redis.call('ZRANGEBYSCORE', bucketsKey, '-inf', tonumber(now) + BUCKET_LOOKAHEAD)
+	for _, bucket in ipairs(buckets) do
+		local bucketKey = bucketsKey .. ':' .. bucket
+		local entries = redis.call('HGETALL', bucketKey)
+		for i = 1, #entries, 2 do
+			redis.call('ZADD', queueKey, entries[i + 1], entries[i])
+		end
+		redis.call('DEL', bucketKey)
+		redis.call('ZREM', bucketsKey, bucket)
+	end
+end
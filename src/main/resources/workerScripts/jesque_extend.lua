@@ -0,0 +1,11 @@
+-- KEYS: a lease or lock
+-- Extends it only if it is still held by the given holder, so that a holder whose lease expired
+-- does not take it back from the next holder
+local leaseKey = KEYS[1]
+local holder = ARGV[1]
+local leaseMillis = ARGV[2]
+
+if redis.call('GET', leaseKey) == holder then
+	return redis.call('PEXPIRE', leaseKey, leaseMillis)
+end
+return 0
@@ -0,0 +1,32 @@
+--#include /workerScripts/jesque_ready.lua
+-- KEYS: the schedules' next fire times, then the queue to push the job to, the set of queues and
+-- the ready queues set, which are left out in the cluster key layout, leaving the caller to push
+-- the job once the schedule has moved on
+-- ARGV: the schedule, the fire time the caller read, the schedule's next fire time ('' if it never
+-- fires again), the name of the queue, the job
+-- Returns 1 if the job was pushed, 0 if the schedule changed or was fired by someone else first
+local nextKey = KEYS[1]
+local queueKey = KEYS[2]
+local queuesKey = KEYS[3]
+local readyKey = KEYS[4]
+local schedule = ARGV[1]
+local fireTime = ARGV[2]
+local nextFireTime = ARGV[3]
+local queue = ARGV[4]
+local job = ARGV[5]
+
+local score = redis.call('ZSCORE', nextKey, schedule)
+if not score or tonumber(score) ~= tonumber(fireTime) then
+	return 0
+end
+if queueKey then
+	redis.call('RPUSH', queueKey, job)
+	redis.call('SADD', queuesKey, queue)
+	markReady(readyKey, queue)
+end
+if nextFireTime == '' then
+	redis.call('ZREM', nextKey, schedule)
+else
+	redis.call('ZADD', nextKey, nextFireTime, schedule)
+end
+return 1
@@ -0,0 +1,34 @@
+--#include /workerScripts/jesque_status.lua
+--#include /workerScripts/jesque_ready.lua
+-- KEYS: the lane of an ordered queue, the in-flight list, the lane's lease, then the worker's
+-- status and the ready queues set, which are left out in the cluster key layout since they are not
+-- in the lane's slot
+local laneKey = KEYS[1]
+local inFlightKey = KEYS[2]
+local leaseKey = KEYS[3]
+local workerKey = KEYS[4]
+local readyKey = KEYS[5]
+local lane = ARGV[1]
+local holder = ARGV[2]
+local leaseMillis = ARGV[3]
+
+local ok, laneType = next(redis.call('TYPE', laneKey))
+if laneType ~= 'list' then
+	if readyKey then
+		markDrainedIfEmpty(readyKey, lane, laneKey)
+	end
+	return nil
+end
+-- Another worker is running the lane's previous job; the lane stays ready for when it is done
+if not redis.call('SET', leaseKey, holder, 'NX', 'PX', leaseMillis) then
+	return nil
+end
+local payload = redis.call('LPOP', laneKey)
+redis.call('LPUSH', inFlightKey, payload)
+if workerKey then
+	markWorking(workerKey, lane, payload)
+end
+if readyKey then
+	markDrainedIfEmpty(readyKey, lane, laneKey)
+end
+return payload
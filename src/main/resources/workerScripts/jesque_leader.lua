@@ -0,0 +1,20 @@
+-- KEYS: the leader lock
+-- ARGV: the candidate, the lease in milliseconds, 'release' to give up leadership
+-- Returns 1 if the candidate is (still) the leader
+local lockKey = KEYS[1]
+local candidate = ARGV[1]
+local lease = ARGV[2]
+local release = (ARGV[3] == 'release')
+
+if redis.call('GET', lockKey) == candidate then
+	if release then
+		redis.call('DEL', lockKey)
+		return 0
+	end
+	redis.call('PEXPIRE', lockKey, lease)
+	return 1
+end
+if not release and redis.call('SET', lockKey, candidate, 'NX', 'PX', lease) then
+	return 1
+end
+return 0
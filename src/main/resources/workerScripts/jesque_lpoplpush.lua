@@ -1,11 +1,24 @@
-local queueKey = KEYS[1]
-local inFlightKey = KEYS[2]
-local payload = nil
-local ok, queueType = next(redis.call('TYPE', queueKey))
-if queueType == 'list' then
-    payload = redis.call('LPOP', queueKey)
-    if payload then
-        redis.call('LPUSH', inFlightKey, payload)
-    end
+--#include /workerScripts/jesque_ready.lua
+-- KEYS: the in-flight list, the queue, then the ready queues set, which is left out in the cluster
+-- key layout since it is not in the queue's slot
+-- ARGV: the queue's name, then the payload of the job to move or '' for the oldest in-flight job,
+-- which is the one being processed since the ack takes jobs from the same end
+local inFlightKey = KEYS[1]
+local queueKey = KEYS[2]
+local readyKey = KEYS[3]
+local readyQueue = ARGV[1]
+local payload = ARGV[2]
+if payload and payload ~= '' then
+	if redis.call('LREM', inFlightKey, -1, payload) == 0 then
+		return nil
+	end
+else
+	payload = redis.call('RPOP', inFlightKey)
+end
+if payload then
+	redis.call('LPUSH', queueKey, payload)
+	if readyKey then
+		markReady(readyKey, readyQueue)
+	end
 end
 return payload
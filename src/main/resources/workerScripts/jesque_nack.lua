@@ -0,0 +1,50 @@
+--#include /workerScripts/jesque_status.lua
+--#include /workerScripts/jesque_ready.lua
+-- KEYS: the in-flight list, the queue, then the worker's status, the failed stats, the fail queue
+-- and the ready queues set, which are left out in the cluster key layout since they are not in the
+-- queue's slot
+local inFlightKey = KEYS[1]
+local queueKey = KEYS[2]
+local workerKey = KEYS[3]
+local failedKey = KEYS[4]
+local workerFailedKey = KEYS[5]
+local failQueueKey = KEYS[6]
+local readyKey = KEYS[7]
+local requeue = ARGV[1]
+local failMsg = ARGV[2]
+local failQueueMaxItems = tonumber(ARGV[3])
+local queue = ARGV[4]
+local nextPayload = ARGV[5]
+
+if workerKey then
+    redis.call('INCR', failedKey)
+    redis.call('INCR', workerFailedKey)
+    if failMsg ~= '' then
+        redis.call('RPUSH', failQueueKey, failMsg)
+        if failQueueMaxItems > 0 then
+            redis.call('LTRIM', failQueueKey, -failQueueMaxItems, -1)
+        end
+    end
+end
+if requeue == 'true' then
+    local ok, queueType = next(redis.call('TYPE', queueKey))
+    if queueType == 'list' or queueType == 'none' then
+        local payload = redis.call('RPOP', inFlightKey)
+        if payload then
+            redis.call('LPUSH', queueKey, payload)
+            if readyKey then
+                markReady(readyKey, queue)
+            end
+        end
+    end
+else
+    redis.call('RPOP', inFlightKey)
+end
+if workerKey then
+    if nextPayload ~= '' then
+        markWorking(workerKey, queue, nextPayload)
+    else
+        redis.call('DEL', workerKey)
+    end
+end
+return nil
@@ -0,0 +1,27 @@
+-- KEYS: the queues to peek at
+-- ARGV: now
+-- Returns when the job at the head of each queue was enqueued, or -1 if the queue has no job ready
+local now = tonumber(ARGV[1])
+
+local isError = function(reply)
+    return type(reply) == 'table' and reply.err ~= nil
+end
+
+local enqueuedAts = {}
+for i = 1, #KEYS do
+    local enqueuedAt = -1
+    local head = redis.pcall('LINDEX', KEYS[i], 0)
+    if isError(head) then
+        -- A delayed queue; its job is due from the time it was scheduled for
+        local due = redis.pcall('ZRANGEBYSCORE', KEYS[i], '-inf', now, 'LIMIT', 0, 1, 'WITHSCORES')
+        if not isError(due) and due[2] then
+            enqueuedAt = tonumber(due[2])
+        end
+    elseif head then
+        local ok, job = pcall(cjson.decode, head)
+        -- Jobs enqueued without a stamp are treated as having just arrived
+        enqueuedAt = (ok and type(job) == 'table' and tonumber(job.enqueued_at)) or now
+    end
+    enqueuedAts[i] = math.floor(enqueuedAt)
+end
+return enqueuedAts
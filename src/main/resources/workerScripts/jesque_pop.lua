@@ -1,31 +1,138 @@
+--#include /workerScripts/jesque_status.lua
+--#include /workerScripts/jesque_ready.lua
+--#include /workerScripts/jesque_buckets.lua
+--#include /workerScripts/jesque_rate.lua
+--#include /workerScripts/jesque_semaphore.lua
+-- KEYS: the queue, the in-flight list, the queue's recurring frequencies, the queue's buckets, then
+-- the worker's status and the ready queues set, which are left out in the cluster key layout since
+-- they are not in the queue's slot
 local queueKey = KEYS[1]
 local inFlightKey = KEYS[2]
 local freqKey = KEYS[3]
+local bucketsKey = KEYS[4]
+local workerKey = KEYS[5]
+local readyKey = KEYS[6]
 local now = ARGV[1]
+local queue = ARGV[2]
+local count = tonumber(ARGV[3])
+-- Limits, given along with a count. Rate limits: the queue's bucket or '', its permits and period,
+-- the prefix of the job classes' buckets and a JSON object of each limited class's permits and
+-- period or ''. Concurrency limits, if any: the queue's semaphore or '', its permits, the prefix of
+-- the job classes' semaphores, a JSON object of each limited class's permits or '', the worker
+-- holding the permits and how long it holds them
+local limited = (ARGV[4] ~= nil)
+local limitKey = ARGV[4]
+local limitPermits = tonumber(ARGV[5])
+local limitPeriod = tonumber(ARGV[6])
+local jobLimitPrefix = ARGV[7]
+local jobLimits = (ARGV[8] ~= nil and ARGV[8] ~= '') and cjson.decode(ARGV[8])
+local semaphoreKey = ARGV[9] or ''
+local semaphorePermits = tonumber(ARGV[10])
+local jobSemaphorePrefix = ARGV[11]
+local jobSemaphores = (ARGV[12] ~= nil and ARGV[12] ~= '') and cjson.decode(ARGV[12])
+local holder = ARGV[13]
+local leaseMillis = tonumber(ARGV[14])
+local limitNow = limited and nowMillis()
 
-local payload = nil
+-- Takes a permit for the job from each limit that applies to it, or none if any has none left
+local takePermits = function(payload)
+	local queueTokens = nil
+	if limitKey ~= '' then
+		queueTokens = bucketTokens(limitKey, limitPermits, limitPeriod, limitNow)
+		if queueTokens < 1 then
+			return false
+		end
+	end
+	if semaphoreKey ~= '' and not permitFree(semaphoreKey, semaphorePermits, holder, limitNow) then
+		return false
+	end
+	local jobClass = nil
+	if jobLimits or jobSemaphores then
+		local decoded, job = pcall(cjson.decode, payload)
+		jobClass = decoded and (type(job) == 'table') and job['class']
+	end
+	local jobKey, jobLimit, jobTokens = nil, nil, nil
+	if jobClass and jobLimits and jobLimits[jobClass] then
+		jobLimit = jobLimits[jobClass]
+		jobKey = jobLimitPrefix .. jobClass
+		jobTokens = bucketTokens(jobKey, jobLimit[1], jobLimit[2], limitNow)
+		if jobTokens < 1 then
+			return false
+		end
+	end
+	local jobSemaphoreKey = nil
+	if jobClass and jobSemaphores and jobSemaphores[jobClass] then
+		jobSemaphoreKey = jobSemaphorePrefix .. jobClass
+		if not permitFree(jobSemaphoreKey, jobSemaphores[jobClass], holder, limitNow) then
+			return false
+		end
+	end
+	if queueTokens then
+		spendToken(limitKey, queueTokens, limitPeriod, limitNow)
+	end
+	if jobTokens then
+		spendToken(jobKey, jobTokens, jobLimit[2], limitNow)
+	end
+	if semaphoreKey ~= '' then
+		takePermit(semaphoreKey, holder, limitNow, leaseMillis)
+	end
+	if jobSemaphoreKey then
+		takePermit(jobSemaphoreKey, holder, limitNow, leaseMillis)
+	end
+	return true
+end
 
 local not_empty = function(x)
   return (type(x) == 'table') and (not x.err) and (#x ~= 0)
 end
 
+local payloads = {}
 local ok, queueType = next(redis.call('TYPE', queueKey))
+if queueType ~= 'list' then
+	promoteBuckets(queueKey, bucketsKey, now)
+	ok, queueType = next(redis.call('TYPE', queueKey))
+end
 if queueType == 'zset' then
 	local i, lPayload = next(redis.call('ZRANGEBYSCORE', queueKey, '-inf', now, 'LIMIT' , '0' , '1'))
-	if lPayload then
-		payload = lPayload
-		local frequency = redis.call('HGET', freqKey, payload)
+	if lPayload and ((not limited) or takePermits(lPayload)) then
+		payloads[1] = lPayload
+		local frequency = redis.call('HGET', freqKey, lPayload)
 		if frequency then
-			redis.call('ZINCRBY', queueKey, frequency, payload)
+			redis.call('ZINCRBY', queueKey, frequency, lPayload)
 		else
-			redis.call('ZREM', queueKey, payload)
+			redis.call('ZREM', queueKey, lPayload)
 		end
 	end
 elseif queueType == 'list' then
-	payload = redis.call('LPOP', queueKey)
-	if payload then
-		redis.call('LPUSH', inFlightKey, payload)
+	for i = 1, (count or 1) do
+		local lPayload = nil
+		if limited then
+			-- A job that is not allowed yet stays at the head of the queue
+			lPayload = redis.call('LINDEX', queueKey, 0)
+			if (not lPayload) or (not takePermits(lPayload)) then
+				break
+			end
+			redis.call('LPOP', queueKey)
+		else
+			lPayload = redis.call('LPOP', queueKey)
+		end
+		if not lPayload then
+			break
+		end
+		redis.call('LPUSH', inFlightKey, lPayload)
+		payloads[i] = lPayload
 	end
 end
 
-return payload
+if payloads[1] and workerKey then
+	markWorking(workerKey, queue, payloads[1])
+end
+if readyKey then
+	markDrainedIfEmpty(readyKey, queue, queueKey, bucketsKey)
+end
+
+-- Only batch claims (when a count is given) return an array
+if count then
+	return payloads
+end
+return payloads[1]
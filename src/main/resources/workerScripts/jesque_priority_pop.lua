@@ -0,0 +1,67 @@
+--#include /workerScripts/jesque_status.lua
+--#include /workerScripts/jesque_ready.lua
+--#include /workerScripts/jesque_buckets.lua
+-- KEYS: the in-flight list, the worker's status, the ready queues set, the queues in priority
+-- order, then the buckets of each queue in the same order
+-- ARGV: now, the name of each queue, then the last known type of each queue ('' if unknown)
+local inFlightKey = KEYS[1]
+local workerKey = KEYS[2]
+local readyKey = KEYS[3]
+local now = ARGV[1]
+local queueCount = (#KEYS - 3) / 2
+
+local isError = function(reply)
+    return type(reply) == 'table' and reply.err ~= nil
+end
+
+-- Returns the payload, false if the queue is empty or nil if the queue is not of the given type
+local popAs = function(queueKey, queueType)
+    if queueType == 'zset' then
+        local due = redis.pcall('ZRANGEBYSCORE', queueKey, '-inf', now, 'LIMIT', '0', '1')
+        if isError(due) then
+            return nil
+        end
+        local payload = due[1]
+        if payload then
+            redis.call('ZREM', queueKey, payload)
+            return payload
+        end
+        return false
+    end
+    local payload = redis.pcall('LPOP', queueKey)
+    if isError(payload) then
+        return nil
+    end
+    return payload
+end
+
+local result = {false}
+for i = 1, queueCount do
+    local queueKey = KEYS[i + 3]
+    local bucketsKey = KEYS[queueCount + i + 3]
+    if ARGV[queueCount + i + 1] ~= 'list' then
+        promoteBuckets(queueKey, bucketsKey, now)
+    end
+    local payload = popAs(queueKey, ARGV[queueCount + i + 1])
+    if payload == nil then
+        -- The cached type was wrong, so look it up once and report it back
+        local ok, queueType = next(redis.call('TYPE', queueKey))
+        result[i + 1] = queueType
+        payload = popAs(queueKey, queueType)
+    end
+    if payload then
+        redis.call('LPUSH', inFlightKey, payload)
+        markWorking(workerKey, ARGV[i + 1], payload)
+    end
+    markDrainedIfEmpty(readyKey, ARGV[i + 1], queueKey, bucketsKey)
+    if payload then
+        result[1] = payload
+        break
+    end
+end
+for i = 2, queueCount + 1 do
+    if result[i] == nil then
+        result[i] = ''
+    end
+end
+return result
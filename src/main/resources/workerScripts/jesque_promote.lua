@@ -0,0 +1,46 @@
+--#include /workerScripts/jesque_ready.lua
+--#include /workerScripts/jesque_buckets.lua
+-- KEYS: the delayed queue, the queue to move due jobs to, the delayed queue's recurring
+-- frequencies, the delayed queue's buckets, then the set of queues and the ready queues set, which
+-- are left out in the cluster key layout since they are not in the queues' slot
+-- ARGV: now, the most jobs to move, the name of the queue to move due jobs to
+-- Returns the number of jobs moved and when the next job is due (-1 if the delayed queue is empty)
+local delayedKey = KEYS[1]
+local targetKey = KEYS[2]
+local freqKey = KEYS[3]
+local bucketsKey = KEYS[4]
+local queuesKey = KEYS[5]
+local readyKey = KEYS[6]
+local now = ARGV[1]
+local count = tonumber(ARGV[2])
+local targetQueue = ARGV[3]
+
+promoteBuckets(delayedKey, bucketsKey, now)
+local due = redis.call('ZRANGEBYSCORE', delayedKey, '-inf', now, 'LIMIT', 0, count)
+for _, payload in ipairs(due) do
+	redis.call('RPUSH', targetKey, payload)
+	local frequency = redis.call('HGET', freqKey, payload)
+	if frequency then
+		redis.call('ZINCRBY', delayedKey, frequency, payload)
+	else
+		redis.call('ZREM', delayedKey, payload)
+	end
+end
+if #due > 0 and queuesKey then
+	redis.call('SADD', queuesKey, targetQueue)
+	markReady(readyKey, targetQueue)
+end
+
+local nextDue = -1
+local head = redis.call('ZRANGE', delayedKey, 0, 0, 'WITHSCORES')
+if head[2] then
+	nextDue = math.floor(tonumber(head[2]))
+end
+local bucket = redis.call('ZRANGE', bucketsKey, 0, 0, 'WITHSCORES')
+if bucket[2] then
+	local bucketDue = math.floor(tonumber(bucket[2])) - BUCKET_LOOKAHEAD
+	if nextDue < 0 or bucketDue < nextDue then
+		nextDue = bucketDue
+	end
+end
+return {#due, nextDue}
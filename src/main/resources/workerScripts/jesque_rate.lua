@@ -0,0 +1,25 @@
+-- Rate limits are token buckets, hashes of the permits left and when they were counted in
+-- milliseconds of server time. A bucket holds up to its number of permits and refills at that many
+-- permits per period; a missing bucket is full.
+
+local nowMillis = function()
+	local time = redis.call('TIME')
+	return (tonumber(time[1]) * 1000) + math.floor(tonumber(time[2]) / 1000)
+end
+
+-- The permits in the bucket at the given time, which may be fractional
+local bucketTokens = function(bucketKey, permits, periodMillis, now)
+	local bucket = redis.call('HMGET', bucketKey, 'tokens', 'ts')
+	local tokens = tonumber(bucket[1])
+	if not tokens then
+		return permits
+	end
+	local elapsed = math.max(0, now - tonumber(bucket[2]))
+	return math.min(permits, tokens + (elapsed * permits / periodMillis))
+end
+
+local spendToken = function(bucketKey, tokens, periodMillis, now)
+	redis.call('HSET', bucketKey, 'tokens', tostring(tokens - 1), 'ts', tostring(now))
+	-- A bucket left alone for a period is full again, the same as a missing one
+	redis.call('PEXPIRE', bucketKey, periodMillis)
+end
@@ -0,0 +1,12 @@
+-- The ready queues set holds the name of every queue that may have jobs in it
+
+local markReady = function(readyKey, queue)
+	redis.call('SADD', readyKey, queue)
+end
+
+-- Removes the queue from the set if none of the given keys holding its jobs exist
+local markDrainedIfEmpty = function(readyKey, queue, ...)
+	if redis.call('EXISTS', ...) == 0 then
+		redis.call('SREM', readyKey, queue)
+	end
+end
@@ -0,0 +1,10 @@
+-- KEYS: a lease or lock
+-- Deletes it only if it is still held by the given holder, so that a holder whose lease expired
+-- does not release it from under the next holder
+local leaseKey = KEYS[1]
+local holder = ARGV[1]
+
+if redis.call('GET', leaseKey) == holder then
+	return redis.call('DEL', leaseKey)
+end
+return 0
@@ -0,0 +1,8 @@
+-- KEYS: the semaphores of the concurrency limits that may apply to the worker's job
+-- Gives back the permits the given holder took from them, if it still holds them
+local holder = ARGV[1]
+
+for i = 1, #KEYS do
+	redis.call('ZREM', KEYS[i], holder)
+end
+return #KEYS
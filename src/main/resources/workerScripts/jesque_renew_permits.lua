@@ -0,0 +1,21 @@
+--#include /workerScripts/jesque_rate.lua
+-- KEYS: the semaphores of the concurrency limits that may apply to the worker's job
+-- Extends the permits the given holder took from them, only where it still holds them, so that a
+-- holder whose permit expired and may have been reclaimed does not take it back
+-- Returns how many permits were extended
+local holder = ARGV[1]
+local leaseMillis = tonumber(ARGV[2])
+local now = nowMillis()
+
+local renewed = 0
+for i = 1, #KEYS do
+	local expiresAt = redis.call('ZSCORE', KEYS[i], holder)
+	if expiresAt and tonumber(expiresAt) > now then
+		redis.call('ZADD', KEYS[i], 'XX', now + leaseMillis, holder)
+		if redis.call('PTTL', KEYS[i]) < leaseMillis then
+			redis.call('PEXPIRE', KEYS[i], leaseMillis)
+		end
+		renewed = renewed + 1
+	end
+end
+return renewed
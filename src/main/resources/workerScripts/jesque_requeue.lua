@@ -0,0 +1,18 @@
+--#include /workerScripts/jesque_ready.lua
+-- KEYS: the in-flight list, the queue, then the ready queues set, which is left out in the cluster
+-- key layout since it is not in the queue's slot
+local inFlightKey = KEYS[1]
+local queueKey = KEYS[2]
+local readyKey = KEYS[3]
+local payload = ARGV[1]
+local queue = ARGV[2]
+
+-- Only jobs claimed from a list queue are in the in-flight list
+if redis.call('LREM', inFlightKey, -1, payload) > 0 then
+    redis.call('LPUSH', queueKey, payload)
+    if readyKey then
+        markReady(readyKey, queue)
+    end
+    return 1
+end
+return 0
@@ -0,0 +1,21 @@
+-- Concurrency limits are counting semaphores, sorted sets of the workers holding their permits
+-- scored by when each permit expires in milliseconds of server time, so that the permits of workers
+-- that died are reclaimed. A worker holds at most one permit of a semaphore.
+
+-- Whether the holder has or may take a permit of the semaphore at the given time
+local permitFree = function(semaphoreKey, permits, holder, now)
+	redis.call('ZREMRANGEBYSCORE', semaphoreKey, '-inf', now)
+	if redis.call('ZSCORE', semaphoreKey, holder) then
+		return true
+	end
+	return redis.call('ZCARD', semaphoreKey) < permits
+end
+
+local takePermit = function(semaphoreKey, holder, now, leaseMillis)
+	redis.call('ZADD', semaphoreKey, now + leaseMillis, holder)
+	-- Every permit has expired by the time the semaphore does; only ever extend its time to live,
+	-- since other holders may have taken theirs with a longer lease
+	if redis.call('PTTL', semaphoreKey) < leaseMillis then
+		redis.call('PEXPIRE', semaphoreKey, leaseMillis)
+	end
+end
@@ -0,0 +1,22 @@
+local resqueDate = function()
+	local time = redis.call('TIME')
+	local secs = tonumber(time[1])
+	local millis = math.floor(tonumber(time[2]) / 1000)
+	local days = math.floor(secs / 86400)
+	local rem = secs - (days * 86400)
+	local z = days + 719468
+	local era = math.floor(z / 146097)
+	local doe = z - (era * 146097)
+	local yoe = math.floor((doe - math.floor(doe / 1460) + math.floor(doe / 36524) - math.floor(doe / 146096)) / 365)
+	local doy = doe - ((365 * yoe) + math.floor(yoe / 4) - math.floor(yoe / 100))
+	local mp = math.floor(((5 * doy) + 2) / 153)
+	local day = doy - math.floor(((153 * mp) + 2) / 5) + 1
+	local month = (mp < 10) and (mp + 3) or (mp - 9)
+	local year = yoe + (era * 400) + ((month <= 2) and 1 or 0)
+	return string.format('%04d-%02d-%02dT%02d:%02d:%02d.%03d+0000', year, month, day,
+		math.floor(rem / 3600), math.floor((rem % 3600) / 60), rem % 60, millis)
+end
+
+local markWorking = function(workerKey, queue, payload)
+	redis.call('SET', workerKey, '{"run_at":"' .. resqueDate() .. '","queue":' .. cjson.encode(queue) .. ',"payload":' .. payload .. ',"paused":false}')
+end
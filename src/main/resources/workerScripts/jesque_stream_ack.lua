@@ -0,0 +1,26 @@
+--#include /workerScripts/jesque_status.lua
+-- KEYS: the stream, then the worker's status, the processed stat and the worker's processed stat,
+-- which are left out in the cluster key layout since they are not in the stream's slot
+-- ARGV: the consumer group, the ID of the job's entry, the name of the queue, the JSON of the next
+-- claimed job ('' if there is none)
+local streamKey = KEYS[1]
+local workerKey = KEYS[2]
+local processedKey = KEYS[3]
+local workerProcessedKey = KEYS[4]
+local group = ARGV[1]
+local id = ARGV[2]
+local queue = ARGV[3]
+local nextPayload = ARGV[4]
+
+redis.call('XACK', streamKey, group, id)
+redis.call('XDEL', streamKey, id)
+if workerKey then
+    redis.call('INCR', processedKey)
+    redis.call('INCR', workerProcessedKey)
+    if nextPayload ~= '' then
+        markWorking(workerKey, queue, nextPayload)
+    else
+        redis.call('DEL', workerKey)
+    end
+end
+return nil
@@ -0,0 +1,48 @@
+--#include /workerScripts/jesque_status.lua
+-- KEYS: the stream, then the worker's status, the failed stat, the worker's failed stat and the
+-- fail queue ('' if the failure is not recorded), which are left out in the cluster key layout
+-- since they are not in the stream's slot
+-- ARGV: the consumer group, the ID of the job's entry, 'true' to hand the job back instead of
+-- dropping it, the failure to record, the most failures to keep, the name of the queue, the JSON of
+-- the next claimed job ('' if there is none), the consumer, the idle time after which entries are
+-- reclaimed
+local streamKey = KEYS[1]
+local workerKey = KEYS[2]
+local failedKey = KEYS[3]
+local workerFailedKey = KEYS[4]
+local failQueueKey = KEYS[5]
+local group = ARGV[1]
+local id = ARGV[2]
+local requeue = ARGV[3]
+local failMsg = ARGV[4]
+local failQueueMaxItems = tonumber(ARGV[5])
+local queue = ARGV[6]
+local nextPayload = ARGV[7]
+local consumer = ARGV[8]
+local claimIdle = ARGV[9]
+
+if workerKey then
+    redis.call('INCR', failedKey)
+    redis.call('INCR', workerFailedKey)
+    if failMsg ~= '' then
+        redis.call('RPUSH', failQueueKey, failMsg)
+        if failQueueMaxItems > 0 then
+            redis.call('LTRIM', failQueueKey, -failQueueMaxItems, -1)
+        end
+    end
+end
+if requeue == 'true' then
+    -- Leave the entry pending but make it look abandoned so the next worker reclaims it at once
+    redis.call('XCLAIM', streamKey, group, consumer, 0, id, 'IDLE', claimIdle, 'JUSTID')
+else
+    redis.call('XACK', streamKey, group, id)
+    redis.call('XDEL', streamKey, id)
+end
+if workerKey then
+    if nextPayload ~= '' then
+        markWorking(workerKey, queue, nextPayload)
+    else
+        redis.call('DEL', workerKey)
+    end
+end
+return nil
@@ -0,0 +1,57 @@
+--#include /workerScripts/jesque_status.lua
+--#include /workerScripts/jesque_ready.lua
+-- Takes the next job of a tenant queue by deficit round robin. The tenants with jobs are listed in
+-- the order of their turns; the tenant at the head takes up to the quantum of jobs, counting down
+-- its deficit, then moves to the tail. Jobs added without a tenant, or handed back by a worker, are
+-- in the queue's own list, which takes its turns as the tenant ''.
+-- KEYS: the queue, the rotation of tenants, the deficits of the tenants, the in-flight list, then
+-- the worker's status and the ready queues set, which are left out in the cluster key layout since
+-- they are not in the queue's slot
+local queueKey = KEYS[1]
+local tenantsKey = KEYS[2]
+local deficitsKey = KEYS[3]
+local inFlightKey = KEYS[4]
+local workerKey = KEYS[5]
+local readyKey = KEYS[6]
+local queue = ARGV[1]
+local quantum = tonumber(ARGV[2])
+local tenantPrefix = ARGV[3]
+
+if redis.call('EXISTS', queueKey) == 1 and not redis.call('LPOS', tenantsKey, '') then
+	-- Handed back jobs were at the head of the queue, so they go first
+	redis.call('LPUSH', tenantsKey, '')
+end
+
+local payload = nil
+for _ = 1, redis.call('LLEN', tenantsKey) do
+	local tenant = redis.call('LINDEX', tenantsKey, 0)
+	local tenantKey = (tenant == '') and queueKey or (tenantPrefix .. tenant)
+	payload = redis.call('LPOP', tenantKey)
+	if payload then
+		local deficit = tonumber(redis.call('HGET', deficitsKey, tenant) or quantum) - 1
+		if redis.call('EXISTS', tenantKey) == 0 then
+			redis.call('LPOP', tenantsKey)
+			redis.call('HDEL', deficitsKey, tenant)
+		elseif deficit <= 0 then
+			redis.call('LMOVE', tenantsKey, tenantsKey, 'LEFT', 'RIGHT')
+			redis.call('HDEL', deficitsKey, tenant)
+		else
+			redis.call('HSET', deficitsKey, tenant, deficit)
+		end
+		break
+	end
+	-- The tenant's jobs were removed; it rejoins the rotation with its next job
+	redis.call('LPOP', tenantsKey)
+	redis.call('HDEL', deficitsKey, tenant)
+end
+
+if payload then
+	redis.call('LPUSH', inFlightKey, payload)
+	if workerKey then
+		markWorking(workerKey, queue, payload)
+	end
+end
+if readyKey then
+	markDrainedIfEmpty(readyKey, queue, tenantsKey, queueKey)
+end
+return payload
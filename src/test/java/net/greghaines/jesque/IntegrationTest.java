@@ -29,6 +29,7 @@ import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import net.greghaines.jesque.client.Client;
 import net.greghaines.jesque.client.ClientImpl;
@@ -152,6 +153,53 @@ public class IntegrationTest {
     assertThat(client.acquireLock("systemLockA", "pete", Duration.ofDays(1))).isTrue();
   }
 
+  @Test
+  public void tryLockWaitsForRelease() throws Exception {
+    LOG.info("Running tryLockWaitsForRelease()...");
+    final Client client = new ClientImpl(CONFIG);
+    try {
+      assertThat(client.acquireLock("systemLockB", "pete", Duration.ofMillis(300))).isTrue();
+      assertThat(client.tryLock("systemLockB", "george", Duration.ofSeconds(10), Duration.ZERO))
+          .isFalse();
+      // Pete's lease runs out while George waits
+      assertThat(
+              client.tryLock(
+                  "systemLockB", "george", Duration.ofSeconds(10), Duration.ofSeconds(2)))
+          .isTrue();
+      // Pete's lock expired, so releasing it must not free George's
+      assertThat(client.releaseLock("systemLockB", "pete")).isFalse();
+      assertThat(client.extendLock("systemLockB", "pete", Duration.ofSeconds(10))).isFalse();
+      assertThat(client.releaseLock("systemLockB", "george")).isTrue();
+    } finally {
+      client.end();
+    }
+  }
+
+  @Test
+  public void watchLockKeepsLock() throws Exception {
+    LOG.info("Running watchLockKeepsLock()...");
+    final Client client = new ClientImpl(CONFIG);
+    try {
+      final Duration leaseTime = Duration.ofMillis(300);
+      assertThat(client.acquireLock("systemLockC", "pete", leaseTime)).isTrue();
+      assertThat(client.watchLock("systemLockC", "pete", leaseTime)).isTrue();
+      Thread.sleep(1000);
+      assertThat(
+              client
+                  .tryLockAsync("systemLockC", "george", leaseTime, Duration.ZERO)
+                  .get(2, TimeUnit.SECONDS))
+          .isFalse();
+      assertThat(client.releaseLock("systemLockC", "pete")).isTrue();
+      assertThat(
+              client
+                  .tryLockAsync("systemLockC", "george", leaseTime, Duration.ZERO)
+                  .get(2, TimeUnit.SECONDS))
+          .isTrue();
+    } finally {
+      client.end();
+    }
+  }
+
   @Ignore
   @Test
   public void unpermittedJob() {
@@ -0,0 +1,43 @@
+package net.greghaines.jesque;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.time.Duration;
+import org.junit.Test;
+
+public class TestRateLimit {
+
+  @Test
+  public void testConstructor_Invalid() {
+    assertThrows(IllegalArgumentException.class, () -> new RateLimit(0, Duration.ofSeconds(1)));
+    assertThrows(IllegalArgumentException.class, () -> new RateLimit(1, null));
+    assertThrows(IllegalArgumentException.class, () -> new RateLimit(1, Duration.ZERO));
+  }
+
+  @Test
+  public void testTokensAt() {
+    final RateLimit limit = new RateLimit(10, Duration.ofSeconds(1));
+    assertThat(limit.tokensAt(null, 0L, 1000L)).isEqualTo(10.0);
+    assertThat(limit.tokensAt(0.0, 1000L, 1250L)).isEqualTo(2.5);
+    assertThat(limit.tokensAt(5.0, 1000L, 9000L)).isEqualTo(10.0);
+    // A clock behind the one that counted the bucket does not drain it
+    assertThat(limit.tokensAt(5.0, 1000L, 500L)).isEqualTo(5.0);
+  }
+
+  @Test
+  public void testWaitMillis() {
+    final RateLimit limit = new RateLimit(10, Duration.ofSeconds(1));
+    assertThat(limit.waitMillis(1.5)).isEqualTo(0L);
+    assertThat(limit.waitMillis(0.0)).isEqualTo(100L);
+    assertThat(limit.waitMillis(0.75)).isEqualTo(25L);
+  }
+
+  @Test
+  public void testEquals() {
+    assertThat(new RateLimit(5, Duration.ofMinutes(1)))
+        .isEqualTo(new RateLimit(5, Duration.ofSeconds(60)));
+    assertThat(new RateLimit(5, Duration.ofMinutes(1)))
+        .isNotEqualTo(new RateLimit(6, Duration.ofMinutes(1)));
+  }
+}
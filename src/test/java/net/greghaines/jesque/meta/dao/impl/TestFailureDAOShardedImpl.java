@@ -0,0 +1,71 @@
+package net.greghaines.jesque.meta.dao.impl;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.*;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import net.greghaines.jesque.JobFailure;
+import net.greghaines.jesque.meta.dao.FailureDAO;
+import net.greghaines.jesque.utils.ShardMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.StrictStubs.class)
+public class TestFailureDAOShardedImpl {
+
+  @Mock private FailureDAO first;
+  @Mock private FailureDAO second;
+  private FailureDAOShardedImpl failureDAO;
+
+  @Before
+  public void setUp() {
+    final Map<String, FailureDAO> daos = new LinkedHashMap<>();
+    daos.put("first", this.first);
+    daos.put("second", this.second);
+    this.failureDAO = new FailureDAOShardedImpl(new ShardMap<>(daos));
+  }
+
+  @Test
+  public void testGetFailQueueJobCount() {
+    when(this.first.getFailQueueJobCount()).thenReturn(3L);
+    when(this.second.getFailQueueJobCount()).thenReturn(4L);
+    assertThat(this.failureDAO.getFailQueueJobCount()).isEqualTo(7L);
+  }
+
+  @Test
+  public void testGetFailures_SpansShards() {
+    final JobFailure firstFailure = new JobFailure();
+    final JobFailure secondFailure = new JobFailure();
+    when(this.first.getFailQueueJobCount()).thenReturn(3L);
+    when(this.second.getFailQueueJobCount()).thenReturn(4L);
+    when(this.first.getFailures(2, 1)).thenReturn(Collections.singletonList(firstFailure));
+    when(this.second.getFailures(0, 2)).thenReturn(Collections.singletonList(secondFailure));
+    assertThat(this.failureDAO.getFailures(2, 3))
+        .containsExactly(firstFailure, secondFailure)
+        .inOrder();
+  }
+
+  @Test
+  public void testRequeue_UsesShardIndex() {
+    final Date retried = new Date();
+    when(this.first.getFailQueueJobCount()).thenReturn(3L);
+    when(this.second.getFailQueueJobCount()).thenReturn(4L);
+    when(this.second.requeue(1)).thenReturn(retried);
+    assertThat(this.failureDAO.requeue(4)).isEqualTo(retried);
+    assertThat(this.failureDAO.requeue(7)).isNull();
+  }
+
+  @Test
+  public void testRemove_UsesShardIndex() {
+    when(this.first.getFailQueueJobCount()).thenReturn(3L);
+    this.failureDAO.remove(2);
+    verify(this.first).remove(2);
+    verify(this.second, never()).remove(anyLong());
+  }
+}
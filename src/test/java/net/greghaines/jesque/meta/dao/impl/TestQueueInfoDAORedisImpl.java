@@ -7,7 +7,9 @@ import static net.greghaines.jesque.utils.ResqueConstants.QUEUES;
 import static org.junit.Assert.assertThrows;
 import static org.mockito.Mockito.*;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -68,6 +70,57 @@ public class TestQueueInfoDAORedisImpl {
     assertThat(queueNames).isEqualTo(origQueueNames);
   }
 
+  @Test
+  public void testGetQueueInfos_Partitioned() {
+    final Config config = Config.newBuilder().withQueuePartitions("hot", 2).build();
+    final QueueInfoDAORedisImpl dao = new QueueInfoDAORedisImpl(config, this.jedisPool);
+    when(this.jedisPool.smembers(QUEUES_KEY)).thenReturn(Set.of("hot#0", "hot#1", "hot#2"));
+    when(this.jedisPool.type(anyString())).thenReturn(KeyType.LIST.toString());
+    when(this.jedisPool.llen("resque:queue:hot#0")).thenReturn(3L);
+    when(this.jedisPool.llen("resque:queue:hot#1")).thenReturn(4L);
+    when(this.jedisPool.llen("resque:queue:hot#2")).thenReturn(5L);
+    final List<QueueInfo> queueInfos = dao.getQueueInfos();
+    assertThat(queueInfos).hasSize(2);
+    assertThat(queueInfos.get(0).getName()).isEqualTo("hot");
+    assertThat(queueInfos.get(0).getSize()).isEqualTo(7L);
+    assertThat(queueInfos.get(1).getName()).isEqualTo("hot#2");
+    assertThat(queueInfos.get(1).getSize()).isEqualTo(5L);
+  }
+
+  @Test
+  public void testGetQueueInfos_Tenants() {
+    final Config config = Config.newBuilder().withTenantQueue("shared", 1).build();
+    final QueueInfoDAORedisImpl dao = new QueueInfoDAORedisImpl(config, this.jedisPool);
+    when(this.jedisPool.smembers(QUEUES_KEY)).thenReturn(Set.of("shared"));
+    when(this.jedisPool.type(anyString())).thenReturn(KeyType.LIST.toString());
+    when(this.jedisPool.lrange("resque:queue:shared:tenants", 0, -1))
+        .thenReturn(Arrays.asList("", "big", "small"));
+    when(this.jedisPool.llen("resque:queue:shared")).thenReturn(1L);
+    when(this.jedisPool.llen("resque:queue:shared:tenant:big")).thenReturn(2000000L);
+    when(this.jedisPool.llen("resque:queue:shared:tenant:small")).thenReturn(3L);
+    final List<QueueInfo> queueInfos = dao.getQueueInfos();
+    assertThat(queueInfos).hasSize(1);
+    assertThat(queueInfos.get(0).getSize()).isEqualTo(2000004L);
+    assertThat(queueInfos.get(0).getTenantSizes())
+        .containsExactly("big", 2000000L, "small", 3L)
+        .inOrder();
+  }
+
+  @Test
+  public void testGetQueueInfos_RateLimited() {
+    final Config config =
+        Config.newBuilder().withQueueRateLimit("api", 10, Duration.ofSeconds(1)).build();
+    final QueueInfoDAORedisImpl dao = new QueueInfoDAORedisImpl(config, this.jedisPool);
+    when(this.jedisPool.smembers(QUEUES_KEY)).thenReturn(Set.of("api"));
+    when(this.jedisPool.type(anyString())).thenReturn(KeyType.LIST.toString());
+    when(this.jedisPool.llen("resque:queue:api")).thenReturn(7L);
+    when(this.jedisPool.hmget("resque:queue:api:rate", "tokens", "ts"))
+        .thenReturn(Arrays.asList("0", Long.toString(System.currentTimeMillis() + 60000L)));
+    final QueueInfo queueInfo = dao.getQueueInfos().get(0);
+    assertThat(queueInfo.getRateLimitTokens()).isEqualTo(0.0);
+    assertThat(queueInfo.getRateLimitWaitMillis()).isEqualTo(100L);
+  }
+
   @Test
   public void testGetPendingCount() {
     final Map<String, Long> queueCountMap = Map.of("queue1", 3L, "queue2", 5L);
@@ -107,6 +160,7 @@ public class TestQueueInfoDAORedisImpl {
     final String queue = "queue1";
     this.qInfoDAO.removeQueue(queue);
     verify(this.jedisPool).srem(QUEUES_KEY, queue);
+    verify(this.jedisPool).srem("resque:ready_queues", queue);
     verify(this.jedisPool).del("resque:queue:" + queue);
   }
 
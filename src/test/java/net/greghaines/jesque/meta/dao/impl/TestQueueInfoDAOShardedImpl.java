@@ -0,0 +1,70 @@
+package net.greghaines.jesque.meta.dao.impl;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import net.greghaines.jesque.Config;
+import net.greghaines.jesque.Job;
+import net.greghaines.jesque.meta.QueueInfo;
+import net.greghaines.jesque.meta.dao.QueueInfoDAO;
+import net.greghaines.jesque.utils.ShardMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.StrictStubs.class)
+public class TestQueueInfoDAOShardedImpl {
+
+  @Mock private QueueInfoDAO first;
+  @Mock private QueueInfoDAO second;
+  private QueueInfoDAOShardedImpl queueInfoDAO;
+
+  @Before
+  public void setUp() {
+    final Map<String, QueueInfoDAO> daos = new LinkedHashMap<>();
+    daos.put("first", this.first);
+    daos.put("second", this.second);
+    final Config config = Config.newBuilder().withQueuePartitions("hot", 2).build();
+    this.queueInfoDAO =
+        new QueueInfoDAOShardedImpl(
+            config, new ShardMap<>(daos, Map.of("hot#0", "first", "hot#1", "second")));
+  }
+
+  private static QueueInfo queueInfo(final String name, final long size, final Job... jobs) {
+    final QueueInfo queueInfo = new QueueInfo();
+    queueInfo.setName(name);
+    queueInfo.setSize(size);
+    queueInfo.setDelayed(false);
+    queueInfo.setJobs(Arrays.asList(jobs));
+    return queueInfo;
+  }
+
+  @Test
+  public void testGetQueueInfos_MergesPartitionedQueue() {
+    when(this.first.getQueueInfos())
+        .thenReturn(Arrays.asList(queueInfo("cold", 1), queueInfo("hot", 2)));
+    when(this.second.getQueueInfos()).thenReturn(Collections.singletonList(queueInfo("hot", 3)));
+    final List<QueueInfo> queueInfos = this.queueInfoDAO.getQueueInfos();
+    assertThat(queueInfos).hasSize(2);
+    assertThat(queueInfos.get(1).getName()).isEqualTo("hot");
+    assertThat(queueInfos.get(1).getSize()).isEqualTo(5L);
+  }
+
+  @Test
+  public void testGetQueueInfo_SpansShards() {
+    final Job firstJob = new Job("First");
+    final Job secondJob = new Job("Second");
+    when(this.first.getQueueInfo("hot", 1, 2)).thenReturn(queueInfo("hot", 2, firstJob));
+    when(this.second.getQueueInfo("hot", 0, 1)).thenReturn(queueInfo("hot", 4, secondJob));
+    final QueueInfo queueInfo = this.queueInfoDAO.getQueueInfo("hot", 1, 2);
+    assertThat(queueInfo.getSize()).isEqualTo(6L);
+    assertThat(queueInfo.getJobs()).containsExactly(firstJob, secondJob).inOrder();
+  }
+}
@@ -0,0 +1,69 @@
+package net.greghaines.jesque.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import org.junit.Test;
+
+/** TestCronExpression tests CronExpression. */
+public class TestCronExpression {
+
+  // A Friday
+  private static final ZonedDateTime NOW =
+      ZonedDateTime.of(2026, 10, 16, 10, 7, 30, 0, ZoneOffset.UTC);
+
+  @Test
+  public void testNext_Steps() {
+    assertThat(new CronExpression("*/15 * * * *").next(NOW)).isEqualTo(at(16, 10, 15));
+    assertThat(new CronExpression("5/20 * * * *").next(NOW)).isEqualTo(at(16, 10, 25));
+  }
+
+  @Test
+  public void testNext_NamesAndRanges() {
+    assertThat(new CronExpression("0 9 * * MON-FRI").next(NOW)).isEqualTo(at(19, 9, 0));
+    assertThat(new CronExpression("30 2 1 nov *").next(NOW)).isEqualTo(at(1, 2, 30).plusMonths(1));
+  }
+
+  @Test
+  public void testNext_EitherDayMatches() {
+    assertThat(new CronExpression("0 0 13 * 5").next(NOW)).isEqualTo(at(23, 0, 0));
+    assertThat(new CronExpression("0 0 13 * 7").next(NOW)).isEqualTo(at(18, 0, 0));
+  }
+
+  @Test
+  public void testNext_Macros() {
+    assertThat(new CronExpression("@hourly").next(NOW)).isEqualTo(at(16, 11, 0));
+    assertThat(new CronExpression("@daily").next(NOW)).isEqualTo(at(17, 0, 0));
+  }
+
+  @Test
+  public void testNext_TimeZone() {
+    final ZoneId zone = ZoneId.of("America/New_York");
+    assertThat(new CronExpression("0 9 * * *").next(NOW.withZoneSameInstant(zone)))
+        .isEqualTo(ZonedDateTime.of(2026, 10, 16, 9, 0, 0, 0, zone));
+  }
+
+  @Test
+  public void testNext_Never() {
+    assertThat(new CronExpression("0 0 30 2 *").next(NOW)).isNull();
+    assertThat(new CronExpression("0 0 29 2 *").next(NOW))
+        .isEqualTo(ZonedDateTime.of(2028, 2, 29, 0, 0, 0, 0, ZoneOffset.UTC));
+  }
+
+  @Test
+  public void testConstructor_Invalid() {
+    assertThrows(IllegalArgumentException.class, () -> new CronExpression(null));
+    assertThrows(IllegalArgumentException.class, () -> new CronExpression("* * * *"));
+    assertThrows(IllegalArgumentException.class, () -> new CronExpression("60 * * * *"));
+    assertThrows(IllegalArgumentException.class, () -> new CronExpression("5-1 * * * *"));
+    assertThrows(IllegalArgumentException.class, () -> new CronExpression("* * * FOO *"));
+    assertThrows(IllegalArgumentException.class, () -> new CronExpression("*/0 * * * *"));
+  }
+
+  private static ZonedDateTime at(final int day, final int hour, final int minute) {
+    return ZonedDateTime.of(2026, 10, day, hour, minute, 0, 0, ZoneOffset.UTC);
+  }
+}
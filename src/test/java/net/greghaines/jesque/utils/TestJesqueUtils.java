@@ -35,6 +35,53 @@ public class TestJesqueUtils {
     assertThat(JesqueUtils.createKey("foo", Arrays.asList("bar", "baz"))).isEqualTo("foo:bar:baz");
   }
 
+  @Test
+  public void testCreateQueueKey() {
+    assertThat(JesqueUtils.createQueueKey("resque", false, "queue", "foo", "buckets"))
+        .isEqualTo("resque:queue:foo:buckets");
+    assertThat(JesqueUtils.createQueueKey("resque", true, "queue", "foo", "buckets"))
+        .isEqualTo("resque:queue:{foo}:buckets");
+    assertThat(JesqueUtils.createQueueKey("resque", true, "queue", "{orders}:delayed"))
+        .isEqualTo("resque:queue:{orders}:delayed");
+  }
+
+  @Test
+  public void testCreateInFlightKey() {
+    assertThat(JesqueUtils.createInFlightKey("resque", false, "host:1-0:foo", "foo"))
+        .isEqualTo("resque:inflight:host:1-0:foo:foo");
+    assertThat(JesqueUtils.createInFlightKey("resque", true, "host:1-0:foo", "foo"))
+        .isEqualTo("resque:inflight:{foo}:host:1-0:foo");
+  }
+
+  @Test
+  public void testHashSlotTag() {
+    assertThat(JesqueUtils.hashSlotTag("resque:queue:{foo}:buckets")).isEqualTo("foo");
+    assertThat(JesqueUtils.hashSlotTag("resque:queue:foo")).isEqualTo("resque:queue:foo");
+    assertThat(JesqueUtils.hashSlotTag("resque:{}:{foo}")).isEqualTo("resque:{}:{foo}");
+    assertThat(JesqueUtils.hashSlotTag("{{orders}:delayed}")).isEqualTo("{orders");
+  }
+
+  @Test
+  public void testPartitionNames() {
+    assertThat(JesqueUtils.createPartitionNames("foo", 3))
+        .containsExactly("foo#0", "foo#1", "foo#2")
+        .inOrder();
+    assertThat(JesqueUtils.createPartitionNames("foo", 1)).containsExactly("foo");
+    final Map<String, Integer> partitioned = Map.of("foo", 3);
+    assertThat(JesqueUtils.partitionedQueueName("foo#2", partitioned)).isEqualTo("foo");
+    assertThat(JesqueUtils.partitionedQueueName("foo#3", partitioned)).isEqualTo("foo#3");
+    assertThat(JesqueUtils.partitionedQueueName("foo#02", partitioned)).isEqualTo("foo#02");
+    assertThat(JesqueUtils.partitionedQueueName("bar#0", partitioned)).isEqualTo("bar#0");
+  }
+
+  @Test
+  public void testLaneName() {
+    final String lane = JesqueUtils.createLaneName("foo", "account-1", 4);
+    assertThat(lane).isEqualTo("foo#" + Math.floorMod("account-1".hashCode(), 4));
+    assertThat(JesqueUtils.createLaneName("foo", "account-1", 4)).isEqualTo(lane);
+    assertThat(JesqueUtils.createLaneName("foo", "account-1", 1)).isEqualTo("foo");
+  }
+
   @Test
   public void testMaterializeJob() throws Exception {
     final Object action = JesqueUtils.materializeJob(new Job(TestRunnableJob.class.getName()));
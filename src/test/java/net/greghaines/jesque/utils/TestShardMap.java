@@ -0,0 +1,94 @@
+package net.greghaines.jesque.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class TestShardMap {
+
+  private static Map<String, String> shards(final String... names) {
+    final Map<String, String> shards = new LinkedHashMap<>();
+    for (final String name : names) {
+      shards.put(name, name.toUpperCase());
+    }
+    return shards;
+  }
+
+  @Test
+  public void testConstructor_Invalid() {
+    assertThrows(IllegalArgumentException.class, () -> new ShardMap<String>(null));
+    assertThrows(IllegalArgumentException.class, () -> new ShardMap<>(shards()));
+    assertThrows(
+        IllegalArgumentException.class, () -> new ShardMap<>(shards("a"), Map.of("foo", "b")));
+  }
+
+  @Test
+  public void testGet_Override() {
+    final ShardMap<String> shardMap = new ShardMap<>(shards("a", "b", "c"), Map.of("foo", "b"));
+    assertThat(shardMap.getShardName("foo")).isEqualTo("b");
+    assertThat(shardMap.get("foo")).isEqualTo("B");
+    assertThrows(IllegalArgumentException.class, () -> shardMap.get(""));
+  }
+
+  @Test
+  public void testGet_OverrideAppliesToHashTag() {
+    final ShardMap<String> shardMap =
+        new ShardMap<>(shards("a", "b", "c"), Map.of("{orders}", "c"));
+    assertThat(shardMap.getShardName("{orders}")).isEqualTo("c");
+    assertThat(shardMap.getShardName("{orders}:delayed")).isEqualTo("c");
+    assertThat(shardMap.getShardName("orders")).isEqualTo("c");
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new ShardMap<>(shards("a", "b"), Map.of("{orders}", "a", "{orders}:delayed", "b")));
+  }
+
+  @Test
+  public void testGet_HashTag() {
+    final ShardMap<String> shardMap = new ShardMap<>(shards("a", "b", "c", "d"));
+    for (int i = 0; i < 100; i++) {
+      assertThat(shardMap.getShardName("{orders" + i + "}:delayed"))
+          .isEqualTo(shardMap.getShardName("{orders" + i + "}"));
+    }
+  }
+
+  @Test
+  public void testGet_AddingShardOnlyMovesQueuesToIt() {
+    final ShardMap<String> before = new ShardMap<>(shards("a", "b", "c"));
+    final ShardMap<String> after = new ShardMap<>(shards("a", "b", "c", "d"));
+    int moved = 0;
+    for (int i = 0; i < 1000; i++) {
+      final String queue = "queue" + i;
+      if (!before.getShardName(queue).equals(after.getShardName(queue))) {
+        assertThat(after.getShardName(queue)).isEqualTo("d");
+        moved++;
+      }
+    }
+    assertThat(moved).isGreaterThan(0);
+    assertThat(moved).isLessThan(500);
+  }
+
+  @Test
+  public void testPartition() {
+    final ShardMap<String> shardMap = new ShardMap<>(shards("a", "b"), Map.of("foo", "a"));
+    final Map<String, List<String>> partitions =
+        shardMap.partition(Arrays.asList("foo", "bar", "baz"));
+    assertThat(partitions.keySet()).containsExactly("a", "b").inOrder();
+    assertThat(partitions.get("a")).contains("foo");
+    assertThat(partitions.get("a").size() + partitions.get("b").size()).isEqualTo(3);
+  }
+
+  @Test
+  public void testMap_KeepsPlacement() {
+    final ShardMap<String> shardMap = new ShardMap<>(shards("a", "b", "c"), Map.of("foo", "c"));
+    final ShardMap<Integer> mapped = shardMap.map(String::length);
+    for (final String queue : Arrays.asList("foo", "bar", "baz", "qux")) {
+      assertThat(mapped.getShardName(queue)).isEqualTo(shardMap.getShardName(queue));
+    }
+    assertThat(mapped.getOverrides()).isEqualTo(shardMap.getOverrides());
+  }
+}
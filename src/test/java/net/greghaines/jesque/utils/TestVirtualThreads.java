@@ -0,0 +1,49 @@
+package net.greghaines.jesque.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class TestVirtualThreads {
+
+  private static final boolean SUPPORTED = Runtime.version().feature() >= 21;
+
+  @Test
+  public void testIsAvailable() {
+    assertThat(VirtualThreads.isAvailable()).isEqualTo(SUPPORTED);
+  }
+
+  @Test
+  public void testNewThreadFactory() throws InterruptedException {
+    if (!SUPPORTED) {
+      assertThrows(
+          UnsupportedOperationException.class, () -> VirtualThreads.newThreadFactory("test-"));
+      return;
+    }
+    final AtomicReference<String> name = new AtomicReference<>();
+    final Thread thread =
+        VirtualThreads.newThreadFactory("test-")
+            .newThread(() -> name.set(Thread.currentThread().getName()));
+    thread.start();
+    thread.join();
+    assertThat(name.get()).isEqualTo("test-0");
+  }
+
+  @Test
+  public void testNewThreadPerTaskExecutor() throws Exception {
+    if (!SUPPORTED) {
+      assertThrows(UnsupportedOperationException.class, VirtualThreads::newThreadPerTaskExecutor);
+      return;
+    }
+    final ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor();
+    try {
+      assertThat(executor.submit(() -> "done").get(5, TimeUnit.SECONDS)).isEqualTo("done");
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package net.greghaines.jesque.worker;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/** TestAdaptiveQueueOrder tests AdaptiveQueueOrder. */
+public class TestAdaptiveQueueOrder {
+
+  private static final List<String> QUEUES = Arrays.asList("foo", "bar", "baz");
+
+  @Test
+  public void testNext_PollsEveryNewQueueInOrder() {
+    final AdaptiveQueueOrder order = new AdaptiveQueueOrder(() -> 1.0);
+    assertThat(order.next(QUEUES)).isEqualTo("foo");
+    order.record("foo", false);
+    assertThat(order.next(QUEUES)).isEqualTo("bar");
+    order.record("bar", false);
+    assertThat(order.next(QUEUES)).isEqualTo("baz");
+    order.record("baz", false);
+    assertThat(order.isRoundOver()).isTrue();
+    assertThat(order.isRoundMissed()).isTrue();
+  }
+
+  @Test
+  public void testIsRoundMissed_FalseAfterAnyHit() {
+    final AdaptiveQueueOrder order = new AdaptiveQueueOrder(() -> 1.0);
+    order.record(order.next(QUEUES), true);
+    order.record(order.next(QUEUES), false);
+    order.record(order.next(QUEUES), false);
+    assertThat(order.isRoundOver()).isTrue();
+    assertThat(order.isRoundMissed()).isFalse();
+    order.record(order.next(QUEUES), false);
+    assertThat(order.isRoundMissed()).isFalse();
+  }
+
+  @Test
+  public void testNext_HotQueueFirstAndColdQueueSkipped() {
+    final AdaptiveQueueOrder order = new AdaptiveQueueOrder(() -> 1.0);
+    for (int i = 0; i < 30; i++) {
+      order.record("foo", false);
+      order.record("bar", false);
+    }
+    order.record("baz", true);
+    assertThat(order.getHitRate("foo")).isLessThan(AdaptiveQueueOrder.COLD_HIT_RATE);
+    assertThat(order.next(QUEUES)).isEqualTo("baz");
+    assertThat(order.isRoundOver()).isTrue();
+  }
+
+  @Test
+  public void testNext_ExploresColdQueues() {
+    final AdaptiveQueueOrder order = new AdaptiveQueueOrder(() -> 0.0);
+    for (int i = 0; i < 30; i++) {
+      order.record("foo", false);
+    }
+    order.record("bar", true);
+    assertThat(order.next(QUEUES)).isEqualTo("bar");
+    assertThat(order.next(QUEUES)).isEqualTo("baz");
+    assertThat(order.next(QUEUES)).isEqualTo("foo");
+  }
+
+  @Test
+  public void testNext_RotatesBusyQueues() {
+    final AdaptiveQueueOrder order = new AdaptiveQueueOrder(() -> 1.0);
+    final List<String> polled = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      final String queue = order.next(QUEUES);
+      polled.add(queue);
+      order.record(queue, !"baz".equals(queue));
+    }
+    assertThat(polled).containsExactly("foo", "bar", "baz", "foo", "bar", "baz").inOrder();
+  }
+
+  @Test
+  public void testNext_NoQueues() {
+    final AdaptiveQueueOrder order = new AdaptiveQueueOrder();
+    assertThat(order.next(Arrays.<String>asList())).isNull();
+  }
+}
@@ -0,0 +1,49 @@
+package net.greghaines.jesque.worker;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+
+/** TestDecorrelatedJitterBackoffStrategy tests DecorrelatedJitterBackoffStrategy. */
+public class TestDecorrelatedJitterBackoffStrategy {
+
+  @Test
+  public void testConstructor_InvalidBounds() {
+    assertThrows(
+        IllegalArgumentException.class, () -> new DecorrelatedJitterBackoffStrategy(-1, 10));
+    assertThrows(
+        IllegalArgumentException.class, () -> new DecorrelatedJitterBackoffStrategy(10, 5));
+  }
+
+  @Test
+  public void testNextDelay_StaysWithinBounds() {
+    final DecorrelatedJitterBackoffStrategy strategy =
+        new DecorrelatedJitterBackoffStrategy(100, 5000);
+    long delay = 0;
+    for (int i = 0; i < 1000; i++) {
+      final long next = strategy.nextDelay(delay);
+      assertThat(next).isAtLeast(100L);
+      assertThat(next).isAtMost(Math.min(5000L, Math.max(delay, 100L) * 3));
+      delay = next;
+    }
+  }
+
+  @Test
+  public void testNextDelay_ReachesCeiling() {
+    final DecorrelatedJitterBackoffStrategy strategy =
+        new DecorrelatedJitterBackoffStrategy(100, 1000);
+    long max = 0;
+    long delay = 0;
+    for (int i = 0; i < 1000; i++) {
+      delay = strategy.nextDelay(delay);
+      max = Math.max(max, delay);
+    }
+    assertThat(max).isGreaterThan(500L);
+  }
+
+  @Test
+  public void testNextDelay_FloorEqualsCeiling() {
+    assertThat(new DecorrelatedJitterBackoffStrategy(200, 200).nextDelay(0)).isEqualTo(200L);
+  }
+}
@@ -0,0 +1,86 @@
+package net.greghaines.jesque.worker;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import net.greghaines.jesque.Config;
+import org.junit.Before;
+import org.junit.Test;
+import redis.clients.jedis.UnifiedJedis;
+
+/** TestDelayedJobPromoter tests DelayedJobPromoter. */
+public class TestDelayedJobPromoter {
+
+  private static final Config CONFIG = Config.getDefaultConfig();
+
+  private UnifiedJedis jedisPool;
+  private DelayedJobPromoter promoter;
+
+  @Before
+  public void setUp() {
+    this.jedisPool = mock(UnifiedJedis.class);
+    this.promoter = new DelayedJobPromoter(CONFIG, this.jedisPool, Duration.ofSeconds(10), 2);
+    this.promoter.promoteScriptHash.set("promoteSha");
+    this.promoter.leaderScriptHash.set("leaderSha");
+  }
+
+  @Test
+  public void testConstructor_Invalid() {
+    assertThrows(
+        IllegalArgumentException.class, () -> new DelayedJobPromoter(null, this.jedisPool));
+    assertThrows(IllegalArgumentException.class, () -> new DelayedJobPromoter(CONFIG, null));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new DelayedJobPromoter(CONFIG, this.jedisPool, Duration.ZERO, 1));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new DelayedJobPromoter(CONFIG, this.jedisPool, Duration.ofSeconds(1), 0));
+    assertThrows(IllegalArgumentException.class, () -> this.promoter.addQueue("foo", "foo"));
+  }
+
+  @Test
+  public void testPromoteDue_MovesBatchesUntilDrained() {
+    this.promoter.addQueue("delayed", "ready");
+    this.promoter.state.set(JobExecutor.State.RUNNING);
+    final long nextDue = System.currentTimeMillis() + 1000;
+    when(this.jedisPool.evalsha(eq("promoteSha"), anyList(), anyList()))
+        .thenReturn(Arrays.asList(2L, 0L), Arrays.asList(1L, nextDue));
+    final long wait = this.promoter.promoteDue();
+    assertThat(wait).isAtMost(1000L);
+    verify(this.jedisPool, times(2))
+        .evalsha(
+            eq("promoteSha"),
+            eq(
+                Arrays.asList(
+                    "resque:queue:delayed",
+                    "resque:queue:ready",
+                    "resque:queue:delayed:frequency",
+                    "resque:queue:delayed:buckets",
+                    "resque:queues",
+                    "resque:ready_queues")),
+            anyList());
+  }
+
+  @Test
+  public void testPromoteDue_WakesToRenewLease() {
+    this.promoter.addQueue("delayed", "ready");
+    when(this.jedisPool.evalsha(eq("promoteSha"), anyList(), anyList()))
+        .thenReturn(Arrays.asList(0L, -1L));
+    assertThat(this.promoter.promoteDue()).isEqualTo(5000L);
+  }
+
+  @Test
+  public void testIsLeader() {
+    when(this.jedisPool.evalsha(
+            "leaderSha",
+            Collections.singletonList("resque:delayed:promoter"),
+            Arrays.asList(this.promoter.getName(), "10000", "")))
+        .thenReturn(1L, 0L);
+    assertThat(this.promoter.isLeader()).isTrue();
+    assertThat(this.promoter.isLeader()).isFalse();
+  }
+}
@@ -0,0 +1,254 @@
+package net.greghaines.jesque.worker;
+
+import static com.google.common.truth.Truth.assertThat;
+import static net.greghaines.jesque.TestUtils.createTestActionJobFactory;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import net.greghaines.jesque.Config;
+import net.greghaines.jesque.Job;
+import net.greghaines.jesque.json.ObjectMapperFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import redis.clients.jedis.AbstractPipeline;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+public class TestPipelinedWorkerImpl {
+
+  private static final Config CONFIG = Config.getDefaultConfig();
+
+  private ExecutorService executor;
+  private UnifiedJedis jedisPool;
+  private AbstractPipeline pipeline;
+
+  @Before
+  public void setUp() {
+    this.executor = Executors.newSingleThreadExecutor();
+    this.jedisPool = mock(UnifiedJedis.class);
+    this.pipeline = mock(AbstractPipeline.class);
+    when(this.jedisPool.pipelined()).thenReturn(this.pipeline);
+  }
+
+  @After
+  public void tearDown() {
+    this.executor.shutdownNow();
+  }
+
+  @Test
+  public void testConstructor_NullExecutor() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> {
+          new PipelinedWorkerImpl(
+              CONFIG,
+              Arrays.asList("foo"),
+              createTestActionJobFactory(),
+              this.jedisPool,
+              (ExecutorService) null,
+              1);
+        });
+  }
+
+  @Test
+  public void testConstructor_InvalidCapacity() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> {
+          new PipelinedWorkerImpl(
+              CONFIG,
+              Arrays.asList("foo"),
+              createTestActionJobFactory(),
+              this.jedisPool,
+              this.executor,
+              0);
+        });
+  }
+
+  @Test
+  public void testConstructor_OrderedQueues() {
+    final Config config = Config.newBuilder().withOrderedQueue("foo", 4).build();
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> {
+          new PipelinedWorkerImpl(
+              config,
+              Arrays.asList("foo"),
+              createTestActionJobFactory(),
+              this.jedisPool,
+              this.executor,
+              1);
+        });
+  }
+
+  @Test
+  public void testConstructor_ConcurrencyLimits() {
+    for (final Config config :
+        Arrays.asList(
+            Config.newBuilder().withQueueConcurrencyLimit("foo", 2).build(),
+            Config.newBuilder().withJobConcurrencyLimit("TestAction", 2).build())) {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> {
+            new PipelinedWorkerImpl(
+                config,
+                Arrays.asList("foo"),
+                createTestActionJobFactory(),
+                this.jedisPool,
+                this.executor,
+                1);
+          });
+    }
+  }
+
+  @Test
+  public void testSetStreamQueue() {
+    final PipelinedWorkerImpl worker = newWorker();
+    assertThrows(IllegalArgumentException.class, () -> worker.setStreamQueue("foo", true));
+    worker.setStreamQueue("foo", false);
+  }
+
+  @Test
+  public void testDispatch_AcknowledgesSuccess() throws Exception {
+    final PipelinedWorkerImpl worker = newWorker();
+    final String payload =
+        ObjectMapperFactory.get()
+            .writeValueAsString(
+                new Job("TestAction", 1, 2.3, true, "test", Arrays.asList("inner", 4.5)));
+    worker.dispatch("foo", payload);
+    verify(this.pipeline, timeout(5000)).sync();
+    verify(this.pipeline).lrem("resque:inflight:" + worker.getName() + ":foo", -1, payload);
+    verify(this.pipeline).incrBy("resque:stat:processed", 1);
+    verify(this.pipeline).incrBy("resque:stat:processed:" + worker.getName(), 1);
+    verify(this.pipeline).del("resque:worker:" + worker.getName());
+    assertThat(worker.isProcessingJob()).isFalse();
+  }
+
+  @Test
+  public void testDispatch_AcknowledgesFailure() throws Exception {
+    final PipelinedWorkerImpl worker = newWorker();
+    final String payload = ObjectMapperFactory.get().writeValueAsString(new Job("TestAction"));
+    worker.dispatch("foo", payload);
+    verify(this.pipeline, timeout(5000)).sync();
+    verify(this.pipeline).lrem("resque:inflight:" + worker.getName() + ":foo", -1, payload);
+    verify(this.pipeline).rpush(eq("resque:failed"), anyString());
+    verify(this.pipeline).incrBy("resque:stat:failed", 1);
+    verify(this.pipeline, never()).incrBy("resque:stat:processed", 1);
+  }
+
+  @Test
+  public void testFlush_RetriesFailedBatch() {
+    final PipelinedWorkerImpl worker = newWorker();
+    doThrow(new JedisConnectionException("Broken pipe")).doNothing().when(this.pipeline).sync();
+    worker.acks.add(PipelinedWorkerImpl.Ack.success("foo", "payload"));
+    worker.flush();
+    verify(this.pipeline, times(2)).sync();
+    verify(this.pipeline, times(2))
+        .lrem("resque:inflight:" + worker.getName() + ":foo", -1, "payload");
+    assertThat(worker.acks).isEmpty();
+  }
+
+  @Test
+  public void testFlush_KeepsBatchWhenRetryFails() {
+    final PipelinedWorkerImpl worker = newWorker();
+    doThrow(new JedisConnectionException("Broken pipe")).when(this.pipeline).sync();
+    worker.acks.add(PipelinedWorkerImpl.Ack.success("foo", "payload"));
+    worker.flush();
+    verify(this.pipeline, times(2)).sync();
+    assertThat(worker.acks).hasSize(1);
+    doNothing().when(this.pipeline).sync();
+    worker.flush();
+    verify(this.pipeline, times(3)).sync();
+    assertThat(worker.acks).isEmpty();
+  }
+
+  @Test
+  public void testEndNow_RequeuesUnstartedJobs() throws Exception {
+    final ExecutorService idle = mock(ExecutorService.class);
+    final PipelinedWorkerImpl blocked =
+        new PipelinedWorkerImpl(
+            CONFIG, Arrays.asList("foo"), createTestActionJobFactory(), this.jedisPool, idle, 2);
+    blocked.requeueScriptHash.set("requeueSha");
+    blocked.dispatch("foo", "payload");
+    assertThat(blocked.getOutstandingCount()).isEqualTo(1);
+    blocked.end(true);
+    assertThat(blocked.getOutstandingCount()).isEqualTo(0);
+    verify(this.pipeline)
+        .evalsha(
+            "requeueSha",
+            Arrays.asList(
+                "resque:inflight:" + blocked.getName() + ":foo",
+                "resque:queue:foo",
+                "resque:ready_queues"),
+            Arrays.asList("payload", "foo"));
+  }
+
+  @Test
+  public void testDispatch_AcknowledgesAsyncJobWhenStageCompletes() throws Exception {
+    final CompletableFuture<String> stage = new CompletableFuture<>();
+    AsyncAction.STAGE.set(stage);
+    final PipelinedWorkerImpl worker =
+        new PipelinedWorkerImpl(
+            CONFIG,
+            Arrays.asList("foo"),
+            new MapBasedJobFactory(Map.of("AsyncAction", AsyncAction.class)),
+            this.jedisPool,
+            this.executor,
+            1);
+    worker.state.set(JobExecutor.State.RUNNING);
+    final String payload = ObjectMapperFactory.get().writeValueAsString(new Job("AsyncAction"));
+    worker.dispatch("foo", payload);
+    // The executor thread is free while the stage is pending
+    assertThat(this.executor.submit(() -> "free").get(5, TimeUnit.SECONDS)).isEqualTo("free");
+    assertThat(worker.getOutstandingCount()).isEqualTo(1);
+    verify(this.pipeline, never()).sync();
+    final AtomicReference<Thread> flushThread = new AtomicReference<>();
+    doAnswer(
+            invocation -> {
+              flushThread.set(Thread.currentThread());
+              return null;
+            })
+        .when(this.pipeline)
+        .sync();
+    stage.complete("done");
+    verify(this.pipeline, timeout(5000)).sync();
+    // The thread that completed the stage is not made to acknowledge the job
+    assertThat(flushThread.get()).isNotEqualTo(Thread.currentThread());
+    verify(this.pipeline).lrem("resque:inflight:" + worker.getName() + ":foo", -1, payload);
+    verify(this.pipeline).incrBy("resque:stat:processed", 1);
+    assertThat(worker.getOutstandingCount()).isEqualTo(0);
+  }
+
+  private PipelinedWorkerImpl newWorker() {
+    final PipelinedWorkerImpl worker =
+        new PipelinedWorkerImpl(
+            CONFIG,
+            Arrays.asList("foo"),
+            createTestActionJobFactory(),
+            this.jedisPool,
+            this.executor,
+            2);
+    worker.state.set(JobExecutor.State.RUNNING);
+    return worker;
+  }
+
+  public static class AsyncAction implements Callable<CompletionStage<String>> {
+
+    static final AtomicReference<CompletionStage<String>> STAGE = new AtomicReference<>();
+
+    @Override
+    public CompletionStage<String> call() {
+      return STAGE.get();
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package net.greghaines.jesque.worker;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import net.greghaines.jesque.Config;
+import net.greghaines.jesque.Job;
+import net.greghaines.jesque.json.ObjectMapperFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.resps.Tuple;
+
+/** TestRecurringJobScheduler tests RecurringJobScheduler. */
+public class TestRecurringJobScheduler {
+
+  private static final Config CONFIG = Config.getDefaultConfig();
+  private static final Job JOB = new Job("TestAction", 1);
+
+  private UnifiedJedis jedisPool;
+  private RecurringJobScheduler scheduler;
+
+  @Before
+  public void setUp() {
+    this.jedisPool = mock(UnifiedJedis.class);
+    this.scheduler = new RecurringJobScheduler(CONFIG, this.jedisPool);
+    this.scheduler.fireScriptHash.set("fireSha");
+  }
+
+  @Test
+  public void testSchedule_Invalid() {
+    assertThrows(
+        IllegalArgumentException.class, () -> this.scheduler.schedule("", "@daily", "foo", JOB));
+    assertThrows(
+        IllegalArgumentException.class, () -> this.scheduler.schedule("a", "daily", "foo", JOB));
+    assertThrows(
+        IllegalArgumentException.class, () -> this.scheduler.schedule("a", "@daily", null, JOB));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> this.scheduler.schedule("a", "0 0 30 2 *", "foo", JOB));
+    assertThrows(
+        IllegalStateException.class,
+        () -> this.scheduler.schedule("a", "@daily", "foo", new Job()));
+  }
+
+  @Test
+  public void testSchedule_KeepsNextFireTimeIfUnchanged() {
+    final ArgumentCaptor<String> definition = ArgumentCaptor.forClass(String.class);
+    this.scheduler.schedule("nightly", "@daily", "foo", JOB);
+    verify(this.jedisPool).hset(eq("resque:schedules"), eq("nightly"), definition.capture());
+    verify(this.jedisPool).zadd(eq("resque:schedules:next"), anyDouble(), eq("nightly"));
+    verify(this.jedisPool).publish("resque:channel:schedules", "nightly");
+
+    when(this.jedisPool.hget("resque:schedules", "nightly")).thenReturn(definition.getValue());
+    when(this.jedisPool.zscore("resque:schedules:next", "nightly")).thenReturn(1.0);
+    this.scheduler.schedule("nightly", "@daily", "foo", JOB);
+    verify(this.jedisPool).zadd(eq("resque:schedules:next"), anyDouble(), eq("nightly"));
+  }
+
+  @Test
+  public void testFireDue() {
+    final long now = System.currentTimeMillis();
+    final ArgumentCaptor<String> definition = ArgumentCaptor.forClass(String.class);
+    this.scheduler.schedule("nightly", "@daily", "foo", JOB);
+    verify(this.jedisPool).hset(eq("resque:schedules"), eq("nightly"), definition.capture());
+    when(this.jedisPool.hget("resque:schedules", "nightly")).thenReturn(definition.getValue());
+    when(this.jedisPool.zrangeByScoreWithScores(
+            eq("resque:schedules:next"), anyDouble(), anyDouble(), eq(0), anyInt()))
+        .thenReturn(Collections.singletonList(new Tuple("nightly", (double) now - 10)));
+    when(this.jedisPool.zrangeWithScores("resque:schedules:next", 0, 0))
+        .thenReturn(Collections.singletonList(new Tuple("nightly", (double) now + 60000)));
+
+    assertThat(this.scheduler.fireDue()).isAtMost(5000L);
+
+    @SuppressWarnings("unchecked")
+    final ArgumentCaptor<List<String>> args = ArgumentCaptor.forClass(List.class);
+    verify(this.jedisPool)
+        .evalsha(
+            eq("fireSha"),
+            eq(
+                Arrays.asList(
+                    "resque:schedules:next",
+                    "resque:queue:foo",
+                    "resque:queues",
+                    "resque:ready_queues")),
+            args.capture());
+    assertThat(args.getValue().get(0)).isEqualTo("nightly");
+    assertThat(args.getValue().get(1)).isEqualTo(Long.toString(now - 10));
+    assertThat(Long.parseLong(args.getValue().get(2))).isGreaterThan(now);
+    assertThat(args.getValue().get(3)).isEqualTo("foo");
+    assertThat(ObjectMapperFactory.get().readValue(args.getValue().get(4), Job.class))
+        .isEqualTo(JOB);
+  }
+
+  @Test
+  public void testFireDue_ParksBadSchedule() {
+    final long now = System.currentTimeMillis();
+    final ArgumentCaptor<String> definition = ArgumentCaptor.forClass(String.class);
+    this.scheduler.schedule("nightly", "@daily", "foo", JOB);
+    verify(this.jedisPool).hset(eq("resque:schedules"), eq("nightly"), definition.capture());
+    when(this.jedisPool.hget("resque:schedules", "nightly")).thenReturn(definition.getValue());
+    when(this.jedisPool.hget("resque:schedules", "bad")).thenReturn("not json");
+    when(this.jedisPool.zrangeByScoreWithScores(
+            eq("resque:schedules:next"), anyDouble(), anyDouble(), eq(0), anyInt()))
+        .thenReturn(
+            Arrays.asList(
+                new Tuple("bad", (double) now - 20), new Tuple("nightly", (double) now - 10)));
+    when(this.jedisPool.zrangeWithScores("resque:schedules:next", 0, 0))
+        .thenReturn(Collections.singletonList(new Tuple("nightly", (double) now + 60000)));
+
+    this.scheduler.fireDue();
+
+    verify(this.jedisPool).zrem("resque:schedules:next", "bad");
+    verify(this.jedisPool, never()).zrem("resque:schedules:next", "nightly");
+    verify(this.jedisPool).evalsha(eq("fireSha"), anyList(), anyList());
+  }
+
+  @Test
+  public void testFire_Unscheduled() {
+    this.scheduler.fire("gone", 0, System.currentTimeMillis());
+    verify(this.jedisPool).zrem("resque:schedules:next", "gone");
+    verify(this.jedisPool, never()).evalsha(anyString(), anyList(), anyList());
+  }
+}
@@ -0,0 +1,67 @@
+package net.greghaines.jesque.worker;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import net.greghaines.jesque.Config;
+import net.greghaines.jesque.utils.ShardMap;
+import org.junit.Test;
+
+public class TestShardedWorker {
+
+  @Test
+  public void testQueuesGoToOwningShard() {
+    final Worker first = mock(Worker.class);
+    final Worker second = mock(Worker.class);
+    final Map<String, Worker> workers = new LinkedHashMap<>();
+    workers.put("first", first);
+    workers.put("second", second);
+    final ShardMap<Worker> shards =
+        new ShardMap<>(workers, Map.of("foo", "first", "bar", "second"));
+    final ShardedWorker worker = new ShardedWorker(shards, Arrays.asList("foo", "bar"));
+    verify(first).setQueues(Collections.singletonList("foo"));
+    verify(second).setQueues(Collections.singletonList("bar"));
+    worker.addQueue("bar");
+    verify(second).addQueue("bar");
+    verify(first, never()).addQueue(anyString());
+    when(first.getQueues()).thenReturn(Arrays.asList("foo"));
+    when(second.getQueues()).thenReturn(Arrays.asList("bar", "bar"));
+    assertThat(worker.getQueues()).containsExactly("foo", "bar").inOrder();
+    assertThat(worker.getWorkerCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void testAllQueuesGoToEveryShard() {
+    final Worker first = mock(Worker.class);
+    final Worker second = mock(Worker.class);
+    final Map<String, Worker> workers = new LinkedHashMap<>();
+    workers.put("first", first);
+    workers.put("second", second);
+    new ShardedWorker(new ShardMap<>(workers), Worker.ALL_QUEUES);
+    verify(first).setQueues(Worker.ALL_QUEUES);
+    verify(second).setQueues(Worker.ALL_QUEUES);
+  }
+
+  @Test
+  public void testPartitionsGoToOwningShards() {
+    final Worker first = mock(Worker.class);
+    final Worker second = mock(Worker.class);
+    final Map<String, Worker> workers = new LinkedHashMap<>();
+    workers.put("first", first);
+    workers.put("second", second);
+    final ShardMap<Worker> shards =
+        new ShardMap<>(workers, Map.of("hot#0", "first", "hot#1", "second", "hot#2", "second"));
+    final Config config = Config.newBuilder().withQueuePartitions("hot", 3).build();
+    final ShardedWorker worker = new ShardedWorker(config, shards, Arrays.asList("hot"));
+    verify(first).setQueues(Collections.singletonList("hot#0"));
+    verify(second).setQueues(Arrays.asList("hot#1", "hot#2"));
+    worker.removeQueue("hot", false);
+    verify(first).removeQueue("hot#0", false);
+    verify(second).removeQueue("hot#1", false);
+    verify(second).removeQueue("hot#2", false);
+  }
+}
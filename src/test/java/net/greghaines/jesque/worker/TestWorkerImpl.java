@@ -5,12 +5,28 @@ import static net.greghaines.jesque.TestUtils.createTestActionJobFactory;
 import static org.junit.Assert.assertThrows;
 import static org.mockito.Mockito.*;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import net.greghaines.jesque.Config;
+import net.greghaines.jesque.Job;
+import net.greghaines.jesque.json.ObjectMapperFactory;
 import org.junit.Test;
+import org.mockito.InOrder;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.StreamEntryID;
+import redis.clients.jedis.args.ListDirection;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+import redis.clients.jedis.resps.StreamEntry;
+import redis.clients.jedis.util.KeyValue;
 
 public class TestWorkerImpl {
 
@@ -115,4 +131,837 @@ public class TestWorkerImpl {
       worker.pop(worker.getNextQueue());
     }
   }
+
+  @Test
+  public void testSetBlockingPopTimeout() {
+    final WorkerImpl worker =
+        new WorkerImpl(
+            CONFIG, Arrays.asList("foo"), createTestActionJobFactory(), mock(Jedis.class));
+    assertThat(worker.getBlockingPopTimeout()).isNull();
+    worker.setBlockingPopTimeout(Duration.ofSeconds(5));
+    assertThat(worker.getBlockingPopTimeout()).isEqualTo(Duration.ofSeconds(5));
+    worker.setBlockingPopTimeout(Duration.ZERO);
+    assertThat(worker.getBlockingPopTimeout()).isNull();
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> {
+          worker.setBlockingPopTimeout(Duration.ofSeconds(-1));
+        });
+  }
+
+  @Test
+  public void testBlockingPop_SingleQueueMovesToInFlight() throws InterruptedException {
+    final Jedis jedis = mock(Jedis.class);
+    final WorkerImpl worker =
+        new WorkerImpl(CONFIG, Arrays.asList("foo"), createTestActionJobFactory(), jedis);
+    worker.state.set(JobExecutor.State.RUNNING);
+    worker.setBlockingPopTimeout(Duration.ofSeconds(2));
+    when(jedis.blmove(
+            "resque:queue:foo",
+            "resque:inflight:" + worker.getName() + ":foo",
+            ListDirection.LEFT,
+            ListDirection.LEFT,
+            2.0))
+        .thenReturn("payload");
+    final KeyValue<String, String> popped = worker.blockingPop("foo");
+    assertThat(popped.getKey()).isEqualTo("foo");
+    assertThat(popped.getValue()).isEqualTo("payload");
+    verify(jedis, never()).lpush(anyString(), anyString());
+  }
+
+  @Test
+  public void testBlockingPop_MultipleQueuesPushToInFlight() throws InterruptedException {
+    final Jedis jedis = mock(Jedis.class);
+    final WorkerImpl worker =
+        new WorkerImpl(CONFIG, Arrays.asList("foo", "bar"), createTestActionJobFactory(), jedis);
+    worker.state.set(JobExecutor.State.RUNNING);
+    worker.setBlockingPopTimeout(Duration.ofSeconds(2));
+    worker.setBlockingPopAcrossQueues(true);
+    when(jedis.blmpop(2.0, ListDirection.LEFT, "resque:queue:foo", "resque:queue:bar"))
+        .thenReturn(KeyValue.of("resque:queue:bar", List.of("payload")));
+    final KeyValue<String, String> popped = worker.blockingPop("foo");
+    assertThat(popped.getKey()).isEqualTo("bar");
+    assertThat(popped.getValue()).isEqualTo("payload");
+    verify(jedis).lpush("resque:inflight:" + worker.getName() + ":bar", "payload");
+  }
+
+  @Test
+  public void testBlockingPop_MultipleQueuesPolledByDefault() throws InterruptedException {
+    final Jedis jedis = mock(Jedis.class);
+    final WorkerImpl worker =
+        new WorkerImpl(CONFIG, Arrays.asList("foo", "bar"), createTestActionJobFactory(), jedis);
+    worker.state.set(JobExecutor.State.RUNNING);
+    worker.setBlockingPopTimeout(Duration.ofSeconds(2));
+    assertThat(worker.blockingPop("foo")).isNull();
+    verify(jedis, never()).blmpop(anyDouble(), any(ListDirection.class), any(String[].class));
+  }
+
+  @Test
+  public void testBlockingPop_CachesClientId() throws InterruptedException {
+    final Jedis jedis = mock(Jedis.class);
+    final WorkerImpl worker =
+        new WorkerImpl(CONFIG, Arrays.asList("foo"), createTestActionJobFactory(), jedis);
+    worker.state.set(JobExecutor.State.RUNNING);
+    worker.setBlockingPopTimeout(Duration.ofSeconds(2));
+    when(jedis.clientId()).thenReturn(7L);
+    worker.blockingPop("foo");
+    worker.blockingPop("foo");
+    verify(jedis, times(1)).clientId();
+    worker.reconnect();
+    worker.blockingPop("foo");
+    verify(jedis, times(2)).clientId();
+  }
+
+  @Test
+  public void testSuccess_AcknowledgesInOneCall() {
+    final Jedis jedis = mock(Jedis.class);
+    final WorkerImpl worker =
+        new WorkerImpl(CONFIG, Arrays.asList("foo"), createTestActionJobFactory(), jedis);
+    worker.ackScriptHash.set("ackSha");
+    worker.success(new Job("TestAction"), null, null, "foo");
+    verify(jedis)
+        .evalsha(
+            "ackSha",
+            Arrays.asList(
+                "resque:inflight:" + worker.getName() + ":foo",
+                "resque:worker:" + worker.getName(),
+                "resque:stat:processed",
+                "resque:stat:processed:" + worker.getName()),
+            Arrays.asList("foo", ""));
+    verify(jedis, never()).ping();
+    verify(jedis, never()).incr(anyString());
+    verify(jedis, never()).lpop(anyString());
+  }
+
+  @Test
+  public void testFailure_ReconnectsWithoutRetryAfterConnectionError() {
+    final Jedis jedis = mock(Jedis.class);
+    final WorkerImpl worker =
+        new WorkerImpl(CONFIG, Arrays.asList("foo"), createTestActionJobFactory(), jedis);
+    worker.nackScriptHash.set("nackSha");
+    when(jedis.evalsha(eq("nackSha"), anyList(), anyList()))
+        .thenThrow(new JedisConnectionException("Broken pipe"))
+        .thenReturn(null);
+    worker.failure(new Exception("boom"), new Job("TestAction"), "foo");
+    verify(jedis, times(1)).evalsha(eq("nackSha"), anyList(), anyList());
+    verify(jedis).connect();
+  }
+
+  @Test
+  public void testSuccess_RetriesAfterNoScriptError() {
+    final Jedis jedis = mock(Jedis.class);
+    final WorkerImpl worker =
+        new WorkerImpl(CONFIG, Arrays.asList("foo"), createTestActionJobFactory(), jedis);
+    worker.ackScriptHash.set("ackSha");
+    when(jedis.scriptLoad(anyString())).thenReturn("ackSha");
+    when(jedis.evalsha(eq("ackSha"), anyList(), anyList()))
+        .thenThrow(new JedisNoScriptException("NOSCRIPT"))
+        .thenReturn(null);
+    worker.success(new Job("TestAction"), null, null, "foo");
+    verify(jedis, times(2)).evalsha(eq("ackSha"), anyList(), anyList());
+  }
+
+  @Test
+  public void testProcess_CleansUpWhenNackFails() {
+    final Jedis jedis = mock(Jedis.class);
+    final WorkerImpl worker =
+        new WorkerImpl(CONFIG, Arrays.asList("foo"), createTestActionJobFactory(), jedis);
+    worker.nackScriptHash.set("nackSha");
+    when(jedis.evalsha(eq("nackSha"), anyList(), anyList()))
+        .thenThrow(new JedisConnectionException("Broken pipe"));
+    // TestAction cannot be made without its arguments, so the job fails
+    worker.process(new Job("TestAction"), "foo");
+    verify(jedis).rpop("resque:inflight:" + worker.getName() + ":foo");
+    verify(jedis).del("resque:worker:" + worker.getName());
+  }
+
+  @Test
+  public void testRequeueClaimed_MovesEachClaimedJob() {
+    final Jedis jedis = mock(Jedis.class);
+    final WorkerImpl worker =
+        new WorkerImpl(CONFIG, Arrays.asList("foo"), createTestActionJobFactory(), jedis);
+    worker.lpoplpushScriptHash.set("requeueSha");
+    worker.claimedJobs.add(KeyValue.of("foo", "second"));
+    worker.claimedJobs.add(KeyValue.of("foo", "third"));
+    worker.requeueClaimed();
+    assertThat(worker.claimedJobs).isEmpty();
+    final InOrder inOrder = inOrder(jedis);
+    for (final String payload : Arrays.asList("third", "second")) {
+      inOrder
+          .verify(jedis)
+          .evalsha(
+              "requeueSha",
+              3,
+              "resque:inflight:" + worker.getName() + ":foo",
+              "resque:queue:foo",
+              "resque:ready_queues",
+              "foo",
+              payload);
+    }
+  }
+
+  @Test
+  public void testPop_MarksWorkerWorking() {
+    final Jedis jedis = mock(Jedis.class);
+    final WorkerImpl worker =
+        new WorkerImpl(CONFIG, Arrays.asList("foo"), createTestActionJobFactory(), jedis);
+    worker.popScriptHash.set("popSha");
+    when(jedis.evalsha(
+            eq("popSha"),
+            eq(6),
+            eq("resque:queue:foo"),
+            eq("resque:inflight:" + worker.getName() + ":foo"),
+            eq("resque:queue:foo:frequency"),
+            eq("resque:queue:foo:buckets"),
+            eq("resque:worker:" + worker.getName()),
+            eq("resque:ready_queues"),
+            anyString(),
+            eq("foo")))
+        .thenReturn("payload");
+    assertThat(worker.pop("foo")).isEqualTo("payload");
+    verify(jedis, never()).set(anyString(), anyString());
+  }
+
+  @Test
+  public void testPop_ClusterKeys() {
+    final Jedis jedis = mock(Jedis.class);
+    final Config config = Config.newBuilder().withClusterKeys(true).build();
+    final WorkerImpl worker =
+        new WorkerImpl(config, Arrays.asList("foo"), createTestActionJobFactory(), jedis);
+    worker.popScriptHash.set("popSha");
+    final String payload = ObjectMapperFactory.get().writeValueAsString(new Job("TestAction"));
+    when(jedis.evalsha(
+            eq("popSha"),
+            eq(4),
+            eq("resque:queue:{foo}"),
+            eq("resque:inflight:{foo}:" + worker.getName()),
+            eq("resque:queue:{foo}:frequency"),
+            eq("resque:queue:{foo}:buckets"),
+            anyString(),
+            eq("foo")))
+        .thenReturn(payload);
+    assertThat(worker.pop("foo")).isEqualTo(payload);
+    verify(jedis).set(eq("resque:worker:" + worker.getName()), anyString());
+  }
+
+  @Test
+  public void testSetQueues_ExpandsPartitions() {
+    final Config config = Config.newBuilder().withQueuePartitions("hot", 3).build();
+    final WorkerImpl worker =
+        new WorkerImpl(
+            config, Arrays.asList("hot", "cold"), createTestActionJobFactory(), mock(Jedis.class));
+    final int start = (int) (worker.getWorkerId() % 3);
+    assertThat(worker.getQueues())
+        .containsExactly(
+            "hot#" + start, "hot#" + ((start + 1) % 3), "hot#" + ((start + 2) % 3), "cold")
+        .inOrder();
+    worker.removeQueue("hot", true);
+    assertThat(worker.getQueues()).containsExactly("cold");
+  }
+
+  @Test
+  public void testPop_OrderedLaneTakesLease() {
+    final Jedis jedis = mock(Jedis.class);
+    final Config config = Config.newBuilder().withOrderedQueue("acct", 2).build();
+    final WorkerImpl worker =
+        new WorkerImpl(config, Arrays.asList("acct"), createTestActionJobFactory(), jedis);
+    worker.lanePopScriptHash.set("laneSha");
+    worker.releaseScriptHash.set("releaseSha");
+    worker.ackScriptHash.set("ackSha");
+    worker.setBatchSize(3);
+    when(jedis.evalsha(eq("laneSha"), anyList(), anyList())).thenReturn("payload");
+    assertThat(worker.pop("acct#1")).isEqualTo("payload");
+    assertThat(worker.claimedJobs).isEmpty();
+    verify(jedis)
+        .evalsha(
+            "laneSha",
+            Arrays.asList(
+                "resque:queue:acct#1",
+                "resque:inflight:" + worker.getName() + ":acct#1",
+                "resque:queue:acct#1:lease",
+                "resque:worker:" + worker.getName(),
+                "resque:ready_queues"),
+            Arrays.asList("acct#1", worker.getName(), "300000"));
+    worker.success(new Job("TestAction"), null, null, "acct#1");
+    verify(jedis)
+        .evalsha(
+            "releaseSha",
+            Collections.singletonList("resque:queue:acct#1:lease"),
+            Collections.singletonList(worker.getName()));
+    worker.removeInFlight("foo", true);
+    verify(jedis, never())
+        .evalsha(
+            eq("releaseSha"), eq(Collections.singletonList("resque:queue:foo:lease")), anyList());
+  }
+
+  @Test
+  public void testPop_OrderedLaneRenewsLeaseWhileJobRuns() throws InterruptedException {
+    final Jedis jedis = mock(Jedis.class);
+    final Jedis leaseJedis = mock(Jedis.class);
+    final Config config = Config.newBuilder().withOrderedQueue("acct", 2).build();
+    final WorkerImpl worker =
+        new WorkerImpl(config, Arrays.asList("acct"), createTestActionJobFactory(), jedis) {
+          @Override
+          protected Jedis getLeaseThreadJedis() {
+            return leaseJedis;
+          }
+        };
+    worker.lanePopScriptHash.set("laneSha");
+    worker.releaseScriptHash.set("releaseSha");
+    worker.extendScriptHash.set("extendSha");
+    worker.setLaneLeaseTime(Duration.ofMillis(30));
+    when(jedis.evalsha(eq("laneSha"), anyList(), anyList())).thenReturn("payload");
+    when(leaseJedis.evalsha(eq("extendSha"), anyList(), anyList())).thenReturn(1L);
+    assertThat(worker.pop("acct#1")).isEqualTo("payload");
+    verify(leaseJedis, timeout(5000).atLeast(2))
+        .evalsha(
+            "extendSha",
+            Collections.singletonList("resque:queue:acct#1:lease"),
+            Arrays.asList(worker.getName(), "30"));
+    worker.releaseLane("acct#1");
+    // A renewal that was already running when the lease was released may still finish
+    Thread.sleep(50);
+    clearInvocations(leaseJedis);
+    Thread.sleep(100);
+    verify(leaseJedis, never()).evalsha(eq("extendSha"), anyList(), anyList());
+    worker.endLeases();
+  }
+
+  @Test
+  public void testPop_TenantQueue() {
+    final Jedis jedis = mock(Jedis.class);
+    final Config config = Config.newBuilder().withTenantQueue("shared", 5).build();
+    final WorkerImpl worker =
+        new WorkerImpl(config, Arrays.asList("shared"), createTestActionJobFactory(), jedis);
+    worker.tenantPopScriptHash.set("tenantSha");
+    when(jedis.evalsha(eq("tenantSha"), anyList(), anyList())).thenReturn("payload");
+    assertThat(worker.pop("shared")).isEqualTo("payload");
+    verify(jedis)
+        .evalsha(
+            "tenantSha",
+            Arrays.asList(
+                "resque:queue:shared",
+                "resque:queue:shared:tenants",
+                "resque:queue:shared:deficits",
+                "resque:inflight:" + worker.getName() + ":shared",
+                "resque:worker:" + worker.getName(),
+                "resque:ready_queues"),
+            Arrays.asList("shared", "5", "resque:queue:shared:tenant:"));
+  }
+
+  @Test
+  public void testPop_RateLimited() {
+    final Jedis jedis = mock(Jedis.class);
+    final Config config =
+        Config.newBuilder()
+            .withQueueRateLimit("api", 20, Duration.ofSeconds(1))
+            .withJobRateLimit("ReportJob", 3, Duration.ofMinutes(1))
+            .build();
+    final WorkerImpl worker =
+        new WorkerImpl(config, Arrays.asList("api"), createTestActionJobFactory(), jedis);
+    worker.popScriptHash.set("popSha");
+    when(jedis.evalsha(
+            eq("popSha"),
+            eq(6),
+            eq("resque:queue:api"),
+            eq("resque:inflight:" + worker.getName() + ":api"),
+            eq("resque:queue:api:frequency"),
+            eq("resque:queue:api:buckets"),
+            eq("resque:worker:" + worker.getName()),
+            eq("resque:ready_queues"),
+            anyString(),
+            eq("api"),
+            eq("1"),
+            eq("resque:queue:api:rate"),
+            eq("20"),
+            eq("1000"),
+            eq("resque:rate:"),
+            eq("{\"ReportJob\":[3,60000]}")))
+        .thenReturn(Collections.emptyList());
+    // The job at the head of the queue is not allowed yet, so the worker moves on
+    assertThat(worker.pop("api")).isNull();
+  }
+
+  @Test
+  public void testConstructor_JobRateLimitsWithClusterKeys() {
+    final Config config =
+        Config.newBuilder()
+            .withClusterKeys(true)
+            .withJobRateLimit("ReportJob", 3, Duration.ofMinutes(1))
+            .build();
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new WorkerImpl(
+                config, Arrays.asList("api"), createTestActionJobFactory(), mock(Jedis.class)));
+  }
+
+  @Test
+  public void testPop_ConcurrencyLimited() {
+    final Jedis jedis = mock(Jedis.class);
+    final Config config =
+        Config.newBuilder()
+            .withQueueConcurrencyLimit("db", 2)
+            .withJobConcurrencyLimit("ReportJob", 20)
+            .build();
+    final WorkerImpl worker =
+        new WorkerImpl(config, Arrays.asList("db"), createTestActionJobFactory(), jedis);
+    worker.popScriptHash.set("popSha");
+    worker.ackScriptHash.set("ackSha");
+    worker.releasePermitsScriptHash.set("releaseSha");
+    worker.setBatchSize(3);
+    when(jedis.evalsha(
+            eq("popSha"),
+            eq(6),
+            eq("resque:queue:db"),
+            eq("resque:inflight:" + worker.getName() + ":db"),
+            eq("resque:queue:db:frequency"),
+            eq("resque:queue:db:buckets"),
+            eq("resque:worker:" + worker.getName()),
+            eq("resque:ready_queues"),
+            anyString(),
+            eq("db"),
+            eq("1"),
+            eq(""),
+            eq(""),
+            eq(""),
+            eq("resque:rate:"),
+            eq(""),
+            eq("resque:queue:db:semaphore"),
+            eq("2"),
+            eq("resque:semaphore:"),
+            eq("{\"ReportJob\":20}"),
+            eq(worker.getName()),
+            eq("300000")))
+        .thenReturn(Collections.singletonList("payload"));
+    // A worker holds one permit, so it never claims a batch from a limited queue
+    assertThat(worker.pop("db")).isEqualTo("payload");
+    assertThat(worker.claimedJobs).isEmpty();
+    worker.success(new Job("ReportJob"), null, null, "db");
+    verify(jedis)
+        .evalsha(
+            "releaseSha",
+            Arrays.asList("resque:queue:db:semaphore", "resque:semaphore:ReportJob"),
+            Collections.singletonList(worker.getName()));
+  }
+
+  @Test
+  public void testPop_ConcurrencyLimitedRenewsPermitsWhileJobRuns() throws InterruptedException {
+    final Jedis jedis = mock(Jedis.class);
+    final Jedis leaseJedis = mock(Jedis.class);
+    final Config config = Config.newBuilder().withQueueConcurrencyLimit("db", 2).build();
+    final WorkerImpl worker =
+        new WorkerImpl(config, Arrays.asList("db"), createTestActionJobFactory(), jedis) {
+          @Override
+          protected Jedis getLeaseThreadJedis() {
+            return leaseJedis;
+          }
+        };
+    worker.popScriptHash.set("popSha");
+    worker.releasePermitsScriptHash.set("releaseSha");
+    worker.renewPermitsScriptHash.set("renewSha");
+    worker.setPermitLeaseTime(Duration.ofMillis(30));
+    when(jedis.evalsha(eq("popSha"), anyInt(), any(String[].class)))
+        .thenReturn(Collections.singletonList("payload"));
+    when(leaseJedis.evalsha(eq("renewSha"), anyList(), anyList())).thenReturn(1L);
+    assertThat(worker.pop("db")).isEqualTo("payload");
+    verify(leaseJedis, timeout(5000).atLeast(2))
+        .evalsha(
+            "renewSha",
+            Collections.singletonList("resque:queue:db:semaphore"),
+            Arrays.asList(worker.getName(), "30"));
+    worker.releasePermits("db");
+    // A renewal that was already running when the permits were released may still finish
+    Thread.sleep(50);
+    clearInvocations(leaseJedis);
+    Thread.sleep(100);
+    verify(leaseJedis, never()).evalsha(eq("renewSha"), anyList(), anyList());
+    worker.endLeases();
+  }
+
+  @Test
+  public void testConstructor_PartitionedConcurrencyLimitWithClusterKeys() {
+    final Config config =
+        Config.newBuilder()
+            .withClusterKeys(true)
+            .withQueuePartitions("db", 4)
+            .withQueueConcurrencyLimit("db", 2)
+            .build();
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new WorkerImpl(
+                config, Arrays.asList("db"), createTestActionJobFactory(), mock(Jedis.class)));
+  }
+
+  @Test
+  public void testConstructor_OrderedQueuesWithResetToHighestPriority() {
+    final Config config = Config.newBuilder().withOrderedQueue("acct", 2).build();
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new WorkerImpl(
+                config,
+                Arrays.asList("acct"),
+                createTestActionJobFactory(),
+                mock(Jedis.class),
+                NextQueueStrategy.RESET_TO_HIGHEST_PRIORITY));
+  }
+
+  @Test
+  public void testPop_ClaimsBatch() {
+    final Jedis jedis = mock(Jedis.class);
+    final WorkerImpl worker =
+        new WorkerImpl(CONFIG, Arrays.asList("foo"), createTestActionJobFactory(), jedis);
+    worker.popScriptHash.set("popSha");
+    worker.setBatchSize(3);
+    when(jedis.evalsha(
+            eq("popSha"),
+            eq(6),
+            eq("resque:queue:foo"),
+            eq("resque:inflight:" + worker.getName() + ":foo"),
+            eq("resque:queue:foo:frequency"),
+            eq("resque:queue:foo:buckets"),
+            eq("resque:worker:" + worker.getName()),
+            eq("resque:ready_queues"),
+            anyString(),
+            eq("foo"),
+            eq("3")))
+        .thenReturn(Arrays.asList("first", "second", "third"));
+    assertThat(worker.pop("foo")).isEqualTo("first");
+    assertThat(worker.claimedJobs).hasSize(2);
+    worker.state.set(JobExecutor.State.RUNNING);
+    assertThat(worker.nextClaimedPayload("foo")).isEqualTo("second");
+    assertThat(worker.nextClaimedPayload("bar")).isEmpty();
+  }
+
+  @Test
+  public void testGetNextQueue_WeightedRoundRobin() throws InterruptedException {
+    final WorkerImpl worker =
+        new WorkerImpl(
+            CONFIG,
+            Arrays.asList("foo", "bar", "baz"),
+            createTestActionJobFactory(),
+            mock(Jedis.class),
+            NextQueueStrategy.WEIGHTED_ROUND_ROBIN);
+    worker.setQueueWeight("foo", 5);
+    assertThat(worker.getQueueWeight("bar")).isEqualTo(1);
+    assertThrows(IllegalArgumentException.class, () -> worker.setQueueWeight("bar", 0));
+    final List<String> polled = new ArrayList<>();
+    for (int i = 0; i < 7; i++) {
+      polled.add(worker.getNextQueue());
+    }
+    assertThat(polled).containsExactly("foo", "foo", "bar", "foo", "baz", "foo", "foo").inOrder();
+    worker.missedQueues.addAll(Arrays.asList("foo", "bar"));
+    assertThat(worker.shouldSleep(6)).isFalse();
+    worker.missedQueues.add("baz");
+    assertThat(worker.shouldSleep(3)).isTrue();
+  }
+
+  @Test
+  public void testPoll_WeightedRoundRobinBacksOffOnceEveryQueueMissed() {
+    final Jedis jedis = mock(Jedis.class);
+    final WorkerImpl worker =
+        new WorkerImpl(
+            CONFIG,
+            Arrays.asList("foo", "bar"),
+            createTestActionJobFactory(),
+            jedis,
+            NextQueueStrategy.WEIGHTED_ROUND_ROBIN);
+    worker.setQueueWeight("foo", 5);
+    stubPop(worker, jedis);
+    final List<String> events = pollAndRecord(worker, 6);
+    // The worker backs off once both queues missed rather than after a whole weighted round
+    assertThat(events.indexOf("backoff")).isEqualTo(events.indexOf("bar") + 1);
+  }
+
+  @Test
+  public void testGetNextQueue_EarliestDeadlineFirst() throws InterruptedException {
+    final Jedis jedis = mock(Jedis.class);
+    final WorkerImpl worker =
+        new WorkerImpl(
+            CONFIG,
+            Arrays.asList("foo", "bar", "baz"),
+            createTestActionJobFactory(),
+            jedis,
+            NextQueueStrategy.EARLIEST_DEADLINE_FIRST);
+    worker.peekScriptHash.set("peekSha");
+    worker.setQueueLatencyTarget("bar", Duration.ofSeconds(10));
+    worker.setQueueLatencyTarget("baz", Duration.ofSeconds(1));
+    final List<String> keys =
+        Arrays.asList("resque:queue:foo", "resque:queue:bar", "resque:queue:baz");
+    when(jedis.evalsha(eq("peekSha"), eq(keys), anyList()))
+        .thenReturn(Arrays.asList(0L, 1000L, 2000L), Arrays.asList(0L, -1L, -1L));
+    assertThat(worker.getNextQueue()).isEqualTo("baz");
+    assertThat(worker.getNextQueue()).isEqualTo("foo");
+    worker.setQueueLatencyTarget("baz", null);
+    assertThat(worker.getQueueLatencyTarget("baz")).isNull();
+  }
+
+  @Test
+  public void testPoll_EarliestDeadlineFirstSkipsQueueThatMissed() {
+    final Jedis jedis = mock(Jedis.class);
+    final WorkerImpl worker =
+        new WorkerImpl(
+            CONFIG,
+            Arrays.asList("foo", "bar"),
+            createTestActionJobFactory(),
+            jedis,
+            NextQueueStrategy.EARLIEST_DEADLINE_FIRST);
+    worker.peekScriptHash.set("peekSha");
+    worker.setQueueLatencyTarget("foo", Duration.ofSeconds(1));
+    // foo always has the earliest deadline, but its job cannot be taken
+    doAnswer(inv -> Collections.nCopies(inv.<List<String>>getArgument(1).size(), 0L))
+        .when(jedis)
+        .evalsha(eq("peekSha"), anyList(), anyList());
+    stubPop(worker, jedis, "bar");
+    assertThat(pollAndRecord(worker, 4)).containsExactly("foo", "bar", "foo", "bar").inOrder();
+  }
+
+  @Test
+  public void testPoll_EarliestDeadlineFirstBacksOffOnceEveryQueueMissed() {
+    final Jedis jedis = mock(Jedis.class);
+    final WorkerImpl worker =
+        new WorkerImpl(
+            CONFIG,
+            Arrays.asList("foo", "bar"),
+            createTestActionJobFactory(),
+            jedis,
+            NextQueueStrategy.EARLIEST_DEADLINE_FIRST);
+    worker.peekScriptHash.set("peekSha");
+    doAnswer(inv -> Collections.nCopies(inv.<List<String>>getArgument(1).size(), 0L))
+        .when(jedis)
+        .evalsha(eq("peekSha"), anyList(), anyList());
+    stubPop(worker, jedis);
+    assertThat(pollAndRecord(worker, 4))
+        .containsExactly("foo", "bar", "backoff", "foo", "bar")
+        .inOrder();
+  }
+
+  @Test
+  public void testConstructor_TenantQueuesWithEarliestDeadlineFirst() {
+    final Config config = Config.newBuilder().withTenantQueue("shared", 2).build();
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new WorkerImpl(
+                config,
+                Arrays.asList("shared"),
+                createTestActionJobFactory(),
+                mock(Jedis.class),
+                NextQueueStrategy.EARLIEST_DEADLINE_FIRST));
+  }
+
+  @Test
+  public void testQueueWeightAndLatencyTarget_ApplyToPartitions() throws InterruptedException {
+    final Config config = Config.newBuilder().withQueuePartitions("hot", 3).build();
+    final WorkerImpl worker =
+        new WorkerImpl(
+            config,
+            Arrays.asList("hot", "cold"),
+            createTestActionJobFactory(),
+            mock(Jedis.class),
+            NextQueueStrategy.WEIGHTED_ROUND_ROBIN);
+    worker.setQueueWeight("hot", 7);
+    worker.setQueueWeight("cold", 2);
+    worker.setQueueLatencyTarget("hot", Duration.ofSeconds(1));
+    assertThat(worker.getQueueWeight("hot#0")).isEqualTo(2);
+    assertThat(worker.getQueueWeight("cold")).isEqualTo(2);
+    assertThat(
+            worker.getQueueWeight("hot#0")
+                + worker.getQueueWeight("hot#1")
+                + worker.getQueueWeight("hot#2"))
+        .isEqualTo(6);
+    assertThat(worker.getQueueLatencyTarget("hot#2")).isEqualTo(Duration.ofSeconds(1));
+    assertThat(worker.getQueueLatencyTarget("cold")).isNull();
+    worker.setQueueWeight("hot", 2);
+    assertThat(worker.getQueueWeight("hot#1")).isEqualTo(1);
+    worker.setQueueWeight("hot#1", 4);
+    assertThat(worker.getQueueWeight("hot#1")).isEqualTo(4);
+    final List<String> polled = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      polled.add(worker.getNextQueue());
+    }
+    assertThat(polled.stream().filter("hot#1"::equals).count()).isEqualTo(4);
+    assertThat(polled.stream().filter("cold"::equals).count()).isEqualTo(2);
+  }
+
+  @Test
+  public void testRefreshReadyQueues() {
+    final Jedis jedis = mock(Jedis.class);
+    when(jedis.smembers("resque:queues")).thenReturn(new HashSet<>(Arrays.asList("foo", "bar")));
+    when(jedis.smembers("resque:ready_queues")).thenReturn(Collections.singleton("bar"));
+    final WorkerImpl worker =
+        new WorkerImpl(CONFIG, Worker.ALL_QUEUES, createTestActionJobFactory(), jedis);
+    worker.refreshReadyQueues();
+    assertThat(worker.getQueues()).containsExactly("foo", "bar");
+    worker.setReadyQueuesOnly(true);
+    worker.refreshReadyQueues();
+    assertThat(worker.getQueues()).containsExactly("bar");
+
+    final WorkerImpl listed =
+        new WorkerImpl(CONFIG, Arrays.asList("foo"), createTestActionJobFactory(), jedis);
+    listed.setReadyQueuesOnly(true);
+    listed.refreshReadyQueues();
+    assertThat(listed.getQueues()).containsExactly("foo");
+  }
+
+  @Test
+  public void testPop_NullQueue() {
+    final Jedis jedis = mock(Jedis.class);
+    final WorkerImpl worker =
+        new WorkerImpl(CONFIG, Arrays.asList("foo"), createTestActionJobFactory(), jedis);
+    worker.setStreamQueue("foo", true);
+    clearInvocations(jedis);
+    assertThat(worker.isStreamQueue(null)).isFalse();
+    assertThat(worker.pop(null)).isNull();
+    verifyNoInteractions(jedis);
+  }
+
+  @Test
+  public void testPopStream_ReadsThroughGroup() {
+    final Jedis jedis = mock(Jedis.class);
+    final WorkerImpl worker =
+        new WorkerImpl(CONFIG, Arrays.asList("foo"), createTestActionJobFactory(), jedis);
+    worker.setStreamQueue("foo", true);
+    final StreamEntryID id = new StreamEntryID(1, 0);
+    final String json = ObjectMapperFactory.get().writeValueAsString(new Job("TestAction"));
+    final List<Map.Entry<String, List<StreamEntry>>> read =
+        Collections.singletonList(
+            new AbstractMap.SimpleEntry<>(
+                "resque:stream:foo",
+                Collections.singletonList(
+                    new StreamEntry(id, Collections.singletonMap("payload", json)))));
+    when(jedis.xreadGroup(eq("workers"), eq(worker.getName()), any(), anyMap())).thenReturn(read);
+
+    final Job popped = ObjectMapperFactory.get().readValue(worker.pop("foo"), Job.class);
+    assertThat(popped.getClassName()).isEqualTo("TestAction");
+    assertThat(popped.getUnknownField("stream_id")).isEqualTo("1-0");
+    verify(jedis).xgroupCreate(eq("resque:stream:foo"), eq("workers"), any(), eq(true));
+    verify(jedis).set(eq("resque:worker:" + worker.getName()), anyString());
+  }
+
+  @Test
+  public void testSuccess_AcknowledgesStreamEntry() {
+    final Jedis jedis = mock(Jedis.class);
+    final WorkerImpl worker =
+        new WorkerImpl(CONFIG, Arrays.asList("foo"), createTestActionJobFactory(), jedis);
+    worker.setStreamQueue("foo", true);
+    worker.streamAckScriptHash.set("streamAckSha");
+    final Job job = new Job("TestAction");
+    job.setUnknownField("stream_id", "1-0");
+    worker.success(job, null, null, "foo");
+    verify(jedis)
+        .evalsha(
+            "streamAckSha",
+            Arrays.asList(
+                "resque:stream:foo",
+                "resque:worker:" + worker.getName(),
+                "resque:stat:processed",
+                "resque:stat:processed:" + worker.getName()),
+            Arrays.asList("workers", "1-0", "foo", ""));
+  }
+
+  @Test
+  public void testSetStreamQueue_Invalid() {
+    final Jedis jedis = mock(Jedis.class);
+    final WorkerImpl worker =
+        new WorkerImpl(
+            CONFIG,
+            Arrays.asList("foo"),
+            createTestActionJobFactory(),
+            jedis,
+            NextQueueStrategy.RESET_TO_HIGHEST_PRIORITY);
+    assertThrows(IllegalStateException.class, () -> worker.setStreamQueue("foo", true));
+    assertThrows(IllegalArgumentException.class, () -> worker.setStreamQueue("", false));
+    assertThrows(IllegalArgumentException.class, () -> worker.setStreamClaimIdleTime(null));
+  }
+
+  @Test
+  public void testSetBatchSize_Invalid() {
+    final WorkerImpl worker =
+        new WorkerImpl(
+            CONFIG, Arrays.asList("foo"), createTestActionJobFactory(), mock(Jedis.class));
+    assertThrows(IllegalArgumentException.class, () -> worker.setBatchSize(0));
+  }
+
+  @Test
+  public void testAwaitCompletion() throws Exception {
+    assertThat(AbstractWorker.awaitCompletion("plain")).isEqualTo("plain");
+    assertThat(AbstractWorker.awaitCompletion(CompletableFuture.completedFuture("async")))
+        .isEqualTo("async");
+    final CompletableFuture<String> failed = new CompletableFuture<>();
+    failed.completeExceptionally(new IOException("boom"));
+    assertThrows(IOException.class, () -> AbstractWorker.awaitCompletion(failed));
+  }
+
+  @Test
+  public void testBackoff_TracksCurrentDelay() throws InterruptedException {
+    final WorkerImpl worker =
+        new WorkerImpl(
+            CONFIG, Arrays.asList("foo"), createTestActionJobFactory(), mock(Jedis.class));
+    assertThat(worker.getBackoffStrategy()).isInstanceOf(FixedBackoffStrategy.class);
+    assertThrows(IllegalArgumentException.class, () -> worker.setBackoffStrategy(null));
+    worker.setBackoffStrategy(previous -> previous + 1);
+    worker.backoff();
+    worker.backoff();
+    assertThat(worker.getCurrentBackoff()).isEqualTo(2L);
+  }
+
+  @Test
+  public void testPoll_AdaptiveRoundWithHitDoesNotBackOff() {
+    final Jedis jedis = mock(Jedis.class);
+    final WorkerImpl worker =
+        new WorkerImpl(
+            CONFIG,
+            Arrays.asList("foo", "bar"),
+            createTestActionJobFactory(),
+            jedis,
+            NextQueueStrategy.ADAPTIVE_HIT_RATE);
+    stubPop(worker, jedis, "foo");
+    final List<String> events = pollAndRecord(worker, 6);
+    assertThat(events).contains("bar");
+    assertThat(events).doesNotContain("backoff");
+  }
+
+  /** Stub the pop script so that only the given queues ever return a job. */
+  private static void stubPop(final WorkerImpl worker, final Jedis jedis, final String... hot) {
+    final String payload = ObjectMapperFactory.get().writeValueAsString(new Job("TestAction"));
+    final List<String> hotQueues = Arrays.asList(hot);
+    worker.popScriptHash.set("popSha");
+    doAnswer(
+            inv -> {
+              final String[] params = (String[]) inv.getRawArguments()[2];
+              return hotQueues.contains(params[params.length - 1]) ? payload : null;
+            })
+        .when(jedis)
+        .evalsha(eq("popSha"), anyInt(), any(String[].class));
+  }
+
+  /**
+   * Run the poll loop until the worker has polled the given number of times, recording each polled
+   * queue and each backoff in order.
+   */
+  private static List<String> pollAndRecord(final WorkerImpl worker, final int polls) {
+    final List<String> events = new ArrayList<>();
+    final int[] pollCount = {0};
+    worker
+        .getWorkerEventEmitter()
+        .addListener(
+            (event, w, queue, job, runner, result, t) -> {
+              events.add(queue);
+              if (++pollCount[0] >= polls) {
+                worker.end(false);
+              }
+            },
+            WorkerEvent.WORKER_POLL);
+    worker.setBackoffStrategy(
+        previous -> {
+          events.add("backoff");
+          return 0;
+        });
+    worker.state.set(JobExecutor.State.RUNNING);
+    worker.poll();
+    return events;
+  }
 }